@@ -1,8 +1,11 @@
 package com.sms.controller;
 
+import com.sms.dto.ConflitSeanceDTO;
+import com.sms.dto.GenerationEmploiDuTempsDTO;
 import com.sms.dto.SeanceCreateDTO;
 import com.sms.dto.SeanceDTO;
 import com.sms.service.EmploiDuTempsService;
+import com.sms.service.GenerationEmploiDuTempsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +21,7 @@ import java.util.Map;
 public class EmploiDuTempsController {
 
     private final EmploiDuTempsService emploiDuTempsService;
+    private final GenerationEmploiDuTempsService generationEmploiDuTempsService;
 
     /**
      * GET /api/emploi-du-temps/seances
@@ -91,6 +95,20 @@ public class EmploiDuTempsController {
         return new ResponseEntity<>(emploiDuTempsService.createSeance(dto), HttpStatus.CREATED);
     }
 
+    /**
+     * POST /api/emploi-du-temps/seances/lot?dryRun=false
+     * Importe un lot de séances en une fois (tout ou rien), après vérification des références et des conflits
+     */
+    @PostMapping("/seances/lot")
+    public ResponseEntity<Map<String, Object>> importerSeances(@RequestBody List<SeanceCreateDTO> seances,
+                                                               @RequestParam(defaultValue = "false") boolean dryRun) {
+        Map<String, Object> resultat = emploiDuTempsService.importerSeances(seances, dryRun);
+        if (!Boolean.TRUE.equals(resultat.get("accepte"))) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(resultat);
+        }
+        return new ResponseEntity<>(resultat, dryRun ? HttpStatus.OK : HttpStatus.CREATED);
+    }
+
     /**
      * POST /api/emploi-du-temps/verifier-conflits
      * Vérifie les conflits d'horaire avant création
@@ -100,6 +118,24 @@ public class EmploiDuTempsController {
         return ResponseEntity.ok(emploiDuTempsService.verifierConflits(dto));
     }
 
+    /**
+     * POST /api/emploi-du-temps/verifier-conflits/lot
+     * Vérifie en une fois les conflits d'un lot de séances (avec l'existant et entre elles)
+     */
+    @PostMapping("/verifier-conflits/lot")
+    public ResponseEntity<List<ConflitSeanceDTO>> verifierConflitsLot(@RequestBody List<SeanceCreateDTO> seances) {
+        return ResponseEntity.ok(emploiDuTempsService.verifierConflitsLot(seances));
+    }
+
+    /**
+     * POST /api/emploi-du-temps/generation
+     * Génère l'emploi du temps des classes à partir de leurs besoins horaires (aperçu ou enregistrement)
+     */
+    @PostMapping("/generation")
+    public ResponseEntity<Map<String, Object>> genererEmploiDuTemps(@RequestBody GenerationEmploiDuTempsDTO dto) {
+        return ResponseEntity.ok(generationEmploiDuTempsService.generer(dto));
+    }
+
     /**
      * PUT /api/emploi-du-temps/seances/{id}
      * Met à jour une séance
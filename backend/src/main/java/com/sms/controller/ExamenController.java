@@ -25,11 +25,16 @@ public class ExamenController {
 
     /**
      * GET /api/examens
-     * Récupère tous les examens
+     * Récupère une page d'examens (?after=&limit=&count=true)
      */
     @GetMapping
-    public ResponseEntity<List<ExamenDTO>> getAllExamens() {
-        return ResponseEntity.ok(examenService.getAllExamens());
+    public ResponseEntity<List<ExamenDTO>> getAllExamens(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int limite = Pagination.limite(limit);
+        return Pagination.reponse(examenService.getExamensApres(after, limite), ExamenDTO::getId, limite,
+                count ? examenService.countExamens() : null);
     }
 
     /**
@@ -149,6 +154,15 @@ public class ExamenController {
         return ResponseEntity.ok().build();
     }
 
+    /**
+     * POST /api/examens/periode/{periodeId}/calculer-rangs
+     * Calcule les rangs de tous les examens d'une période
+     */
+    @PostMapping("/periode/{periodeId}/calculer-rangs")
+    public ResponseEntity<Map<String, Object>> calculerRangsPeriode(@PathVariable Long periodeId) {
+        return ResponseEntity.ok(Map.of("resultats", examenService.calculerRangsPeriode(periodeId)));
+    }
+
     /**
      * GET /api/examens/stats
      * Récupère les statistiques des examens
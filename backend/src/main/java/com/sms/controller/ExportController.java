@@ -0,0 +1,58 @@
+package com.sms.controller;
+
+import com.sms.repository.ExportJdbcRepository.FiltreExport;
+import com.sms.service.ExportService;
+import com.sms.service.ExportService.Format;
+import com.sms.service.ExportService.Jeu;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/exports")
+@RequiredArgsConstructor
+@CrossOrigin(origins = "*")
+public class ExportController {
+
+    private final ExportService exportService;
+
+    /**
+     * GET /api/exports/{notes|presences|paiements}?format=ndjson|csv&anneeScolaire=&classeId=&debut=&fin=&gzip=true
+     * Exporte les lignes en flux (NDJSON par défaut), éventuellement compressées en gzip
+     */
+    @GetMapping("/{jeu}")
+    public ResponseEntity<StreamingResponseBody> exporter(
+            @PathVariable String jeu,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(required = false) String anneeScolaire,
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        Jeu jeuExport = Jeu.valueOf(jeu.toUpperCase());
+        Format formatExport = Format.valueOf(format.toUpperCase());
+        FiltreExport filtre = new FiltreExport(anneeScolaire, classeId, debut, fin);
+
+        String fichier = jeu.toLowerCase()
+                + (anneeScolaire != null ? "-" + anneeScolaire : "")
+                + (formatExport == Format.CSV ? ".csv" : ".ndjson")
+                + (gzip ? ".gz" : "");
+        MediaType type = gzip
+                ? MediaType.parseMediaType("application/gzip")
+                : formatExport == Format.CSV
+                        ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                        : MediaType.parseMediaType("application/x-ndjson");
+
+        StreamingResponseBody corps = sortie -> exportService.exporter(jeuExport, formatExport, filtre, gzip, sortie);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fichier + "\"")
+                .contentType(type)
+                .body(corps);
+    }
+}
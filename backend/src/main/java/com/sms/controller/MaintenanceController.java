@@ -1,12 +1,16 @@
 package com.sms.controller;
 
+import com.sms.entity.AnneeArchivee;
+import com.sms.service.ArchivageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +21,7 @@ import java.util.Map;
 public class MaintenanceController {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ArchivageService archivageService;
 
     @PostMapping("/fix-matieres-table")
     public ResponseEntity<Map<String, Object>> fixMatieresTable() {
@@ -466,4 +471,22 @@ public class MaintenanceController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
+
+    /**
+     * GET /api/maintenance/archives
+     * Liste les années scolaires archivées
+     */
+    @GetMapping("/archives")
+    public ResponseEntity<List<AnneeArchivee>> getAnneesArchivees() {
+        return ResponseEntity.ok(archivageService.getAnneesArchivees());
+    }
+
+    /**
+     * POST /api/maintenance/archives/{anneeScolaire}
+     * Déplace les présences et notes d'une année passée vers les tables d'archive
+     */
+    @PostMapping("/archives/{anneeScolaire}")
+    public ResponseEntity<AnneeArchivee> archiverAnnee(@PathVariable String anneeScolaire) {
+        return ResponseEntity.ok(archivageService.archiver(anneeScolaire));
+    }
 }
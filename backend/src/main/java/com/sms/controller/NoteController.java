@@ -1,9 +1,11 @@
 package com.sms.controller;
 
 import com.sms.dto.BulletinDTO;
+import com.sms.dto.ClassementDTO;
 import com.sms.dto.NoteBulkCreateDTO;
 import com.sms.dto.NoteCreateDTO;
 import com.sms.dto.NoteDTO;
+import com.sms.service.BulletinService.ModeClassement;
 import com.sms.service.NoteService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -23,11 +25,16 @@ public class NoteController {
 
     /**
      * GET /api/notes
-     * Récupère toutes les notes
+     * Récupère une page de notes (?after=&limit=&count=true)
      */
     @GetMapping
-    public ResponseEntity<List<NoteDTO>> getAllNotes() {
-        return ResponseEntity.ok(noteService.getAllNotes());
+    public ResponseEntity<List<NoteDTO>> getAllNotes(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int limite = Pagination.limite(limit);
+        return Pagination.reponse(noteService.getNotesApres(after, limite), NoteDTO::getId, limite,
+                count ? noteService.countNotes() : null);
     }
 
     /**
@@ -127,6 +134,32 @@ public class NoteController {
         return ResponseEntity.ok(noteService.genererBulletin(eleveId, periodeId, appreciation, decision));
     }
 
+    /**
+     * POST /api/notes/bulletin/classer
+     * Calcule le rang de tous les élèves d'une classe pour une période
+     * (mode : COMPETITION par défaut, ou DENSE)
+     */
+    @PostMapping("/bulletin/classer")
+    public ResponseEntity<ClassementDTO> classerClasse(@RequestBody Map<String, Object> body) {
+        Long classeId = Long.valueOf(body.get("classeId").toString());
+        Long periodeId = Long.valueOf(body.get("periodeId").toString());
+        ModeClassement mode = body.get("mode") != null
+                ? ModeClassement.valueOf(body.get("mode").toString().toUpperCase())
+                : ModeClassement.COMPETITION;
+        return ResponseEntity.ok(noteService.classerClasse(classeId, periodeId, mode));
+    }
+
+    /**
+     * POST /api/notes/bulletin/classer/periode/{periodeId}
+     * Calcule le rang de tous les élèves de toutes les classes pour une période
+     */
+    @PostMapping("/bulletin/classer/periode/{periodeId}")
+    public ResponseEntity<ClassementDTO> classerPeriode(
+            @PathVariable Long periodeId,
+            @RequestParam(defaultValue = "COMPETITION") ModeClassement mode) {
+        return ResponseEntity.ok(noteService.classerPeriode(periodeId, mode));
+    }
+
     /**
      * GET /api/notes/bulletins/classe/{classeId}/periode/{periodeId}
      * Récupère tous les bulletins d'une classe pour une période
@@ -146,4 +179,13 @@ public class NoteController {
             @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
         return ResponseEntity.ok(noteService.getStatsAcademiques(anneeScolaire));
     }
+
+    /**
+     * POST /api/notes/moyennes-classe/reconstruire
+     * Recalcule les moyennes de classe par matière depuis les notes
+     */
+    @PostMapping("/moyennes-classe/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireMoyennesClasse() {
+        return ResponseEntity.ok(Map.of("agregats", noteService.reconstruireMoyennesClasse()));
+    }
 }
@@ -0,0 +1,48 @@
+package com.sms.controller;
+
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Pagination par curseur (keyset) des endpoints de liste, appliquée par défaut.
+ * Le client passe ?after=&lt;dernier id reçu&gt;&amp;limit=n (100 par défaut) ; la page
+ * contient les lignes d'id strictement supérieur au curseur, par id croissant
+ * (méthodes get...Apres des services). L'en-tête X-Next-Cursor donne l'id à
+ * passer pour la page suivante (absent sur la dernière page) et X-Total-Count
+ * le nombre total de lignes lorsque count=true. Aucune variante ne renvoie la
+ * table entière : un client qui veut tout lire suit le curseur page par page.
+ */
+final class Pagination {
+
+    static final String EN_TETE_CURSEUR = "X-Next-Cursor";
+    static final String EN_TETE_TOTAL = "X-Total-Count";
+
+    private static final int LIMITE_DEFAUT = 100;
+    private static final int LIMITE_MAX = 1000;
+
+    private Pagination() {
+    }
+
+    static int limite(Integer limit) {
+        if (limit == null) {
+            return LIMITE_DEFAUT;
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("Le paramètre limit doit être positif");
+        }
+        return Math.min(limit, LIMITE_MAX);
+    }
+
+    static <T> ResponseEntity<List<T>> reponse(List<T> page, Function<T, Long> id, int limite, Long total) {
+        ResponseEntity.BodyBuilder reponse = ResponseEntity.ok();
+        if (page.size() == limite) {
+            reponse.header(EN_TETE_CURSEUR, String.valueOf(id.apply(page.get(page.size() - 1))));
+        }
+        if (total != null) {
+            reponse.header(EN_TETE_TOTAL, String.valueOf(total));
+        }
+        return reponse.body(page);
+    }
+}
@@ -1,15 +1,34 @@
 package com.sms.controller;
 
+import com.sms.dto.BalanceAgeeDTO;
+import com.sms.dto.EmissionFraisDTO;
 import com.sms.dto.PaiementCreateDTO;
 import com.sms.dto.PaiementDTO;
+import com.sms.dto.SoldeEleveDTO;
+import com.sms.dto.TransactionPaiementDTO;
 import com.sms.dto.TypeFraisDTO;
+import com.sms.repository.BalanceAgeeJdbcRepository.FiltreBalance;
+import com.sms.service.BalanceAgeeService;
+import com.sms.service.BalanceAgeeService.Regroupement;
+import com.sms.service.EmissionFraisService;
+import com.sms.service.RapprochementService;
 import com.sms.service.PaiementService;
+import com.sms.service.SoldeEleveService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,10 +38,19 @@ import java.util.Map;
 public class PaiementController {
 
     private final PaiementService paiementService;
+    private final SoldeEleveService soldeEleveService;
+    private final BalanceAgeeService balanceAgeeService;
+    private final EmissionFraisService emissionFraisService;
+    private final RapprochementService rapprochementService;
 
     @GetMapping
-    public ResponseEntity<List<PaiementDTO>> getAllPaiements() {
-        return ResponseEntity.ok(paiementService.getAllPaiements());
+    public ResponseEntity<List<PaiementDTO>> getAllPaiements(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int limite = Pagination.limite(limit);
+        return Pagination.reponse(paiementService.getPaiementsApres(after, limite), PaiementDTO::getId, limite,
+                count ? paiementService.countPaiements() : null);
     }
 
     @GetMapping("/{id}")
@@ -35,11 +63,30 @@ public class PaiementController {
         return ResponseEntity.ok(paiementService.getPaiementsByEleve(eleveId));
     }
 
+    @GetMapping("/reference/{reference}")
+    public ResponseEntity<List<PaiementDTO>> getPaiementsByReference(@PathVariable String reference) {
+        return ResponseEntity.ok(paiementService.getPaiementsByReference(reference));
+    }
+
+    @PostMapping("/rapprochement")
+    public ResponseEntity<Map<String, Object>> rapprocherReleve(
+            @RequestParam("fichier") MultipartFile fichier,
+            @RequestParam(required = false) String modePaiement) throws IOException {
+        try (InputStream releve = fichier.getInputStream()) {
+            return ResponseEntity.ok(rapprochementService.rapprocher(releve, modePaiement));
+        }
+    }
+
     @PostMapping
     public ResponseEntity<PaiementDTO> createPaiement(@RequestBody PaiementCreateDTO dto) {
         return ResponseEntity.status(HttpStatus.CREATED).body(paiementService.createPaiement(dto));
     }
 
+    @PostMapping("/emission")
+    public ResponseEntity<Map<String, Object>> emettreFrais(@RequestBody EmissionFraisDTO dto) {
+        return ResponseEntity.ok(emissionFraisService.emettre(dto));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<PaiementDTO> updatePaiement(@PathVariable Long id, @RequestBody PaiementCreateDTO dto) {
         return ResponseEntity.ok(paiementService.updatePaiement(id, dto));
@@ -48,11 +95,18 @@ public class PaiementController {
     @PatchMapping("/{id}/payer")
     public ResponseEntity<PaiementDTO> enregistrerPaiement(
             @PathVariable Long id,
-            @RequestBody Map<String, Object> body) {
+            @RequestBody Map<String, Object> body,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
         BigDecimal montant = new BigDecimal(body.get("montant").toString());
         String mode = (String) body.get("modePaiement");
         String reference = (String) body.get("reference");
-        return ResponseEntity.ok(paiementService.enregistrerPaiement(id, montant, mode, reference));
+        String cle = body.get("cleIdempotence") != null ? body.get("cleIdempotence").toString() : idempotencyKey;
+        return ResponseEntity.ok(paiementService.enregistrerPaiement(id, montant, mode, reference, cle));
+    }
+
+    @GetMapping("/{id}/transactions")
+    public ResponseEntity<List<TransactionPaiementDTO>> getTransactions(@PathVariable Long id) {
+        return ResponseEntity.ok(paiementService.getTransactions(id));
     }
 
     @DeleteMapping("/{id}")
@@ -78,4 +132,76 @@ public class PaiementController {
             @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
         return ResponseEntity.ok(paiementService.getSoldeEleve(eleveId, anneeScolaire));
     }
+
+    @GetMapping("/soldes")
+    public ResponseEntity<List<SoldeEleveDTO>> getSoldes(
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(required = false) List<Long> eleveIds,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        return ResponseEntity.ok(paiementService.getSoldes(classeId, eleveIds, anneeScolaire));
+    }
+
+    @GetMapping("/balance-agee")
+    public ResponseEntity<Map<String, Object>> getBalanceAgee(
+            @RequestParam(defaultValue = "classe") String par,
+            @RequestParam(required = false) String anneeScolaire,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateReference) {
+        return ResponseEntity.ok(balanceAgee(regroupement(par), new FiltreBalance(dateOuAujourdhui(dateReference),
+                anneeScolaire, null, null)));
+    }
+
+    @GetMapping("/balance-agee/eleves")
+    public ResponseEntity<Map<String, Object>> getBalanceAgeeEleves(
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(required = false) Long typeFraisId,
+            @RequestParam(required = false) String anneeScolaire,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateReference) {
+        return ResponseEntity.ok(balanceAgee(Regroupement.ELEVE, new FiltreBalance(dateOuAujourdhui(dateReference),
+                anneeScolaire, classeId, typeFraisId)));
+    }
+
+    @GetMapping("/balance-agee/csv")
+    public ResponseEntity<StreamingResponseBody> exporterBalanceAgee(
+            @RequestParam(defaultValue = "classe") String par,
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(required = false) Long typeFraisId,
+            @RequestParam(required = false) String anneeScolaire,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateReference) {
+        Regroupement regroupement = regroupement(par);
+        LocalDate date = dateOuAujourdhui(dateReference);
+        FiltreBalance filtre = new FiltreBalance(date, anneeScolaire, classeId, typeFraisId);
+        StreamingResponseBody corps = sortie -> balanceAgeeService.exporterCsv(regroupement, filtre, sortie);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"balance-agee-" + par.toLowerCase() + "-" + date + ".csv\"")
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .body(corps);
+    }
+
+    @PostMapping("/soldes/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireSoldes() {
+        return ResponseEntity.ok(Map.of("soldes", soldeEleveService.reconstruire()));
+    }
+
+    private Map<String, Object> balanceAgee(Regroupement regroupement, FiltreBalance filtre) {
+        List<BalanceAgeeDTO> lignes = balanceAgeeService.calculer(regroupement, filtre);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("dateReference", filtre.dateReference());
+        response.put("lignes", lignes);
+        response.put("total", balanceAgeeService.totaliser(lignes));
+        return response;
+    }
+
+    private static Regroupement regroupement(String par) {
+        return switch (par.toLowerCase()) {
+            case "classe" -> Regroupement.CLASSE;
+            case "typefrais", "type-frais" -> Regroupement.TYPE_FRAIS;
+            case "eleve" -> Regroupement.ELEVE;
+            default -> throw new IllegalArgumentException("Regroupement inconnu : " + par + " (classe, typeFrais ou eleve)");
+        };
+    }
+
+    private static LocalDate dateOuAujourdhui(LocalDate date) {
+        return date != null ? date : LocalDate.now();
+    }
 }
@@ -21,11 +21,16 @@ public class PersonnelController {
 
     /**
      * GET /api/personnel
-     * Récupère tout le personnel
+     * Récupère une page de personnel (?after=&limit=&count=true)
      */
     @GetMapping
-    public ResponseEntity<List<PersonnelDTO>> getAllPersonnel() {
-        return ResponseEntity.ok(personnelService.getAllPersonnel());
+    public ResponseEntity<List<PersonnelDTO>> getAllPersonnel(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int limite = Pagination.limite(limit);
+        return Pagination.reponse(personnelService.getPersonnelApres(after, limite), PersonnelDTO::getId, limite,
+                count ? personnelService.countPersonnel() : null);
     }
 
     /**
@@ -1,7 +1,13 @@
 package com.sms.controller;
 
+import com.sms.dto.AlerteAbsenceDTO;
 import com.sms.dto.PresenceCreateDTO;
 import com.sms.dto.PresenceDTO;
+import com.sms.dto.StatsPresenceDTO;
+import com.sms.dto.TendancePresenceDTO;
+import com.sms.service.AlerteAbsenceService;
+import com.sms.service.IndexAbsencesService;
+import com.sms.service.PresenceAgregatService;
 import com.sms.service.PresenceService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -20,14 +26,22 @@ import java.util.Map;
 public class PresenceController {
 
     private final PresenceService presenceService;
+    private final IndexAbsencesService indexAbsencesService;
+    private final AlerteAbsenceService alerteAbsenceService;
+    private final PresenceAgregatService presenceAgregatService;
 
     /**
      * GET /api/presences
-     * Récupère toutes les présences
+     * Récupère une page de présences (?after=&limit=&count=true)
      */
     @GetMapping
-    public ResponseEntity<List<PresenceDTO>> getAllPresences() {
-        return ResponseEntity.ok(presenceService.getAllPresences());
+    public ResponseEntity<List<PresenceDTO>> getAllPresences(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "false") boolean count) {
+        int limite = Pagination.limite(limit);
+        return Pagination.reponse(presenceService.getPresencesApres(after, limite), PresenceDTO::getId, limite,
+                count ? presenceService.countPresences() : null);
     }
 
     /**
@@ -143,6 +157,17 @@ public class PresenceController {
         return ResponseEntity.ok(presenceService.getStatsPresenceEleve(eleveId, anneeScolaire));
     }
 
+    /**
+     * GET /api/presences/stats/classe/{classeId}
+     * Récupère les statistiques de présence de tous les élèves d'une classe
+     */
+    @GetMapping("/stats/classe/{classeId}")
+    public ResponseEntity<List<StatsPresenceDTO>> getStatsPresenceClasse(
+            @PathVariable Long classeId,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        return ResponseEntity.ok(presenceService.getStatsPresenceClasse(classeId, anneeScolaire));
+    }
+
     /**
      * GET /api/presences/stats
      * Récupère les statistiques globales de présence
@@ -152,4 +177,96 @@ public class PresenceController {
             @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
         return ResponseEntity.ok(presenceService.getStatsPresencesGlobales(anneeScolaire));
     }
+
+    /**
+     * GET /api/presences/tendances?classeId=&granularite=semaine&debut=&fin=
+     * Courbe de présence par jour ou par semaine, lue dans les agrégats
+     */
+    @GetMapping("/tendances")
+    public ResponseEntity<List<TendancePresenceDTO>> getTendances(
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(defaultValue = "semaine") String granularite,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate debut,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fin,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        if (!"jour".equals(granularite) && !"semaine".equals(granularite)) {
+            throw new IllegalArgumentException("Granularité invalide : " + granularite + " (jour ou semaine)");
+        }
+        return ResponseEntity.ok(presenceAgregatService.getTendance(anneeScolaire, classeId,
+                "semaine".equals(granularite), debut, fin));
+    }
+
+    /**
+     * POST /api/presences/agregats/reconstruire
+     * Recalcule les agrégats journaliers et hebdomadaires depuis la table presences
+     */
+    @PostMapping("/agregats/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireAgregats() {
+        return ResponseEntity.ok(Map.of("agregats", presenceAgregatService.reconstruire()));
+    }
+
+    /**
+     * GET /api/presences/analyse/eleve/{eleveId}
+     * Analyse des absences d'un élève (séries, taux) depuis l'index en mémoire
+     */
+    @GetMapping("/analyse/eleve/{eleveId}")
+    public ResponseEntity<Map<String, Object>> getAnalyseEleve(
+            @PathVariable Long eleveId,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        return ResponseEntity.ok(indexAbsencesService.getAnalyseEleve(eleveId, anneeScolaire));
+    }
+
+    /**
+     * GET /api/presences/analyse/absences-consecutives?seuil=3&classeId=
+     * Élèves ayant au moins seuil jours d'absence consécutifs
+     */
+    @GetMapping("/analyse/absences-consecutives")
+    public ResponseEntity<List<Map<String, Object>>> getAbsencesConsecutives(
+            @RequestParam(defaultValue = "3") int seuil,
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        return ResponseEntity.ok(indexAbsencesService.getAbsencesConsecutives(anneeScolaire, seuil, classeId));
+    }
+
+    /**
+     * GET /api/presences/analyse/classe/{classeId}/jours?limite=10
+     * Jours ayant le plus d'absents dans une classe
+     */
+    @GetMapping("/analyse/classe/{classeId}/jours")
+    public ResponseEntity<List<Map<String, Object>>> getJoursPlusAbsences(
+            @PathVariable Long classeId,
+            @RequestParam(defaultValue = "10") int limite,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        return ResponseEntity.ok(indexAbsencesService.getJoursPlusAbsences(classeId, anneeScolaire, limite));
+    }
+
+    /**
+     * POST /api/presences/analyse/reconstruire
+     * Reconstruit l'index des absences depuis la table presences
+     */
+    @PostMapping("/analyse/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireIndex() {
+        return ResponseEntity.ok(indexAbsencesService.reconstruire());
+    }
+
+    /**
+     * GET /api/presences/alertes?classeId=&regle=
+     * Alertes d'absentéisme actives (seuils configurés sous alertes.* dans application.yml)
+     */
+    @GetMapping("/alertes")
+    public ResponseEntity<List<AlerteAbsenceDTO>> getAlertes(
+            @RequestParam(required = false) Long classeId,
+            @RequestParam(required = false) AlerteAbsenceService.Regle regle,
+            @RequestParam(defaultValue = "2024-2025") String anneeScolaire) {
+        return ResponseEntity.ok(alerteAbsenceService.getAlertes(anneeScolaire, classeId, regle));
+    }
+
+    /**
+     * POST /api/presences/alertes/reconstruire
+     * Recalcule les compteurs et alertes depuis la table presences
+     */
+    @PostMapping("/alertes/reconstruire")
+    public ResponseEntity<Map<String, Object>> reconstruireAlertes() {
+        return ResponseEntity.ok(alerteAbsenceService.reconstruire());
+    }
 }
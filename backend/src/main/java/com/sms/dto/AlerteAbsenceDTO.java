@@ -0,0 +1,29 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Alerte d'absentéisme active : un élève a atteint le seuil d'une règle.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlerteAbsenceDTO {
+    private String regle;
+    private Long eleveId;
+    private String eleveNom;
+    private String elevePrenom;
+    private String eleveMatricule;
+    private String eleveClasse;
+    private String anneeScolaire;
+    private Long periodeId;
+    private Integer valeur;
+    private Integer seuil;
+    private LocalDateTime depuis;
+}
@@ -0,0 +1,28 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne de balance âgée : reste à payer des paiements échus d'une classe, d'un
+ * type de frais ou d'un élève, réparti par ancienneté du retard.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceAgeeDTO {
+    private Long id;
+    private String libelle;
+    private String matricule;
+    private Long nombrePaiements;
+    private BigDecimal tranche0a30;
+    private BigDecimal tranche31a60;
+    private BigDecimal tranche61a90;
+    private BigDecimal tranchePlus90;
+    private BigDecimal total;
+}
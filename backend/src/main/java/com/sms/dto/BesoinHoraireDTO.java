@@ -0,0 +1,19 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Volume horaire hebdomadaire d'une matière d'une classe à placer dans
+ * l'emploi du temps, avec son professeur et le type de salle requis.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BesoinHoraireDTO {
+    private Long classeMatiereId;
+    private Integer heuresHebdomadaires; // en créneaux
+    private Long professeurId;
+    private String typeSalle; // null = tout type de salle
+}
@@ -0,0 +1,24 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Résultat d'un calcul de classement des bulletins (classe ou période entière).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ClassementDTO {
+    private Long periodeId;
+    private Long classeId;
+    private String mode;
+    private Integer classes;
+    private Integer eleves;
+    private Integer bulletinsMisAJour;
+    private Integer bulletinsCrees;
+    private Long dureeMs;
+}
@@ -0,0 +1,23 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Conflit d'une séance proposée (par sa position dans le lot) avec une séance
+ * existante ou avec une autre séance du même lot. Sert aussi aux erreurs de
+ * l'import par lot (référence introuvable, horaires invalides).
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConflitSeanceDTO {
+    private Integer index;
+    private String ressource; // salle, professeur, classe (ou matiere pour une erreur de référence)
+    private Long seanceId;    // séance existante en conflit
+    private Integer autreIndex; // ou séance du lot en conflit
+    private String message;
+}
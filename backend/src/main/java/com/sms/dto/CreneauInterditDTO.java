@@ -0,0 +1,24 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+
+/**
+ * Plage interdite pour la génération de l'emploi du temps. Sans classe,
+ * professeur ni salle, elle s'applique à tout l'établissement ; sans heures,
+ * à toute la journée.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreneauInterditDTO {
+    private Integer jourSemaine;
+    private LocalTime heureDebut;
+    private LocalTime heureFin;
+    private Long classeId;
+    private Long professeurId;
+    private Long salleId;
+}
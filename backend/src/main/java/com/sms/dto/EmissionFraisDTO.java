@@ -0,0 +1,20 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmissionFraisDTO {
+    private String anneeScolaire;
+    private String moisConcerne;
+    private Long typeFraisId;
+    private LocalDate dateEcheance;
+    private Map<Long, BigDecimal> montantsParNiveau; // niveauId -> montant ; les niveaux absents ne sont pas facturés
+}
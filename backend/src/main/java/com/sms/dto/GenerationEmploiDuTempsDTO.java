@@ -0,0 +1,24 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GenerationEmploiDuTempsDTO {
+    private String anneeScolaire;
+    private List<BesoinHoraireDTO> besoins;
+    private List<CreneauInterditDTO> creneauxInterdits;
+    private Integer joursParSemaine;      // à partir du lundi, 6 par défaut
+    private Integer creneauxParJour;      // 8 par défaut (64 créneaux au plus par semaine)
+    private LocalTime heureDebut;         // 08:00 par défaut
+    private Integer dureeCreneauMinutes;  // 60 par défaut
+    private Integer budgetSecondes;       // 10 par défaut
+    private boolean persister;            // false = aperçu sans enregistrement
+    private boolean remplacer = true;     // désactive les séances actives des classes générées
+}
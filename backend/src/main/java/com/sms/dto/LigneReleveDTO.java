@@ -0,0 +1,24 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne d'un relevé bancaire non rapprochée, avec la raison.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LigneReleveDTO {
+    private Long numeroLigne;
+    private String date;
+    private String reference;
+    private String matricule;
+    private BigDecimal montant;
+    private String motif;
+}
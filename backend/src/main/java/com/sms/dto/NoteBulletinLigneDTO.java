@@ -0,0 +1,24 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne de note projetée pour le calcul des bulletins d'une classe
+ * (seules les colonnes utiles au calcul des moyennes sont chargées).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteBulletinLigneDTO {
+    private Long eleveId;
+    private Long classeMatiereId;
+    private Long matiereId;
+    private String matiere;
+    private Integer coefficient;
+    private BigDecimal valeur;
+    private Boolean absent;
+}
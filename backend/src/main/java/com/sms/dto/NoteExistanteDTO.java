@@ -0,0 +1,25 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Clé d'upsert et valeurs courantes d'une note déjà enregistrée,
+ * utilisées par l'import en masse sans charger l'entité complète.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteExistanteDTO {
+    private Long id;
+    private Long eleveId;
+    private Long classeMatiereId;
+    private Long periodeId;
+    private Long examenId;
+    private String type;
+    private BigDecimal valeur;
+    private Boolean absent;
+}
@@ -0,0 +1,25 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Solde des paiements d'un élève sur une année scolaire.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoldeEleveDTO {
+    private Long eleveId;
+    private String eleveNom;
+    private String elevePrenom;
+    private String eleveMatricule;
+    private BigDecimal totalDu;
+    private BigDecimal totalPaye;
+    private BigDecimal resteAPayer;
+}
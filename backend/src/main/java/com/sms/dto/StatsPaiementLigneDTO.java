@@ -0,0 +1,28 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Ligne de l'agrégation des paiements d'une année par statut, type de frais,
+ * mode de paiement et mois de paiement.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsPaiementLigneDTO {
+    private String statut;
+    private String typeFraisCode;
+    private String modePaiement;
+    private Integer annee;
+    private Integer mois;
+    private Long nombre;
+    private BigDecimal montant;
+    private BigDecimal montantPaye;
+    private BigDecimal resteAPayer;
+}
@@ -0,0 +1,34 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Compteurs de présence d'un élève sur une année scolaire, calculés en une
+ * seule agrégation conditionnelle.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsPresenceDTO {
+    private Long eleveId;
+    private String eleveNom;
+    private String elevePrenom;
+    private String eleveMatricule;
+    private Long totalPresent;
+    private Long totalAbsent;
+    private Long totalRetard;
+    private Long absencesNonJustifiees;
+    private BigDecimal tauxPresence;
+
+    public StatsPresenceDTO(Long eleveId, String eleveNom, String elevePrenom, String eleveMatricule,
+                            Long totalPresent, Long totalAbsent, Long totalRetard, Long absencesNonJustifiees) {
+        this(eleveId, eleveNom, elevePrenom, eleveMatricule, totalPresent, totalAbsent, totalRetard,
+                absencesNonJustifiees, null);
+    }
+}
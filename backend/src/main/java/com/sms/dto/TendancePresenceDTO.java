@@ -0,0 +1,30 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Point d'une courbe de présence (jour, ou semaine datée du lundi), lu dans
+ * les agrégats presences_jour / presences_semaine.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TendancePresenceDTO {
+    private LocalDate date;
+    private Long totalPresent;
+    private Long totalAbsent;
+    private Long totalRetard;
+    private Long total;
+    private BigDecimal tauxPresence;
+
+    public TendancePresenceDTO(LocalDate date, Long totalPresent, Long totalAbsent, Long totalRetard, Long total) {
+        this(date, totalPresent, totalAbsent, totalRetard, total, null);
+    }
+}
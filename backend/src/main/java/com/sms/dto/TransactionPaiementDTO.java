@@ -0,0 +1,24 @@
+package com.sms.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPaiementDTO {
+    private Long id;
+    private Long paiementId;
+    private String nature;
+    private BigDecimal montant;
+    private String modePaiement;
+    private String reference;
+    private LocalDateTime dateTransaction;
+    private String cleIdempotence;
+}
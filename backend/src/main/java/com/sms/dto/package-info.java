@@ -0,0 +1,11 @@
+/**
+ * Objets renvoyés par l'API.
+ *
+ * Les lectures de listes remplissent ces DTO directement en JPQL
+ * ({@code SELECT new com.sms.dto.XxxDTO(...)}, constantes SELECT_*_DTO des
+ * repositories) : seules les colonnes affichées sont lues, et les lignes ne
+ * passent ni par l'hydratation des entités ni par le contexte de persistance
+ * (pas de suivi ni de dirty checking). Les conversions toDTO des services ne
+ * servent plus qu'aux lectures unitaires et aux retours d'écriture.
+ */
+package com.sms.dto;
@@ -0,0 +1,33 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registre des années scolaires dont les présences et notes ont été déplacées
+ * dans presences_archive / notes_archive. Une année y est inscrite avant le
+ * déplacement : ses lectures interrogent alors les deux tables.
+ */
+@Entity
+@Table(name = "annees_archivees")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnneeArchivee {
+    @Id
+    @Column(name = "annee_scolaire", length = 20)
+    private String anneeScolaire;
+
+    @Column(name = "date_archivage", nullable = false)
+    private LocalDateTime dateArchivage;
+
+    @Column(name = "presences_archivees", nullable = false)
+    private Long presencesArchivees = 0L;
+
+    @Column(name = "notes_archivees", nullable = false)
+    private Long notesArchivees = 0L;
+}
@@ -0,0 +1,54 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Agrégat maintenu des notes d'une classe-matière pour une période.
+ * Mis à jour de façon incrémentale à chaque écriture de note, il permet
+ * d'obtenir la moyenne de classe d'une matière sans parcourir la table notes.
+ */
+@Entity
+@Table(name = "moyennes_classe_matiere",
+        uniqueConstraints = @UniqueConstraint(name = "uk_moyenne_classe_matiere_periode",
+                columnNames = {"classe_matiere_id", "periode_id"}),
+        indexes = @Index(name = "idx_moyennes_classe_periode", columnList = "classe_id, periode_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MoyenneClasseMatiere {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "classe_id", nullable = false)
+    private Long classeId;
+
+    @Column(name = "classe_matiere_id", nullable = false)
+    private Long classeMatiereId;
+
+    @Column(name = "periode_id", nullable = false)
+    private Long periodeId;
+
+    @Column(name = "somme_notes", nullable = false, precision = 12, scale = 2)
+    private BigDecimal sommeNotes = BigDecimal.ZERO; // Somme des notes hors absents
+
+    @Column(name = "nombre_notes", nullable = false)
+    private Integer nombreNotes = 0; // Nombre de notes hors absents
+
+    @Column(name = "nombre_absents", nullable = false)
+    private Integer nombreAbsents = 0;
+
+    @Transient
+    public BigDecimal getMoyenne() {
+        if (nombreNotes == null || nombreNotes <= 0) {
+            return null;
+        }
+        return sommeNotes.divide(BigDecimal.valueOf(nombreNotes), 2, RoundingMode.HALF_UP);
+    }
+}
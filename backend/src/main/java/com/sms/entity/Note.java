@@ -9,7 +9,21 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "notes")
+@NamedEntityGraph(name = "Note.detail", attributeNodes = {
+        @NamedAttributeNode("eleve"),
+        @NamedAttributeNode("matiere"),
+        @NamedAttributeNode("examen"),
+        @NamedAttributeNode("periode"),
+        @NamedAttributeNode(value = "classeMatiere", subgraph = "classeMatiere")
+}, subgraphs = {
+        @NamedSubgraph(name = "classeMatiere", attributeNodes = @NamedAttributeNode(value = "matiereNiveau", subgraph = "matiereNiveau")),
+        @NamedSubgraph(name = "matiereNiveau", attributeNodes = @NamedAttributeNode("matiere"))
+})
+@Table(name = "notes", indexes = {
+        @Index(name = "idx_notes_eleve_periode", columnList = "eleve_id, periode_id"),
+        @Index(name = "idx_notes_cle_upsert", columnList = "eleve_id, classe_matiere_id, periode_id, type"),
+        @Index(name = "idx_notes_classe_matiere_periode", columnList = "classe_matiere_id, periode_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,23 +32,23 @@ public class Note {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "eleve_id", nullable = false)
     private Eleve eleve;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "matiere_id")
     private Matiere matiere; // Kept for backward compatibility, but use classeMatiere instead
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "classe_matiere_id")
     private ClasseMatiere classeMatiere; // Primary relation - contains matiere + coefficient
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "examen_id")
     private Examen examen;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "periode_id")
     private Periode periode;
 
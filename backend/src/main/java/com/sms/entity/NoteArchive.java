@@ -0,0 +1,63 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Note d'une année scolaire archivée, déplacée depuis la table notes par
+ * ArchivageService (mêmes colonnes, même id). Sans clés étrangères.
+ */
+@Entity
+@Table(name = "notes_archive", indexes = {
+        @Index(name = "idx_notes_archive_eleve_periode", columnList = "eleve_id, periode_id"),
+        @Index(name = "idx_notes_archive_matiere", columnList = "matiere_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NoteArchive {
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "eleve_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Eleve eleve;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "matiere_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Matiere matiere;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "classe_matiere_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private ClasseMatiere classeMatiere;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "examen_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Examen examen;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "periode_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Periode periode;
+
+    @Column(nullable = false, precision = 5, scale = 2)
+    private BigDecimal valeur;
+
+    @Column(length = 50)
+    private String type;
+
+    @Column(name = "date_note")
+    private LocalDate dateNote;
+
+    private String commentaire;
+
+    @Column(name = "annee_scolaire")
+    private String anneeScolaire;
+
+    @Column(nullable = false)
+    private Boolean absent;
+}
@@ -10,12 +10,26 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "paiements")
+@Table(name = "paiements",
+        uniqueConstraints = @UniqueConstraint(name = "uk_paiements_frais_mois",
+                columnNames = {"eleve_id", "type_frais_id", "annee_scolaire", "mois_concerne"}),
+        indexes = {
+        @Index(name = "idx_paiements_eleve_annee", columnList = "eleve_id, annee_scolaire"),
+        @Index(name = "idx_paiements_annee_statut", columnList = "annee_scolaire, statut"),
+        @Index(name = "idx_paiements_reference", columnList = "reference_paiement")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Paiement {
 
+    // Paiement supprimé : conservé avec son journal, montant et montant payé ramenés à zéro,
+    // mois concerné libéré pour une nouvelle émission
+    public static final String ANNULE = "Annulé";
+    public static final String EN_ATTENTE = "En attente";
+    public static final String PARTIEL = "Partiel";
+    public static final String PAYE = "Payé";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -50,7 +64,7 @@ public class Paiement {
     private LocalDate dateEcheance;
 
     @Column(length = 30)
-    private String statut = "En attente";
+    private String statut = EN_ATTENTE;
 
     @Column(name = "mois_concerne", length = 20)
     private String moisConcerne;
@@ -64,6 +78,11 @@ public class Paiement {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Verrouillage optimiste : deux encaissements simultanés ne peuvent pas s'écraser
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version = 0L;
+
     @PrePersist
     public void prePersist() {
         if (createdAt == null) {
@@ -80,14 +99,21 @@ public class Paiement {
         calculateResteAPayer();
     }
 
+    /**
+     * Reste et statut suivent le montant payé (somme du journal) : ils
+     * reviennent à « En attente » quand un ajustement ramène la somme à zéro.
+     */
     private void calculateResteAPayer() {
-        if (montant != null && montantPaye != null) {
-            resteAPayer = montant.subtract(montantPaye);
-            if (resteAPayer.compareTo(BigDecimal.ZERO) <= 0) {
-                statut = "Payé";
-                resteAPayer = BigDecimal.ZERO;
-            } else if (montantPaye.compareTo(BigDecimal.ZERO) > 0) {
-                statut = "Partiel";
+        if (ANNULE.equals(statut)) {
+            resteAPayer = BigDecimal.ZERO;
+        } else if (montant != null && montantPaye != null) {
+            resteAPayer = montant.subtract(montantPaye).max(BigDecimal.ZERO);
+            if (montantPaye.signum() <= 0) {
+                statut = EN_ATTENTE;
+            } else if (resteAPayer.signum() == 0) {
+                statut = PAYE;
+            } else {
+                statut = PARTIEL;
             }
         }
     }
@@ -9,7 +9,22 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "presences")
+@NamedEntityGraph(name = "Presence.detail", attributeNodes = {
+        @NamedAttributeNode(value = "eleve", subgraph = "eleve"),
+        @NamedAttributeNode(value = "seance", subgraph = "seance")
+}, subgraphs = {
+        @NamedSubgraph(name = "eleve", attributeNodes = @NamedAttributeNode("classe")),
+        @NamedSubgraph(name = "seance", attributeNodes = @NamedAttributeNode("matiere"))
+})
+@Table(name = "presences",
+        uniqueConstraints = @UniqueConstraint(name = "uk_presences_eleve_seance_date",
+                columnNames = {"eleve_id", "seance_cle", "date_presence"}),
+        indexes = {
+        @Index(name = "idx_presences_eleve_annee_statut", columnList = "eleve_id, annee_scolaire, statut"),
+        @Index(name = "idx_presences_eleve_date", columnList = "eleve_id, date_presence"),
+        @Index(name = "idx_presences_date", columnList = "date_presence"),
+        @Index(name = "idx_presences_annee_statut", columnList = "annee_scolaire, statut")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,14 +33,19 @@ public class Presence {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "eleve_id", nullable = false)
     private Eleve eleve;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "seance_id")
     private Seance seance;
 
+    // Séance de la clé unique, 0 pour un appel sans séance (NULL ne serait jamais en doublon)
+    @Column(name = "seance_cle", insertable = false, updatable = false,
+            columnDefinition = "BIGINT GENERATED ALWAYS AS (COALESCE(seance_id, 0))")
+    private Long seanceCle;
+
     @Column(name = "date_presence", nullable = false)
     private LocalDate datePresence;
 
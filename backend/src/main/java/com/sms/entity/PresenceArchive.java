@@ -0,0 +1,56 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Présence d'une année scolaire archivée, déplacée depuis la table presences
+ * par ArchivageService (mêmes colonnes, même id). Sans clés étrangères, pour
+ * ne pas bloquer la suppression d'un élève ou d'une séance.
+ */
+@Entity
+@Table(name = "presences_archive", indexes = {
+        @Index(name = "idx_presences_archive_eleve_annee", columnList = "eleve_id, annee_scolaire"),
+        @Index(name = "idx_presences_archive_date", columnList = "date_presence")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceArchive {
+    @Id
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "eleve_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Eleve eleve;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "seance_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Seance seance;
+
+    @Column(name = "date_presence", nullable = false)
+    private LocalDate datePresence;
+
+    @Column(length = 30)
+    private String statut;
+
+    @Column(name = "heure_arrivee")
+    private LocalTime heureArrivee;
+
+    @Column(name = "minutes_retard")
+    private Integer minutesRetard;
+
+    private Boolean justifie;
+
+    private String motif;
+
+    @Column(name = "annee_scolaire")
+    private String anneeScolaire;
+
+    private String commentaire;
+}
@@ -0,0 +1,42 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Nombre de présences d'une classe pour une semaine (datée du lundi) et un statut.
+ * Agrégat maintenu à chaque écriture de présence (classe actuelle de l'élève,
+ * 0 pour un élève sans classe) et recalculé chaque nuit depuis la table presences.
+ */
+@Entity
+@Table(name = "presences_semaine",
+        uniqueConstraints = @UniqueConstraint(name = "uk_presences_semaine",
+                columnNames = {"classe_id", "semaine", "statut", "annee_scolaire"}),
+        indexes = @Index(name = "idx_presences_semaine_annee_semaine", columnList = "annee_scolaire, semaine"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceHebdomadaire {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "classe_id", nullable = false)
+    private Long classeId;
+
+    @Column(name = "semaine", nullable = false)
+    private LocalDate semaine;
+
+    @Column(nullable = false)
+    private String statut;
+
+    @Column(name = "annee_scolaire", nullable = false)
+    private String anneeScolaire;
+
+    @Column(nullable = false)
+    private Integer nombre = 0;
+}
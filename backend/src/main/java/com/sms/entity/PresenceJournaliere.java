@@ -0,0 +1,42 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Nombre de présences d'une classe pour un jour et un statut.
+ * Agrégat maintenu à chaque écriture de présence (classe actuelle de l'élève,
+ * 0 pour un élève sans classe) et recalculé chaque nuit depuis la table presences.
+ */
+@Entity
+@Table(name = "presences_jour",
+        uniqueConstraints = @UniqueConstraint(name = "uk_presences_jour",
+                columnNames = {"classe_id", "date_presence", "statut", "annee_scolaire"}),
+        indexes = @Index(name = "idx_presences_jour_annee_date_presence", columnList = "annee_scolaire, date_presence"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceJournaliere {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "classe_id", nullable = false)
+    private Long classeId;
+
+    @Column(name = "date_presence", nullable = false)
+    private LocalDate datePresence;
+
+    @Column(nullable = false)
+    private String statut;
+
+    @Column(name = "annee_scolaire", nullable = false)
+    private String anneeScolaire;
+
+    @Column(nullable = false)
+    private Integer nombre = 0;
+}
@@ -8,7 +8,13 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "resultats_examens")
+@NamedEntityGraph(name = "ResultatExamen.detail", attributeNodes = {
+        @NamedAttributeNode("examen"),
+        @NamedAttributeNode("eleve")
+})
+@Table(name = "resultats_examens", indexes = {
+        @Index(name = "idx_resultats_examen_note", columnList = "examen_id, note_obtenue")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,11 +23,11 @@ public class ResultatExamen {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "examen_id", nullable = false)
     private Examen examen;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "eleve_id", nullable = false)
     private Eleve eleve;
 
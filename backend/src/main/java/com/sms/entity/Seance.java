@@ -8,7 +8,18 @@ import lombok.NoArgsConstructor;
 import java.time.LocalTime;
 
 @Entity
-@Table(name = "seances")
+@NamedEntityGraph(name = "Seance.detail", attributeNodes = {
+        @NamedAttributeNode("classe"),
+        @NamedAttributeNode("matiere"),
+        @NamedAttributeNode("professeur"),
+        @NamedAttributeNode("salle")
+})
+@Table(name = "seances", indexes = {
+        @Index(name = "idx_seances_classe_actif_jour", columnList = "classe_id, actif, jour_semaine"),
+        @Index(name = "idx_seances_professeur_actif_jour", columnList = "professeur_id, actif, jour_semaine"),
+        @Index(name = "idx_seances_salle_actif_jour", columnList = "salle_id, actif, jour_semaine"),
+        @Index(name = "idx_seances_annee_actif", columnList = "annee_scolaire, actif")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,19 +28,19 @@ public class Seance {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "classe_id", nullable = false)
     private Classe classe;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "matiere_id")
     private Matiere matiere;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "professeur_id")
     private Personnel professeur;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "salle_id")
     private Salle salle;
 
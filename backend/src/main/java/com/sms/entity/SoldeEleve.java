@@ -0,0 +1,41 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Solde maintenu des paiements d'un élève pour une année scolaire.
+ * Mis à jour de façon incrémentale à chaque écriture de paiement, il permet
+ * de lire le solde d'un élève sans agréger la table paiements.
+ */
+@Entity
+@Table(name = "soldes_eleves",
+        uniqueConstraints = @UniqueConstraint(name = "uk_solde_eleve_annee",
+                columnNames = {"eleve_id", "annee_scolaire"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SoldeEleve {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "eleve_id", nullable = false)
+    private Long eleveId;
+
+    @Column(name = "annee_scolaire", nullable = false, length = 20)
+    private String anneeScolaire;
+
+    @Column(name = "total_du", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalDu = BigDecimal.ZERO;
+
+    @Column(name = "total_paye", nullable = false, precision = 12, scale = 2)
+    private BigDecimal totalPaye = BigDecimal.ZERO;
+
+    @Column(name = "reste_a_payer", nullable = false, precision = 12, scale = 2)
+    private BigDecimal resteAPayer = BigDecimal.ZERO; // Somme des restes (nuls pour les paiements soldés)
+}
@@ -0,0 +1,55 @@
+package com.sms.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Écriture du journal des encaissements d'un paiement. Le journal n'est
+ * jamais modifié : une correction est une nouvelle écriture (Ajustement), et
+ * le montant payé d'un paiement est la somme de ses écritures.
+ */
+@Entity
+@Table(name = "transactions_paiement",
+        uniqueConstraints = @UniqueConstraint(name = "uk_transaction_cle_idempotence", columnNames = "cle_idempotence"),
+        indexes = @Index(name = "idx_transactions_paiement_paiement", columnList = "paiement_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPaiement {
+
+    public static final String VERSEMENT = "Versement";
+    public static final String AJUSTEMENT = "Ajustement";
+    public static final String REPRISE = "Reprise"; // montant payé antérieur au journal
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "paiement_id", nullable = false)
+    private Paiement paiement;
+
+    @Column(nullable = false, length = 20)
+    private String nature;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal montant;
+
+    @Column(name = "mode_paiement", length = 50)
+    private String modePaiement;
+
+    @Column(length = 100)
+    private String reference;
+
+    @Column(name = "date_transaction", nullable = false)
+    private LocalDateTime dateTransaction = LocalDateTime.now();
+
+    // Fournie par la caisse : une même clé rejouée n'est comptée qu'une fois
+    @Column(name = "cle_idempotence", length = 100)
+    private String cleIdempotence;
+}
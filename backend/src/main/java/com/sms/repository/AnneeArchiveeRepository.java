@@ -0,0 +1,9 @@
+package com.sms.repository;
+
+import com.sms.entity.AnneeArchivee;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AnneeArchiveeRepository extends JpaRepository<AnneeArchivee, String> {
+}
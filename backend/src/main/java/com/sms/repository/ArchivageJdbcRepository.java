@@ -0,0 +1,77 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Déplacement par lots des présences et notes d'une année scolaire vers les
+ * tables d'archive (colonnes listées explicitement, ids conservés).
+ */
+@Repository
+@RequiredArgsConstructor
+public class ArchivageJdbcRepository {
+
+    private static final String COLONNES_PRESENCES =
+            "id, eleve_id, seance_id, date_presence, statut, heure_arrivee, minutes_retard, justifie, motif, " +
+            "annee_scolaire, commentaire";
+
+    private static final String COLONNES_NOTES =
+            "id, eleve_id, matiere_id, classe_matiere_id, examen_id, periode_id, valeur, type, date_note, " +
+            "commentaire, annee_scolaire, absent";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Années scolaires ayant encore des présences ou des notes dans les tables chaudes.
+     */
+    public List<String> anneesEnLigne() {
+        return jdbcTemplate.queryForList(
+                "SELECT annee_scolaire FROM presences WHERE annee_scolaire IS NOT NULL " +
+                "UNION SELECT annee_scolaire FROM notes WHERE annee_scolaire IS NOT NULL", String.class);
+    }
+
+    /**
+     * Plus grand id du prochain lot de lignes de l'année, ou null s'il n'en reste plus.
+     */
+    public Long dernierIdDuLot(Table table, String anneeScolaire, int taille) {
+        return jdbcTemplate.queryForObject(
+                "SELECT MAX(id) FROM (SELECT id FROM " + table.source + " WHERE annee_scolaire = ? " +
+                "ORDER BY id LIMIT ?) lot", Long.class, anneeScolaire, taille);
+    }
+
+    /**
+     * Copie dans l'archive puis supprime les lignes de l'année d'id inférieur ou égal à dernierId.
+     * @return le nombre de lignes déplacées
+     */
+    public int deplacer(Table table, String anneeScolaire, Long dernierId) {
+        int copiees = jdbcTemplate.update(
+                "INSERT INTO " + table.archive + " (" + table.colonnes + ") " +
+                "SELECT " + table.colonnes + " FROM " + table.source + " WHERE annee_scolaire = ? AND id <= ?",
+                anneeScolaire, dernierId);
+        int supprimees = jdbcTemplate.update(
+                "DELETE FROM " + table.source + " WHERE annee_scolaire = ? AND id <= ?", anneeScolaire, dernierId);
+        if (copiees != supprimees) {
+            throw new IllegalStateException("Archivage de " + table.source + " incohérent : "
+                    + copiees + " lignes copiées, " + supprimees + " supprimées");
+        }
+        return copiees;
+    }
+
+    public enum Table {
+        PRESENCES("presences", "presences_archive", COLONNES_PRESENCES),
+        NOTES("notes", "notes_archive", COLONNES_NOTES);
+
+        private final String source;
+        private final String archive;
+        private final String colonnes;
+
+        Table(String source, String archive, String colonnes) {
+            this.source = source;
+            this.archive = archive;
+            this.colonnes = colonnes;
+        }
+    }
+}
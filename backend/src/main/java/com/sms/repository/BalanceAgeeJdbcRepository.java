@@ -0,0 +1,67 @@
+package com.sms.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lecture en flux des paiements échus non soldés pour la balance âgée. Le
+ * retard (en jours) et le reste (en centimes) sont calculés par la base, pour
+ * que chaque ligne se lise avec des getInt / getLong sans objet intermédiaire.
+ */
+@Repository
+public class BalanceAgeeJdbcRepository {
+
+    private static final String IMPAYES_SQL =
+            "SELECT pa.eleve_id, e.classe_id, pa.type_frais_id, DATEDIFF(?, pa.date_echeance) AS jours_retard, " +
+            "ROUND(pa.reste_a_payer * 100) AS reste_centimes, " +
+            "e.nom AS eleve_nom, e.prenom AS eleve_prenom, e.matricule AS eleve_matricule, " +
+            "c.nom AS classe_nom, tf.code AS type_frais_code " +
+            "FROM paiements pa " +
+            "JOIN eleves e ON e.id = pa.eleve_id " +
+            "LEFT JOIN classes c ON c.id = e.classe_id " +
+            "LEFT JOIN types_frais tf ON tf.id = pa.type_frais_id " +
+            "WHERE pa.reste_a_payer > 0 AND pa.date_echeance IS NOT NULL AND pa.date_echeance <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceAgeeJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Parcourt une fois les paiements échus à la date de référence et non soldés.
+     */
+    public void parcourirImpayes(FiltreBalance filtre, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(IMPAYES_SQL);
+        List<Object> params = new ArrayList<>();
+        params.add(Date.valueOf(filtre.dateReference()));
+        params.add(Date.valueOf(filtre.dateReference()));
+        if (filtre.anneeScolaire() != null) {
+            sql.append(" AND pa.annee_scolaire = ?");
+            params.add(filtre.anneeScolaire());
+        }
+        if (filtre.classeId() != null) {
+            sql.append(" AND e.classe_id = ?");
+            params.add(filtre.classeId());
+        }
+        if (filtre.typeFraisId() != null) {
+            sql.append(" AND pa.type_frais_id = ?");
+            params.add(filtre.typeFraisId());
+        }
+        jdbcTemplate.query(sql.toString(), handler, params.toArray());
+    }
+
+    /**
+     * Filtres de la balance âgée ; un critère null n'est pas appliqué.
+     */
+    public record FiltreBalance(LocalDate dateReference, String anneeScolaire, Long classeId, Long typeFraisId) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Écritures en lot du classement des bulletins.
+ */
+@Repository
+@RequiredArgsConstructor
+public class BulletinJdbcRepository {
+
+    private static final int TAILLE_LOT = 500;
+
+    private static final String UPDATE_CLASSEMENT_SQL =
+            "UPDATE bulletins SET moyenne_generale = ?, rang = ?, total_eleves = ? WHERE id = ?";
+
+    private static final String INSERT_CLASSEMENT_SQL =
+            "INSERT INTO bulletins (eleve_id, periode_id, moyenne_generale, rang, total_eleves, date_generation, annee_scolaire) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void updateClassements(List<LigneClassement> lignes) {
+        jdbcTemplate.batchUpdate(UPDATE_CLASSEMENT_SQL, lignes, TAILLE_LOT, (ps, ligne) -> {
+            ps.setBigDecimal(1, ligne.moyenneGenerale());
+            ps.setInt(2, ligne.rang());
+            ps.setInt(3, ligne.totalEleves());
+            ps.setLong(4, ligne.bulletinId());
+        });
+    }
+
+    public void insertClassements(List<LigneClassement> lignes, Long periodeId, String anneeScolaire) {
+        LocalDate aujourdhui = LocalDate.now();
+        jdbcTemplate.batchUpdate(INSERT_CLASSEMENT_SQL, lignes, TAILLE_LOT, (ps, ligne) -> {
+            ps.setLong(1, ligne.eleveId());
+            ps.setLong(2, periodeId);
+            ps.setBigDecimal(3, ligne.moyenneGenerale());
+            ps.setInt(4, ligne.rang());
+            ps.setInt(5, ligne.totalEleves());
+            ps.setObject(6, aujourdhui);
+            ps.setString(7, anneeScolaire);
+        });
+    }
+
+    /**
+     * Rang d'un élève à écrire ; bulletinId est null si le bulletin n'existe pas encore.
+     */
+    public record LigneClassement(Long bulletinId, Long eleveId, BigDecimal moyenneGenerale, int rang, int totalEleves) {
+    }
+}
@@ -20,4 +20,14 @@ public interface BulletinRepository extends JpaRepository<Bulletin, Long> {
 
     @Query("SELECT b FROM Bulletin b WHERE b.anneeScolaire = :anneeScolaire AND b.eleve.id = :eleveId ORDER BY b.periode.ordre")
     List<Bulletin> findByEleveAndAnneeScolaire(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
+
+    @Query("SELECT b FROM Bulletin b JOIN FETCH b.eleve e LEFT JOIN FETCH e.classe JOIN FETCH b.periode " +
+           "WHERE e.classe.id = :classeId AND b.periode.id = :periodeId ORDER BY b.rang")
+    List<Bulletin> findByClasseAndPeriodeWithEleve(@Param("classeId") Long classeId, @Param("periodeId") Long periodeId);
+
+    @Query("SELECT b.eleve.id, b.id FROM Bulletin b WHERE b.eleve.classe.id = :classeId AND b.periode.id = :periodeId")
+    List<Object[]> findIdsByClasseAndPeriode(@Param("classeId") Long classeId, @Param("periodeId") Long periodeId);
+
+    @Query("SELECT b.eleve.id, b.id FROM Bulletin b WHERE b.periode.id = :periodeId")
+    List<Object[]> findIdsByPeriode(@Param("periodeId") Long periodeId);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -17,4 +18,17 @@ public interface ClasseMatiereRepository extends JpaRepository<ClasseMatiere, Lo
 
     @Query("SELECT cm FROM ClasseMatiere cm WHERE cm.classe.id = :classeId AND cm.matiereNiveau.id = :matiereNiveauId")
     ClasseMatiere findByClasseIdAndMatiereNiveauId(@Param("classeId") Long classeId, @Param("matiereNiveauId") Long matiereNiveauId);
+
+    @Query("SELECT cm FROM ClasseMatiere cm JOIN FETCH cm.matiereNiveau mn JOIN FETCH mn.matiere WHERE cm.id IN :ids")
+    List<ClasseMatiere> findAllWithMatiereByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT cm FROM ClasseMatiere cm JOIN FETCH cm.matiereNiveau mn JOIN FETCH mn.matiere WHERE cm.classe.id IN :classeIds")
+    List<ClasseMatiere> findAllWithMatiereByClasseIdIn(@Param("classeIds") Collection<Long> classeIds);
+
+    /**
+     * Pour la génération d'emploi du temps : id, classeId, effectif de la classe, matiereId.
+     */
+    @Query("SELECT cm.id, c.id, c.effectif, m.id FROM ClasseMatiere cm JOIN cm.classe c " +
+            "JOIN cm.matiereNiveau mn JOIN mn.matiere m WHERE cm.id IN :ids")
+    List<Object[]> findClasseEtMatiereByIdIn(@Param("ids") Collection<Long> ids);
 }
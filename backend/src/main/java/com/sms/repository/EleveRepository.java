@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -48,4 +49,23 @@ public interface EleveRepository extends JpaRepository<Eleve, Long> {
     List<Object[]> countByClasse();
 
     boolean existsByMatricule(String matricule);
+
+    @Query("SELECT e.id FROM Eleve e WHERE e.classe.id = :classeId")
+    List<Long> findIdsByClasseId(@Param("classeId") Long classeId);
+
+    // Effectif classé : élèves actifs seulement (partis ou inactifs exclus du rang et du total)
+    @Query("SELECT e.id FROM Eleve e WHERE e.classe.id = :classeId AND e.statut = 'Actif'")
+    List<Long> findIdsActifsByClasseId(@Param("classeId") Long classeId);
+
+    @Query("SELECT e.id, e.classe.id FROM Eleve e WHERE e.classe IS NOT NULL AND e.statut = 'Actif'")
+    List<Object[]> findIdsAndClasseIdsActifs();
+
+    @Query("SELECT e.id, e.classe.id FROM Eleve e WHERE e.id IN :ids")
+    List<Object[]> findClasseIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Identité des élèves donnés : id, nom, prenom, matricule, nom de la classe.
+     */
+    @Query("SELECT e.id, e.nom, e.prenom, e.matricule, c.nom FROM Eleve e LEFT JOIN e.classe c WHERE e.id IN :ids")
+    List<Object[]> findIdentitesByIdIn(@Param("ids") Collection<Long> ids);
 }
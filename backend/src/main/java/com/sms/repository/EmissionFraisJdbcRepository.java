@@ -0,0 +1,50 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Émission en masse des frais d'un mois : un INSERT ... SELECT par niveau crée
+ * les paiements des élèves actifs qui n'en ont pas encore pour ce type de
+ * frais et ce mois. IGNORE : un paiement créé entre-temps pour le même élève
+ * et le même mois (clé uk_paiements_frais_mois) est laissé tel quel.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmissionFraisJdbcRepository {
+
+    private static final String ELEVES_DU_NIVEAU =
+            "FROM eleves e JOIN classes c ON c.id = e.classe_id " +
+            "WHERE c.niveau_id = ? AND e.statut = 'Actif' ";
+
+    private static final String EMETTRE_SQL =
+            "INSERT IGNORE INTO paiements (eleve_id, type_frais_id, montant, montant_paye, reste_a_payer, statut, " +
+            "date_paiement, date_echeance, mois_concerne, annee_scolaire, created_at, version) " +
+            "SELECT e.id, ?, ?, 0, ?, 'En attente', CURRENT_DATE, ?, ?, ?, CURRENT_TIMESTAMP, 0 " +
+            ELEVES_DU_NIVEAU +
+            "AND NOT EXISTS (SELECT 1 FROM paiements p WHERE p.eleve_id = e.id AND p.annee_scolaire = ? " +
+            "AND p.type_frais_id = ? AND p.mois_concerne = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public int compterElevesActifs(Long niveauId) {
+        Integer nombre = jdbcTemplate.queryForObject("SELECT COUNT(*) " + ELEVES_DU_NIVEAU, Integer.class, niveauId);
+        return nombre != null ? nombre : 0;
+    }
+
+    /**
+     * @return le nombre de paiements créés
+     */
+    public int emettre(Long niveauId, Long typeFraisId, BigDecimal montant, String anneeScolaire,
+                       String moisConcerne, LocalDate dateEcheance) {
+        return jdbcTemplate.update(EMETTRE_SQL,
+                typeFraisId, montant, montant, dateEcheance != null ? Date.valueOf(dateEcheance) : null,
+                moisConcerne, anneeScolaire,
+                niveauId, anneeScolaire, typeFraisId, moisConcerne);
+    }
+}
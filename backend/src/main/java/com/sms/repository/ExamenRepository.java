@@ -1,6 +1,8 @@
 package com.sms.repository;
 
+import com.sms.dto.ExamenDTO;
 import com.sms.entity.Examen;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,6 +13,13 @@ import java.util.List;
 
 @Repository
 public interface ExamenRepository extends JpaRepository<Examen, Long> {
+    String SELECT_EXAMEN_DTO = "SELECT new com.sms.dto.ExamenDTO(ex.id, ex.nom, m.id, m.nom, c.id, c.nom, p.id, p.nom, " +
+            "ex.dateExamen, ex.heureDebut, ex.heureFin, ex.duree, ex.totalPoints, s.id, s.nom, sv.id, " +
+            "CASE WHEN sv.prenom IS NOT NULL THEN CONCAT(sv.prenom, ' ', sv.nom) ELSE sv.nom END, " +
+            "ex.statut, te.id, te.nom, ex.anneeScolaire, ex.commentaire) " +
+            "FROM Examen ex LEFT JOIN ex.matiere m LEFT JOIN ex.classe c LEFT JOIN ex.periode p " +
+            "LEFT JOIN ex.salle s LEFT JOIN ex.surveillant sv LEFT JOIN ex.typeExamen te ";
+
     List<Examen> findByClasseId(Long classeId);
     List<Examen> findByMatiereId(Long matiereId);
     List<Examen> findByPeriodeId(Long periodeId);
@@ -24,4 +33,20 @@ public interface ExamenRepository extends JpaRepository<Examen, Long> {
 
     @Query("SELECT COUNT(e) FROM Examen e WHERE e.statut = :statut AND e.anneeScolaire = :anneeScolaire")
     Long countByStatutAndAnneeScolaire(@Param("statut") String statut, @Param("anneeScolaire") String anneeScolaire);
+
+
+    @Query(SELECT_EXAMEN_DTO + "WHERE ex.id > :apresId ORDER BY ex.id")
+    List<ExamenDTO> findDTOApres(@Param("apresId") Long apresId, Limit limit);
+
+    @Query(SELECT_EXAMEN_DTO + "WHERE c.id = :classeId ORDER BY ex.id")
+    List<ExamenDTO> findDTOByClasseId(@Param("classeId") Long classeId);
+
+    @Query(SELECT_EXAMEN_DTO + "WHERE m.id = :matiereId ORDER BY ex.id")
+    List<ExamenDTO> findDTOByMatiereId(@Param("matiereId") Long matiereId);
+
+    @Query(SELECT_EXAMEN_DTO + "WHERE ex.statut = :statut ORDER BY ex.id")
+    List<ExamenDTO> findDTOByStatut(@Param("statut") String statut);
+
+    @Query(SELECT_EXAMEN_DTO + "WHERE ex.dateExamen BETWEEN :debut AND :fin ORDER BY ex.id")
+    List<ExamenDTO> findDTOByDateExamenBetween(@Param("debut") LocalDate debut, @Param("fin") LocalDate fin);
 }
@@ -0,0 +1,103 @@
+package com.sms.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lectures en flux pour les exports : avec un fetchSize de Integer.MIN_VALUE,
+ * le pilote MySQL transmet les lignes une à une au lieu de charger tout le
+ * résultat, la mémoire utilisée ne dépend donc pas du volume exporté.
+ */
+@Repository
+public class ExportJdbcRepository {
+
+    // %s : table en ligne ou table d'archive, de mêmes colonnes
+    private static final String NOTES_SQL =
+            "SELECT n.id, e.matricule, e.nom, e.prenom, c.nom AS classe, " +
+            "COALESCE(m.nom, mo.nom) AS matiere, p.nom AS periode, n.type, n.valeur, n.absent, " +
+            "n.date_note, n.commentaire, n.annee_scolaire " +
+            "FROM %s n " +
+            "JOIN eleves e ON e.id = n.eleve_id " +
+            "LEFT JOIN classes c ON c.id = e.classe_id " +
+            "LEFT JOIN classe_matieres cm ON cm.id = n.classe_matiere_id " +
+            "LEFT JOIN matiere_niveaux mn ON mn.id = cm.matiere_niveau_id " +
+            "LEFT JOIN matieres m ON m.id = mn.matiere_id " +
+            "LEFT JOIN matieres mo ON mo.id = n.matiere_id " +
+            "LEFT JOIN periodes p ON p.id = n.periode_id";
+
+    private static final String PRESENCES_SQL =
+            "SELECT pr.id, e.matricule, e.nom, e.prenom, c.nom AS classe, pr.date_presence, pr.statut, " +
+            "pr.heure_arrivee, pr.minutes_retard, pr.justifie, pr.motif, pr.commentaire, pr.annee_scolaire " +
+            "FROM %s pr " +
+            "JOIN eleves e ON e.id = pr.eleve_id " +
+            "LEFT JOIN classes c ON c.id = e.classe_id";
+
+    private static final String PAIEMENTS_SQL =
+            "SELECT pa.id, e.matricule, e.nom, e.prenom, c.nom AS classe, tf.code AS type_frais, pa.montant, " +
+            "pa.montant_paye, pa.reste_a_payer, pa.mode_paiement, pa.reference_paiement, pa.date_paiement, " +
+            "pa.date_echeance, pa.statut, pa.mois_concerne, pa.annee_scolaire " +
+            "FROM paiements pa " +
+            "JOIN eleves e ON e.id = pa.eleve_id " +
+            "LEFT JOIN classes c ON c.id = e.classe_id " +
+            "LEFT JOIN types_frais tf ON tf.id = pa.type_frais_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ExportJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Notes de la table notes, ou de notes_archive si archives est vrai.
+     */
+    public void lireNotes(FiltreExport filtre, boolean archives, RowCallbackHandler handler) {
+        lire(NOTES_SQL.formatted(archives ? "notes_archive" : "notes"), "n", "date_note", filtre, handler);
+    }
+
+    /**
+     * Présences de la table presences, ou de presences_archive si archives est vrai.
+     */
+    public void lirePresences(FiltreExport filtre, boolean archives, RowCallbackHandler handler) {
+        lire(PRESENCES_SQL.formatted(archives ? "presences_archive" : "presences"), "pr", "date_presence", filtre, handler);
+    }
+
+    public void lirePaiements(FiltreExport filtre, RowCallbackHandler handler) {
+        lire(PAIEMENTS_SQL, "pa", "date_paiement", filtre, handler);
+    }
+
+    private void lire(String select, String alias, String colonneDate, FiltreExport filtre, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(select).append(" WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        if (filtre.anneeScolaire() != null) {
+            sql.append(" AND ").append(alias).append(".annee_scolaire = ?");
+            params.add(filtre.anneeScolaire());
+        }
+        if (filtre.classeId() != null) {
+            sql.append(" AND e.classe_id = ?");
+            params.add(filtre.classeId());
+        }
+        if (filtre.debut() != null) {
+            sql.append(" AND ").append(alias).append('.').append(colonneDate).append(" >= ?");
+            params.add(filtre.debut());
+        }
+        if (filtre.fin() != null) {
+            sql.append(" AND ").append(alias).append('.').append(colonneDate).append(" <= ?");
+            params.add(filtre.fin());
+        }
+        sql.append(" ORDER BY ").append(alias).append(".id");
+        jdbcTemplate.query(sql.toString(), handler, params.toArray());
+    }
+
+    /**
+     * Filtres d'export ; un critère null n'est pas appliqué.
+     */
+    public record FiltreExport(String anneeScolaire, Long classeId, LocalDate debut, LocalDate fin) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Mises à jour incrémentales de la table moyennes_classe_matiere.
+ */
+@Repository
+@RequiredArgsConstructor
+public class MoyenneClasseMatiereJdbcRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO moyennes_classe_matiere (classe_id, classe_matiere_id, periode_id, somme_notes, nombre_notes, nombre_absents) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE somme_notes = somme_notes + VALUES(somme_notes), " +
+            "nombre_notes = nombre_notes + VALUES(nombre_notes), " +
+            "nombre_absents = nombre_absents + VALUES(nombre_absents)";
+
+    // Les agrégats des périodes d'années archivées sont conservés : leurs notes ne sont plus dans la table
+    private static final String PERIODE_EN_LIGNE = "periode_id NOT IN (SELECT p.id FROM periodes p " +
+            "JOIN annees_archivees a ON a.annee_scolaire = p.annee_scolaire)";
+
+    private static final String RECONSTRUIRE_SQL =
+            "INSERT INTO moyennes_classe_matiere (classe_id, classe_matiere_id, periode_id, somme_notes, nombre_notes, nombre_absents) " +
+            "SELECT cm.classe_id, n.classe_matiere_id, n.periode_id, " +
+            "COALESCE(SUM(CASE WHEN n.absent THEN 0 ELSE n.valeur END), 0), " +
+            "SUM(CASE WHEN n.absent THEN 0 ELSE 1 END), " +
+            "SUM(CASE WHEN n.absent THEN 1 ELSE 0 END) " +
+            "FROM notes n JOIN classe_matieres cm ON cm.id = n.classe_matiere_id " +
+            "WHERE n.periode_id IS NOT NULL AND n." + PERIODE_EN_LIGNE + " " +
+            "GROUP BY cm.classe_id, n.classe_matiere_id, n.periode_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Applique des variations (éventuellement négatives) aux agrégats,
+     * en créant les lignes manquantes.
+     */
+    public void appliquerDeltas(Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.classeId());
+            ps.setLong(2, delta.classeMatiereId());
+            ps.setLong(3, delta.periodeId());
+            ps.setBigDecimal(4, delta.somme());
+            ps.setInt(5, delta.nombre());
+            ps.setInt(6, delta.absents());
+        });
+    }
+
+    /**
+     * Recalcule la table depuis les notes, hors périodes d'années archivées.
+     * @return le nombre de lignes d'agrégat produites
+     */
+    public int reconstruire() {
+        jdbcTemplate.update("DELETE FROM moyennes_classe_matiere WHERE " + PERIODE_EN_LIGNE);
+        return jdbcTemplate.update(RECONSTRUIRE_SQL);
+    }
+
+    public record Delta(Long classeId, Long classeMatiereId, Long periodeId, BigDecimal somme, int nombre, int absents) {
+    }
+}
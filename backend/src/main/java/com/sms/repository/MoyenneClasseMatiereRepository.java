@@ -0,0 +1,13 @@
+package com.sms.repository;
+
+import com.sms.entity.MoyenneClasseMatiere;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MoyenneClasseMatiereRepository extends JpaRepository<MoyenneClasseMatiere, Long> {
+    List<MoyenneClasseMatiere> findByPeriodeIdAndClasseMatiereIdIn(Long periodeId, Collection<Long> classeMatiereIds);
+}
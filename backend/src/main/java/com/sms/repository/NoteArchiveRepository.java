@@ -0,0 +1,37 @@
+package com.sms.repository;
+
+import com.sms.dto.NoteBulletinLigneDTO;
+import com.sms.dto.NoteDTO;
+import com.sms.entity.NoteArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Lectures des notes archivées, mêmes projections que NoteRepository.
+ */
+@Repository
+public interface NoteArchiveRepository extends JpaRepository<NoteArchive, Long> {
+
+    String SELECT_NOTE_DTO = NoteRepository.COLONNES_NOTE_DTO + "FROM NoteArchive " + NoteRepository.JOINTURES_NOTE_DTO;
+
+    @Query(SELECT_NOTE_DTO + "WHERE e.id = :eleveId ORDER BY n.id")
+    List<NoteDTO> findDTOByEleveId(@Param("eleveId") Long eleveId);
+
+    @Query(SELECT_NOTE_DTO + "WHERE e.id = :eleveId AND p.id = :periodeId ORDER BY n.id")
+    List<NoteDTO> findDTOByEleveIdAndPeriodeId(@Param("eleveId") Long eleveId, @Param("periodeId") Long periodeId);
+
+    @Query(SELECT_NOTE_DTO + "WHERE m.id = :matiereId ORDER BY n.id")
+    List<NoteDTO> findDTOByMatiereId(@Param("matiereId") Long matiereId);
+
+    // Par élève : la classe actuelle d'un élève n'est plus celle de l'année archivée
+    @Query("SELECT new com.sms.dto.NoteBulletinLigneDTO(n.eleve.id, cm.id, m.id, m.nom, cm.coefficient, n.valeur, n.absent) " +
+           "FROM NoteArchive n JOIN n.classeMatiere cm JOIN cm.matiereNiveau mn JOIN mn.matiere m " +
+           "WHERE n.eleve.id IN :eleveIds AND n.periode.id = :periodeId")
+    List<NoteBulletinLigneDTO> findLignesBulletinByElevesAndPeriode(@Param("eleveIds") Collection<Long> eleveIds,
+                                                                   @Param("periodeId") Long periodeId);
+}
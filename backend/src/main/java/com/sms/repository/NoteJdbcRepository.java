@@ -0,0 +1,92 @@
+package com.sms.repository;
+
+import com.sms.entity.Note;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Écritures en lot sur la table notes.
+ * Les ids étant en IDENTITY, Hibernate ne peut pas regrouper les INSERT :
+ * on passe donc directement par des batchs JDBC.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NoteJdbcRepository {
+
+    private static final int TAILLE_LOT = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notes (eleve_id, matiere_id, classe_matiere_id, examen_id, periode_id, " +
+            "valeur, type, date_note, commentaire, annee_scolaire, absent) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String UPDATE_SQL =
+            "UPDATE notes SET eleve_id = ?, matiere_id = ?, classe_matiere_id = ?, examen_id = ?, periode_id = ?, " +
+            "valeur = ?, type = ?, date_note = ?, commentaire = ?, annee_scolaire = ?, absent = ? " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insère les notes par lots et renseigne l'id généré sur chacune d'elles.
+     */
+    public void insertAll(List<Note> notes) {
+        for (int debut = 0; debut < notes.size(); debut += TAILLE_LOT) {
+            List<Note> lot = notes.subList(debut, Math.min(debut + TAILLE_LOT, notes.size()));
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                    for (Note note : lot) {
+                        bind(ps, note);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        int index = 0;
+                        while (keys.next()) {
+                            lot.get(index++).setId(keys.getLong(1));
+                        }
+                    }
+                }
+                return null;
+            });
+        }
+    }
+
+    public void updateAll(List<Note> notes) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, notes, TAILLE_LOT, (ps, note) -> {
+            bind(ps, note);
+            ps.setLong(12, note.getId());
+        });
+    }
+
+    private void bind(PreparedStatement ps, Note note) throws SQLException {
+        ps.setLong(1, note.getEleve().getId());
+        setId(ps, 2, note.getMatiere() != null ? note.getMatiere().getId() : null);
+        setId(ps, 3, note.getClasseMatiere() != null ? note.getClasseMatiere().getId() : null);
+        setId(ps, 4, note.getExamen() != null ? note.getExamen().getId() : null);
+        setId(ps, 5, note.getPeriode() != null ? note.getPeriode().getId() : null);
+        ps.setBigDecimal(6, note.getValeur());
+        ps.setString(7, note.getType());
+        ps.setObject(8, note.getDateNote());
+        ps.setString(9, note.getCommentaire());
+        ps.setString(10, note.getAnneeScolaire());
+        ps.setBoolean(11, Boolean.TRUE.equals(note.getAbsent()));
+    }
+
+    private static void setId(PreparedStatement ps, int index, Long id) throws SQLException {
+        if (id != null) {
+            ps.setLong(index, id);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+}
@@ -1,23 +1,49 @@
 package com.sms.repository;
 
+import com.sms.dto.NoteBulletinLigneDTO;
+import com.sms.dto.NoteExistanteDTO;
+import com.sms.dto.NoteDTO;
 import com.sms.entity.Note;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface NoteRepository extends JpaRepository<Note, Long> {
+    // Projection NoteDTO (voir com.sms.dto), colonnes et jointures partagées avec NoteArchiveRepository
+    String COLONNES_NOTE_DTO = "SELECT new com.sms.dto.NoteDTO(n.id, e.id, e.nom, e.prenom, e.matricule, m.id, m.nom, " +
+            "ex.id, ex.nom, p.id, p.nom, n.valeur, n.type, n.dateNote, n.commentaire, n.anneeScolaire) ";
+    String JOINTURES_NOTE_DTO = "n JOIN n.eleve e LEFT JOIN n.matiere m LEFT JOIN n.examen ex LEFT JOIN n.periode p ";
+    String SELECT_NOTE_DTO = COLONNES_NOTE_DTO + "FROM Note " + JOINTURES_NOTE_DTO;
+
+    @Override
+    @EntityGraph("Note.detail")
+    List<Note> findAll();
+
+    @EntityGraph("Note.detail")
     List<Note> findByEleveId(Long eleveId);
+
+    @EntityGraph("Note.detail")
     List<Note> findByMatiereId(Long matiereId);
+
+    @EntityGraph("Note.detail")
     List<Note> findByExamenId(Long examenId);
+
+    @EntityGraph("Note.detail")
     List<Note> findByPeriodeId(Long periodeId);
 
+    @EntityGraph("Note.detail")
     List<Note> findByEleveIdAndPeriodeId(Long eleveId, Long periodeId);
+
+    @EntityGraph("Note.detail")
     List<Note> findByEleveIdAndMatiereId(Long eleveId, Long matiereId);
 
     Optional<Note> findByEleveIdAndClasseMatiereIdAndPeriodeIdAndType(
@@ -31,4 +57,38 @@ public interface NoteRepository extends JpaRepository<Note, Long> {
 
     @Query("SELECT AVG(n.valeur) FROM Note n WHERE n.eleve.classe.id = :classeId AND n.periode.id = :periodeId")
     BigDecimal getMoyenneClasseByPeriode(@Param("classeId") Long classeId, @Param("periodeId") Long periodeId);
+
+    @Query("SELECT new com.sms.dto.NoteBulletinLigneDTO(n.eleve.id, cm.id, m.id, m.nom, cm.coefficient, n.valeur, n.absent) " +
+           "FROM Note n JOIN n.classeMatiere cm JOIN cm.matiereNiveau mn JOIN mn.matiere m " +
+           "WHERE n.eleve.classe.id = :classeId AND n.periode.id = :periodeId")
+    List<NoteBulletinLigneDTO> findLignesBulletinByClasseAndPeriode(@Param("classeId") Long classeId, @Param("periodeId") Long periodeId);
+
+    @Query("SELECT new com.sms.dto.NoteBulletinLigneDTO(n.eleve.id, cm.id, m.id, m.nom, cm.coefficient, n.valeur, n.absent) " +
+           "FROM Note n JOIN n.classeMatiere cm JOIN cm.matiereNiveau mn JOIN mn.matiere m " +
+           "WHERE n.eleve.id = :eleveId AND n.periode.id = :periodeId")
+    List<NoteBulletinLigneDTO> findLignesBulletinByEleveAndPeriode(@Param("eleveId") Long eleveId, @Param("periodeId") Long periodeId);
+
+    @Query("SELECT new com.sms.dto.NoteExistanteDTO(n.id, n.eleve.id, n.classeMatiere.id, n.periode.id, n.examen.id, n.type, n.valeur, n.absent) " +
+           "FROM Note n WHERE n.eleve.id IN :eleveIds AND n.classeMatiere.id IN :classeMatiereIds AND n.periode.id IN :periodeIds")
+    List<NoteExistanteDTO> findExistantesByCles(@Param("eleveIds") Collection<Long> eleveIds,
+                                                @Param("classeMatiereIds") Collection<Long> classeMatiereIds,
+                                                @Param("periodeIds") Collection<Long> periodeIds);
+
+    @Query("SELECT new com.sms.dto.NoteBulletinLigneDTO(n.eleve.id, cm.id, m.id, m.nom, cm.coefficient, n.valeur, n.absent) " +
+           "FROM Note n JOIN n.classeMatiere cm JOIN cm.matiereNiveau mn JOIN mn.matiere m " +
+           "WHERE n.periode.id = :periodeId")
+    List<NoteBulletinLigneDTO> findLignesBulletinByPeriode(@Param("periodeId") Long periodeId);
+
+
+    @Query(SELECT_NOTE_DTO + "WHERE n.id > :apresId ORDER BY n.id")
+    List<NoteDTO> findDTOApres(@Param("apresId") Long apresId, Limit limit);
+
+    @Query(SELECT_NOTE_DTO + "WHERE e.id = :eleveId ORDER BY n.id")
+    List<NoteDTO> findDTOByEleveId(@Param("eleveId") Long eleveId);
+
+    @Query(SELECT_NOTE_DTO + "WHERE e.id = :eleveId AND p.id = :periodeId ORDER BY n.id")
+    List<NoteDTO> findDTOByEleveIdAndPeriodeId(@Param("eleveId") Long eleveId, @Param("periodeId") Long periodeId);
+
+    @Query(SELECT_NOTE_DTO + "WHERE m.id = :matiereId ORDER BY n.id")
+    List<NoteDTO> findDTOByMatiereId(@Param("matiereId") Long matiereId);
 }
@@ -1,16 +1,25 @@
 package com.sms.repository;
 
+import com.sms.dto.PaiementDTO;
+import com.sms.dto.SoldeEleveDTO;
+import com.sms.dto.StatsPaiementLigneDTO;
 import com.sms.entity.Paiement;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PaiementRepository extends JpaRepository<Paiement, Long> {
+    String SELECT_PAIEMENT_DTO = "SELECT new com.sms.dto.PaiementDTO(p.id, e.id, e.nom, e.prenom, e.matricule, c.nom, tf.id, tf.code, " +
+            "p.montant, p.montantPaye, p.resteAPayer, p.modePaiement, p.referencePaiement, p.datePaiement, " +
+            "p.dateEcheance, p.statut, p.moisConcerne, p.anneeScolaire, p.commentaire) " +
+            "FROM Paiement p JOIN p.eleve e LEFT JOIN e.classe c LEFT JOIN p.typeFrais tf ";
 
     List<Paiement> findByEleveId(Long eleveId);
 
@@ -18,27 +27,50 @@ public interface PaiementRepository extends JpaRepository<Paiement, Long> {
 
     List<Paiement> findByAnneeScolaire(String anneeScolaire);
 
+    // Clé uk_paiements_frais_mois
+    @Query("SELECT p.id FROM Paiement p WHERE p.eleve.id = :eleveId AND p.typeFrais.id = :typeFraisId " +
+           "AND p.anneeScolaire = :anneeScolaire AND p.moisConcerne = :moisConcerne")
+    Optional<Long> findIdByFraisEtMois(@Param("eleveId") Long eleveId, @Param("typeFraisId") Long typeFraisId,
+                                       @Param("anneeScolaire") String anneeScolaire, @Param("moisConcerne") String moisConcerne);
+
     @Query("SELECT p FROM Paiement p WHERE p.eleve.id = :eleveId AND p.anneeScolaire = :anneeScolaire")
     List<Paiement> findByEleveAndAnneeScolaire(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
 
-    @Query("SELECT SUM(p.montant) FROM Paiement p WHERE p.eleve.id = :eleveId AND p.anneeScolaire = :anneeScolaire")
-    BigDecimal getTotalMontantByEleve(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
+    /**
+     * Dû, payé et reste des élèves d'un périmètre en une seule agrégation
+     * (les élèves sans paiement sur l'année ont un solde à zéro).
+     */
+    String SELECT_SOLDE_DTO = "SELECT new com.sms.dto.SoldeEleveDTO(e.id, e.nom, e.prenom, e.matricule, " +
+            "COALESCE(SUM(p.montant), 0), COALESCE(SUM(p.montantPaye), 0), COALESCE(SUM(p.resteAPayer), 0)) " +
+            "FROM Eleve e LEFT JOIN Paiement p ON p.eleve = e AND p.anneeScolaire = :anneeScolaire ";
+
+    @Query(SELECT_SOLDE_DTO + "WHERE e.id = :eleveId GROUP BY e.id, e.nom, e.prenom, e.matricule")
+    Optional<SoldeEleveDTO> findSoldeByEleve(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
 
-    @Query("SELECT SUM(p.montantPaye) FROM Paiement p WHERE p.eleve.id = :eleveId AND p.anneeScolaire = :anneeScolaire")
-    BigDecimal getTotalPayeByEleve(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
+    @Query(SELECT_SOLDE_DTO + "WHERE e.id IN :eleveIds GROUP BY e.id, e.nom, e.prenom, e.matricule ORDER BY e.nom, e.prenom")
+    List<SoldeEleveDTO> findSoldesByEleveIds(@Param("eleveIds") Collection<Long> eleveIds,
+                                             @Param("anneeScolaire") String anneeScolaire);
 
-    @Query("SELECT SUM(p.resteAPayer) FROM Paiement p WHERE p.eleve.id = :eleveId AND p.anneeScolaire = :anneeScolaire")
-    BigDecimal getTotalResteByEleve(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
+    @Query(SELECT_SOLDE_DTO + "WHERE e.classe.id = :classeId GROUP BY e.id, e.nom, e.prenom, e.matricule ORDER BY e.nom, e.prenom")
+    List<SoldeEleveDTO> findSoldesByClasse(@Param("classeId") Long classeId, @Param("anneeScolaire") String anneeScolaire);
 
-    @Query("SELECT COUNT(p) FROM Paiement p WHERE p.statut = 'Payé'")
-    long countPaye();
+    /**
+     * Nombres et montants des paiements d'une année en une seule passe groupée ;
+     * les répartitions par statut, type de frais, mode et mois s'en déduisent.
+     */
+    @Query("SELECT new com.sms.dto.StatsPaiementLigneDTO(p.statut, tf.code, p.modePaiement, " +
+            "YEAR(p.datePaiement), MONTH(p.datePaiement), COUNT(p), COALESCE(SUM(p.montant), 0), " +
+            "COALESCE(SUM(p.montantPaye), 0), COALESCE(SUM(p.resteAPayer), 0)) " +
+            "FROM Paiement p LEFT JOIN p.typeFrais tf WHERE p.anneeScolaire = :anneeScolaire " +
+            "GROUP BY p.statut, tf.code, p.modePaiement, YEAR(p.datePaiement), MONTH(p.datePaiement)")
+    List<StatsPaiementLigneDTO> findStatsByAnneeScolaire(@Param("anneeScolaire") String anneeScolaire);
 
-    @Query("SELECT COUNT(p) FROM Paiement p WHERE p.statut = 'En attente'")
-    long countEnAttente();
+    @Query(SELECT_PAIEMENT_DTO + "WHERE p.id > :apresId ORDER BY p.id")
+    List<PaiementDTO> findDTOApres(@Param("apresId") Long apresId, Limit limit);
 
-    @Query("SELECT COUNT(p) FROM Paiement p WHERE p.statut = 'Partiel'")
-    long countPartiel();
+    @Query(SELECT_PAIEMENT_DTO + "WHERE p.referencePaiement = :reference ORDER BY p.id")
+    List<PaiementDTO> findDTOByReferencePaiement(@Param("reference") String reference);
 
-    @Query("SELECT SUM(p.montantPaye) FROM Paiement p WHERE p.anneeScolaire = :anneeScolaire")
-    BigDecimal getTotalEncaisse(@Param("anneeScolaire") String anneeScolaire);
+    @Query(SELECT_PAIEMENT_DTO + "WHERE e.id = :eleveId ORDER BY p.id")
+    List<PaiementDTO> findDTOByEleveId(@Param("eleveId") Long eleveId);
 }
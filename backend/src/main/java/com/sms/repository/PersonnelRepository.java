@@ -1,6 +1,7 @@
 package com.sms.repository;
 
 import com.sms.entity.Personnel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,4 +28,6 @@ public interface PersonnelRepository extends JpaRepository<Personnel, Long> {
 
     @Query("SELECT COUNT(p) FROM Personnel p WHERE p.statut = :statut")
     Long countByStatut(@Param("statut") String statut);
+
+    List<Personnel> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
 }
@@ -0,0 +1,126 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Mises à jour incrémentales et recalcul des agrégats presences_jour et presences_semaine.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PresenceAgregatJdbcRepository {
+
+    private static final String UPSERT_JOUR_SQL =
+            "INSERT INTO presences_jour (classe_id, date_presence, statut, annee_scolaire, nombre) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE nombre = nombre + VALUES(nombre)";
+
+    private static final String UPSERT_SEMAINE_SQL =
+            "INSERT INTO presences_semaine (classe_id, semaine, statut, annee_scolaire, nombre) " +
+            "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE nombre = nombre + VALUES(nombre)";
+
+    // Les agrégats des années archivées sont conservés tels quels : leurs présences ne sont plus dans la table
+    private static final String EN_LIGNE = "annee_scolaire NOT IN (SELECT annee_scolaire FROM annees_archivees)";
+
+    // Classe de la séance, celle de l'élève pour un appel sans séance
+    private static final String CLASSE = "COALESCE(s.classe_id, e.classe_id, 0)";
+
+    private static final String COMPTES_PRESENCES_SQL =
+            "SELECT " + CLASSE + " AS classe_id, p.date_presence, p.statut, p.annee_scolaire, COUNT(*) AS nombre " +
+            "FROM presences p JOIN eleves e ON e.id = p.eleve_id LEFT JOIN seances s ON s.id = p.seance_id " +
+            "WHERE p.date_presence IS NOT NULL AND p.statut IS NOT NULL AND p.annee_scolaire IS NOT NULL AND p." + EN_LIGNE + " ";
+
+    private static final String GROUPES_PRESENCES_SQL =
+            "GROUP BY " + CLASSE + ", p.date_presence, p.statut, p.annee_scolaire";
+
+    private static final String RECONSTRUIRE_JOUR_SQL =
+            "INSERT INTO presences_jour (classe_id, date_presence, statut, annee_scolaire, nombre) " +
+            COMPTES_PRESENCES_SQL + GROUPES_PRESENCES_SQL;
+
+    // Les semaines se déduisent des jours déjà recalculés
+    private static final String RECONSTRUIRE_SEMAINE_SQL =
+            "INSERT INTO presences_semaine (classe_id, semaine, statut, annee_scolaire, nombre) " +
+            "SELECT classe_id, DATE_SUB(date_presence, INTERVAL WEEKDAY(date_presence) DAY), statut, annee_scolaire, SUM(nombre) " +
+            "FROM presences_jour WHERE " + EN_LIGNE + " " +
+            "GROUP BY classe_id, DATE_SUB(date_presence, INTERVAL WEEKDAY(date_presence) DAY), statut, annee_scolaire";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Applique des variations (éventuellement négatives) aux agrégats jour et
+     * semaine, en créant les lignes manquantes.
+     */
+    public void appliquerDeltas(Collection<Delta> jours, Collection<Delta> semaines) {
+        appliquer(UPSERT_JOUR_SQL, jours);
+        appliquer(UPSERT_SEMAINE_SQL, semaines);
+    }
+
+    private void appliquer(String sql, Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.classeId());
+            ps.setDate(2, Date.valueOf(delta.date()));
+            ps.setString(3, delta.statut());
+            ps.setString(4, delta.anneeScolaire());
+            ps.setInt(5, delta.nombre());
+        });
+    }
+
+    /**
+     * Recalcule les deux tables depuis les présences, hors années archivées.
+     * @return le nombre de lignes d'agrégat journalier produites
+     */
+    public int reconstruire() {
+        jdbcTemplate.update("DELETE FROM presences_jour WHERE " + EN_LIGNE);
+        int jours = jdbcTemplate.update(RECONSTRUIRE_JOUR_SQL);
+        reconstruireSemaines();
+        return jours;
+    }
+
+    /**
+     * Recalcule presences_semaine depuis presences_jour, hors années archivées
+     * (quelques lignes par classe et par semaine, sans relire les présences).
+     * @return le nombre de lignes d'agrégat hebdomadaire produites
+     */
+    public int reconstruireSemaines() {
+        jdbcTemplate.update("DELETE FROM presences_semaine WHERE " + EN_LIGNE);
+        return jdbcTemplate.update(RECONSTRUIRE_SEMAINE_SQL);
+    }
+
+    /**
+     * Supprime les lignes d'agrégat journalier retombées à zéro.
+     * @return le nombre de lignes supprimées
+     */
+    public int supprimerLignesVides() {
+        return jdbcTemplate.update("DELETE FROM presences_jour WHERE nombre = 0");
+    }
+
+    /**
+     * Lignes d'agrégat journalier, à partir de la date donnée, dont le nombre
+     * diffère d'un recalcul depuis les présences (lignes manquantes, en trop ou
+     * fausses). Seules les présences de ces jours sont relues.
+     */
+    public int compterDerive(LocalDate depuis) {
+        Integer derive = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (" +
+                "SELECT 1 FROM (" +
+                "SELECT classe_id, date_presence, statut, annee_scolaire, nombre FROM presences_jour " +
+                "WHERE date_presence >= ? AND " + EN_LIGNE + " " +
+                "UNION ALL " +
+                "SELECT r.classe_id, r.date_presence, r.statut, r.annee_scolaire, -r.nombre FROM (" +
+                COMPTES_PRESENCES_SQL + "AND p.date_presence >= ? " + GROUPES_PRESENCES_SQL +
+                ") r" +
+                ") c GROUP BY c.classe_id, c.date_presence, c.statut, c.annee_scolaire HAVING SUM(c.nombre) <> 0" +
+                ") ecarts", Integer.class, Date.valueOf(depuis), Date.valueOf(depuis));
+        return derive != null ? derive : 0;
+    }
+
+    public record Delta(Long classeId, LocalDate date, String statut, String anneeScolaire, int nombre) {
+    }
+}
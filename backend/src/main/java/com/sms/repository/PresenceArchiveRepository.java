@@ -0,0 +1,47 @@
+package com.sms.repository;
+
+import com.sms.dto.PresenceDTO;
+import com.sms.dto.StatsPresenceDTO;
+import com.sms.entity.PresenceArchive;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Lectures des présences archivées, mêmes projections que PresenceRepository.
+ */
+@Repository
+public interface PresenceArchiveRepository extends JpaRepository<PresenceArchive, Long> {
+
+    String SELECT_PRESENCE_DTO = PresenceRepository.COLONNES_PRESENCE_DTO + "FROM PresenceArchive " +
+            PresenceRepository.JOINTURES_PRESENCE_DTO;
+
+    String SELECT_STATS_PRESENCE_DTO = PresenceRepository.COLONNES_STATS_PRESENCE_DTO +
+            "LEFT JOIN PresenceArchive p ON p.eleve = e AND p.anneeScolaire = :anneeScolaire ";
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE e.id = :eleveId ORDER BY p.id")
+    List<PresenceDTO> findDTOByEleveId(@Param("eleveId") Long eleveId);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE e.id = :eleveId AND p.datePresence BETWEEN :debut AND :fin ORDER BY p.id")
+    List<PresenceDTO> findDTOByEleveIdAndDatePresenceBetween(@Param("eleveId") Long eleveId,
+                                                             @Param("debut") LocalDate debut,
+                                                             @Param("fin") LocalDate fin);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE c.id = :classeId AND p.datePresence = :date ORDER BY p.id")
+    List<PresenceDTO> findDTOByClasseAndDate(@Param("classeId") Long classeId, @Param("date") LocalDate date);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE p.datePresence = :date ORDER BY p.id")
+    List<PresenceDTO> findDTOByDatePresence(@Param("date") LocalDate date);
+
+    @Query(SELECT_STATS_PRESENCE_DTO + "WHERE e.id = :eleveId GROUP BY e.id, e.nom, e.prenom, e.matricule")
+    Optional<StatsPresenceDTO> findStatsByEleve(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
+
+    @Query(SELECT_STATS_PRESENCE_DTO + "WHERE e.classe.id = :classeId GROUP BY e.id, e.nom, e.prenom, e.matricule " +
+           "ORDER BY e.nom, e.prenom")
+    List<StatsPresenceDTO> findStatsByClasse(@Param("classeId") Long classeId, @Param("anneeScolaire") String anneeScolaire);
+}
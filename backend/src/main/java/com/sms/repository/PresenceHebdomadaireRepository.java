@@ -0,0 +1,33 @@
+package com.sms.repository;
+
+import com.sms.dto.TendancePresenceDTO;
+import com.sms.entity.PresenceHebdomadaire;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PresenceHebdomadaireRepository extends JpaRepository<PresenceHebdomadaire, Long> {
+
+    /**
+     * Courbe hebdomadaire d'une année, toutes classes (classeId null) ou une classe,
+     * bornée par debut et fin s'ils sont renseignés.
+     */
+    @Query("SELECT new com.sms.dto.TendancePresenceDTO(r.semaine, " +
+           "SUM(CASE WHEN r.statut = 'present' THEN r.nombre ELSE 0 END), " +
+           "SUM(CASE WHEN r.statut = 'absent' THEN r.nombre ELSE 0 END), " +
+           "SUM(CASE WHEN r.statut = 'retard' THEN r.nombre ELSE 0 END), " +
+           "SUM(r.nombre)) " +
+           "FROM PresenceHebdomadaire r " +
+           "WHERE r.anneeScolaire = :anneeScolaire AND (:classeId IS NULL OR r.classeId = :classeId) " +
+           "AND (:debut IS NULL OR r.semaine >= :debut) AND (:fin IS NULL OR r.semaine <= :fin) " +
+           "GROUP BY r.semaine ORDER BY r.semaine")
+    List<TendancePresenceDTO> findTendance(@Param("anneeScolaire") String anneeScolaire,
+                                           @Param("classeId") Long classeId,
+                                           @Param("debut") LocalDate debut,
+                                           @Param("fin") LocalDate fin);
+}
@@ -0,0 +1,219 @@
+package com.sms.repository;
+
+import com.sms.entity.Presence;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accès JDBC à la table presences : écritures en lot (appel d'une classe) et
+ * lectures par jour ou par élève pour l'index et les alertes d'absences.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PresenceJdbcRepository {
+
+    private static final int TAILLE_LOT = 500;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO presences (eleve_id, seance_id, date_presence, statut, heure_arrivee, minutes_retard, " +
+            "justifie, motif, annee_scolaire, commentaire) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE statut = VALUES(statut), heure_arrivee = VALUES(heure_arrivee), " +
+            "minutes_retard = VALUES(minutes_retard), justifie = VALUES(justifie), motif = VALUES(motif), " +
+            "annee_scolaire = VALUES(annee_scolaire), commentaire = VALUES(commentaire)";
+
+    private static final String UPDATE_SQL =
+            "UPDATE presences SET eleve_id = ?, seance_id = ?, date_presence = ?, statut = ?, heure_arrivee = ?, " +
+            "minutes_retard = ?, justifie = ?, motif = ?, annee_scolaire = ?, commentaire = ? " +
+            "WHERE id = ?";
+
+    private static final String JOURS_SQL =
+            "SELECT eleve_id, annee_scolaire, date_presence, statut, justifie, minutes_retard FROM presences";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Verrouille les élèves donnés, dans l'ordre des ids : deux appels portant
+     * sur les mêmes élèves s'exécutent l'un après l'autre au lieu de lire tous
+     * deux « aucune présence » puis d'écrire la même ligne.
+     */
+    public void verrouillerEleves(Collection<Long> eleveIds) {
+        List<Long> liste = eleveIds.stream().sorted().toList();
+        for (int debut = 0; debut < liste.size(); debut += TAILLE_LOT) {
+            List<Long> lot = liste.subList(debut, Math.min(debut + TAILLE_LOT, liste.size()));
+            String marqueurs = String.join(", ", Collections.nCopies(lot.size(), "?"));
+            jdbcTemplate.query("SELECT id FROM eleves WHERE id IN (" + marqueurs + ") ORDER BY id FOR UPDATE",
+                    rs -> { }, lot.toArray());
+        }
+    }
+
+    /**
+     * Présences déjà saisies pour un appel (séance ou sans séance), en lecture
+     * verrouillante : c'est la dernière version validée qui est lue, pas
+     * l'instantané de la transaction.
+     */
+    public List<LigneAppel> lireAppelPourMiseAJour(Collection<Long> eleveIds, LocalDate date, Long seanceId) {
+        List<Long> liste = new ArrayList<>(eleveIds);
+        List<LigneAppel> lignes = new ArrayList<>();
+        for (int debut = 0; debut < liste.size(); debut += TAILLE_LOT) {
+            List<Long> lot = liste.subList(debut, Math.min(debut + TAILLE_LOT, liste.size()));
+            List<Object> params = new ArrayList<>(lot);
+            params.add(seanceId != null ? seanceId : 0L);
+            params.add(date);
+            lignes.addAll(jdbcTemplate.query(
+                    "SELECT eleve_id, id, statut, justifie, annee_scolaire, minutes_retard FROM presences " +
+                    "WHERE eleve_id IN (" + String.join(", ", Collections.nCopies(lot.size(), "?")) + ") " +
+                    "AND seance_cle = ? AND date_presence = ? FOR UPDATE",
+                    (rs, i) -> new LigneAppel(rs.getLong(1), rs.getLong(2), rs.getString(3),
+                            rs.getBoolean(4), rs.getString(5), rs.getObject(6, Integer.class)),
+                    params.toArray()));
+        }
+        return lignes;
+    }
+
+    /**
+     * Écrit les présences par lots sur la clé unique (élève, séance, date) : une
+     * ligne déjà insérée par un appel concurrent est mise à jour au lieu d'être
+     * dupliquée. Les ids sont relus par cette clé, les clés générées ne valant
+     * pas pour les lignes mises à jour.
+     */
+    public void upsertAll(List<Presence> presences) {
+        if (presences.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, presences, TAILLE_LOT, this::bind);
+
+        Map<String, Long> ids = new HashMap<>();
+        List<JourEleve> jours = presences.stream()
+                .map(p -> new JourEleve(p.getEleve().getId(), p.getDatePresence()))
+                .distinct()
+                .toList();
+        for (int debut = 0; debut < jours.size(); debut += TAILLE_LOT) {
+            List<JourEleve> lot = jours.subList(debut, Math.min(debut + TAILLE_LOT, jours.size()));
+            StringBuilder sql = new StringBuilder("SELECT eleve_id, seance_cle, date_presence, id FROM presences " +
+                    "WHERE (eleve_id, date_presence) IN (");
+            List<Object> params = new ArrayList<>(lot.size() * 2);
+            for (int i = 0; i < lot.size(); i++) {
+                sql.append(i > 0 ? ", (?, ?)" : "(?, ?)");
+                params.add(lot.get(i).eleveId());
+                params.add(lot.get(i).date());
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), rs -> {
+                ids.put(cle(rs.getLong(1), rs.getLong(2), rs.getObject(3, LocalDate.class)), rs.getLong(4));
+            }, params.toArray());
+        }
+        for (Presence presence : presences) {
+            presence.setId(ids.get(cle(presence.getEleve().getId(),
+                    presence.getSeance() != null ? presence.getSeance().getId() : 0L, presence.getDatePresence())));
+        }
+    }
+
+    public void updateAll(List<Presence> presences) {
+        jdbcTemplate.batchUpdate(UPDATE_SQL, presences, TAILLE_LOT, (ps, presence) -> {
+            bind(ps, presence);
+            ps.setLong(11, presence.getId());
+        });
+    }
+
+    private static String cle(Long eleveId, Long seanceId, LocalDate date) {
+        return eleveId + "|" + seanceId + "|" + date;
+    }
+
+    private void bind(PreparedStatement ps, Presence presence) throws SQLException {
+        ps.setLong(1, presence.getEleve().getId());
+        if (presence.getSeance() != null) {
+            ps.setLong(2, presence.getSeance().getId());
+        } else {
+            ps.setNull(2, Types.BIGINT);
+        }
+        ps.setObject(3, presence.getDatePresence());
+        ps.setString(4, presence.getStatut());
+        ps.setObject(5, presence.getHeureArrivee());
+        if (presence.getMinutesRetard() != null) {
+            ps.setInt(6, presence.getMinutesRetard());
+        } else {
+            ps.setNull(6, Types.INTEGER);
+        }
+        ps.setBoolean(7, Boolean.TRUE.equals(presence.getJustifie()));
+        ps.setString(8, presence.getMotif());
+        ps.setString(9, presence.getAnneeScolaire());
+        ps.setString(10, presence.getCommentaire());
+    }
+
+    /**
+     * Parcourt toute la table en flux (une ligne à la fois côté pilote MySQL).
+     */
+    public void parcourirJours(RowCallbackHandler handler) {
+        parcourir(JOURS_SQL, handler);
+    }
+
+    /**
+     * Parcourt toute la table en flux, triée par élève puis date (index
+     * idx_presences_eleve_date) : les lignes d'un même jour d'un élève se suivent.
+     */
+    public void parcourirJoursParEleve(RowCallbackHandler handler) {
+        parcourir(JOURS_SQL + " ORDER BY eleve_id, date_presence", handler);
+    }
+
+    private void parcourir(String sql, RowCallbackHandler handler) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE);
+            return ps;
+        }, handler);
+    }
+
+    /**
+     * Lignes des couples (élève, date) donnés, par lots de TAILLE_LOT couples.
+     */
+    public void lireJours(Collection<JourEleve> jours, RowCallbackHandler handler) {
+        List<JourEleve> liste = new ArrayList<>(jours);
+        for (int debut = 0; debut < liste.size(); debut += TAILLE_LOT) {
+            List<JourEleve> lot = liste.subList(debut, Math.min(debut + TAILLE_LOT, liste.size()));
+            StringBuilder sql = new StringBuilder(JOURS_SQL).append(" WHERE (eleve_id, date_presence) IN (");
+            List<Object> params = new ArrayList<>(lot.size() * 2);
+            for (int i = 0; i < lot.size(); i++) {
+                sql.append(i > 0 ? ", (?, ?)" : "(?, ?)");
+                params.add(lot.get(i).eleveId());
+                params.add(lot.get(i).date());
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), handler, params.toArray());
+        }
+    }
+
+    /**
+     * Toutes les lignes des élèves donnés, par lots de TAILLE_LOT élèves.
+     */
+    public void lireEleves(Collection<Long> eleveIds, RowCallbackHandler handler) {
+        List<Long> liste = new ArrayList<>(eleveIds);
+        for (int debut = 0; debut < liste.size(); debut += TAILLE_LOT) {
+            List<Long> lot = liste.subList(debut, Math.min(debut + TAILLE_LOT, liste.size()));
+            String marqueurs = String.join(", ", Collections.nCopies(lot.size(), "?"));
+            jdbcTemplate.query(JOURS_SQL + " WHERE eleve_id IN (" + marqueurs + ")", handler, lot.toArray());
+        }
+    }
+
+    public record JourEleve(Long eleveId, LocalDate date) {
+    }
+
+    public record LigneAppel(Long eleveId, Long id, String statut, boolean justifie, String anneeScolaire,
+                             Integer minutesRetard) {
+    }
+}
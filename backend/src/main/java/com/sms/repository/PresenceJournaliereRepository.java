@@ -0,0 +1,37 @@
+package com.sms.repository;
+
+import com.sms.dto.TendancePresenceDTO;
+import com.sms.entity.PresenceJournaliere;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface PresenceJournaliereRepository extends JpaRepository<PresenceJournaliere, Long> {
+
+    @Query("SELECT r.statut, SUM(r.nombre) FROM PresenceJournaliere r " +
+           "WHERE r.anneeScolaire = :anneeScolaire GROUP BY r.statut")
+    List<Object[]> sumParStatut(@Param("anneeScolaire") String anneeScolaire);
+
+    /**
+     * Courbe journalière d'une année, toutes classes (classeId null) ou une classe,
+     * bornée par debut et fin s'ils sont renseignés.
+     */
+    @Query("SELECT new com.sms.dto.TendancePresenceDTO(r.datePresence, " +
+           "SUM(CASE WHEN r.statut = 'present' THEN r.nombre ELSE 0 END), " +
+           "SUM(CASE WHEN r.statut = 'absent' THEN r.nombre ELSE 0 END), " +
+           "SUM(CASE WHEN r.statut = 'retard' THEN r.nombre ELSE 0 END), " +
+           "SUM(r.nombre)) " +
+           "FROM PresenceJournaliere r " +
+           "WHERE r.anneeScolaire = :anneeScolaire AND (:classeId IS NULL OR r.classeId = :classeId) " +
+           "AND (:debut IS NULL OR r.datePresence >= :debut) AND (:fin IS NULL OR r.datePresence <= :fin) " +
+           "GROUP BY r.datePresence ORDER BY r.datePresence")
+    List<TendancePresenceDTO> findTendance(@Param("anneeScolaire") String anneeScolaire,
+                                           @Param("classeId") Long classeId,
+                                           @Param("debut") LocalDate debut,
+                                           @Param("fin") LocalDate fin);
+}
@@ -1,23 +1,48 @@
 package com.sms.repository;
 
+import com.sms.dto.PresenceDTO;
+import com.sms.dto.StatsPresenceDTO;
 import com.sms.entity.Presence;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface PresenceRepository extends JpaRepository<Presence, Long> {
+    // Projection PresenceDTO (voir com.sms.dto), colonnes et jointures partagées avec PresenceArchiveRepository
+    String COLONNES_PRESENCE_DTO = "SELECT new com.sms.dto.PresenceDTO(p.id, e.id, e.nom, e.prenom, e.matricule, c.nom, s.id, m.nom, " +
+            "p.datePresence, p.statut, p.heureArrivee, p.minutesRetard, p.justifie, p.motif, p.anneeScolaire, p.commentaire) ";
+    String JOINTURES_PRESENCE_DTO = "p JOIN p.eleve e LEFT JOIN e.classe c LEFT JOIN p.seance s LEFT JOIN s.matiere m ";
+    String SELECT_PRESENCE_DTO = COLONNES_PRESENCE_DTO + "FROM Presence " + JOINTURES_PRESENCE_DTO;
+
+    @Override
+    @EntityGraph("Presence.detail")
+    List<Presence> findAll();
+
+    @EntityGraph("Presence.detail")
     List<Presence> findByEleveId(Long eleveId);
+
+    @EntityGraph("Presence.detail")
     List<Presence> findBySeanceId(Long seanceId);
+
+    @EntityGraph("Presence.detail")
     List<Presence> findByDatePresence(LocalDate date);
+
+    @EntityGraph("Presence.detail")
     List<Presence> findByStatut(String statut);
 
+    @EntityGraph("Presence.detail")
     List<Presence> findByEleveIdAndDatePresenceBetween(Long eleveId, LocalDate debut, LocalDate fin);
 
+    @EntityGraph("Presence.detail")
     @Query("SELECT p FROM Presence p WHERE p.eleve.classe.id = :classeId AND p.datePresence = :date")
     List<Presence> findByClasseAndDate(@Param("classeId") Long classeId, @Param("date") LocalDate date);
 
@@ -32,4 +57,45 @@ public interface PresenceRepository extends JpaRepository<Presence, Long> {
 
     @Query("SELECT COUNT(p) FROM Presence p WHERE p.anneeScolaire = :anneeScolaire")
     Long countTotalPresences(@Param("anneeScolaire") String anneeScolaire);
+
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE p.id > :apresId ORDER BY p.id")
+    List<PresenceDTO> findDTOApres(@Param("apresId") Long apresId, Limit limit);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE e.id = :eleveId ORDER BY p.id")
+    List<PresenceDTO> findDTOByEleveId(@Param("eleveId") Long eleveId);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE e.id = :eleveId AND p.datePresence BETWEEN :debut AND :fin ORDER BY p.id")
+    List<PresenceDTO> findDTOByEleveIdAndDatePresenceBetween(@Param("eleveId") Long eleveId,
+                                                             @Param("debut") LocalDate debut,
+                                                             @Param("fin") LocalDate fin);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE c.id = :classeId AND p.datePresence = :date ORDER BY p.id")
+    List<PresenceDTO> findDTOByClasseAndDate(@Param("classeId") Long classeId, @Param("date") LocalDate date);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE p.datePresence = :date ORDER BY p.id")
+    List<PresenceDTO> findDTOByDatePresence(@Param("date") LocalDate date);
+
+    @Query(SELECT_PRESENCE_DTO + "WHERE p.id IN :ids ORDER BY p.id")
+    List<PresenceDTO> findDTOByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Compteurs par statut des élèves d'un périmètre, en un seul parcours
+     * (les élèves sans présence sur l'année ont des compteurs à zéro).
+     */
+    String COLONNES_STATS_PRESENCE_DTO = "SELECT new com.sms.dto.StatsPresenceDTO(e.id, e.nom, e.prenom, e.matricule, " +
+            "COALESCE(SUM(CASE WHEN p.statut = 'present' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.statut = 'absent' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.statut = 'retard' THEN 1 ELSE 0 END), 0), " +
+            "COALESCE(SUM(CASE WHEN p.statut = 'absent' AND p.justifie = false THEN 1 ELSE 0 END), 0)) " +
+            "FROM Eleve e ";
+    String SELECT_STATS_PRESENCE_DTO = COLONNES_STATS_PRESENCE_DTO +
+            "LEFT JOIN Presence p ON p.eleve = e AND p.anneeScolaire = :anneeScolaire ";
+
+    @Query(SELECT_STATS_PRESENCE_DTO + "WHERE e.id = :eleveId GROUP BY e.id, e.nom, e.prenom, e.matricule")
+    Optional<StatsPresenceDTO> findStatsByEleve(@Param("eleveId") Long eleveId, @Param("anneeScolaire") String anneeScolaire);
+
+    @Query(SELECT_STATS_PRESENCE_DTO + "WHERE e.classe.id = :classeId GROUP BY e.id, e.nom, e.prenom, e.matricule " +
+           "ORDER BY e.nom, e.prenom")
+    List<StatsPresenceDTO> findStatsByClasse(@Param("classeId") Long classeId, @Param("anneeScolaire") String anneeScolaire);
 }
@@ -0,0 +1,33 @@
+package com.sms.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+
+/**
+ * Lecture en flux des paiements ouverts pour le rapprochement bancaire ; le
+ * reste est lu en centimes pour être comparé aux montants du relevé.
+ */
+@Repository
+public class RapprochementJdbcRepository {
+
+    // Les échéances les plus anciennes sont rapprochées en premier
+    private static final String PAIEMENTS_OUVERTS_SQL =
+            "SELECT p.id, p.reference_paiement, e.matricule, ROUND(p.reste_a_payer * 100) AS reste_centimes " +
+            "FROM paiements p JOIN eleves e ON e.id = p.eleve_id " +
+            "WHERE p.reste_a_payer > 0 " +
+            "ORDER BY p.date_echeance IS NULL, p.date_echeance, p.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public RapprochementJdbcRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(Integer.MIN_VALUE);
+    }
+
+    public void parcourirPaiementsOuverts(RowCallbackHandler handler) {
+        jdbcTemplate.query(PAIEMENTS_OUVERTS_SQL, handler);
+    }
+}
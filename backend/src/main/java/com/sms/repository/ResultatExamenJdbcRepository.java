@@ -0,0 +1,150 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Calcul ensembliste des rangs d'examen.
+ * Le rang est calculé par RANK() OVER (une seule requête UPDATE) : les ex aequo
+ * partagent le même rang et les absents (ou sans note) ont un rang NULL.
+ * Si le serveur ne supporte pas les fonctions de fenêtrage (MySQL &lt; 8,
+ * MariaDB &lt; 10.2, détecté d'après sa version au premier calcul), les
+ * rangs sont calculés en Java et écrits par lots.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class ResultatExamenJdbcRepository {
+
+    private static final int TAILLE_LOT = 500;
+
+    private static final String FILTRE_EXAMEN = "examen_id = ?";
+    private static final String FILTRE_PERIODE = "examen_id IN (SELECT id FROM examens WHERE periode_id = ?)";
+
+    private static final String CLASSES_SQL =
+            "COALESCE(absent, FALSE) = FALSE AND note_obtenue IS NOT NULL";
+
+    private static final Pattern VERSION_MARIADB = Pattern.compile("(\\d+)\\.(\\d+)\\.\\d+-MariaDB");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean fenetresDisponibles;
+
+    /**
+     * Lit la version du serveur au premier appel puis garde le résultat ; une
+     * erreur de lecture n'est pas retenue et sera retentée au calcul suivant.
+     */
+    private boolean fenetresDisponibles() {
+        Boolean disponibles = fenetresDisponibles;
+        if (disponibles != null) {
+            return disponibles;
+        }
+        try {
+            disponibles = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connexion -> {
+                DatabaseMetaData meta = connexion.getMetaData();
+                return supporteFenetres(meta.getDatabaseProductName(), meta.getDatabaseProductVersion(),
+                        meta.getDatabaseMajorVersion());
+            }));
+        } catch (DataAccessException e) {
+            log.warn("Version du serveur inconnue, calcul des rangs en Java : {}", e.getMessage());
+            return false;
+        }
+        if (!disponibles) {
+            log.info("Fonctions de fenêtrage indisponibles : rangs d'examen calculés en Java");
+        }
+        fenetresDisponibles = disponibles;
+        return disponibles;
+    }
+
+    /**
+     * RANK() OVER et UPDATE ... JOIN : MySQL 8 ou MariaDB 10.2 et plus
+     * (MariaDB se présente comme « 5.5.5-10.x.y-MariaDB » via le pilote MySQL).
+     */
+    static boolean supporteFenetres(String produit, String version, int majeure) {
+        Matcher mariadb = VERSION_MARIADB.matcher(version != null ? version : "");
+        if (mariadb.find()) {
+            int maj = Integer.parseInt(mariadb.group(1));
+            int min = Integer.parseInt(mariadb.group(2));
+            return maj > 10 || (maj == 10 && min >= 2);
+        }
+        return "MySQL".equalsIgnoreCase(produit) && majeure >= 8;
+    }
+
+    public int calculerRangsExamen(Long examenId) {
+        return calculerRangs(FILTRE_EXAMEN, examenId);
+    }
+
+    public int calculerRangsPeriode(Long periodeId) {
+        return calculerRangs(FILTRE_PERIODE, periodeId);
+    }
+
+    /**
+     * Recalcule les rangs des résultats sélectionnés par le filtre et retourne
+     * le nombre de lignes mises à jour.
+     */
+    private int calculerRangs(String filtre, Long id) {
+        if (fenetresDisponibles()) {
+            return jdbcTemplate.update(
+                    "UPDATE resultats_examens r " +
+                    "LEFT JOIN (SELECT id, RANK() OVER (PARTITION BY examen_id ORDER BY note_obtenue DESC) AS rang_calcule " +
+                    "           FROM resultats_examens WHERE " + filtre + " AND " + CLASSES_SQL + ") c ON c.id = r.id " +
+                    "SET r.rang = c.rang_calcule " +
+                    "WHERE r." + filtre,
+                    id, id);
+        }
+        return calculerRangsParLots(filtre, id);
+    }
+
+    private int calculerRangsParLots(String filtre, Long id) {
+        List<Object[]> rangs = new ArrayList<>();
+        List<Long> sansRang = new ArrayList<>();
+
+        long[] examenPrecedent = {-1};
+        int[] position = {0};
+        int[] rang = {0};
+        BigDecimal[] notePrecedente = {null};
+        jdbcTemplate.query(
+                "SELECT id, examen_id, note_obtenue, " + CLASSES_SQL + " AS classe FROM resultats_examens " +
+                "WHERE " + filtre + " ORDER BY examen_id, classe DESC, note_obtenue DESC",
+                rs -> {
+                    if (!rs.getBoolean("classe")) {
+                        sansRang.add(rs.getLong("id"));
+                        return;
+                    }
+                    long examenId = rs.getLong("examen_id");
+                    BigDecimal note = rs.getBigDecimal("note_obtenue");
+                    if (examenId != examenPrecedent[0]) {
+                        examenPrecedent[0] = examenId;
+                        position[0] = 0;
+                        notePrecedente[0] = null;
+                    }
+                    position[0]++;
+                    if (notePrecedente[0] == null || note.compareTo(notePrecedente[0]) != 0) {
+                        rang[0] = position[0];
+                        notePrecedente[0] = note;
+                    }
+                    rangs.add(new Object[]{rang[0], rs.getLong("id")});
+                },
+                id);
+
+        jdbcTemplate.batchUpdate("UPDATE resultats_examens SET rang = ? WHERE id = ?", rangs, TAILLE_LOT,
+                (ps, ligne) -> {
+                    ps.setInt(1, (Integer) ligne[0]);
+                    ps.setLong(2, (Long) ligne[1]);
+                });
+        jdbcTemplate.batchUpdate("UPDATE resultats_examens SET rang = NULL WHERE id = ?", sansRang, TAILLE_LOT,
+                (ps, resultatId) -> ps.setLong(1, resultatId));
+        return rangs.size() + sansRang.size();
+    }
+}
@@ -1,6 +1,8 @@
 package com.sms.repository;
 
+import com.sms.dto.ResultatExamenDTO;
 import com.sms.entity.ResultatExamen;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,7 +14,18 @@ import java.util.Optional;
 
 @Repository
 public interface ResultatExamenRepository extends JpaRepository<ResultatExamen, Long> {
+    String SELECT_RESULTAT_DTO = "SELECT new com.sms.dto.ResultatExamenDTO(r.id, ex.id, ex.nom, e.id, e.nom, e.prenom, e.matricule, " +
+            "r.noteObtenue, r.rang, r.appreciation, r.absent) " +
+            "FROM ResultatExamen r JOIN r.examen ex JOIN r.eleve e ";
+
+    @Override
+    @EntityGraph("ResultatExamen.detail")
+    List<ResultatExamen> findAll();
+
+    @EntityGraph("ResultatExamen.detail")
     List<ResultatExamen> findByExamenId(Long examenId);
+
+    @EntityGraph("ResultatExamen.detail")
     List<ResultatExamen> findByEleveId(Long eleveId);
     Optional<ResultatExamen> findByExamenIdAndEleveId(Long examenId, Long eleveId);
 
@@ -22,6 +35,10 @@ public interface ResultatExamenRepository extends JpaRepository<ResultatExamen,
     @Query("SELECT COUNT(r) FROM ResultatExamen r WHERE r.examen.id = :examenId AND r.noteObtenue >= :seuilReussite")
     Long countReussiteByExamen(@Param("examenId") Long examenId, @Param("seuilReussite") BigDecimal seuilReussite);
 
+    @EntityGraph("ResultatExamen.detail")
     @Query("SELECT r FROM ResultatExamen r WHERE r.examen.id = :examenId ORDER BY r.noteObtenue DESC")
     List<ResultatExamen> findByExamenIdOrderByNoteDesc(@Param("examenId") Long examenId);
+
+    @Query(SELECT_RESULTAT_DTO + "WHERE ex.id = :examenId ORDER BY r.noteObtenue DESC")
+    List<ResultatExamenDTO> findDTOByExamenIdOrderByNoteDesc(@Param("examenId") Long examenId);
 }
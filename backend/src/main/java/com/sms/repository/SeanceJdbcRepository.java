@@ -0,0 +1,91 @@
+package com.sms.repository;
+
+import com.sms.dto.SeanceCreateDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Écritures en masse des séances (génération et import d'emplois du temps).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SeanceJdbcRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO seances (classe_id, matiere_id, professeur_id, salle_id, jour_semaine, heure_debut, " +
+            "heure_fin, annee_scolaire, actif) VALUES (?, ?, ?, ?, ?, ?, ?, ?, TRUE)";
+
+    private static final int TAILLE_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Insère les séances, actives, par batchs de 500.
+     * @return les ids générés, dans l'ordre des séances
+     */
+    public List<Long> insererLot(List<SeanceCreateDTO> seances) {
+        List<Long> ids = new ArrayList<>(seances.size());
+        for (int debut = 0; debut < seances.size(); debut += TAILLE_BATCH) {
+            List<SeanceCreateDTO> batch = seances.subList(debut, Math.min(debut + TAILLE_BATCH, seances.size()));
+            KeyHolder cles = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(connexion -> connexion.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            SeanceCreateDTO s = batch.get(i);
+                            ps.setLong(1, s.getClasseId());
+                            setLong(ps, 2, s.getMatiereId());
+                            setLong(ps, 3, s.getProfesseurId());
+                            setLong(ps, 4, s.getSalleId());
+                            ps.setInt(5, s.getJourSemaine());
+                            ps.setTime(6, Time.valueOf(s.getHeureDebut()));
+                            ps.setTime(7, Time.valueOf(s.getHeureFin()));
+                            ps.setString(8, s.getAnneeScolaire());
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    }, cles);
+            cles.getKeyList().forEach(cle -> ids.add(((Number) cle.values().iterator().next()).longValue()));
+        }
+        return ids;
+    }
+
+    /**
+     * Désactive les séances actives des classes pour une année scolaire.
+     * @return le nombre de séances désactivées
+     */
+    public int desactiverClasses(Collection<Long> classeIds, String anneeScolaire) {
+        if (classeIds.isEmpty()) {
+            return 0;
+        }
+        String marqueurs = String.join(", ", Collections.nCopies(classeIds.size(), "?"));
+        List<Object> parametres = new ArrayList<>(classeIds);
+        parametres.add(anneeScolaire);
+        return jdbcTemplate.update("UPDATE seances SET actif = FALSE WHERE actif = TRUE AND classe_id IN (" + marqueurs + ") " +
+                "AND annee_scolaire = ?", parametres.toArray());
+    }
+
+    private static void setLong(PreparedStatement ps, int index, Long valeur) throws SQLException {
+        if (valeur != null) {
+            ps.setLong(index, valeur);
+        } else {
+            ps.setNull(index, Types.BIGINT);
+        }
+    }
+}
@@ -1,27 +1,82 @@
 package com.sms.repository;
 
+import com.sms.dto.SeanceDTO;
 import com.sms.entity.Seance;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface SeanceRepository extends JpaRepository<Seance, Long> {
-    List<Seance> findByClasseId(Long classeId);
-    List<Seance> findByProfesseurId(Long professeurId);
-    List<Seance> findBySalleId(Long salleId);
+    String SELECT_SEANCE_DTO = "SELECT new com.sms.dto.SeanceDTO(s.id, c.id, c.nom, m.id, m.nom, pr.id, " +
+            "CASE WHEN pr.prenom IS NOT NULL THEN CONCAT(pr.prenom, ' ', pr.nom) ELSE pr.nom END, " +
+            "sa.id, sa.nom, s.jourSemaine, '', s.heureDebut, s.heureFin, s.anneeScolaire, s.actif) " +
+            "FROM Seance s LEFT JOIN s.classe c LEFT JOIN s.matiere m LEFT JOIN s.professeur pr LEFT JOIN s.salle sa ";
+
+    @Override
+    @EntityGraph("Seance.detail")
+    List<Seance> findAll();
+
+    @EntityGraph("Seance.detail")
     List<Seance> findByJourSemaine(Integer jourSemaine);
+
+    @EntityGraph("Seance.detail")
     List<Seance> findByActifTrue();
 
+    @EntityGraph("Seance.detail")
     @Query("SELECT s FROM Seance s WHERE s.classe.id = :classeId AND s.actif = true ORDER BY s.jourSemaine, s.heureDebut")
     List<Seance> findEmploiDuTempsByClasse(@Param("classeId") Long classeId);
 
+    @EntityGraph("Seance.detail")
     @Query("SELECT s FROM Seance s WHERE s.professeur.id = :professeurId AND s.actif = true ORDER BY s.jourSemaine, s.heureDebut")
     List<Seance> findEmploiDuTempsByProfesseur(@Param("professeurId") Long professeurId);
 
+    @EntityGraph("Seance.detail")
     @Query("SELECT s FROM Seance s WHERE s.classe.id = :classeId AND s.jourSemaine = :jour AND s.actif = true ORDER BY s.heureDebut")
     List<Seance> findByClasseAndJour(@Param("classeId") Long classeId, @Param("jour") Integer jour);
+
+    @Query("SELECT s.id, s.classe.id FROM Seance s WHERE s.id IN :ids")
+    List<Object[]> findClasseIdsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Créneaux des séances actives pour l'index des conflits :
+     * id, classeId, professeurId, salleId, nom de la salle, année scolaire, jour, début, fin.
+     */
+    @Query("SELECT s.id, c.id, pr.id, sa.id, sa.nom, s.anneeScolaire, s.jourSemaine, s.heureDebut, s.heureFin " +
+            "FROM Seance s LEFT JOIN s.classe c LEFT JOIN s.professeur pr LEFT JOIN s.salle sa WHERE s.actif = true")
+    List<Object[]> findEtatsActifs();
+
+    /**
+     * Mêmes colonnes que findEtatsActifs, pour les séances actives d'une année.
+     */
+    @Query("SELECT s.id, c.id, pr.id, sa.id, sa.nom, s.anneeScolaire, s.jourSemaine, s.heureDebut, s.heureFin " +
+            "FROM Seance s LEFT JOIN s.classe c LEFT JOIN s.professeur pr LEFT JOIN s.salle sa " +
+            "WHERE s.anneeScolaire = :anneeScolaire AND s.actif = true")
+    List<Object[]> findEtatsActifsByAnneeScolaire(@Param("anneeScolaire") String anneeScolaire);
+
+    @Query("SELECT s.id, c.id, pr.id, sa.id, sa.nom, s.anneeScolaire, s.jourSemaine, s.heureDebut, s.heureFin " +
+            "FROM Seance s LEFT JOIN s.classe c LEFT JOIN s.professeur pr LEFT JOIN s.salle sa " +
+            "WHERE s.classe.id IN :classeIds AND s.anneeScolaire = :anneeScolaire AND s.actif = true")
+    List<Object[]> findEtatsActifsByClassesAndAnneeScolaire(@Param("classeIds") Collection<Long> classeIds,
+                                                            @Param("anneeScolaire") String anneeScolaire);
+
+    @Query(SELECT_SEANCE_DTO + "WHERE s.actif = true ORDER BY s.id")
+    List<SeanceDTO> findDTOByActifTrue();
+
+    @Query(SELECT_SEANCE_DTO + "WHERE c.id = :classeId AND s.actif = true ORDER BY s.jourSemaine, s.heureDebut")
+    List<SeanceDTO> findEmploiDuTempsDTOByClasse(@Param("classeId") Long classeId);
+
+    @Query(SELECT_SEANCE_DTO + "WHERE pr.id = :professeurId AND s.actif = true ORDER BY s.jourSemaine, s.heureDebut")
+    List<SeanceDTO> findEmploiDuTempsDTOByProfesseur(@Param("professeurId") Long professeurId);
+
+    @Query(SELECT_SEANCE_DTO + "WHERE s.jourSemaine = :jourSemaine ORDER BY s.id")
+    List<SeanceDTO> findDTOByJourSemaine(@Param("jourSemaine") Integer jourSemaine);
+
+    @Query(SELECT_SEANCE_DTO + "WHERE sa.id = :salleId ORDER BY s.id")
+    List<SeanceDTO> findDTOBySalleId(@Param("salleId") Long salleId);
 }
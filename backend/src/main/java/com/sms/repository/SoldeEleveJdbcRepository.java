@@ -0,0 +1,91 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * Mises à jour incrémentales de la table soldes_eleves.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SoldeEleveJdbcRepository {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO soldes_eleves (eleve_id, annee_scolaire, total_du, total_paye, reste_a_payer) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE total_du = total_du + VALUES(total_du), " +
+            "total_paye = total_paye + VALUES(total_paye), " +
+            "reste_a_payer = reste_a_payer + VALUES(reste_a_payer)";
+
+    private static final String RECONSTRUIRE_SQL =
+            "INSERT INTO soldes_eleves (eleve_id, annee_scolaire, total_du, total_paye, reste_a_payer) " +
+            "SELECT p.eleve_id, p.annee_scolaire, COALESCE(SUM(p.montant), 0), " +
+            "COALESCE(SUM(p.montant_paye), 0), COALESCE(SUM(p.reste_a_payer), 0) " +
+            "FROM paiements p WHERE p.annee_scolaire IS NOT NULL " +
+            "GROUP BY p.eleve_id, p.annee_scolaire";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Applique des variations (éventuellement négatives) aux soldes,
+     * en créant les lignes manquantes.
+     */
+    public void appliquerDeltas(Collection<Delta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, deltas, deltas.size(), (ps, delta) -> {
+            ps.setLong(1, delta.eleveId());
+            ps.setString(2, delta.anneeScolaire());
+            ps.setBigDecimal(3, delta.totalDu());
+            ps.setBigDecimal(4, delta.totalPaye());
+            ps.setBigDecimal(5, delta.resteAPayer());
+        });
+    }
+
+    /**
+     * Recalcule depuis les paiements les soldes de l'année des élèves actifs d'un
+     * niveau, après une émission en masse. Les soldes sont remplacés et non
+     * incrémentés : un paiement créé en même temps par un autre appel (et déjà
+     * compté par ses propres deltas) n'est donc pas compté deux fois.
+     */
+    public int recalculerNiveau(Long niveauId, String anneeScolaire) {
+        return jdbcTemplate.update(
+                "INSERT INTO soldes_eleves (eleve_id, annee_scolaire, total_du, total_paye, reste_a_payer) " +
+                "SELECT p.eleve_id, p.annee_scolaire, COALESCE(SUM(p.montant), 0), " +
+                "COALESCE(SUM(p.montant_paye), 0), COALESCE(SUM(p.reste_a_payer), 0) " +
+                "FROM paiements p JOIN eleves e ON e.id = p.eleve_id JOIN classes c ON c.id = e.classe_id " +
+                "WHERE c.niveau_id = ? AND e.statut = 'Actif' AND p.annee_scolaire = ? " +
+                "GROUP BY p.eleve_id, p.annee_scolaire " +
+                "ON DUPLICATE KEY UPDATE total_du = VALUES(total_du), " +
+                "total_paye = VALUES(total_paye), " +
+                "reste_a_payer = VALUES(reste_a_payer)",
+                niveauId, anneeScolaire);
+    }
+
+    /**
+     * Recalcule entièrement la table depuis les paiements.
+     * @return le nombre de soldes produits
+     */
+    public int reconstruire() {
+        jdbcTemplate.update("DELETE FROM soldes_eleves");
+        return jdbcTemplate.update(RECONSTRUIRE_SQL);
+    }
+
+    /**
+     * Vrai si des paiements existent alors qu'aucun solde n'a été calculé
+     * (table créée vide par Hibernate sur une base existante).
+     */
+    public boolean doitEtreInitialisee() {
+        Boolean vide = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM soldes_eleves) AND EXISTS (SELECT 1 FROM paiements)", Boolean.class);
+        return Boolean.TRUE.equals(vide);
+    }
+
+    public record Delta(Long eleveId, String anneeScolaire, BigDecimal totalDu, BigDecimal totalPaye, BigDecimal resteAPayer) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.sms.repository;
+
+import com.sms.entity.SoldeEleve;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SoldeEleveRepository extends JpaRepository<SoldeEleve, Long> {
+    Optional<SoldeEleve> findByEleveIdAndAnneeScolaire(Long eleveId, String anneeScolaire);
+}
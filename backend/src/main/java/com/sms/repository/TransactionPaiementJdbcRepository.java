@@ -0,0 +1,41 @@
+package com.sms.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reprise des montants payés antérieurs au journal transactions_paiement.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionPaiementJdbcRepository {
+
+    // Une écriture de reprise par paiement déjà (partiellement) payé et absent du journal
+    private static final String REPRISE_SQL =
+            "INSERT INTO transactions_paiement (paiement_id, nature, montant, mode_paiement, reference, date_transaction) " +
+            "SELECT p.id, 'Reprise', p.montant_paye, p.mode_paiement, p.reference_paiement, " +
+            "COALESCE(CAST(p.date_paiement AS DATETIME), p.created_at, CURRENT_TIMESTAMP) " +
+            "FROM paiements p WHERE p.montant_paye > 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM transactions_paiement t WHERE t.paiement_id = p.id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Vrai si des paiements ont un montant payé alors que le journal est vide
+     * (table créée vide par Hibernate sur une base existante).
+     */
+    public boolean doitEtreInitialise() {
+        Boolean vide = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM transactions_paiement) " +
+                "AND EXISTS (SELECT 1 FROM paiements WHERE montant_paye > 0)", Boolean.class);
+        return Boolean.TRUE.equals(vide);
+    }
+
+    /**
+     * @return le nombre d'écritures de reprise créées
+     */
+    public int reprendreMontantsPayes() {
+        return jdbcTemplate.update(REPRISE_SQL);
+    }
+}
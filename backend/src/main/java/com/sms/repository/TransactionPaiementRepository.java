@@ -0,0 +1,31 @@
+package com.sms.repository;
+
+import com.sms.dto.TransactionPaiementDTO;
+import com.sms.entity.TransactionPaiement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TransactionPaiementRepository extends JpaRepository<TransactionPaiement, Long> {
+
+    @Query("SELECT new com.sms.dto.TransactionPaiementDTO(t.id, t.paiement.id, t.nature, t.montant, t.modePaiement, " +
+            "t.reference, t.dateTransaction, t.cleIdempotence) " +
+            "FROM TransactionPaiement t WHERE t.paiement.id = :paiementId ORDER BY t.dateTransaction, t.id")
+    List<TransactionPaiementDTO> findDTOByPaiementId(@Param("paiementId") Long paiementId);
+
+    @Query("SELECT COALESCE(SUM(t.montant), 0) FROM TransactionPaiement t WHERE t.paiement.id = :paiementId")
+    BigDecimal sumMontantByPaiementId(@Param("paiementId") Long paiementId);
+
+    @Query("SELECT t.paiement.id FROM TransactionPaiement t WHERE t.cleIdempotence = :cle")
+    Optional<Long> findPaiementIdByCleIdempotence(@Param("cle") String cleIdempotence);
+
+    @Query("SELECT t.cleIdempotence FROM TransactionPaiement t WHERE t.cleIdempotence IN :cles")
+    List<String> findClesIdempotenceExistantes(@Param("cles") Collection<String> cles);
+}
@@ -0,0 +1,322 @@
+package com.sms.service;
+
+import com.sms.dto.AlerteAbsenceDTO;
+import com.sms.entity.Periode;
+import com.sms.repository.EleveRepository;
+import com.sms.repository.PeriodeRepository;
+import com.sms.repository.PresenceJdbcRepository;
+import com.sms.service.PresenceModifieeEvent.ChangementPresence;
+import com.sms.service.PresenceModifieeEvent.EtatPresence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Moteur d'alertes d'absentéisme. Des compteurs par élève et par année
+ * (absences non justifiées par période, minutes de retard cumulées) sont mis
+ * à jour par différence avant/après à chaque écriture de présences, puis les
+ * règles sont réévaluées pour les seuls élèves touchés. La série d'absences
+ * en cours est lue dans IndexAbsencesService, mis à jour juste avant.
+ *
+ * L'état est reconstruit au démarrage en un seul parcours de la table presences.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlerteAbsenceService {
+
+    public enum Regle {
+        ABSENCES_NON_JUSTIFIEES_PERIODE,
+        ABSENCES_CONSECUTIVES,
+        MINUTES_RETARD
+    }
+
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final PeriodeRepository periodeRepository;
+    private final EleveRepository eleveRepository;
+    private final IndexAbsencesService indexAbsencesService;
+
+    @Value("${alertes.absences-non-justifiees-periode:5}")
+    private int seuilAbsencesPeriode;
+
+    @Value("${alertes.absences-consecutives:3}")
+    private int seuilAbsencesConsecutives;
+
+    @Value("${alertes.minutes-retard:120}")
+    private int seuilMinutesRetard;
+
+    /** Compteurs par (élève, année scolaire). */
+    private final Map<CleEleve, Compteurs> compteurs = new HashMap<>();
+    /** Alertes actives, lues sans verrou par l'endpoint. */
+    private final Map<CleAlerte, Alerte> alertes = new ConcurrentHashMap<>();
+    private volatile List<Periode> periodes = List.of();
+
+    private volatile boolean reconstructionEnCours;
+    private final Queue<Long> elevesPendantReconstruction = new ConcurrentLinkedQueue<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(2)
+    public void initialiser() {
+        try {
+            reconstruire();
+        } catch (DataAccessException e) {
+            log.warn("Reconstruction des alertes d'absences impossible au démarrage : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recalcule tous les compteurs et alertes en un parcours de la table presences.
+     * Les élèves modifiés pendant le parcours sont recalculés depuis leurs lignes ensuite.
+     */
+    public Map<String, Object> reconstruire() {
+        long debut = System.nanoTime();
+        Map<CleEleve, Compteurs> nouveaux = new HashMap<>();
+        synchronized (this) {
+            reconstructionEnCours = true;
+            periodes = periodeRepository.findAll();
+        }
+        try {
+            presenceJdbcRepository.parcourirJours(cumuler(nouveaux));
+            synchronized (this) {
+                compteurs.clear();
+                compteurs.putAll(nouveaux);
+                alertes.clear();
+                compteurs.keySet().forEach(this::evaluer);
+                reconstructionEnCours = false;
+                recalculer(elevesPendantReconstruction);
+            }
+        } finally {
+            reconstructionEnCours = false;
+        }
+
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        log.info("Alertes d'absences reconstruites : {} élèves, {} alertes en {} ms",
+                nouveaux.size(), alertes.size(), dureeMs);
+
+        Map<String, Object> resultat = new HashMap<>();
+        resultat.put("eleves", nouveaux.size());
+        resultat.put("alertes", alertes.size());
+        resultat.put("dureeMs", dureeMs);
+        return resultat;
+    }
+
+    /**
+     * Après commit (et après la mise à jour de l'index des absences), applique
+     * la différence avant/après aux compteurs et réévalue les élèves touchés.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Order(2)
+    public synchronized void surPresenceModifiee(PresenceModifieeEvent event) {
+        if (reconstructionEnCours) {
+            for (ChangementPresence changement : event.changements()) {
+                if (changement.avant() != null) {
+                    elevesPendantReconstruction.add(changement.avant().eleveId());
+                }
+                if (changement.apres() != null) {
+                    elevesPendantReconstruction.add(changement.apres().eleveId());
+                }
+            }
+            return;
+        }
+        Set<CleEleve> touches = new HashSet<>();
+        for (ChangementPresence changement : event.changements()) {
+            appliquer(compteurs, changement.avant(), -1, touches);
+            appliquer(compteurs, changement.apres(), 1, touches);
+        }
+        touches.forEach(this::evaluer);
+    }
+
+    /**
+     * Les présences d'une année archivée ne sont plus dans la table : on oublie ses compteurs.
+     */
+    @EventListener
+    public synchronized void surAnneeArchivee(AnneeArchiveeEvent event) {
+        compteurs.keySet().removeIf(cle -> cle.anneeScolaire().equals(event.anneeScolaire()));
+        alertes.keySet().removeIf(cle -> cle.anneeScolaire().equals(event.anneeScolaire()));
+    }
+
+    /**
+     * Après commit d'une période créée ou modifiée : recharge les périodes et
+     * recalcule les élèves de l'année, dont les absences par période ont pu changer.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void surPeriodeModifiee(PeriodeModifieeEvent event) {
+        List<Periode> rechargees = periodeRepository.findAll();
+        synchronized (this) {
+            periodes = rechargees;
+            compteurs.keySet().stream()
+                    .filter(cle -> cle.anneeScolaire().equals(event.anneeScolaire()))
+                    .map(CleEleve::eleveId)
+                    .forEach(elevesPendantReconstruction::add);
+            if (!reconstructionEnCours) {
+                recalculer(elevesPendantReconstruction);
+            }
+        }
+    }
+
+    /**
+     * Alertes actives d'une année, éventuellement restreintes à une classe ou une règle.
+     */
+    public List<AlerteAbsenceDTO> getAlertes(String anneeScolaire, Long classeId, Regle regle) {
+        Set<Long> eleveIds = classeId != null ? new HashSet<>(eleveRepository.findIdsByClasseId(classeId)) : null;
+        List<Alerte> actives = alertes.values().stream()
+                .filter(a -> a.anneeScolaire().equals(anneeScolaire))
+                .filter(a -> regle == null || a.regle() == regle)
+                .filter(a -> eleveIds == null || eleveIds.contains(a.eleveId()))
+                .sorted(Comparator.comparing(Alerte::depuis).reversed())
+                .toList();
+        if (actives.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, Object[]> identites = new HashMap<>();
+        Set<Long> ids = new HashSet<>();
+        actives.forEach(a -> ids.add(a.eleveId()));
+        for (Object[] ligne : eleveRepository.findIdentitesByIdIn(ids)) {
+            identites.put((Long) ligne[0], ligne);
+        }
+
+        List<AlerteAbsenceDTO> resultat = new ArrayList<>(actives.size());
+        for (Alerte alerte : actives) {
+            Object[] identite = identites.getOrDefault(alerte.eleveId(), new Object[5]);
+            resultat.add(AlerteAbsenceDTO.builder()
+                    .regle(alerte.regle().name())
+                    .eleveId(alerte.eleveId())
+                    .eleveNom((String) identite[1])
+                    .elevePrenom((String) identite[2])
+                    .eleveMatricule((String) identite[3])
+                    .eleveClasse((String) identite[4])
+                    .anneeScolaire(alerte.anneeScolaire())
+                    .periodeId(alerte.periodeId())
+                    .valeur(alerte.valeur())
+                    .seuil(alerte.seuil())
+                    .depuis(alerte.depuis())
+                    .build());
+        }
+        return resultat;
+    }
+
+    private RowCallbackHandler cumuler(Map<CleEleve, Compteurs> cible) {
+        return rs -> {
+            String anneeScolaire = rs.getString("annee_scolaire");
+            LocalDate date = rs.getObject("date_presence", LocalDate.class);
+            Integer minutesRetard = rs.getObject("minutes_retard", Integer.class);
+            EtatPresence etat = new EtatPresence(rs.getLong("eleve_id"), null, anneeScolaire, date,
+                    rs.getString("statut"), rs.getBoolean("justifie"), minutesRetard);
+            appliquer(cible, etat, 1, null);
+        };
+    }
+
+    /**
+     * Recalcule depuis leurs lignes les élèves modifiés pendant une reconstruction.
+     */
+    private void recalculer(Queue<Long> file) {
+        Set<Long> eleveIds = new HashSet<>();
+        for (Long id; (id = file.poll()) != null; ) {
+            eleveIds.add(id);
+        }
+        if (eleveIds.isEmpty()) {
+            return;
+        }
+        Set<CleEleve> aEvaluer = new HashSet<>();
+        compteurs.keySet().stream().filter(cle -> eleveIds.contains(cle.eleveId())).forEach(aEvaluer::add);
+        compteurs.keySet().removeAll(aEvaluer);
+        presenceJdbcRepository.lireEleves(eleveIds, cumuler(compteurs));
+        compteurs.keySet().stream().filter(cle -> eleveIds.contains(cle.eleveId())).forEach(aEvaluer::add);
+        aEvaluer.forEach(this::evaluer);
+    }
+
+    private void appliquer(Map<CleEleve, Compteurs> cible, EtatPresence etat, int sens, Set<CleEleve> touches) {
+        if (etat == null || etat.eleveId() == null || etat.anneeScolaire() == null) {
+            return;
+        }
+        CleEleve cle = new CleEleve(etat.eleveId(), etat.anneeScolaire());
+        Compteurs c = cible.computeIfAbsent(cle, k -> new Compteurs());
+        if ("absent".equals(etat.statut()) && !etat.justifie()) {
+            Long periodeId = periodeDe(etat.anneeScolaire(), etat.date());
+            if (periodeId != null) {
+                c.absencesParPeriode.merge(periodeId, sens, Integer::sum);
+            }
+        } else if ("retard".equals(etat.statut()) && etat.minutesRetard() != null) {
+            c.minutesRetard += sens * etat.minutesRetard();
+        }
+        if (touches != null) {
+            touches.add(cle);
+        }
+    }
+
+    private void evaluer(CleEleve cle) {
+        Compteurs c = compteurs.getOrDefault(cle, new Compteurs());
+        alertes.keySet().removeIf(a -> a.eleveId().equals(cle.eleveId())
+                && a.anneeScolaire().equals(cle.anneeScolaire())
+                && a.regle() == Regle.ABSENCES_NON_JUSTIFIEES_PERIODE
+                && c.absencesParPeriode.getOrDefault(a.periodeId(), 0) < seuilAbsencesPeriode);
+        c.absencesParPeriode.forEach((periodeId, n) ->
+                signaler(cle, Regle.ABSENCES_NON_JUSTIFIEES_PERIODE, periodeId, n, seuilAbsencesPeriode));
+        signaler(cle, Regle.MINUTES_RETARD, null, c.minutesRetard, seuilMinutesRetard);
+        signaler(cle, Regle.ABSENCES_CONSECUTIVES, null,
+                indexAbsencesService.getSerieEnCours(cle.eleveId(), cle.anneeScolaire()), seuilAbsencesConsecutives);
+    }
+
+    private void signaler(CleEleve eleve, Regle regle, Long periodeId, int valeur, int seuil) {
+        CleAlerte cle = new CleAlerte(eleve.eleveId(), eleve.anneeScolaire(), regle, periodeId);
+        if (valeur < seuil) {
+            alertes.remove(cle);
+            return;
+        }
+        Alerte existante = alertes.get(cle);
+        if (existante == null && !reconstructionEnCours) {
+            log.info("Alerte {} : élève {} ({}), valeur {} pour un seuil de {}",
+                    regle, eleve.eleveId(), eleve.anneeScolaire(), valeur, seuil);
+        }
+        alertes.put(cle, new Alerte(regle, eleve.eleveId(), eleve.anneeScolaire(), periodeId, valeur, seuil,
+                existante != null ? existante.depuis() : LocalDateTime.now()));
+    }
+
+    /**
+     * Période de l'année contenant la date, d'après les périodes chargées au
+     * démarrage et rechargées à chaque écriture de période (surPeriodeModifiee).
+     */
+    private Long periodeDe(String anneeScolaire, LocalDate date) {
+        if (date == null) {
+            return null;
+        }
+        for (Periode periode : periodes) {
+            if (anneeScolaire.equals(periode.getAnneeScolaire())
+                    && periode.getDateDebut() != null && periode.getDateFin() != null
+                    && !date.isBefore(periode.getDateDebut()) && !date.isAfter(periode.getDateFin())) {
+                return periode.getId();
+            }
+        }
+        return null;
+    }
+
+    private record CleEleve(Long eleveId, String anneeScolaire) {
+    }
+
+    private record CleAlerte(Long eleveId, String anneeScolaire, Regle regle, Long periodeId) {
+    }
+
+    private record Alerte(Regle regle, Long eleveId, String anneeScolaire, Long periodeId,
+                          int valeur, int seuil, LocalDateTime depuis) {
+    }
+
+    private static final class Compteurs {
+        private final Map<Long, Integer> absencesParPeriode = new HashMap<>();
+        private int minutesRetard;
+    }
+}
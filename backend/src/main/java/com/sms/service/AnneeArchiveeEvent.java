@@ -0,0 +1,8 @@
+package com.sms.service;
+
+/**
+ * Publié par ArchivageService une fois les présences et notes d'une année
+ * déplacées dans les tables d'archive.
+ */
+public record AnneeArchiveeEvent(String anneeScolaire) {
+}
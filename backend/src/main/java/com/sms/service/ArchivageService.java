@@ -0,0 +1,176 @@
+package com.sms.service;
+
+import com.sms.entity.AnneeArchivee;
+import com.sms.repository.AnneeArchiveeRepository;
+import com.sms.repository.ArchivageJdbcRepository;
+import com.sms.repository.ArchivageJdbcRepository.Table;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Archivage des années scolaires passées : leurs présences et notes sont
+ * déplacées par lots vers presences_archive / notes_archive, pour que les
+ * tables (et index) chauds ne contiennent que les années récentes.
+ *
+ * Le registre des années archivées est gardé en mémoire ; PresenceService et
+ * NoteService s'en servent pour lire aussi les archives quand une requête
+ * porte sur une année archivée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ArchivageService {
+
+    private static final int TAILLE_LOT = 5000;
+    private static final Pattern ANNEE_SCOLAIRE = Pattern.compile("(\\d{4})-(\\d{4})");
+
+    private final AnneeArchiveeRepository anneeArchiveeRepository;
+    private final ArchivageJdbcRepository archivageJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /** Nombre d'années (courante comprise) qui restent dans les tables chaudes. */
+    @Value("${archivage.annees-en-ligne:2}")
+    private int anneesEnLigne;
+
+    private volatile Set<String> anneesArchivees = Set.of();
+
+    /**
+     * Avant les index en mémoire, qui n'ont plus à charger les années archivées.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    public void initialiser() {
+        rechargerRegistre();
+    }
+
+    public boolean estArchivee(String anneeScolaire) {
+        return anneeScolaire != null && anneesArchivees.contains(anneeScolaire);
+    }
+
+    public boolean aDesArchives() {
+        return !anneesArchivees.isEmpty();
+    }
+
+    /**
+     * Vrai si l'intervalle [debut, fin] chevauche une année scolaire archivée.
+     */
+    public boolean chevaucheArchive(LocalDate debut, LocalDate fin) {
+        for (String annee : anneesArchivees) {
+            Matcher m = ANNEE_SCOLAIRE.matcher(annee);
+            if (m.matches()) {
+                LocalDate rentree = LocalDate.of(Integer.parseInt(m.group(1)), 8, 1);
+                if (!debut.isBefore(rentree.plusYears(1)) || fin.isBefore(rentree)) {
+                    continue;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Refuse une écriture sur une année archivée.
+     */
+    public void verifierModifiable(String anneeScolaire) {
+        if (estArchivee(anneeScolaire)) {
+            throw new IllegalArgumentException("L'année scolaire " + anneeScolaire + " est archivée");
+        }
+    }
+
+    public List<AnneeArchivee> getAnneesArchivees() {
+        return anneeArchiveeRepository.findAll();
+    }
+
+    /**
+     * Archive une année scolaire hors de la fenêtre des années en ligne. L'année
+     * est inscrite au registre avant le déplacement ; chaque lot est déplacé dans
+     * sa propre transaction, un archivage interrompu peut donc être relancé.
+     */
+    public AnneeArchivee archiver(String anneeScolaire) {
+        Matcher m = ANNEE_SCOLAIRE.matcher(anneeScolaire != null ? anneeScolaire : "");
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Année scolaire invalide : " + anneeScolaire + " (format 2023-2024)");
+        }
+        int premiereAnnee = Integer.parseInt(m.group(1));
+        int derniereArchivable = anneeDeRentree(LocalDate.now()) - anneesEnLigne;
+        if (premiereAnnee > derniereArchivable) {
+            throw new IllegalArgumentException("L'année scolaire " + anneeScolaire + " est encore en ligne"
+                    + " (archivage possible jusqu'à " + derniereArchivable + "-" + (derniereArchivable + 1) + ")");
+        }
+
+        long debut = System.nanoTime();
+        AnneeArchivee registre = anneeArchiveeRepository.findById(anneeScolaire)
+                .orElseGet(() -> new AnneeArchivee(anneeScolaire, LocalDateTime.now(), 0L, 0L));
+        registre.setDateArchivage(LocalDateTime.now());
+        anneeArchiveeRepository.save(registre);
+        rechargerRegistre();
+
+        long presences = deplacer(Table.PRESENCES, anneeScolaire);
+        long notes = deplacer(Table.NOTES, anneeScolaire);
+        registre.setPresencesArchivees(registre.getPresencesArchivees() + presences);
+        registre.setNotesArchivees(registre.getNotesArchivees() + notes);
+        AnneeArchivee enregistre = anneeArchiveeRepository.save(registre);
+
+        log.info("Année {} archivée : {} présences et {} notes déplacées en {} ms",
+                anneeScolaire, presences, notes, (System.nanoTime() - debut) / 1_000_000);
+        eventPublisher.publishEvent(new AnneeArchiveeEvent(anneeScolaire));
+        return enregistre;
+    }
+
+    /**
+     * Archivage automatique des années sorties de la fenêtre en ligne
+     * (désactivé par défaut : archivage.cron vaut "-").
+     */
+    @Scheduled(cron = "${archivage.cron:-}")
+    public void archiverAnneesAnciennes() {
+        int derniereArchivable = anneeDeRentree(LocalDate.now()) - anneesEnLigne;
+        for (String annee : archivageJdbcRepository.anneesEnLigne()) {
+            Matcher m = ANNEE_SCOLAIRE.matcher(annee);
+            if (m.matches() && Integer.parseInt(m.group(1)) <= derniereArchivable) {
+                archiver(annee);
+            }
+        }
+    }
+
+    private long deplacer(Table table, String anneeScolaire) {
+        long total = 0;
+        while (true) {
+            Integer deplacees = transactionTemplate.execute(statut -> {
+                Long dernierId = archivageJdbcRepository.dernierIdDuLot(table, anneeScolaire, TAILLE_LOT);
+                return dernierId != null ? archivageJdbcRepository.deplacer(table, anneeScolaire, dernierId) : 0;
+            });
+            if (deplacees == null || deplacees == 0) {
+                return total;
+            }
+            total += deplacees;
+        }
+    }
+
+    private void rechargerRegistre() {
+        Set<String> annees = new HashSet<>();
+        anneeArchiveeRepository.findAll().forEach(a -> annees.add(a.getAnneeScolaire()));
+        anneesArchivees = Collections.unmodifiableSet(annees);
+    }
+
+    /**
+     * Année de rentrée de l'année scolaire contenant la date (rentrée au 1er août).
+     */
+    private static int anneeDeRentree(LocalDate date) {
+        return date.getMonthValue() >= 8 ? date.getYear() : date.getYear() - 1;
+    }
+}
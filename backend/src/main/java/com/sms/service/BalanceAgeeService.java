@@ -0,0 +1,189 @@
+package com.sms.service;
+
+import com.sms.dto.BalanceAgeeDTO;
+import com.sms.repository.BalanceAgeeJdbcRepository;
+import com.sms.repository.BalanceAgeeJdbcRepository.FiltreBalance;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Balance âgée des créances : reste à payer des paiements échus, réparti en
+ * tranches de retard (0-30, 31-60, 61-90, plus de 90 jours après l'échéance)
+ * par classe, type de frais ou élève. Les paiements sont lus une seule fois
+ * en flux et cumulés en centimes dans des tableaux de long.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceAgeeService {
+
+    private static final int TRANCHES = 4;
+
+    // Colonnes de BalanceAgeeJdbcRepository.IMPAYES_SQL
+    private static final int COL_ELEVE_ID = 1;
+    private static final int COL_CLASSE_ID = 2;
+    private static final int COL_TYPE_FRAIS_ID = 3;
+    private static final int COL_JOURS_RETARD = 4;
+    private static final int COL_RESTE_CENTIMES = 5;
+    private static final int COL_ELEVE_NOM = 6;
+    private static final int COL_ELEVE_PRENOM = 7;
+    private static final int COL_ELEVE_MATRICULE = 8;
+    private static final int COL_CLASSE_NOM = 9;
+    private static final int COL_TYPE_FRAIS_CODE = 10;
+
+    private final BalanceAgeeJdbcRepository balanceAgeeJdbcRepository;
+
+    public enum Regroupement {
+        CLASSE,
+        TYPE_FRAIS,
+        ELEVE
+    }
+
+    /**
+     * Lignes de la balance, par reste à payer décroissant.
+     */
+    public List<BalanceAgeeDTO> calculer(Regroupement regroupement, FiltreBalance filtre) {
+        long debut = System.nanoTime();
+        Map<Long, Cumul> cumuls = new HashMap<>();
+        long[] lignes = new long[1];
+
+        balanceAgeeJdbcRepository.parcourirImpayes(filtre, rs -> {
+            long cle = rs.getLong(colonneCle(regroupement)); // 0 pour un élève sans classe ou un paiement sans type
+            Cumul cumul = cumuls.get(cle);
+            if (cumul == null) {
+                cumul = nouveauCumul(regroupement, rs);
+                cumuls.put(cle, cumul);
+            }
+            cumul.ajouter(tranche(rs.getInt(COL_JOURS_RETARD)), rs.getLong(COL_RESTE_CENTIMES));
+            lignes[0]++;
+        });
+
+        List<BalanceAgeeDTO> balance = new ArrayList<>(cumuls.size());
+        cumuls.forEach((cle, cumul) -> balance.add(cumul.versDTO(cle)));
+        balance.sort(Comparator.comparing(BalanceAgeeDTO::getTotal).reversed()
+                .thenComparing(BalanceAgeeDTO::getLibelle, Comparator.nullsLast(Comparator.naturalOrder())));
+        log.info("Balance âgée par {} : {} paiements échus, {} lignes en {} ms",
+                regroupement, lignes[0], balance.size(), (System.nanoTime() - debut) / 1_000_000);
+        return balance;
+    }
+
+    /**
+     * Somme des lignes de la balance, par tranche.
+     */
+    public BalanceAgeeDTO totaliser(List<BalanceAgeeDTO> balance) {
+        BalanceAgeeDTO total = BalanceAgeeDTO.builder()
+                .libelle("Total")
+                .nombrePaiements(0L)
+                .tranche0a30(BigDecimal.ZERO)
+                .tranche31a60(BigDecimal.ZERO)
+                .tranche61a90(BigDecimal.ZERO)
+                .tranchePlus90(BigDecimal.ZERO)
+                .total(BigDecimal.ZERO)
+                .build();
+        for (BalanceAgeeDTO ligne : balance) {
+            total.setNombrePaiements(total.getNombrePaiements() + ligne.getNombrePaiements());
+            total.setTranche0a30(total.getTranche0a30().add(ligne.getTranche0a30()));
+            total.setTranche31a60(total.getTranche31a60().add(ligne.getTranche31a60()));
+            total.setTranche61a90(total.getTranche61a90().add(ligne.getTranche61a90()));
+            total.setTranchePlus90(total.getTranchePlus90().add(ligne.getTranchePlus90()));
+            total.setTotal(total.getTotal().add(ligne.getTotal()));
+        }
+        return total;
+    }
+
+    public void exporterCsv(Regroupement regroupement, FiltreBalance filtre, OutputStream sortie) throws IOException {
+        List<BalanceAgeeDTO> balance = calculer(regroupement, filtre);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(sortie, StandardCharsets.UTF_8));
+        writer.write("id,libelle,matricule,nombre_paiements,tranche_0_30,tranche_31_60,tranche_61_90,tranche_plus_90,total\r\n");
+        for (BalanceAgeeDTO ligne : balance) {
+            writer.write(ligne.getId() + "," + echapper(ligne.getLibelle()) + "," + echapper(ligne.getMatricule())
+                    + "," + ligne.getNombrePaiements() + "," + ligne.getTranche0a30().toPlainString()
+                    + "," + ligne.getTranche31a60().toPlainString() + "," + ligne.getTranche61a90().toPlainString()
+                    + "," + ligne.getTranchePlus90().toPlainString() + "," + ligne.getTotal().toPlainString() + "\r\n");
+        }
+        writer.flush();
+    }
+
+    private static int colonneCle(Regroupement regroupement) {
+        return switch (regroupement) {
+            case CLASSE -> COL_CLASSE_ID;
+            case TYPE_FRAIS -> COL_TYPE_FRAIS_ID;
+            case ELEVE -> COL_ELEVE_ID;
+        };
+    }
+
+    private static Cumul nouveauCumul(Regroupement regroupement, ResultSet rs) throws SQLException {
+        return switch (regroupement) {
+            case CLASSE -> new Cumul(Objects.requireNonNullElse(rs.getString(COL_CLASSE_NOM), "Sans classe"), null);
+            case TYPE_FRAIS -> new Cumul(Objects.requireNonNullElse(rs.getString(COL_TYPE_FRAIS_CODE), "Aucun"), null);
+            case ELEVE -> new Cumul(rs.getString(COL_ELEVE_NOM) + " " + rs.getString(COL_ELEVE_PRENOM),
+                    rs.getString(COL_ELEVE_MATRICULE));
+        };
+    }
+
+    /**
+     * Tranche de retard : 0 (0-30 jours), 1 (31-60), 2 (61-90), 3 (plus de 90).
+     */
+    private static int tranche(int joursRetard) {
+        if (joursRetard <= 30) {
+            return 0;
+        }
+        if (joursRetard <= 60) {
+            return 1;
+        }
+        return joursRetard <= 90 ? 2 : 3;
+    }
+
+    private static String echapper(String valeur) {
+        if (valeur == null) {
+            return "";
+        }
+        if (valeur.indexOf(',') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0 && valeur.indexOf('\r') < 0) {
+            return valeur;
+        }
+        return '"' + valeur.replace("\"", "\"\"") + '"';
+    }
+
+    private static final class Cumul {
+        private final String libelle;
+        private final String matricule;
+        private final long[] centimes = new long[TRANCHES];
+        private long nombre;
+
+        Cumul(String libelle, String matricule) {
+            this.libelle = libelle;
+            this.matricule = matricule;
+        }
+
+        void ajouter(int tranche, long resteCentimes) {
+            centimes[tranche] += resteCentimes;
+            nombre++;
+        }
+
+        BalanceAgeeDTO versDTO(long id) {
+            long total = 0;
+            for (long montant : centimes) {
+                total += montant;
+            }
+            return BalanceAgeeDTO.builder()
+                    .id(id)
+                    .libelle(libelle)
+                    .matricule(matricule)
+                    .nombrePaiements(nombre)
+                    .tranche0a30(BigDecimal.valueOf(centimes[0], 2))
+                    .tranche31a60(BigDecimal.valueOf(centimes[1], 2))
+                    .tranche61a90(BigDecimal.valueOf(centimes[2], 2))
+                    .tranchePlus90(BigDecimal.valueOf(centimes[3], 2))
+                    .total(BigDecimal.valueOf(total, 2))
+                    .build();
+        }
+    }
+}
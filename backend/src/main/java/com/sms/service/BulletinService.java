@@ -0,0 +1,312 @@
+package com.sms.service;
+
+import com.sms.dto.BulletinDTO;
+import com.sms.dto.ClassementDTO;
+import com.sms.dto.NoteBulletinLigneDTO;
+import com.sms.dto.NoteMatiereDTO;
+import com.sms.entity.Bulletin;
+import com.sms.entity.Eleve;
+import com.sms.entity.Periode;
+import com.sms.exception.ResourceNotFoundException;
+import com.sms.repository.BulletinJdbcRepository;
+import com.sms.repository.BulletinJdbcRepository.LigneClassement;
+import com.sms.repository.BulletinRepository;
+import com.sms.repository.EleveRepository;
+import com.sms.repository.NoteArchiveRepository;
+import com.sms.repository.NoteRepository;
+import com.sms.repository.PeriodeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Calcul des bulletins au niveau de la classe.
+ * Toutes les notes de la classe pour la période sont chargées en une seule
+ * requête de projection, puis les moyennes sont calculées en mémoire ; les
+ * moyennes de classe par matière sont lues dans l'agrégat maintenu.
+ * Le classement (rang, effectif) est calculé de la même façon pour toute la
+ * classe puis écrit en un seul lot.
+ * Les bulletins d'une année archivée sont lus depuis notes_archive et ne
+ * peuvent plus être reclassés.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@Transactional(readOnly = true)
+public class BulletinService {
+
+    private final NoteRepository noteRepository;
+    private final BulletinRepository bulletinRepository;
+    private final MoyenneClasseService moyenneClasseService;
+    private final EleveRepository eleveRepository;
+    private final PeriodeRepository periodeRepository;
+    private final BulletinJdbcRepository bulletinJdbcRepository;
+    private final NoteArchiveRepository noteArchiveRepository;
+    private final ArchivageService archivageService;
+
+    /**
+     * Classement à égalité : COMPETITION donne 1, 2, 2, 4 ; DENSE donne 1, 2, 2, 3.
+     */
+    public enum ModeClassement {
+        COMPETITION,
+        DENSE
+    }
+
+    public List<BulletinDTO> getBulletinsClasse(Long classeId, Long periodeId) {
+        long debut = System.nanoTime();
+
+        List<Bulletin> bulletins = bulletinRepository.findByClasseAndPeriodeWithEleve(classeId, periodeId);
+        if (bulletins.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<NoteBulletinLigneDTO> notes = archivageService.estArchivee(bulletins.get(0).getPeriode().getAnneeScolaire())
+                ? noteArchiveRepository.findLignesBulletinByElevesAndPeriode(
+                        bulletins.stream().map(b -> b.getEleve().getId()).toList(), periodeId)
+                : noteRepository.findLignesBulletinByClasseAndPeriode(classeId, periodeId);
+        Map<Long, List<NoteBulletinLigneDTO>> lignesParEleve = notes.stream()
+                .collect(Collectors.groupingBy(NoteBulletinLigneDTO::getEleveId));
+        Map<Long, BigDecimal> moyennesClasse = moyenneClasseService.getMoyennesParClasseMatiere(periodeId,
+                lignesParEleve.values().stream()
+                        .flatMap(List::stream)
+                        .map(NoteBulletinLigneDTO::getClasseMatiereId)
+                        .collect(Collectors.toSet()));
+
+        List<BulletinDTO> result = new ArrayList<>(bulletins.size());
+        for (Bulletin bulletin : bulletins) {
+            Eleve eleve = bulletin.getEleve();
+            List<NoteBulletinLigneDTO> lignes = lignesParEleve.getOrDefault(eleve.getId(), Collections.emptyList());
+
+            BulletinDTO dto = new BulletinDTO();
+            dto.setId(bulletin.getId());
+            dto.setEleveId(eleve.getId());
+            dto.setEleveNom(eleve.getNom());
+            dto.setElevePrenom(eleve.getPrenom());
+            dto.setEleveMatricule(eleve.getMatricule());
+            if (eleve.getClasse() != null) {
+                dto.setEleveClasse(eleve.getClasse().getNom());
+            }
+            dto.setPeriodeId(periodeId);
+            dto.setPeriode(bulletin.getPeriode().getNom());
+
+            List<NoteMatiereDTO> notesMatieres = calculerNotesMatieres(lignes, moyennesClasse);
+            dto.setNotesMatieres(notesMatieres);
+            dto.setMoyenneGenerale(calculerMoyenneGenerale(notesMatieres));
+
+            dto.setRang(bulletin.getRang());
+            dto.setTotalEleves(bulletin.getTotalEleves());
+            dto.setAppreciation(bulletin.getAppreciation());
+            dto.setDateGeneration(bulletin.getDateGeneration());
+            dto.setDecision(bulletin.getDecision());
+            dto.setAnneeScolaire(bulletin.getAnneeScolaire());
+            result.add(dto);
+        }
+
+        log.debug("Bulletins classe {} / période {} : {} élèves calculés en {} ms",
+                classeId, periodeId, result.size(), (System.nanoTime() - debut) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Classe tous les élèves actifs d'une classe pour une période. Les bulletins existants
+     * sont mis à jour ; si creerManquants est vrai, les bulletins absents sont créés.
+     * Retourne les rangs indexés par élève. Refusé sur une année archivée.
+     */
+    @Transactional
+    public Map<Long, Integer> classerClasse(Long classeId, Long periodeId, ModeClassement mode, boolean creerManquants) {
+        Periode periode = periodeRepository.findById(periodeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Période non trouvée"));
+        archivageService.verifierModifiable(periode.getAnneeScolaire());
+
+        List<Long> eleveIds = eleveRepository.findIdsActifsByClasseId(classeId);
+        Map<Long, List<NoteBulletinLigneDTO>> lignesParEleve = noteRepository
+                .findLignesBulletinByClasseAndPeriode(classeId, periodeId).stream()
+                .collect(Collectors.groupingBy(NoteBulletinLigneDTO::getEleveId));
+        Map<Long, Long> bulletinIds = indexer(bulletinRepository.findIdsByClasseAndPeriode(classeId, periodeId));
+
+        Classement classement = classer(eleveIds, lignesParEleve, bulletinIds, mode, creerManquants);
+        ecrire(classement, periode);
+        return classement.rangs();
+    }
+
+    @Transactional
+    public ClassementDTO classerClasse(Long classeId, Long periodeId, ModeClassement mode) {
+        long debut = System.nanoTime();
+        Map<Long, Integer> rangs = classerClasse(classeId, periodeId, mode, true);
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+        log.info("Classement classe {} / période {} ({}) : {} élèves en {} ms",
+                classeId, periodeId, mode, rangs.size(), dureeMs);
+        return ClassementDTO.builder()
+                .periodeId(periodeId)
+                .classeId(classeId)
+                .mode(mode.name())
+                .classes(1)
+                .eleves(rangs.size())
+                .dureeMs(dureeMs)
+                .build();
+    }
+
+    /**
+     * Classe toutes les classes d'une période : les notes de la période sont
+     * chargées en une requête puis réparties par classe en mémoire. Refusé sur
+     * une année archivée.
+     */
+    @Transactional
+    public ClassementDTO classerPeriode(Long periodeId, ModeClassement mode) {
+        long debut = System.nanoTime();
+        Periode periode = periodeRepository.findById(periodeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Période non trouvée"));
+        archivageService.verifierModifiable(periode.getAnneeScolaire());
+
+        Map<Long, List<Long>> elevesParClasse = new HashMap<>();
+        for (Object[] ligne : eleveRepository.findIdsAndClasseIdsActifs()) {
+            elevesParClasse.computeIfAbsent((Long) ligne[1], k -> new ArrayList<>()).add((Long) ligne[0]);
+        }
+        Map<Long, List<NoteBulletinLigneDTO>> lignesParEleve = noteRepository
+                .findLignesBulletinByPeriode(periodeId).stream()
+                .collect(Collectors.groupingBy(NoteBulletinLigneDTO::getEleveId));
+        Map<Long, Long> bulletinIds = indexer(bulletinRepository.findIdsByPeriode(periodeId));
+        long chargement = System.nanoTime();
+
+        Classement total = new Classement(new HashMap<>(), new ArrayList<>(), new ArrayList<>());
+        for (List<Long> eleveIds : elevesParClasse.values()) {
+            Classement classement = classer(eleveIds, lignesParEleve, bulletinIds, mode, true);
+            total.rangs().putAll(classement.rangs());
+            total.misesAJour().addAll(classement.misesAJour());
+            total.creations().addAll(classement.creations());
+        }
+        long calcul = System.nanoTime();
+
+        ecrire(total, periode);
+        long fin = System.nanoTime();
+
+        log.info("Classement période {} ({}) : {} classes, {} élèves — chargement {} ms, calcul {} ms, écriture {} ms",
+                periodeId, mode, elevesParClasse.size(), total.rangs().size(),
+                (chargement - debut) / 1_000_000, (calcul - chargement) / 1_000_000, (fin - calcul) / 1_000_000);
+        return ClassementDTO.builder()
+                .periodeId(periodeId)
+                .mode(mode.name())
+                .classes(elevesParClasse.size())
+                .eleves(total.rangs().size())
+                .bulletinsMisAJour(total.misesAJour().size())
+                .bulletinsCrees(total.creations().size())
+                .dureeMs((fin - debut) / 1_000_000)
+                .build();
+    }
+
+    /**
+     * Calcule la moyenne générale de chaque élève, les trie par moyenne
+     * décroissante (puis par id pour un ordre stable) et attribue les rangs.
+     * Un élève sans note a une moyenne de 0, comme sur son bulletin.
+     */
+    private Classement classer(List<Long> eleveIds, Map<Long, List<NoteBulletinLigneDTO>> lignesParEleve,
+                               Map<Long, Long> bulletinIds, ModeClassement mode, boolean creerManquants) {
+        Map<Long, BigDecimal> moyennes = new HashMap<>(eleveIds.size() * 2);
+        for (Long eleveId : eleveIds) {
+            List<NoteMatiereDTO> notesMatieres = calculerNotesMatieres(
+                    lignesParEleve.getOrDefault(eleveId, Collections.emptyList()), Collections.emptyMap());
+            moyennes.put(eleveId, calculerMoyenneGenerale(notesMatieres));
+        }
+
+        List<Long> tries = new ArrayList<>(eleveIds);
+        tries.sort(Comparator.comparing((Long id) -> moyennes.get(id)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        Classement classement = new Classement(new HashMap<>(), new ArrayList<>(), new ArrayList<>());
+        int totalEleves = tries.size();
+        int rang = 0;
+        BigDecimal precedente = null;
+        for (int position = 1; position <= totalEleves; position++) {
+            Long eleveId = tries.get(position - 1);
+            BigDecimal moyenne = moyennes.get(eleveId);
+            if (precedente == null || moyenne.compareTo(precedente) != 0) {
+                rang = mode == ModeClassement.DENSE ? rang + 1 : position;
+                precedente = moyenne;
+            }
+            classement.rangs().put(eleveId, rang);
+
+            Long bulletinId = bulletinIds.get(eleveId);
+            if (bulletinId != null) {
+                classement.misesAJour().add(new LigneClassement(bulletinId, eleveId, moyenne, rang, totalEleves));
+            } else if (creerManquants) {
+                classement.creations().add(new LigneClassement(null, eleveId, moyenne, rang, totalEleves));
+            }
+        }
+        return classement;
+    }
+
+    private void ecrire(Classement classement, Periode periode) {
+        if (!classement.misesAJour().isEmpty()) {
+            bulletinJdbcRepository.updateClassements(classement.misesAJour());
+        }
+        if (!classement.creations().isEmpty()) {
+            bulletinJdbcRepository.insertClassements(classement.creations(), periode.getId(), periode.getAnneeScolaire());
+        }
+    }
+
+    private static Map<Long, Long> indexer(List<Object[]> eleveEtBulletinIds) {
+        Map<Long, Long> index = new HashMap<>(eleveEtBulletinIds.size() * 2);
+        for (Object[] ligne : eleveEtBulletinIds) {
+            index.put((Long) ligne[0], (Long) ligne[1]);
+        }
+        return index;
+    }
+
+    /**
+     * Moyenne par matière d'un élève (notes des absents exclues), dans l'ordre
+     * d'apparition des matières. Les moyennes de classe sont indexées par classe-matière.
+     */
+    List<NoteMatiereDTO> calculerNotesMatieres(List<NoteBulletinLigneDTO> lignes, Map<Long, BigDecimal> moyennesClasse) {
+        Map<Long, List<NoteBulletinLigneDTO>> lignesParMatiere = lignes.stream()
+                .collect(Collectors.groupingBy(NoteBulletinLigneDTO::getMatiereId, LinkedHashMap::new, Collectors.toList()));
+
+        List<NoteMatiereDTO> notesMatieres = new ArrayList<>(lignesParMatiere.size());
+        for (List<NoteBulletinLigneDTO> lignesMatiere : lignesParMatiere.values()) {
+            NoteBulletinLigneDTO premiere = lignesMatiere.get(0);
+
+            BigDecimal somme = BigDecimal.ZERO;
+            int nombre = 0;
+            for (NoteBulletinLigneDTO ligne : lignesMatiere) {
+                if (!Boolean.TRUE.equals(ligne.getAbsent())) {
+                    somme = somme.add(ligne.getValeur());
+                    nombre++;
+                }
+            }
+            BigDecimal moyenne = nombre > 0
+                    ? somme.divide(BigDecimal.valueOf(nombre), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+
+            notesMatieres.add(NoteMatiereDTO.builder()
+                    .matiereId(premiere.getMatiereId())
+                    .matiere(premiere.getMatiere())
+                    .coefficient(premiere.getCoefficient())
+                    .moyenne(moyenne)
+                    .moyenneClasse(moyennesClasse.get(premiere.getClasseMatiereId()))
+                    .build());
+        }
+        return notesMatieres;
+    }
+
+    BigDecimal calculerMoyenneGenerale(List<NoteMatiereDTO> notesMatieres) {
+        BigDecimal sommeNotesPonderees = BigDecimal.ZERO;
+        int sommeCoefficients = 0;
+        for (NoteMatiereDTO noteMatiere : notesMatieres) {
+            sommeNotesPonderees = sommeNotesPonderees.add(
+                    noteMatiere.getMoyenne().multiply(BigDecimal.valueOf(noteMatiere.getCoefficient())));
+            sommeCoefficients += noteMatiere.getCoefficient();
+        }
+        if (sommeCoefficients == 0) {
+            return BigDecimal.ZERO;
+        }
+        return sommeNotesPonderees.divide(BigDecimal.valueOf(sommeCoefficients), 2, RoundingMode.HALF_UP);
+    }
+
+    private record Classement(Map<Long, Integer> rangs, List<LigneClassement> misesAJour, List<LigneClassement> creations) {
+    }
+}
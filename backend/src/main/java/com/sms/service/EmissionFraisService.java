@@ -0,0 +1,120 @@
+package com.sms.service;
+
+import com.sms.dto.EmissionFraisDTO;
+import com.sms.entity.Niveau;
+import com.sms.entity.TypeFrais;
+import com.sms.exception.ResourceNotFoundException;
+import com.sms.repository.EmissionFraisJdbcRepository;
+import com.sms.repository.NiveauRepository;
+import com.sms.repository.SoldeEleveJdbcRepository;
+import com.sms.repository.TypeFraisRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Émission mensuelle des frais : un paiement par élève actif et par type de
+ * frais, au montant de son niveau. Chaque niveau est émis dans sa propre
+ * transaction par un seul INSERT ... SELECT ; les paiements déjà émis pour ce
+ * mois sont ignorés, une émission interrompue peut donc être relancée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmissionFraisService {
+
+    private final EmissionFraisJdbcRepository emissionFraisJdbcRepository;
+    private final SoldeEleveJdbcRepository soldeEleveJdbcRepository;
+    private final TypeFraisRepository typeFraisRepository;
+    private final NiveauRepository niveauRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public Map<String, Object> emettre(EmissionFraisDTO dto) {
+        if (dto.getAnneeScolaire() == null || dto.getMoisConcerne() == null) {
+            throw new IllegalArgumentException("L'année scolaire et le mois concerné sont obligatoires");
+        }
+        if (dto.getMontantsParNiveau() == null || dto.getMontantsParNiveau().isEmpty()) {
+            throw new IllegalArgumentException("Au moins un montant par niveau est requis");
+        }
+        if (dto.getTypeFraisId() == null) {
+            throw new IllegalArgumentException("Le type de frais est obligatoire");
+        }
+        TypeFrais typeFrais = typeFraisRepository.findById(dto.getTypeFraisId())
+                .orElseThrow(() -> new ResourceNotFoundException("Type de frais non trouvé"));
+        Map<Long, Niveau> niveaux = new HashMap<>();
+        niveauRepository.findAllById(dto.getMontantsParNiveau().keySet()).forEach(n -> niveaux.put(n.getId(), n));
+        for (Map.Entry<Long, BigDecimal> entree : dto.getMontantsParNiveau().entrySet()) {
+            if (!niveaux.containsKey(entree.getKey())) {
+                throw new ResourceNotFoundException("Niveau non trouvé avec l'id: " + entree.getKey());
+            }
+            if (entree.getValue() == null || entree.getValue().signum() <= 0) {
+                throw new IllegalArgumentException("Le montant du niveau " + niveaux.get(entree.getKey()).getNom()
+                        + " doit être positif");
+            }
+        }
+
+        long debut = System.nanoTime();
+        List<Map<String, Object>> detail = new ArrayList<>();
+        int totalEmis = 0;
+        int totalExistants = 0;
+        int etape = 0;
+        for (Map.Entry<Long, BigDecimal> entree : dto.getMontantsParNiveau().entrySet()) {
+            Niveau niveau = niveaux.get(entree.getKey());
+            long debutNiveau = System.nanoTime();
+            int[] resultat = transactionTemplate.execute(statut -> emettreNiveau(niveau.getId(), entree.getValue(), dto));
+            long dureeNiveau = (System.nanoTime() - debutNiveau) / 1_000_000;
+            int emis = resultat != null ? resultat[0] : 0;
+            int existants = resultat != null ? resultat[1] - emis : 0;
+            totalEmis += emis;
+            totalExistants += existants;
+            etape++;
+            log.info("Émission {} {} ({}/{}) niveau {} : {} paiements créés, {} déjà émis, en {} ms",
+                    typeFrais.getCode(), dto.getMoisConcerne(), etape, niveaux.size(), niveau.getNom(),
+                    emis, existants, dureeNiveau);
+
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            ligne.put("niveauId", niveau.getId());
+            ligne.put("niveau", niveau.getNom());
+            ligne.put("montant", entree.getValue());
+            ligne.put("paiementsEmis", emis);
+            ligne.put("dejaEmis", existants);
+            ligne.put("dureeMs", dureeNiveau);
+            detail.add(ligne);
+        }
+        if (totalEmis > 0) {
+            eventPublisher.publishEvent(new PaiementModifieEvent(Set.of(dto.getAnneeScolaire())));
+        }
+
+        long duree = (System.nanoTime() - debut) / 1_000_000;
+        log.info("Émission {} {} terminée : {} paiements créés, {} déjà émis, en {} ms",
+                typeFrais.getCode(), dto.getMoisConcerne(), totalEmis, totalExistants, duree);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("anneeScolaire", dto.getAnneeScolaire());
+        response.put("moisConcerne", dto.getMoisConcerne());
+        response.put("typeFrais", typeFrais.getCode());
+        response.put("paiementsEmis", totalEmis);
+        response.put("dejaEmis", totalExistants);
+        response.put("niveaux", detail);
+        response.put("dureeMs", duree);
+        return response;
+    }
+
+    /**
+     * @return {paiements créés, élèves actifs du niveau}
+     */
+    private int[] emettreNiveau(Long niveauId, BigDecimal montant, EmissionFraisDTO dto) {
+        int eleves = emissionFraisJdbcRepository.compterElevesActifs(niveauId);
+        int emis = emissionFraisJdbcRepository.emettre(niveauId, dto.getTypeFraisId(), montant,
+                dto.getAnneeScolaire(), dto.getMoisConcerne(), dto.getDateEcheance());
+        if (emis > 0) {
+            soldeEleveJdbcRepository.recalculerNiveau(niveauId, dto.getAnneeScolaire());
+        }
+        return new int[] {emis, eleves};
+    }
+}
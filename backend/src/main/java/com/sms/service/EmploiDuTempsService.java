@@ -1,15 +1,26 @@
 package com.sms.service;
 
+import com.sms.dto.ConflitSeanceDTO;
 import com.sms.dto.SeanceCreateDTO;
 import com.sms.dto.SeanceDTO;
+import com.sms.entity.Classe;
+import com.sms.entity.Matiere;
+import com.sms.entity.Personnel;
+import com.sms.entity.Salle;
 import com.sms.entity.Seance;
 import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.*;
+import com.sms.service.IndexSeancesService.Ressource;
+import com.sms.service.SeanceModifieeEvent.ChangementSeance;
+import com.sms.service.SeanceModifieeEvent.EtatSeance;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,13 +32,23 @@ public class EmploiDuTempsService {
     private final MatiereRepository matiereRepository;
     private final PersonnelRepository personnelRepository;
     private final SalleRepository salleRepository;
+    private final SeanceJdbcRepository seanceJdbcRepository;
+    private final IndexSeancesService indexSeancesService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
     private static final String[] JOURS = {"", "Lundi", "Mardi", "Mercredi", "Jeudi", "Vendredi", "Samedi", "Dimanche"};
+    private static final String ANNEE_PAR_DEFAUT = "2024-2025";
+
+    /**
+     * Sérialise les écritures de séances, commit et mise à jour de l'index
+     * compris : un import vérifie ses conflits contre un index à jour, sans
+     * qu'une autre écriture s'intercale avant son insertion.
+     */
+    private final Object verrouEcritures = new Object();
 
     public List<SeanceDTO> getAllSeances() {
-        return seanceRepository.findByActifTrue().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return avecNomJour(seanceRepository.findDTOByActifTrue());
     }
 
     public SeanceDTO getSeanceById(Long id) {
@@ -37,27 +58,19 @@ public class EmploiDuTempsService {
     }
 
     public List<SeanceDTO> getEmploiDuTempsByClasse(Long classeId) {
-        return seanceRepository.findEmploiDuTempsByClasse(classeId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return avecNomJour(seanceRepository.findEmploiDuTempsDTOByClasse(classeId));
     }
 
     public List<SeanceDTO> getEmploiDuTempsByProfesseur(Long professeurId) {
-        return seanceRepository.findEmploiDuTempsByProfesseur(professeurId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return avecNomJour(seanceRepository.findEmploiDuTempsDTOByProfesseur(professeurId));
     }
 
     public List<SeanceDTO> getSeancesByJour(Integer jourSemaine) {
-        return seanceRepository.findByJourSemaine(jourSemaine).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return avecNomJour(seanceRepository.findDTOByJourSemaine(jourSemaine));
     }
 
     public List<SeanceDTO> getSeancesBySalle(Long salleId) {
-        return seanceRepository.findBySalleId(salleId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return avecNomJour(seanceRepository.findDTOBySalleId(salleId));
     }
 
     // Retourne l'emploi du temps structuré par jour
@@ -78,85 +91,337 @@ public class EmploiDuTempsService {
         return emploiDuTemps;
     }
 
-    @Transactional
     public SeanceDTO createSeance(SeanceCreateDTO dto) {
-        Seance seance = new Seance();
-        mapDtoToEntity(dto, seance);
-        seance.setActif(true);
-        return toDTO(seanceRepository.save(seance));
+        synchronized (verrouEcritures) {
+            return transactionTemplate.execute(statut -> {
+                Seance seance = new Seance();
+                mapDtoToEntity(dto, seance);
+                seance.setActif(true);
+                Seance enregistree = seanceRepository.save(seance);
+                publierModification(null, enregistree);
+                return toDTO(enregistree);
+            });
+        }
     }
 
-    @Transactional
     public SeanceDTO updateSeance(Long id, SeanceCreateDTO dto) {
-        Seance seance = seanceRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Séance non trouvée avec l'id: " + id));
-        mapDtoToEntity(dto, seance);
-        return toDTO(seanceRepository.save(seance));
+        synchronized (verrouEcritures) {
+            return transactionTemplate.execute(statut -> {
+                Seance seance = seanceRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Séance non trouvée avec l'id: " + id));
+                EtatSeance avant = etat(seance);
+                mapDtoToEntity(dto, seance);
+                Seance enregistree = seanceRepository.save(seance);
+                publierModification(avant, enregistree);
+                return toDTO(enregistree);
+            });
+        }
     }
 
-    @Transactional
     public void deleteSeance(Long id) {
-        Seance seance = seanceRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Séance non trouvée avec l'id: " + id));
-        seance.setActif(false);
-        seanceRepository.save(seance);
+        synchronized (verrouEcritures) {
+            transactionTemplate.executeWithoutResult(statut -> {
+                Seance seance = seanceRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Séance non trouvée avec l'id: " + id));
+                EtatSeance avant = etat(seance);
+                seance.setActif(false);
+                seanceRepository.save(seance);
+                publierModification(avant, null);
+            });
+        }
     }
 
-    @Transactional
     public void hardDeleteSeance(Long id) {
-        if (!seanceRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Séance non trouvée avec l'id: " + id);
+        synchronized (verrouEcritures) {
+            transactionTemplate.executeWithoutResult(statut -> {
+                Seance seance = seanceRepository.findById(id)
+                        .orElseThrow(() -> new ResourceNotFoundException("Séance non trouvée avec l'id: " + id));
+                EtatSeance avant = etat(seance);
+                seanceRepository.delete(seance);
+                publierModification(avant, null);
+            });
         }
-        seanceRepository.deleteById(id);
     }
 
-    // Vérification des conflits d'horaire
-    public List<String> verifierConflits(SeanceCreateDTO dto) {
-        List<String> conflits = new ArrayList<>();
+    /**
+     * Import d'un lot de séances (copie d'une année, tableur) : les références
+     * sont vérifiées en une requête par table, les conflits avec l'existant et
+     * au sein du lot en une passe. Tout ou rien : au moindre problème rien n'est
+     * inséré et toutes les erreurs sont renvoyées ensemble ; sinon le lot est
+     * inséré par batch JDBC. Vérification et insertion se font dans la même
+     * transaction, sous le verrou des écritures de séances, et l'index est mis
+     * à jour au commit avec les seules séances insérées.
+     */
+    public Map<String, Object> importerSeances(List<SeanceCreateDTO> lot, boolean dryRun) {
+        synchronized (verrouEcritures) {
+            return transactionTemplate.execute(statut -> importerLot(lot, dryRun));
+        }
+    }
 
-        // Vérifier conflit de salle
-        List<Seance> seancesSalle = seanceRepository.findBySalleId(dto.getSalleId());
-        for (Seance s : seancesSalle) {
-            if (s.getJourSemaine().equals(dto.getJourSemaine()) && s.getActif()) {
-                if (horairesSeChevanchent(s, dto)) {
-                    conflits.add("Conflit de salle: " + s.getSalle().getNom() + " déjà occupée");
-                }
+    private Map<String, Object> importerLot(List<SeanceCreateDTO> lot, boolean dryRun) {
+        List<ConflitSeanceDTO> erreurs = new ArrayList<>();
+        Map<Long, Classe> classes = existants(lot, SeanceCreateDTO::getClasseId, classeRepository, Classe::getId);
+        Map<Long, Matiere> matieres = existants(lot, SeanceCreateDTO::getMatiereId, matiereRepository, Matiere::getId);
+        Map<Long, Personnel> professeurs = existants(lot, SeanceCreateDTO::getProfesseurId, personnelRepository, Personnel::getId);
+        Map<Long, Salle> salles = existants(lot, SeanceCreateDTO::getSalleId, salleRepository, Salle::getId);
+
+        List<SeanceCreateDTO> valides = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < lot.size(); i++) {
+            SeanceCreateDTO dto = lot.get(i);
+            int avant = erreurs.size();
+            if (dto.getClasseId() == null || !classes.containsKey(dto.getClasseId())) {
+                erreurs.add(erreur(i, "classe", "Classe non trouvée: " + dto.getClasseId()));
+            }
+            if (dto.getMatiereId() != null && !matieres.containsKey(dto.getMatiereId())) {
+                erreurs.add(erreur(i, "matiere", "Matière non trouvée: " + dto.getMatiereId()));
+            }
+            if (dto.getProfesseurId() != null && !professeurs.containsKey(dto.getProfesseurId())) {
+                erreurs.add(erreur(i, "professeur", "Professeur non trouvé: " + dto.getProfesseurId()));
+            }
+            if (dto.getSalleId() != null && !salles.containsKey(dto.getSalleId())) {
+                erreurs.add(erreur(i, "salle", "Salle non trouvée: " + dto.getSalleId()));
+            }
+            if (dto.getJourSemaine() == null || dto.getJourSemaine() < 1 || dto.getJourSemaine() > 7
+                    || dto.getHeureDebut() == null || dto.getHeureFin() == null
+                    || !dto.getHeureFin().isAfter(dto.getHeureDebut())) {
+                erreurs.add(erreur(i, null, "Jour ou heures invalides"));
+            }
+            if (erreurs.size() == avant) {
+                valides.add(dto);
+                positions.add(i);
             }
         }
 
-        // Vérifier conflit de professeur
-        List<Seance> seancesProf = seanceRepository.findByProfesseurId(dto.getProfesseurId());
-        for (Seance s : seancesProf) {
-            if (s.getJourSemaine().equals(dto.getJourSemaine()) && s.getActif()) {
-                if (horairesSeChevanchent(s, dto)) {
-                    conflits.add("Conflit de professeur: déjà en cours à cette heure");
+        // Conflits des lignes valides, renumérotées selon leur position dans le lot importé
+        List<ConflitSeanceDTO> conflits = verifierConflitsLot(valides);
+        for (ConflitSeanceDTO c : conflits) {
+            c.setIndex(positions.get(c.getIndex()));
+            if (c.getAutreIndex() != null) {
+                c.setAutreIndex(positions.get(c.getAutreIndex()));
+            }
+        }
+
+        boolean accepte = erreurs.isEmpty() && conflits.isEmpty();
+        int importees = 0;
+        if (accepte && !dryRun && !lot.isEmpty()) {
+            List<SeanceCreateDTO> seances = lot.stream()
+                    .map(dto -> new SeanceCreateDTO(dto.getClasseId(), dto.getMatiereId(), dto.getProfesseurId(),
+                            dto.getSalleId(), dto.getJourSemaine(), dto.getHeureDebut(), dto.getHeureFin(),
+                            anneeScolaire(dto)))
+                    .toList();
+            List<ChangementSeance> changements = new ArrayList<>(seances.size());
+            inserer(seances, salles, changements);
+            eventPublisher.publishEvent(new SeanceModifieeEvent(changements));
+            importees = seances.size();
+        }
+
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        resultat.put("seances", lot.size());
+        resultat.put("dryRun", dryRun);
+        resultat.put("accepte", accepte);
+        resultat.put("importees", importees);
+        resultat.put("erreurs", erreurs);
+        resultat.put("conflits", conflits);
+        return resultat;
+    }
+
+    /**
+     * Enregistre un emploi du temps généré pour une année : les séances actives
+     * des classes sont désactivées (si remplacer) et les nouvelles insérées, dans
+     * une transaction et sous le verrou des écritures. Les conflits sont
+     * revérifiés avant l'insertion, hors séances remplacées : une séance créée
+     * pendant la génération n'est jamais chevauchée. En cas de conflit rien
+     * n'est écrit et les conflits sont renvoyés.
+     */
+    public List<ConflitSeanceDTO> enregistrerEmploiDuTemps(Collection<Long> classeIds, String anneeScolaire,
+                                                          List<SeanceCreateDTO> seances, boolean remplacer) {
+        synchronized (verrouEcritures) {
+            return transactionTemplate.execute(statut -> {
+                List<EtatSeance> remplacees = remplacer
+                        ? seanceRepository.findEtatsActifsByClassesAndAnneeScolaire(classeIds, anneeScolaire).stream()
+                                .map(EtatSeance::depuisLigne).toList()
+                        : List.of();
+                Set<Long> idsRemplaces = remplacees.stream().map(EtatSeance::id).collect(Collectors.toSet());
+                List<ConflitSeanceDTO> conflits = verifierConflitsLot(seances).stream()
+                        .filter(c -> c.getSeanceId() == null || !idsRemplaces.contains(c.getSeanceId()))
+                        .toList();
+                if (!conflits.isEmpty()) {
+                    return conflits;
+                }
+
+                List<ChangementSeance> changements = new ArrayList<>(remplacees.size() + seances.size());
+                if (remplacer) {
+                    seanceJdbcRepository.desactiverClasses(classeIds, anneeScolaire);
+                    remplacees.forEach(etat -> changements.add(new ChangementSeance(etat, null)));
                 }
+                inserer(seances, existants(seances, SeanceCreateDTO::getSalleId, salleRepository, Salle::getId),
+                        changements);
+                eventPublisher.publishEvent(new SeanceModifieeEvent(changements));
+                return List.of();
+            });
+        }
+    }
+
+    /**
+     * Insère les séances par batch et ajoute leurs créneaux aux changements à publier.
+     */
+    private void inserer(List<SeanceCreateDTO> seances, Map<Long, Salle> salles, List<ChangementSeance> changements) {
+        List<Long> ids = seanceJdbcRepository.insererLot(seances);
+        for (int i = 0; i < seances.size(); i++) {
+            SeanceCreateDTO s = seances.get(i);
+            Salle salle = s.getSalleId() != null ? salles.get(s.getSalleId()) : null;
+            changements.add(new ChangementSeance(null, new EtatSeance(ids.get(i), s.getClasseId(),
+                    s.getProfesseurId(), s.getSalleId(), salle != null ? salle.getNom() : null,
+                    s.getAnneeScolaire(), s.getJourSemaine(), s.getHeureDebut(), s.getHeureFin())));
+        }
+    }
+
+    /**
+     * Entités référencées par le lot qui existent, par id, en une requête.
+     */
+    private static <T> Map<Long, T> existants(List<SeanceCreateDTO> lot, Function<SeanceCreateDTO, Long> reference,
+                                              JpaRepository<T, Long> repository, Function<T, Long> id) {
+        Set<Long> ids = lot.stream().map(reference).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return repository.findAllById(ids).stream().collect(Collectors.toMap(id, Function.identity()));
+    }
+
+    // Vérification des conflits d'horaire (index en mémoire des séances actives)
+    public List<String> verifierConflits(SeanceCreateDTO dto) {
+        verifierHoraires(dto);
+        List<String> conflits = new ArrayList<>();
+        for (Ressource ressource : Ressource.values()) {
+            for (EtatSeance s : indexSeancesService.chevauchements(ressource, ressourceId(ressource, dto),
+                    anneeScolaire(dto), dto.getJourSemaine(), dto.getHeureDebut(), dto.getHeureFin())) {
+                conflits.add(messageConflit(ressource, s.salleNom()));
             }
         }
+        return conflits;
+    }
 
-        // Vérifier conflit de classe
-        List<Seance> seancesClasse = seanceRepository.findByClasseId(dto.getClasseId());
-        for (Seance s : seancesClasse) {
-            if (s.getJourSemaine().equals(dto.getJourSemaine()) && s.getActif()) {
-                if (horairesSeChevanchent(s, dto)) {
-                    conflits.add("Conflit de classe: déjà un cours prévu à cette heure");
+    /**
+     * Conflits d'un lot de séances proposées, avec les séances actives de leur
+     * année scolaire et entre elles : tous les conflits sont renvoyés ensemble,
+     * repérés par la position de la séance dans le lot.
+     */
+    public List<ConflitSeanceDTO> verifierConflitsLot(List<SeanceCreateDTO> lot) {
+        lot.forEach(this::verifierHoraires);
+        List<ConflitSeanceDTO> conflits = new ArrayList<>();
+        Map<Long, String> nomsSalles = new HashMap<>();
+        Map<List<Object>, List<Integer>> parRessourceJour = new HashMap<>();
+
+        for (int i = 0; i < lot.size(); i++) {
+            SeanceCreateDTO dto = lot.get(i);
+            for (Ressource ressource : Ressource.values()) {
+                Long id = ressourceId(ressource, dto);
+                if (id == null) {
+                    continue;
+                }
+                for (EtatSeance s : indexSeancesService.chevauchements(ressource, id,
+                        anneeScolaire(dto), dto.getJourSemaine(), dto.getHeureDebut(), dto.getHeureFin())) {
+                    conflits.add(conflit(i, ressource, s.id(), null, messageConflit(ressource, s.salleNom())));
                 }
+                parRessourceJour.computeIfAbsent(List.of(ressource, id, anneeScolaire(dto), dto.getJourSemaine()),
+                        k -> new ArrayList<>()).add(i);
             }
         }
 
+        // Dans le lot : balayage par heure de début des séances d'une même ressource, année et jour
+        parRessourceJour.forEach((cle, indices) -> {
+            if (indices.size() < 2) {
+                return;
+            }
+            Ressource ressource = (Ressource) cle.get(0);
+            indices.sort(Comparator.comparing(i -> lot.get(i).getHeureDebut()));
+            List<Integer> enCours = new ArrayList<>();
+            for (Integer i : indices) {
+                SeanceCreateDTO dto = lot.get(i);
+                enCours.removeIf(j -> !lot.get(j).getHeureFin().isAfter(dto.getHeureDebut()));
+                for (Integer j : enCours) {
+                    String salle = ressource == Ressource.SALLE
+                            ? nomsSalles.computeIfAbsent(dto.getSalleId(), this::nomSalle)
+                            : null;
+                    conflits.add(conflit(i, ressource, null, j, messageConflit(ressource, salle)));
+                }
+                enCours.add(i);
+            }
+        });
+
+        conflits.sort(Comparator.comparing(ConflitSeanceDTO::getIndex));
         return conflits;
     }
 
-    private boolean horairesSeChevanchent(Seance seance, SeanceCreateDTO dto) {
-        return !(dto.getHeureFin().isBefore(seance.getHeureDebut()) ||
-                 dto.getHeureDebut().isAfter(seance.getHeureFin()));
+    private void verifierHoraires(SeanceCreateDTO dto) {
+        if (dto.getJourSemaine() == null || dto.getHeureDebut() == null || dto.getHeureFin() == null) {
+            throw new IllegalArgumentException("Le jour et les heures de la séance sont obligatoires");
+        }
+    }
+
+    private static Long ressourceId(Ressource ressource, SeanceCreateDTO dto) {
+        return switch (ressource) {
+            case SALLE -> dto.getSalleId();
+            case PROFESSEUR -> dto.getProfesseurId();
+            case CLASSE -> dto.getClasseId();
+        };
+    }
+
+    private static String messageConflit(Ressource ressource, String salle) {
+        return switch (ressource) {
+            case SALLE -> "Conflit de salle: " + salle + " déjà occupée";
+            case PROFESSEUR -> "Conflit de professeur: déjà en cours à cette heure";
+            case CLASSE -> "Conflit de classe: déjà un cours prévu à cette heure";
+        };
+    }
+
+    private static ConflitSeanceDTO conflit(int index, Ressource ressource, Long seanceId, Integer autreIndex,
+                                            String message) {
+        return ConflitSeanceDTO.builder()
+                .index(index)
+                .ressource(ressource.name().toLowerCase())
+                .seanceId(seanceId)
+                .autreIndex(autreIndex)
+                .message(message)
+                .build();
+    }
+
+    private static ConflitSeanceDTO erreur(int index, String ressource, String message) {
+        return ConflitSeanceDTO.builder().index(index).ressource(ressource).message(message).build();
+    }
+
+    private String nomSalle(Long salleId) {
+        return salleRepository.findById(salleId).map(Salle::getNom).orElse(String.valueOf(salleId));
+    }
+
+    /**
+     * Créneau d'une séance pour l'index des conflits, ou null si elle n'est pas active.
+     */
+    private static EtatSeance etat(Seance seance) {
+        if (!Boolean.TRUE.equals(seance.getActif())) {
+            return null;
+        }
+        return new EtatSeance(seance.getId(),
+                seance.getClasse() != null ? seance.getClasse().getId() : null,
+                seance.getProfesseur() != null ? seance.getProfesseur().getId() : null,
+                seance.getSalle() != null ? seance.getSalle().getId() : null,
+                seance.getSalle() != null ? seance.getSalle().getNom() : null,
+                seance.getAnneeScolaire(), seance.getJourSemaine(), seance.getHeureDebut(), seance.getHeureFin());
+    }
+
+    private void publierModification(EtatSeance avant, Seance apres) {
+        EtatSeance etatApres = apres != null ? etat(apres) : null;
+        if (avant != null || etatApres != null) {
+            eventPublisher.publishEvent(new SeanceModifieeEvent(List.of(new ChangementSeance(avant, etatApres))));
+        }
     }
 
     private void mapDtoToEntity(SeanceCreateDTO dto, Seance seance) {
         seance.setJourSemaine(dto.getJourSemaine());
         seance.setHeureDebut(dto.getHeureDebut());
         seance.setHeureFin(dto.getHeureFin());
-        seance.setAnneeScolaire(dto.getAnneeScolaire() != null ? dto.getAnneeScolaire() : "2024-2025");
+        seance.setAnneeScolaire(anneeScolaire(dto));
 
         if (dto.getClasseId() != null) {
             seance.setClasse(classeRepository.findById(dto.getClasseId())
@@ -173,12 +438,24 @@ public class EmploiDuTempsService {
         }
     }
 
+    private static String anneeScolaire(SeanceCreateDTO dto) {
+        return dto.getAnneeScolaire() != null ? dto.getAnneeScolaire() : ANNEE_PAR_DEFAUT;
+    }
+
+    private static String nomJour(Integer jourSemaine) {
+        return jourSemaine != null && jourSemaine > 0 && jourSemaine < 8 ? JOURS[jourSemaine] : "";
+    }
+
+    private static List<SeanceDTO> avecNomJour(List<SeanceDTO> seances) {
+        seances.forEach(dto -> dto.setJourNom(nomJour(dto.getJourSemaine())));
+        return seances;
+    }
+
     private SeanceDTO toDTO(Seance seance) {
         SeanceDTO dto = SeanceDTO.builder()
                 .id(seance.getId())
                 .jourSemaine(seance.getJourSemaine())
-                .jourNom(seance.getJourSemaine() != null && seance.getJourSemaine() > 0 && seance.getJourSemaine() < 8
-                        ? JOURS[seance.getJourSemaine()] : "")
+                .jourNom(nomJour(seance.getJourSemaine()))
                 .heureDebut(seance.getHeureDebut())
                 .heureFin(seance.getHeureFin())
                 .anneeScolaire(seance.getAnneeScolaire())
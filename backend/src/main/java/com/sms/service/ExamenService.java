@@ -7,6 +7,7 @@ import com.sms.entity.*;
 import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,11 +31,14 @@ public class ExamenService {
     private final ResultatExamenRepository resultatExamenRepository;
     private final EleveRepository eleveRepository;
     private final TypeExamenRepository typeExamenRepository;
+    private final ResultatExamenJdbcRepository resultatExamenJdbcRepository;
 
-    public List<ExamenDTO> getAllExamens() {
-        return examenRepository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    public List<ExamenDTO> getExamensApres(Long apresId, int limite) {
+        return examenRepository.findDTOApres(apresId != null ? apresId : 0L, Limit.of(limite));
+    }
+
+    public long countExamens() {
+        return examenRepository.count();
     }
 
     public ExamenDTO getExamenById(Long id) {
@@ -44,27 +48,19 @@ public class ExamenService {
     }
 
     public List<ExamenDTO> getExamensByClasse(Long classeId) {
-        return examenRepository.findByClasseId(classeId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return examenRepository.findDTOByClasseId(classeId);
     }
 
     public List<ExamenDTO> getExamensByMatiere(Long matiereId) {
-        return examenRepository.findByMatiereId(matiereId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return examenRepository.findDTOByMatiereId(matiereId);
     }
 
     public List<ExamenDTO> getExamensByStatut(String statut) {
-        return examenRepository.findByStatut(statut).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return examenRepository.findDTOByStatut(statut);
     }
 
     public List<ExamenDTO> getExamensByDateRange(LocalDate debut, LocalDate fin) {
-        return examenRepository.findByDateExamenBetween(debut, fin).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return examenRepository.findDTOByDateExamenBetween(debut, fin);
     }
 
     @Transactional
@@ -100,9 +96,7 @@ public class ExamenService {
 
     // Résultats d'examen
     public List<ResultatExamenDTO> getResultatsByExamen(Long examenId) {
-        return resultatExamenRepository.findByExamenIdOrderByNoteDesc(examenId).stream()
-                .map(this::toResultatDTO)
-                .collect(Collectors.toList());
+        return resultatExamenRepository.findDTOByExamenIdOrderByNoteDesc(examenId);
     }
 
     @Transactional
@@ -124,16 +118,27 @@ public class ExamenService {
         return toResultatDTO(resultatExamenRepository.save(resultat));
     }
 
+    /**
+     * Recalcule les rangs d'un examen en une requête ; les ex aequo partagent
+     * le même rang et les absents n'ont pas de rang.
+     */
     @Transactional
     public void calculerRangs(Long examenId) {
-        List<ResultatExamen> resultats = resultatExamenRepository.findByExamenIdOrderByNoteDesc(examenId);
-        int rang = 1;
-        for (ResultatExamen r : resultats) {
-            if (!r.getAbsent()) {
-                r.setRang(rang++);
-                resultatExamenRepository.save(r);
-            }
+        if (!examenRepository.existsById(examenId)) {
+            throw new ResourceNotFoundException("Examen non trouvé avec l'id: " + examenId);
+        }
+        resultatExamenJdbcRepository.calculerRangsExamen(examenId);
+    }
+
+    /**
+     * Recalcule les rangs de tous les examens d'une période.
+     */
+    @Transactional
+    public int calculerRangsPeriode(Long periodeId) {
+        if (!periodeRepository.existsById(periodeId)) {
+            throw new ResourceNotFoundException("Période non trouvée");
         }
+        return resultatExamenJdbcRepository.calculerRangsPeriode(periodeId);
     }
 
     public Map<String, Object> getStatsExamens(String anneeScolaire) {
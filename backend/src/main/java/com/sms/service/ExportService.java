@@ -0,0 +1,204 @@
+package com.sms.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sms.repository.ExportJdbcRepository;
+import com.sms.repository.ExportJdbcRepository.FiltreExport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Export des notes, présences et paiements en NDJSON (un objet JSON par ligne)
+ * ou en CSV. Chaque ligne lue est écrite immédiatement dans la réponse : aucune
+ * liste n'est constituée en mémoire.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExportService {
+
+    private final ExportJdbcRepository exportJdbcRepository;
+    private final ArchivageService archivageService;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public enum Jeu {
+        NOTES,
+        PRESENCES,
+        PAIEMENTS
+    }
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    public void exporter(Jeu jeu, Format format, FiltreExport filtre, boolean gzip, OutputStream sortie) throws IOException {
+        long debut = System.nanoTime();
+        OutputStream flux = gzip ? new GZIPOutputStream(sortie, 64 * 1024) : new BufferedOutputStream(sortie, 64 * 1024);
+        EcrivainLignes ecrivain = format == Format.CSV ? new EcrivainCsv(flux) : new EcrivainNdjson(jsonFactory, flux);
+
+        RowCallbackHandler handler = rs -> {
+            try {
+                ecrivain.ecrire(rs);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        lire(jeu, filtre, handler);
+
+        ecrivain.terminer();
+        flux.close();
+        log.info("Export {} ({}) : {} lignes en {} ms",
+                jeu, format, ecrivain.lignes, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    /**
+     * Les notes et présences d'une année archivée sont lues dans les tables
+     * d'archive : d'abord les archives concernées par le filtre, puis les tables en ligne.
+     */
+    private void lire(Jeu jeu, FiltreExport filtre, RowCallbackHandler handler) {
+        switch (jeu) {
+            case NOTES -> {
+                if (lireArchives(filtre)) {
+                    exportJdbcRepository.lireNotes(filtre, true, handler);
+                }
+                if (lireEnLigne(filtre)) {
+                    exportJdbcRepository.lireNotes(filtre, false, handler);
+                }
+            }
+            case PRESENCES -> {
+                if (lireArchives(filtre)) {
+                    exportJdbcRepository.lirePresences(filtre, true, handler);
+                }
+                if (lireEnLigne(filtre)) {
+                    exportJdbcRepository.lirePresences(filtre, false, handler);
+                }
+            }
+            case PAIEMENTS -> exportJdbcRepository.lirePaiements(filtre, handler);
+        }
+    }
+
+    private boolean lireArchives(FiltreExport filtre) {
+        if (filtre.anneeScolaire() != null) {
+            return archivageService.estArchivee(filtre.anneeScolaire());
+        }
+        return archivageService.aDesArchives() && archivageService.chevaucheArchive(
+                filtre.debut() != null ? filtre.debut() : LocalDate.MIN,
+                filtre.fin() != null ? filtre.fin() : LocalDate.MAX);
+    }
+
+    private boolean lireEnLigne(FiltreExport filtre) {
+        return !archivageService.estArchivee(filtre.anneeScolaire());
+    }
+
+    private static boolean estBooleen(int type) {
+        return type == Types.BIT || type == Types.BOOLEAN || type == Types.TINYINT;
+    }
+
+    private abstract static class EcrivainLignes {
+        long lignes;
+
+        abstract void ecrire(ResultSet rs) throws SQLException, IOException;
+
+        abstract void terminer() throws IOException;
+    }
+
+    private static final class EcrivainNdjson extends EcrivainLignes {
+        private final JsonGenerator generateur;
+
+        EcrivainNdjson(JsonFactory jsonFactory, OutputStream flux) throws IOException {
+            this.generateur = jsonFactory.createGenerator(flux, JsonEncoding.UTF8);
+            this.generateur.setRootValueSeparator(null);
+            this.generateur.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        void ecrire(ResultSet rs) throws SQLException, IOException {
+            ResultSetMetaData meta = rs.getMetaData();
+            generateur.writeStartObject();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                generateur.writeFieldName(meta.getColumnLabel(i));
+                int type = meta.getColumnType(i);
+                Object valeur = rs.getObject(i);
+                if (valeur == null) {
+                    generateur.writeNull();
+                } else if (type == Types.BIGINT || type == Types.INTEGER || type == Types.SMALLINT) {
+                    generateur.writeNumber(rs.getLong(i));
+                } else if (type == Types.DECIMAL || type == Types.NUMERIC) {
+                    generateur.writeNumber(rs.getBigDecimal(i));
+                } else if (estBooleen(type)) {
+                    generateur.writeBoolean(rs.getBoolean(i));
+                } else {
+                    generateur.writeString(rs.getString(i));
+                }
+            }
+            generateur.writeEndObject();
+            generateur.writeRaw('\n');
+            lignes++;
+        }
+
+        @Override
+        void terminer() throws IOException {
+            generateur.flush();
+        }
+    }
+
+    private static final class EcrivainCsv extends EcrivainLignes {
+        private final Writer writer;
+
+        EcrivainCsv(OutputStream flux) {
+            this.writer = new OutputStreamWriter(flux, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        void ecrire(ResultSet rs) throws SQLException, IOException {
+            ResultSetMetaData meta = rs.getMetaData();
+            if (lignes == 0) {
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    if (i > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(meta.getColumnLabel(i));
+                }
+                writer.write("\r\n");
+            }
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                if (rs.getObject(i) != null) {
+                    writer.write(estBooleen(meta.getColumnType(i))
+                            ? String.valueOf(rs.getBoolean(i))
+                            : echapper(rs.getString(i)));
+                }
+            }
+            writer.write("\r\n");
+            lignes++;
+        }
+
+        @Override
+        void terminer() throws IOException {
+            writer.flush();
+        }
+
+        private static String echapper(String valeur) {
+            if (valeur.indexOf(',') < 0 && valeur.indexOf('"') < 0 && valeur.indexOf('\n') < 0 && valeur.indexOf('\r') < 0) {
+                return valeur;
+            }
+            return '"' + valeur.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,537 @@
+package com.sms.service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moteur de génération d'emploi du temps. La semaine est découpée en au plus
+ * 64 créneaux : l'occupation de chaque classe, professeur et salle tient dans
+ * un long, et le domaine d'une leçon (créneaux encore possibles) se calcule
+ * par quelques opérations bit à bit.
+ *
+ * Chaque recherche construit une solution en plaçant d'abord la leçon au plus
+ * petit domaine (propagation des occupations), puis l'améliore par recherche
+ * locale : une leçon sans créneau libre en déloge d'autres (heuristique du
+ * moindre conflit, avec liste tabou), et une fois tout placé, des déplacements
+ * réduisent trous et doublons de matière dans la journée. Les recherches sont
+ * relancées en parallèle sur tous les cœurs jusqu'à épuisement du budget.
+ */
+final class GenerateurEmploiDuTemps {
+
+    static final int PENALITE_NON_PLACEE = 1000;
+    static final int PENALITE_TROU = 10;
+    static final int PENALITE_DOUBLON_JOUR = 5;
+
+    private static final int TABOU = 10;
+    private static final int STAGNATION_MAX = 200_000;
+    private static final int ECHANTILLON_CONSTRUCTION = 32;
+
+    /**
+     * Données du problème ; classes, professeurs, salles et besoins sont
+     * numérotés à partir de 0. Les masques « fixes » marquent les créneaux
+     * interdits ou déjà pris par des séances conservées.
+     */
+    record Probleme(int jours, int creneauxParJour, int nbClasses, int nbProfesseurs, int nbSalles, int nbBesoins,
+                    Lecon[] lecons, long[] fixesClasse, long[] fixesProfesseur, long[] fixesSalle) {
+
+        int nbCreneaux() {
+            return jours * creneauxParJour;
+        }
+
+        long creneauxValides() {
+            return nbCreneaux() == 64 ? -1L : (1L << nbCreneaux()) - 1;
+        }
+    }
+
+    /**
+     * Une heure de cours d'un besoin ; professeur -1 si aucun, salles candidates par capacité croissante.
+     */
+    record Lecon(int besoin, int classe, int professeur, int[] salles) {
+    }
+
+    record Resultat(int[] creneaux, int[] salles, int nonPlacees, int trous, int doublons, int penalite,
+                    long iterations, int recherches) {
+    }
+
+    private final Probleme probleme;
+    private final long valides;
+    private final long masqueJour;
+
+    GenerateurEmploiDuTemps(Probleme probleme) {
+        this.probleme = probleme;
+        this.valides = probleme.creneauxValides();
+        this.masqueJour = probleme.creneauxParJour() == 64 ? -1L : (1L << probleme.creneauxParJour()) - 1;
+    }
+
+    /**
+     * Lance des recherches indépendantes sur {@code threads} fils jusqu'à la
+     * limite de temps (ou une solution sans pénalité) et garde la meilleure.
+     * L'échec d'une recherche est propagé à l'appelant.
+     */
+    Resultat resoudre(long budgetNanos, int threads, long graine) {
+        long limite = System.nanoTime() + budgetNanos;
+        AtomicLong iterations = new AtomicLong();
+        AtomicInteger recherches = new AtomicInteger();
+        Resultat[] meilleur = new Resultat[1];
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> taches = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long graineFil = graine + 7919L * t;
+                taches.add(() -> {
+                    Random aleatoire = new Random(graineFil);
+                    while (System.nanoTime() < limite && !optimal(meilleur)) {
+                        Recherche recherche = new Recherche(aleatoire);
+                        recherche.construire();
+                        recherche.ameliorer(limite);
+                        iterations.addAndGet(recherche.iteration);
+                        recherches.incrementAndGet();
+                        Resultat resultat = recherche.meilleurResultat();
+                        synchronized (meilleur) {
+                            if (meilleur[0] == null || resultat.penalite() < meilleur[0].penalite()) {
+                                meilleur[0] = resultat;
+                            }
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : pool.invokeAll(taches)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Génération de l'emploi du temps interrompue", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error erreur) {
+                throw erreur;
+            }
+            throw new IllegalStateException("Échec d'une recherche d'emploi du temps", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Resultat r = meilleur[0];
+        if (r == null) {
+            // Budget épuisé avant la fin d'une première construction
+            Recherche recherche = new Recherche(new Random(graine));
+            recherche.construire();
+            r = recherche.meilleurResultat();
+        }
+        return new Resultat(r.creneaux(), r.salles(), r.nonPlacees(), r.trous(), r.doublons(), r.penalite(),
+                iterations.get(), recherches.get());
+    }
+
+    private static boolean optimal(Resultat[] meilleur) {
+        synchronized (meilleur) {
+            return meilleur[0] != null && meilleur[0].penalite() == 0;
+        }
+    }
+
+    private int trous(long occupation) {
+        int total = 0;
+        for (int j = 0; j < probleme.jours(); j++) {
+            long jour = (occupation >>> (j * probleme.creneauxParJour())) & masqueJour;
+            if (jour != 0) {
+                total += 64 - Long.numberOfLeadingZeros(jour) - Long.numberOfTrailingZeros(jour) - Long.bitCount(jour);
+            }
+        }
+        return total;
+    }
+
+    private int doublons(long occupation) {
+        int total = 0;
+        for (int j = 0; j < probleme.jours(); j++) {
+            int heures = Long.bitCount((occupation >>> (j * probleme.creneauxParJour())) & masqueJour);
+            if (heures > 1) {
+                total += heures - 1;
+            }
+        }
+        return total;
+    }
+
+    private static int nieme(long masque, int rang) {
+        for (int i = 0; i < rang; i++) {
+            masque &= masque - 1;
+        }
+        return Long.numberOfTrailingZeros(masque);
+    }
+
+    /**
+     * Une recherche (construction puis amélioration), propre à un fil.
+     */
+    private final class Recherche {
+        private final Random aleatoire;
+        private final Lecon[] lecons = probleme.lecons();
+        private final int n = lecons.length;
+
+        private final int[] creneau = new int[n];
+        private final int[] salle = new int[n];
+        private final long[] placeeA = new long[n];
+        private final boolean[] impossible = new boolean[n];
+
+        private final long[] occClasse = new long[probleme.nbClasses()];
+        private final long[] occProfesseur = new long[probleme.nbProfesseurs()];
+        private final long[] occSalle = new long[probleme.nbSalles()];
+        private final long[] occBesoin = new long[probleme.nbBesoins()];
+        private final int[] leconClasse = new int[probleme.nbClasses() * 64];
+        private final int[] leconProfesseur = new int[probleme.nbProfesseurs() * 64];
+        private final int[] leconSalle = new int[probleme.nbSalles() * 64];
+
+        // Leçons non placées (hors impossibles), avec leur position pour un retrait en O(1)
+        private final int[] pile = new int[n];
+        private final int[] position = new int[n];
+        private int taille;
+        private int impossibles;
+
+        private int penaliteDouce;
+        private long iteration;
+
+        private int[] meilleurCreneau;
+        private int[] meilleureSalle;
+        private int meilleurePenalite = Integer.MAX_VALUE;
+
+        Recherche(Random aleatoire) {
+            this.aleatoire = aleatoire;
+            Arrays.fill(creneau, -1);
+            Arrays.fill(salle, -1);
+            Arrays.fill(leconClasse, -1);
+            Arrays.fill(leconProfesseur, -1);
+            Arrays.fill(leconSalle, -1);
+            for (int l = 0; l < n; l++) {
+                pile[l] = l;
+                position[l] = l;
+            }
+            taille = n;
+        }
+
+        void construire() {
+            while (taille > 0) {
+                int choisie = -1;
+                int plusPetitDomaine = Integer.MAX_VALUE;
+                int essais = Math.min(taille, ECHANTILLON_CONSTRUCTION);
+                for (int k = 0; k < essais; k++) {
+                    int l = taille <= ECHANTILLON_CONSTRUCTION ? pile[k] : pile[aleatoire.nextInt(taille)];
+                    int domaine = Long.bitCount(domaineLibre(l));
+                    if (domaine < plusPetitDomaine) {
+                        plusPetitDomaine = domaine;
+                        choisie = l;
+                    }
+                }
+                long domaine = domaineLibre(choisie);
+                if (domaine == 0) {
+                    // Laissée de côté : la recherche locale s'en chargera
+                    if (domaineBase(choisie) == 0) {
+                        marquerImpossible(choisie);
+                    } else {
+                        break;
+                    }
+                    continue;
+                }
+                int t = meilleurCreneau(choisie, domaine);
+                placer(choisie, t, salleLibre(choisie, t));
+            }
+            enregistrerSiMeilleure();
+        }
+
+        void ameliorer(long limite) {
+            long sansProgres = 0;
+            while (sansProgres < STAGNATION_MAX && (taille > 0 || penaliteDouce > 0)) {
+                if ((iteration & 255) == 0 && System.nanoTime() >= limite) {
+                    return;
+                }
+                iteration++;
+                if (taille > 0) {
+                    int l = pile[aleatoire.nextInt(taille)];
+                    long domaine = domaineLibre(l);
+                    if (domaine != 0) {
+                        int t = meilleurCreneau(l, domaine);
+                        placer(l, t, salleLibre(l, t));
+                    } else {
+                        deloger(l);
+                    }
+                } else {
+                    deplacerPourConfort();
+                }
+                if (enregistrerSiMeilleure()) {
+                    sansProgres = 0;
+                } else {
+                    sansProgres++;
+                }
+            }
+        }
+
+        Resultat meilleurResultat() {
+            long[] classes = new long[probleme.nbClasses()];
+            long[] besoins = new long[probleme.nbBesoins()];
+            int nonPlacees = 0;
+            for (int l = 0; l < n; l++) {
+                if (meilleurCreneau[l] < 0) {
+                    nonPlacees++;
+                } else {
+                    classes[lecons[l].classe()] |= 1L << meilleurCreneau[l];
+                    besoins[lecons[l].besoin()] |= 1L << meilleurCreneau[l];
+                }
+            }
+            int trous = 0;
+            for (long c : classes) {
+                trous += trous(c);
+            }
+            int doublons = 0;
+            for (long b : besoins) {
+                doublons += doublons(b);
+            }
+            int penalite = PENALITE_NON_PLACEE * nonPlacees + PENALITE_TROU * trous + PENALITE_DOUBLON_JOUR * doublons;
+            return new Resultat(meilleurCreneau, meilleureSalle, nonPlacees, trous, doublons, penalite, iteration, 1);
+        }
+
+        private boolean enregistrerSiMeilleure() {
+            int penalite = PENALITE_NON_PLACEE * (taille + impossibles) + penaliteDouce;
+            if (penalite >= meilleurePenalite) {
+                return false;
+            }
+            meilleurePenalite = penalite;
+            meilleurCreneau = creneau.clone();
+            meilleureSalle = salle.clone();
+            return true;
+        }
+
+        /**
+         * Créneaux où la leçon peut être placée sans rien déloger.
+         */
+        private long domaineLibre(int l) {
+            Lecon lecon = lecons[l];
+            long domaine = valides & ~(occClasse[lecon.classe()] | probleme.fixesClasse()[lecon.classe()]);
+            if (lecon.professeur() >= 0) {
+                domaine &= ~(occProfesseur[lecon.professeur()] | probleme.fixesProfesseur()[lecon.professeur()]);
+            }
+            long sallesLibres = 0;
+            for (int s : lecon.salles()) {
+                sallesLibres |= ~(occSalle[s] | probleme.fixesSalle()[s]);
+            }
+            return domaine & sallesLibres;
+        }
+
+        /**
+         * Créneaux possibles en ne tenant compte que des contraintes fixes.
+         */
+        private long domaineBase(int l) {
+            Lecon lecon = lecons[l];
+            long domaine = valides & ~probleme.fixesClasse()[lecon.classe()];
+            if (lecon.professeur() >= 0) {
+                domaine &= ~probleme.fixesProfesseur()[lecon.professeur()];
+            }
+            long salles = 0;
+            for (int s : lecon.salles()) {
+                salles |= ~probleme.fixesSalle()[s];
+            }
+            return domaine & salles;
+        }
+
+        private int salleLibre(int l, int t) {
+            for (int s : lecons[l].salles()) {
+                if (((occSalle[s] | probleme.fixesSalle()[s]) & (1L << t)) == 0) {
+                    return s;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Créneau du domaine qui dégrade le moins le confort (trous, doublons), à égalité au hasard.
+         */
+        private int meilleurCreneau(int l, long domaine) {
+            Lecon lecon = lecons[l];
+            long classe = occClasse[lecon.classe()];
+            long besoin = occBesoin[lecon.besoin()];
+            int base = PENALITE_TROU * trous(classe) + PENALITE_DOUBLON_JOUR * doublons(besoin);
+            int meilleur = -1;
+            int meilleurCout = Integer.MAX_VALUE;
+            int egalites = 0;
+            for (long reste = domaine; reste != 0; reste &= reste - 1) {
+                int t = Long.numberOfTrailingZeros(reste);
+                long bit = 1L << t;
+                int cout = PENALITE_TROU * trous(classe | bit) + PENALITE_DOUBLON_JOUR * doublons(besoin | bit) - base;
+                if (cout < meilleurCout) {
+                    meilleurCout = cout;
+                    meilleur = t;
+                    egalites = 1;
+                } else if (cout == meilleurCout && aleatoire.nextInt(++egalites) == 0) {
+                    meilleur = t;
+                }
+            }
+            return meilleur;
+        }
+
+        /**
+         * Place la leçon au créneau où elle déloge le moins de leçons (hors
+         * leçons placées récemment), puis remet les leçons délogées à placer.
+         */
+        private void deloger(int l) {
+            Lecon lecon = lecons[l];
+            long domaine = domaineBase(l);
+            if (domaine == 0) {
+                marquerImpossible(l);
+                return;
+            }
+            int choixCreneau = -1;
+            int choixSalle = -1;
+            int meilleurCout = Integer.MAX_VALUE;
+            int egalites = 0;
+            boolean auHasard = aleatoire.nextInt(10) == 0;
+            int rangHasard = auHasard ? aleatoire.nextInt(Long.bitCount(domaine)) : -1;
+            int rang = 0;
+            for (long reste = domaine; reste != 0; reste &= reste - 1, rang++) {
+                int t = Long.numberOfTrailingZeros(reste);
+                if (auHasard && rang != rangHasard) {
+                    continue;
+                }
+                int cout = coutDelogement(leconClasse[lecon.classe() * 64 + t]);
+                if (lecon.professeur() >= 0) {
+                    cout += coutDelogement(leconProfesseur[lecon.professeur() * 64 + t]);
+                }
+                int salleChoisie = -1;
+                int coutSalle = Integer.MAX_VALUE;
+                for (int s : lecon.salles()) {
+                    if ((probleme.fixesSalle()[s] & (1L << t)) != 0) {
+                        continue;
+                    }
+                    int c = coutDelogement(leconSalle[s * 64 + t]);
+                    if (c < coutSalle) {
+                        coutSalle = c;
+                        salleChoisie = s;
+                        if (c == 0) {
+                            break;
+                        }
+                    }
+                }
+                if (salleChoisie < 0) {
+                    continue;
+                }
+                cout += coutSalle;
+                if (cout < meilleurCout) {
+                    meilleurCout = cout;
+                    choixCreneau = t;
+                    choixSalle = salleChoisie;
+                    egalites = 1;
+                } else if (cout == meilleurCout && aleatoire.nextInt(++egalites) == 0) {
+                    choixCreneau = t;
+                    choixSalle = salleChoisie;
+                }
+            }
+            if (choixCreneau < 0) {
+                return;
+            }
+            retirerSiPlacee(leconClasse[lecon.classe() * 64 + choixCreneau]);
+            if (lecon.professeur() >= 0) {
+                retirerSiPlacee(leconProfesseur[lecon.professeur() * 64 + choixCreneau]);
+            }
+            retirerSiPlacee(leconSalle[choixSalle * 64 + choixCreneau]);
+            placer(l, choixCreneau, choixSalle);
+        }
+
+        private int coutDelogement(int occupant) {
+            if (occupant < 0) {
+                return 0;
+            }
+            return iteration - placeeA[occupant] < TABOU ? 100 : 1;
+        }
+
+        /**
+         * Déplace une leçon placée vers un autre créneau libre si le confort ne se dégrade pas.
+         */
+        private void deplacerPourConfort() {
+            int l = aleatoire.nextInt(n);
+            if (creneau[l] < 0) {
+                return;
+            }
+            long domaine = domaineLibre(l);
+            if (domaine == 0) {
+                return;
+            }
+            int t = nieme(domaine, aleatoire.nextInt(Long.bitCount(domaine)));
+            int s = salleLibre(l, t);
+            int ancienCreneau = creneau[l];
+            int ancienneSalle = salle[l];
+            int avant = penaliteDouce;
+            retirer(l);
+            placer(l, t, s);
+            if (penaliteDouce > avant) {
+                retirer(l);
+                placer(l, ancienCreneau, ancienneSalle);
+            }
+        }
+
+        private void marquerImpossible(int l) {
+            impossible[l] = true;
+            impossibles++;
+            sortirDeLaPile(l);
+        }
+
+        private void placer(int l, int t, int s) {
+            Lecon lecon = lecons[l];
+            int avant = confort(lecon);
+            long bit = 1L << t;
+            occClasse[lecon.classe()] |= bit;
+            occBesoin[lecon.besoin()] |= bit;
+            leconClasse[lecon.classe() * 64 + t] = l;
+            if (lecon.professeur() >= 0) {
+                occProfesseur[lecon.professeur()] |= bit;
+                leconProfesseur[lecon.professeur() * 64 + t] = l;
+            }
+            occSalle[s] |= bit;
+            leconSalle[s * 64 + t] = l;
+            creneau[l] = t;
+            salle[l] = s;
+            placeeA[l] = iteration;
+            sortirDeLaPile(l);
+            penaliteDouce += confort(lecon) - avant;
+        }
+
+        private void retirerSiPlacee(int l) {
+            if (l >= 0 && creneau[l] >= 0) {
+                retirer(l);
+            }
+        }
+
+        private void retirer(int l) {
+            Lecon lecon = lecons[l];
+            int avant = confort(lecon);
+            int t = creneau[l];
+            long bit = ~(1L << t);
+            occClasse[lecon.classe()] &= bit;
+            occBesoin[lecon.besoin()] &= bit;
+            leconClasse[lecon.classe() * 64 + t] = -1;
+            if (lecon.professeur() >= 0) {
+                occProfesseur[lecon.professeur()] &= bit;
+                leconProfesseur[lecon.professeur() * 64 + t] = -1;
+            }
+            occSalle[salle[l]] &= bit;
+            leconSalle[salle[l] * 64 + t] = -1;
+            creneau[l] = -1;
+            salle[l] = -1;
+            position[l] = taille;
+            pile[taille++] = l;
+            penaliteDouce += confort(lecon) - avant;
+        }
+
+        private int confort(Lecon lecon) {
+            return PENALITE_TROU * trous(occClasse[lecon.classe()])
+                    + PENALITE_DOUBLON_JOUR * doublons(occBesoin[lecon.besoin()]);
+        }
+
+        private void sortirDeLaPile(int l) {
+            int p = position[l];
+            int derniere = pile[--taille];
+            pile[p] = derniere;
+            position[derniere] = p;
+            position[l] = -1;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.sms.service;
+
+import com.sms.dto.BesoinHoraireDTO;
+import com.sms.dto.ConflitSeanceDTO;
+import com.sms.dto.CreneauInterditDTO;
+import com.sms.dto.GenerationEmploiDuTempsDTO;
+import com.sms.dto.SeanceCreateDTO;
+import com.sms.entity.Salle;
+import com.sms.exception.ResourceNotFoundException;
+import com.sms.repository.ClasseMatiereRepository;
+import com.sms.repository.PersonnelRepository;
+import com.sms.repository.SalleRepository;
+import com.sms.repository.SeanceRepository;
+import com.sms.service.GenerateurEmploiDuTemps.Lecon;
+import com.sms.service.GenerateurEmploiDuTemps.Probleme;
+import com.sms.service.GenerateurEmploiDuTemps.Resultat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Génération automatique des emplois du temps : traduit les besoins horaires,
+ * salles, séances conservées et plages interdites en problème pour
+ * {@link GenerateurEmploiDuTemps}, puis enregistre la solution en un seul lot
+ * via EmploiDuTempsService (conflits revérifiés sous le verrou des écritures).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class GenerationEmploiDuTempsService {
+
+    private static final int JOURS_DEFAUT = 6;
+    private static final int CRENEAUX_PAR_JOUR_DEFAUT = 8;
+    private static final LocalTime HEURE_DEBUT_DEFAUT = LocalTime.of(8, 0);
+    private static final int DUREE_CRENEAU_DEFAUT = 60;
+    private static final int BUDGET_DEFAUT = 10;
+
+    private final ClasseMatiereRepository classeMatiereRepository;
+    private final PersonnelRepository personnelRepository;
+    private final SalleRepository salleRepository;
+    private final SeanceRepository seanceRepository;
+    private final EmploiDuTempsService emploiDuTempsService;
+
+    @Value("${emploi-du-temps.generation.threads:0}")
+    private int threads;
+
+    @Value("${emploi-du-temps.generation.budget-max-secondes:120}")
+    private int budgetMaxSecondes;
+
+    /**
+     * Génère l'emploi du temps des classes concernées par les besoins. Sans
+     * {@code persister}, renvoie seulement la proposition ; sinon l'enregistre
+     * si toutes les heures ont pu être placées.
+     */
+    public Map<String, Object> generer(GenerationEmploiDuTempsDTO dto) {
+        Grille grille = grille(dto);
+        List<BesoinHoraireDTO> besoins = dto.getBesoins() != null ? dto.getBesoins() : List.of();
+        if (besoins.isEmpty()) {
+            throw new IllegalArgumentException("Aucun besoin horaire à placer");
+        }
+        if (dto.getAnneeScolaire() == null || dto.getAnneeScolaire().isBlank()) {
+            throw new IllegalArgumentException("L'année scolaire est obligatoire");
+        }
+        for (BesoinHoraireDTO b : besoins) {
+            if (b.getClasseMatiereId() == null || b.getHeuresHebdomadaires() == null || b.getHeuresHebdomadaires() <= 0) {
+                throw new IllegalArgumentException("Chaque besoin doit indiquer une matière de classe et un nombre d'heures positif");
+            }
+        }
+
+        Map<Long, Object[]> classeMatieres = new HashMap<>();
+        for (Object[] ligne : classeMatiereRepository.findClasseEtMatiereByIdIn(
+                besoins.stream().map(BesoinHoraireDTO::getClasseMatiereId).toList())) {
+            classeMatieres.put((Long) ligne[0], ligne);
+        }
+        Set<Long> professeurIds = new HashSet<>();
+        for (BesoinHoraireDTO b : besoins) {
+            if (!classeMatieres.containsKey(b.getClasseMatiereId())) {
+                throw new ResourceNotFoundException("Matière de classe", b.getClasseMatiereId());
+            }
+            if (b.getProfesseurId() != null) {
+                professeurIds.add(b.getProfesseurId());
+            }
+        }
+        Set<Long> professeursTrouves = new HashSet<>();
+        personnelRepository.findAllById(professeurIds).forEach(p -> professeursTrouves.add(p.getId()));
+        professeurIds.stream().filter(id -> !professeursTrouves.contains(id)).findFirst().ifPresent(id -> {
+            throw new ResourceNotFoundException("Professeur non trouvé avec l'id: " + id);
+        });
+
+        // Indices du problème
+        Map<Long, Integer> classes = new LinkedHashMap<>();
+        Map<Long, Integer> professeurs = new LinkedHashMap<>();
+        Map<Long, Integer> salles = new LinkedHashMap<>();
+        List<Salle> sallesDisponibles = new ArrayList<>(salleRepository.findByDisponible(true));
+        sallesDisponibles.sort(Comparator.comparing(s -> s.getCapacite() != null ? s.getCapacite() : 0));
+        sallesDisponibles.forEach(s -> salles.put(s.getId(), salles.size()));
+        Long[] salleIds = salles.keySet().toArray(new Long[0]);
+
+        List<Lecon> lecons = new ArrayList<>();
+        for (int b = 0; b < besoins.size(); b++) {
+            BesoinHoraireDTO besoin = besoins.get(b);
+            Object[] cm = classeMatieres.get(besoin.getClasseMatiereId());
+            int classe = classes.computeIfAbsent((Long) cm[1], k -> classes.size());
+            int professeur = besoin.getProfesseurId() != null
+                    ? professeurs.computeIfAbsent(besoin.getProfesseurId(), k -> professeurs.size())
+                    : -1;
+            int effectif = cm[2] != null ? (Integer) cm[2] : 0;
+            int[] candidates = sallesDisponibles.stream()
+                    .filter(s -> besoin.getTypeSalle() == null || besoin.getTypeSalle().equalsIgnoreCase(s.getType()))
+                    .filter(s -> s.getCapacite() == null || s.getCapacite() >= effectif)
+                    .mapToInt(s -> salles.get(s.getId()))
+                    .toArray();
+            for (int h = 0; h < besoin.getHeuresHebdomadaires(); h++) {
+                lecons.add(new Lecon(b, classe, professeur, candidates));
+            }
+        }
+
+        // Créneaux déjà pris par les séances conservées de l'année et plages interdites
+        long[] fixesClasse = new long[classes.size()];
+        long[] fixesProfesseur = new long[professeurs.size()];
+        long[] fixesSalle = new long[salles.size()];
+        for (Object[] s : seanceRepository.findEtatsActifsByAnneeScolaire(dto.getAnneeScolaire())) {
+            Long classeId = (Long) s[1];
+            if (dto.isRemplacer() && classes.containsKey(classeId)) {
+                continue;
+            }
+            long masque = grille.masque((Integer) s[6], (LocalTime) s[7], (LocalTime) s[8]);
+            bloquer(fixesClasse, classes, classeId, masque);
+            bloquer(fixesProfesseur, professeurs, (Long) s[2], masque);
+            bloquer(fixesSalle, salles, (Long) s[3], masque);
+        }
+        for (CreneauInterditDTO interdit : dto.getCreneauxInterdits() != null
+                ? dto.getCreneauxInterdits() : List.<CreneauInterditDTO>of()) {
+            long masque = 0;
+            for (int jour = 1; jour <= grille.jours(); jour++) {
+                if (interdit.getJourSemaine() == null || interdit.getJourSemaine() == jour) {
+                    masque |= grille.masque(jour, interdit.getHeureDebut(), interdit.getHeureFin());
+                }
+            }
+            if (interdit.getClasseId() == null && interdit.getProfesseurId() == null && interdit.getSalleId() == null) {
+                for (int c = 0; c < fixesClasse.length; c++) {
+                    fixesClasse[c] |= masque;
+                }
+            }
+            bloquer(fixesClasse, classes, interdit.getClasseId(), masque);
+            bloquer(fixesProfesseur, professeurs, interdit.getProfesseurId(), masque);
+            bloquer(fixesSalle, salles, interdit.getSalleId(), masque);
+        }
+
+        Probleme probleme = new Probleme(grille.jours(), grille.creneauxParJour(), classes.size(), professeurs.size(),
+                salles.size(), besoins.size(), lecons.toArray(new Lecon[0]), fixesClasse, fixesProfesseur, fixesSalle);
+        long debut = System.nanoTime();
+        Resultat resultat = resoudre(probleme, dto.getBudgetSecondes());
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+
+        // Traduction de la solution
+        Long[] classeIds = classes.keySet().toArray(new Long[0]);
+        Long[] professeurIdsParIndice = professeurs.keySet().toArray(new Long[0]);
+        List<SeanceCreateDTO> seances = new ArrayList<>();
+        int[] nonPlaceesParBesoin = new int[besoins.size()];
+        for (int l = 0; l < lecons.size(); l++) {
+            Lecon lecon = lecons.get(l);
+            int t = resultat.creneaux()[l];
+            if (t < 0) {
+                nonPlaceesParBesoin[lecon.besoin()]++;
+                continue;
+            }
+            Object[] cm = classeMatieres.get(besoins.get(lecon.besoin()).getClasseMatiereId());
+            seances.add(new SeanceCreateDTO(classeIds[lecon.classe()], (Long) cm[3],
+                    lecon.professeur() >= 0 ? professeurIdsParIndice[lecon.professeur()] : null,
+                    salleIds[resultat.salles()[l]], grille.jour(t), grille.debut(t), grille.fin(t),
+                    dto.getAnneeScolaire()));
+        }
+        seances.sort(Comparator.comparing(SeanceCreateDTO::getClasseId)
+                .thenComparing(SeanceCreateDTO::getJourSemaine)
+                .thenComparing(SeanceCreateDTO::getHeureDebut));
+        List<Map<String, Object>> besoinsNonSatisfaits = new ArrayList<>();
+        for (int b = 0; b < besoins.size(); b++) {
+            if (nonPlaceesParBesoin[b] > 0) {
+                Map<String, Object> ligne = new LinkedHashMap<>();
+                ligne.put("classeMatiereId", besoins.get(b).getClasseMatiereId());
+                ligne.put("classeId", classeMatieres.get(besoins.get(b).getClasseMatiereId())[1]);
+                ligne.put("heuresNonPlacees", nonPlaceesParBesoin[b]);
+                besoinsNonSatisfaits.add(ligne);
+            }
+        }
+
+        Map<String, Object> reponse = qualite(probleme, resultat, dureeMs);
+        reponse.put("seances", seances);
+        reponse.put("besoinsNonSatisfaits", besoinsNonSatisfaits);
+        reponse.put("persistees", 0);
+        if (dto.isPersister()) {
+            if (resultat.nonPlacees() > 0) {
+                reponse.put("message", "Emploi du temps incomplet : rien n'a été enregistré");
+            } else {
+                List<ConflitSeanceDTO> conflits = emploiDuTempsService.enregistrerEmploiDuTemps(
+                        classes.keySet(), dto.getAnneeScolaire(), seances, dto.isRemplacer());
+                if (!conflits.isEmpty()) {
+                    reponse.put("conflits", conflits);
+                    reponse.put("message", "Séances modifiées pendant la génération : rien n'a été enregistré");
+                } else {
+                    reponse.put("persistees", seances.size());
+                    log.info("Emploi du temps généré pour {} classes : {} séances enregistrées (pénalité {})",
+                            classes.size(), seances.size(), resultat.penalite());
+                }
+            }
+        }
+        return reponse;
+    }
+
+    private Resultat resoudre(Probleme probleme, Integer budgetSecondes) {
+        int budget = budgetSecondes != null ? budgetSecondes : BUDGET_DEFAUT;
+        if (budget <= 0 || budget > budgetMaxSecondes) {
+            throw new IllegalArgumentException("Le budget doit être compris entre 1 et " + budgetMaxSecondes + " secondes");
+        }
+        int fils = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new GenerateurEmploiDuTemps(probleme).resoudre(TimeUnit.SECONDS.toNanos(budget), fils, System.nanoTime());
+    }
+
+    private static Map<String, Object> qualite(Probleme probleme, Resultat resultat, long dureeMs) {
+        int total = probleme.lecons().length;
+        Map<String, Object> reponse = new LinkedHashMap<>();
+        reponse.put("penalite", resultat.penalite());
+        reponse.put("heuresAPlacer", total);
+        reponse.put("heuresPlacees", total - resultat.nonPlacees());
+        reponse.put("heuresNonPlacees", resultat.nonPlacees());
+        reponse.put("trous", resultat.trous());
+        reponse.put("doublonsJournaliers", resultat.doublons());
+        reponse.put("tauxPlacement", total > 0 ? Math.round(1000.0 * (total - resultat.nonPlacees()) / total) / 10.0 : 100.0);
+        reponse.put("recherches", resultat.recherches());
+        reponse.put("iterations", resultat.iterations());
+        reponse.put("dureeMs", dureeMs);
+        return reponse;
+    }
+
+    private static void bloquer(long[] fixes, Map<Long, Integer> indices, Long id, long masque) {
+        Integer i = id != null ? indices.get(id) : null;
+        if (i != null) {
+            fixes[i] |= masque;
+        }
+    }
+
+    private static Grille grille(GenerationEmploiDuTempsDTO dto) {
+        int jours = dto.getJoursParSemaine() != null ? dto.getJoursParSemaine() : JOURS_DEFAUT;
+        int creneaux = dto.getCreneauxParJour() != null ? dto.getCreneauxParJour() : CRENEAUX_PAR_JOUR_DEFAUT;
+        LocalTime heureDebut = dto.getHeureDebut() != null ? dto.getHeureDebut() : HEURE_DEBUT_DEFAUT;
+        int duree = dto.getDureeCreneauMinutes() != null ? dto.getDureeCreneauMinutes() : DUREE_CRENEAU_DEFAUT;
+        if (jours < 1 || jours > 7 || creneaux < 1 || jours * creneaux > 64) {
+            throw new IllegalArgumentException("La semaine doit compter de 1 à 7 jours et au plus 64 créneaux");
+        }
+        if (duree <= 0 || heureDebut.toSecondOfDay() + creneaux * duree * 60L > 24 * 3600) {
+            throw new IllegalArgumentException("Les créneaux doivent tenir dans la journée");
+        }
+        return new Grille(jours, creneaux, heureDebut, duree);
+    }
+
+    /**
+     * Découpage de la semaine : le créneau t est le (t % creneauxParJour)-ième du jour t / creneauxParJour + 1.
+     */
+    private record Grille(int jours, int creneauxParJour, LocalTime heureDebut, int dureeMinutes) {
+
+        int jour(int t) {
+            return t / creneauxParJour + 1;
+        }
+
+        LocalTime debut(int t) {
+            return heureDebut.plusMinutes((long) (t % creneauxParJour) * dureeMinutes);
+        }
+
+        LocalTime fin(int t) {
+            return debut(t).plusMinutes(dureeMinutes);
+        }
+
+        /**
+         * Créneaux du jour chevauchant [debut, fin[ ; toute la journée si les heures manquent.
+         */
+        long masque(Integer jour, LocalTime debut, LocalTime fin) {
+            if (jour == null || jour < 1 || jour > jours) {
+                return 0;
+            }
+            long masque = 0;
+            for (int c = 0; c < creneauxParJour; c++) {
+                int t = (jour - 1) * creneauxParJour + c;
+                if ((debut == null || debut.isBefore(fin(t))) && (fin == null || fin.isAfter(debut(t)))) {
+                    masque |= 1L << t;
+                }
+            }
+            return masque;
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package com.sms.service;
+
+import com.sms.repository.EleveRepository;
+import com.sms.repository.PresenceJdbcRepository;
+import com.sms.repository.PresenceJdbcRepository.JourEleve;
+import com.sms.service.PresenceModifieeEvent.ChangementPresence;
+import com.sms.service.PresenceModifieeEvent.EtatPresence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Index en mémoire des absences : pour chaque année scolaire et chaque élève,
+ * un bit par jour (depuis le 1er août de l'année) dans quatre BitSet
+ * (jour saisi, absent, en retard, absence justifiée). Les statistiques annuelles
+ * se calculent alors par cardinality() et opérations bit à bit, sans lire la
+ * table presences.
+ *
+ * L'index est reconstruit au démarrage ; ensuite, après chaque commit d'écriture
+ * de présences, les jours (élève, date) touchés sont relus dans la table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexAbsencesService {
+
+    private static final int JOURS_MAX = 400;
+
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final EleveRepository eleveRepository;
+
+    private volatile Map<String, IndexAnnee> annees = new ConcurrentHashMap<>();
+
+    private volatile boolean reconstructionEnCours;
+    private final Queue<JourEleve> joursPendantReconstruction = new ConcurrentLinkedQueue<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(1)
+    public void initialiser() {
+        try {
+            reconstruire();
+        } catch (DataAccessException e) {
+            // L'application reste utilisable ; les analyses seront vides jusqu'à une reconstruction manuelle
+            log.warn("Reconstruction de l'index des absences impossible au démarrage : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reconstruit l'index depuis la table presences, lue en flux par élève puis
+     * date : l'état d'un jour est posé dans les BitSet de l'élève dès que la
+     * lecture passe au jour suivant, sans table intermédiaire de tous les jours.
+     * Les jours modifiés pendant la reconstruction sont relus une fois l'index
+     * remplacé.
+     */
+    public synchronized Map<String, Object> reconstruire() {
+        long debut = System.nanoTime();
+        reconstructionEnCours = true;
+        try {
+            Map<String, IndexAnnee> nouveau = new ConcurrentHashMap<>();
+            JourEnCours enCours = new JourEnCours(nouveau);
+            long[] lignes = {0};
+            presenceJdbcRepository.parcourirJoursParEleve(rs -> {
+                lignes[0]++;
+                LignePresence ligne = lire(rs);
+                if (ligne != null) {
+                    enCours.cumuler(ligne);
+                }
+            });
+            enCours.poser();
+            annees = nouveau;
+
+            reconstructionEnCours = false;
+            Set<JourEleve> aRelire = new HashSet<>();
+            for (JourEleve j; (j = joursPendantReconstruction.poll()) != null; ) {
+                aRelire.add(j);
+            }
+            relire(aRelire);
+
+            long eleves = nouveau.values().stream().mapToLong(a -> a.eleves.size()).sum();
+            long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+            log.info("Index des absences reconstruit : {} lignes, {} élèves, {} années en {} ms",
+                    lignes[0], eleves, nouveau.size(), dureeMs);
+
+            Map<String, Object> resultat = new HashMap<>();
+            resultat.put("lignes", lignes[0]);
+            resultat.put("eleves", eleves);
+            resultat.put("annees", nouveau.keySet());
+            resultat.put("dureeMs", dureeMs);
+            return resultat;
+        } finally {
+            reconstructionEnCours = false;
+        }
+    }
+
+    /**
+     * Après commit, relit dans la table les jours (élève, date) touchés par l'écriture.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Order(1)
+    public void surPresenceModifiee(PresenceModifieeEvent event) {
+        Set<JourEleve> jours = new HashSet<>();
+        for (ChangementPresence changement : event.changements()) {
+            ajouterJour(jours, changement.avant());
+            ajouterJour(jours, changement.apres());
+        }
+        if (reconstructionEnCours) {
+            joursPendantReconstruction.addAll(jours);
+        }
+        relire(jours);
+    }
+
+    /**
+     * Les présences d'une année archivée ne sont plus dans la table : on libère son index.
+     */
+    @EventListener
+    public void surAnneeArchivee(AnneeArchiveeEvent event) {
+        annees.remove(event.anneeScolaire());
+    }
+
+    private static void ajouterJour(Set<JourEleve> jours, EtatPresence etat) {
+        if (etat != null && etat.eleveId() != null && etat.date() != null) {
+            jours.add(new JourEleve(etat.eleveId(), etat.date()));
+        }
+    }
+
+    private void relire(Set<JourEleve> jours) {
+        if (jours.isEmpty()) {
+            return;
+        }
+        // Un jour sans ligne restante est effacé dans toutes les années où il figurait
+        Map<JourEleve, Map<String, EtatJour>> etats = new HashMap<>();
+        presenceJdbcRepository.lireJours(jours, rs -> {
+            LignePresence ligne = lire(rs);
+            if (ligne != null) {
+                etats.computeIfAbsent(new JourEleve(ligne.eleveId(), ligne.date()), k -> new HashMap<>())
+                        .computeIfAbsent(ligne.anneeScolaire(), EtatJour::new)
+                        .cumuler(ligne.statut(), ligne.justifie());
+            }
+        });
+        Map<String, IndexAnnee> courant = annees;
+        for (JourEleve jour : jours) {
+            Map<String, EtatJour> parAnnee = etats.getOrDefault(jour, Collections.emptyMap());
+            for (IndexAnnee index : courant.values()) {
+                if (!parAnnee.containsKey(index.anneeScolaire)) {
+                    index.effacer(jour);
+                }
+            }
+            parAnnee.forEach((annee, etat) -> appliquer(courant, annee, jour, etat));
+        }
+    }
+
+    private static void appliquer(Map<String, IndexAnnee> index, String anneeScolaire, JourEleve jour, EtatJour etat) {
+        IndexAnnee annee = index.computeIfAbsent(anneeScolaire, IndexAnnee::creer);
+        if (annee != null) {
+            annee.poser(jour, etat);
+        }
+    }
+
+    private static LignePresence lire(ResultSet rs) throws SQLException {
+        long eleveId = rs.getLong("eleve_id");
+        String anneeScolaire = rs.getString("annee_scolaire");
+        LocalDate date = rs.getObject("date_presence", LocalDate.class);
+        if (anneeScolaire == null || date == null) {
+            return null;
+        }
+        return new LignePresence(eleveId, anneeScolaire, date, rs.getString("statut"), rs.getBoolean("justifie"));
+    }
+
+    // ----- Analyses -----
+
+    public Map<String, Object> getAnalyseEleve(Long eleveId, String anneeScolaire) {
+        Map<String, Object> analyse = new HashMap<>();
+        analyse.put("eleveId", eleveId);
+        analyse.put("anneeScolaire", anneeScolaire);
+
+        IndexAnnee annee = annees.get(anneeScolaire);
+        BitmapsEleve bitmaps = annee != null ? annee.eleves.get(eleveId) : null;
+        if (bitmaps == null) {
+            analyse.put("joursSaisis", 0);
+            analyse.put("joursAbsence", 0);
+            analyse.put("joursRetard", 0);
+            analyse.put("absencesJustifiees", 0);
+            analyse.put("absencesNonJustifiees", 0);
+            analyse.put("tauxAbsence", BigDecimal.ZERO);
+            analyse.put("serieMaxAbsences", 0);
+            analyse.put("serieEnCours", 0);
+            return analyse;
+        }
+
+        synchronized (bitmaps) {
+            int saisis = bitmaps.saisis.cardinality();
+            int absences = bitmaps.absents.cardinality();
+            int justifiees = bitmaps.justifies.cardinality();
+            int[] series = bitmaps.seriesAbsences();
+            analyse.put("joursSaisis", saisis);
+            analyse.put("joursAbsence", absences);
+            analyse.put("joursRetard", bitmaps.retards.cardinality());
+            analyse.put("absencesJustifiees", justifiees);
+            analyse.put("absencesNonJustifiees", absences - justifiees);
+            analyse.put("tauxAbsence", saisis > 0
+                    ? BigDecimal.valueOf(absences * 100L).divide(BigDecimal.valueOf(saisis), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO);
+            analyse.put("serieMaxAbsences", series[0]);
+            analyse.put("serieEnCours", series[1]);
+        }
+        return analyse;
+    }
+
+    /**
+     * Nombre de jours saisis consécutifs d'absence se terminant au dernier jour saisi de l'élève.
+     */
+    public int getSerieEnCours(Long eleveId, String anneeScolaire) {
+        IndexAnnee annee = annees.get(anneeScolaire);
+        BitmapsEleve bitmaps = annee != null ? annee.eleves.get(eleveId) : null;
+        if (bitmaps == null) {
+            return 0;
+        }
+        synchronized (bitmaps) {
+            return bitmaps.seriesAbsences()[1];
+        }
+    }
+
+    /**
+     * Élèves ayant au moins seuil jours saisis consécutifs d'absence (toutes
+     * classes, ou une classe), par série la plus longue décroissante.
+     */
+    public List<Map<String, Object>> getAbsencesConsecutives(String anneeScolaire, int seuil, Long classeId) {
+        List<Map<String, Object>> resultat = new ArrayList<>();
+        IndexAnnee annee = annees.get(anneeScolaire);
+        if (annee == null) {
+            return resultat;
+        }
+        Collection<Long> eleveIds = classeId != null
+                ? eleveRepository.findIdsByClasseId(classeId)
+                : annee.eleves.keySet();
+
+        for (Long eleveId : eleveIds) {
+            BitmapsEleve bitmaps = annee.eleves.get(eleveId);
+            if (bitmaps == null) {
+                continue;
+            }
+            int[] series;
+            synchronized (bitmaps) {
+                if (bitmaps.absents.cardinality() < seuil) {
+                    continue;
+                }
+                series = bitmaps.seriesAbsences();
+            }
+            if (series[0] >= seuil) {
+                Map<String, Object> ligne = new HashMap<>();
+                ligne.put("eleveId", eleveId);
+                ligne.put("serieMaxAbsences", series[0]);
+                ligne.put("serieEnCours", series[1]);
+                resultat.add(ligne);
+            }
+        }
+        resultat.sort(Comparator.comparing((Map<String, Object> l) -> (Integer) l.get("serieMaxAbsences")).reversed());
+        return resultat;
+    }
+
+    /**
+     * Jours de l'année ayant le plus d'élèves absents dans une classe.
+     */
+    public List<Map<String, Object>> getJoursPlusAbsences(Long classeId, String anneeScolaire, int limite) {
+        List<Map<String, Object>> resultat = new ArrayList<>();
+        IndexAnnee annee = annees.get(anneeScolaire);
+        if (annee == null) {
+            return resultat;
+        }
+        int[] absentsParJour = new int[JOURS_MAX];
+        for (Long eleveId : eleveRepository.findIdsByClasseId(classeId)) {
+            BitmapsEleve bitmaps = annee.eleves.get(eleveId);
+            if (bitmaps == null) {
+                continue;
+            }
+            synchronized (bitmaps) {
+                for (int jour = bitmaps.absents.nextSetBit(0); jour >= 0; jour = bitmaps.absents.nextSetBit(jour + 1)) {
+                    absentsParJour[jour]++;
+                }
+            }
+        }
+
+        List<Integer> jours = new ArrayList<>();
+        for (int jour = 0; jour < JOURS_MAX; jour++) {
+            if (absentsParJour[jour] > 0) {
+                jours.add(jour);
+            }
+        }
+        jours.sort(Comparator.comparing((Integer jour) -> absentsParJour[jour]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        for (Integer jour : jours.subList(0, Math.min(limite, jours.size()))) {
+            Map<String, Object> ligne = new HashMap<>();
+            ligne.put("date", annee.origine.plusDays(jour));
+            ligne.put("absents", absentsParJour[jour]);
+            resultat.add(ligne);
+        }
+        return resultat;
+    }
+
+    // ----- Structures -----
+
+    private record LignePresence(Long eleveId, String anneeScolaire, LocalDate date, String statut, boolean justifie) {
+    }
+
+    /**
+     * Jour (élève, date) en cours de lecture pendant une reconstruction : ses
+     * lignes se suivent dans le flux trié, il est posé dans l'index au premier
+     * jour suivant.
+     */
+    private static final class JourEnCours {
+        private final Map<String, IndexAnnee> index;
+        private JourEleve jour;
+        private EtatJour etat;
+
+        JourEnCours(Map<String, IndexAnnee> index) {
+            this.index = index;
+        }
+
+        void cumuler(LignePresence ligne) {
+            JourEleve cle = new JourEleve(ligne.eleveId(), ligne.date());
+            if (!cle.equals(jour)) {
+                poser();
+                jour = cle;
+                etat = new EtatJour(ligne.anneeScolaire());
+            }
+            etat.cumuler(ligne.statut(), ligne.justifie());
+        }
+
+        void poser() {
+            if (etat != null) {
+                appliquer(index, etat.anneeScolaire, jour, etat);
+            }
+        }
+    }
+
+    /**
+     * État consolidé d'un jour pour un élève (toutes séances confondues) :
+     * absent si au moins une absence, justifié si toutes ses absences le sont.
+     */
+    private static final class EtatJour {
+        private final String anneeScolaire;
+        private boolean absent;
+        private boolean retard;
+        private boolean absenceNonJustifiee;
+
+        EtatJour(String anneeScolaire) {
+            this.anneeScolaire = anneeScolaire;
+        }
+
+        void cumuler(String statut, boolean justifie) {
+            if ("absent".equals(statut)) {
+                absent = true;
+                absenceNonJustifiee |= !justifie;
+            } else if ("retard".equals(statut)) {
+                retard = true;
+            }
+        }
+    }
+
+    private static final class IndexAnnee {
+        private final String anneeScolaire;
+        private final LocalDate origine;
+        private final Map<Long, BitmapsEleve> eleves = new ConcurrentHashMap<>();
+
+        private IndexAnnee(String anneeScolaire, LocalDate origine) {
+            this.anneeScolaire = anneeScolaire;
+            this.origine = origine;
+        }
+
+        /**
+         * Index d'une année "2024-2025" (origine au 1er août 2024), ou null si le libellé est invalide.
+         */
+        static IndexAnnee creer(String anneeScolaire) {
+            try {
+                int premiereAnnee = Integer.parseInt(anneeScolaire.substring(0, 4));
+                return new IndexAnnee(anneeScolaire, LocalDate.of(premiereAnnee, 8, 1));
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        int jour(LocalDate date) {
+            long jour = ChronoUnit.DAYS.between(origine, date);
+            return jour >= 0 && jour < JOURS_MAX ? (int) jour : -1;
+        }
+
+        void poser(JourEleve cle, EtatJour etat) {
+            int jour = jour(cle.date());
+            if (jour < 0) {
+                return;
+            }
+            BitmapsEleve bitmaps = eleves.computeIfAbsent(cle.eleveId(), k -> new BitmapsEleve());
+            synchronized (bitmaps) {
+                bitmaps.saisis.set(jour);
+                bitmaps.absents.set(jour, etat.absent);
+                bitmaps.retards.set(jour, etat.retard);
+                bitmaps.justifies.set(jour, etat.absent && !etat.absenceNonJustifiee);
+            }
+        }
+
+        void effacer(JourEleve cle) {
+            int jour = jour(cle.date());
+            BitmapsEleve bitmaps = eleves.get(cle.eleveId());
+            if (jour < 0 || bitmaps == null) {
+                return;
+            }
+            synchronized (bitmaps) {
+                bitmaps.saisis.clear(jour);
+                bitmaps.absents.clear(jour);
+                bitmaps.retards.clear(jour);
+                bitmaps.justifies.clear(jour);
+            }
+        }
+    }
+
+    private static final class BitmapsEleve {
+        private final BitSet saisis = new BitSet(JOURS_MAX);
+        private final BitSet absents = new BitSet(JOURS_MAX);
+        private final BitSet retards = new BitSet(JOURS_MAX);
+        private final BitSet justifies = new BitSet(JOURS_MAX);
+
+        /**
+         * Plus longue série de jours saisis consécutifs en absence, et série en cours
+         * (les jours sans saisie, week-ends compris, n'interrompent pas une série).
+         */
+        int[] seriesAbsences() {
+            int max = 0;
+            int courante = 0;
+            for (int jour = saisis.nextSetBit(0); jour >= 0; jour = saisis.nextSetBit(jour + 1)) {
+                courante = absents.get(jour) ? courante + 1 : 0;
+                max = Math.max(max, courante);
+            }
+            return new int[]{max, courante};
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.sms.service;
+
+import com.sms.repository.SeanceRepository;
+import com.sms.service.SeanceModifieeEvent.ChangementSeance;
+import com.sms.service.SeanceModifieeEvent.EtatSeance;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index en mémoire des créneaux des séances actives, par ressource (salle,
+ * professeur, classe), année scolaire et jour : les séances de deux années
+ * différentes ne sont jamais en conflit. Les créneaux d'une ressource sur un jour
+ * sont des tableaux triés par heure de début, avec le maximum courant des
+ * heures de fin : la recherche des chevauchements se fait par dichotomie, sans
+ * lire la table seances.
+ *
+ * L'index est chargé au démarrage puis tenu à jour après chaque commit
+ * d'écriture de séances (SeanceModifieeEvent).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndexSeancesService {
+
+    public enum Ressource {
+        SALLE,
+        PROFESSEUR,
+        CLASSE
+    }
+
+    private final SeanceRepository seanceRepository;
+
+    private final Map<Cle, Creneaux> creneaux = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            reconstruire();
+        } catch (DataAccessException e) {
+            log.warn("Chargement de l'index des séances impossible au démarrage : {}", e.getMessage());
+        }
+    }
+
+    public synchronized int reconstruire() {
+        long debut = System.nanoTime();
+        Map<Cle, List<EtatSeance>> parCle = new HashMap<>();
+        List<Object[]> lignes = seanceRepository.findEtatsActifs();
+        for (Object[] ligne : lignes) {
+            EtatSeance etat = EtatSeance.depuisLigne(ligne);
+            for (Cle cle : cles(etat)) {
+                parCle.computeIfAbsent(cle, k -> new ArrayList<>()).add(etat);
+            }
+        }
+        creneaux.clear();
+        parCle.forEach((cle, seances) -> creneaux.put(cle, Creneaux.de(seances)));
+        log.info("Index des séances chargé : {} séances actives, {} créneaux ressource-jour en {} ms",
+                lignes.size(), creneaux.size(), (System.nanoTime() - debut) / 1_000_000);
+        return lignes.size();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public synchronized void surSeanceModifiee(SeanceModifieeEvent event) {
+        for (ChangementSeance changement : event.changements()) {
+            if (changement.avant() != null) {
+                for (Cle cle : cles(changement.avant())) {
+                    creneaux.computeIfPresent(cle, (k, c) -> c.sans(changement.avant().id()));
+                }
+            }
+            if (changement.apres() != null) {
+                for (Cle cle : cles(changement.apres())) {
+                    Creneaux existants = creneaux.get(cle);
+                    Creneaux autres = existants != null ? existants.sans(changement.apres().id()) : null;
+                    creneaux.put(cle, autres != null
+                            ? autres.avec(changement.apres())
+                            : Creneaux.de(List.of(changement.apres())));
+                }
+            }
+        }
+    }
+
+    /**
+     * Séances actives de la ressource ce jour-là, sur l'année scolaire, dont le
+     * créneau chevauche [heureDebut, heureFin[ ; deux séances qui se suivent ne
+     * se chevauchent pas.
+     */
+    public List<EtatSeance> chevauchements(Ressource ressource, Long ressourceId, String anneeScolaire,
+                                           Integer jourSemaine, LocalTime heureDebut, LocalTime heureFin) {
+        if (ressourceId == null || jourSemaine == null) {
+            return Collections.emptyList();
+        }
+        Creneaux c = creneaux.get(new Cle(ressource, ressourceId, anneeScolaire, jourSemaine));
+        return c != null ? c.chevauchant(minutes(heureDebut), minutes(heureFin)) : Collections.emptyList();
+    }
+
+    private static int minutes(LocalTime heure) {
+        return heure.toSecondOfDay() / 60;
+    }
+
+    private static List<Cle> cles(EtatSeance etat) {
+        if (etat.jourSemaine() == null || etat.heureDebut() == null || etat.heureFin() == null) {
+            return Collections.emptyList();
+        }
+        List<Cle> cles = new ArrayList<>(3);
+        if (etat.salleId() != null) {
+            cles.add(new Cle(Ressource.SALLE, etat.salleId(), etat.anneeScolaire(), etat.jourSemaine()));
+        }
+        if (etat.professeurId() != null) {
+            cles.add(new Cle(Ressource.PROFESSEUR, etat.professeurId(), etat.anneeScolaire(), etat.jourSemaine()));
+        }
+        if (etat.classeId() != null) {
+            cles.add(new Cle(Ressource.CLASSE, etat.classeId(), etat.anneeScolaire(), etat.jourSemaine()));
+        }
+        return cles;
+    }
+
+    private record Cle(Ressource ressource, long id, String anneeScolaire, int jour) {
+    }
+
+    /**
+     * Créneaux immuables d'une ressource sur un jour, triés par début ;
+     * finsMax[i] est la plus grande fin parmi les créneaux 0..i.
+     */
+    private static final class Creneaux {
+        private final int[] debuts;
+        private final int[] fins;
+        private final int[] finsMax;
+        private final EtatSeance[] seances;
+
+        private Creneaux(EtatSeance[] seances) {
+            Arrays.sort(seances, Comparator.comparing(EtatSeance::heureDebut).thenComparing(EtatSeance::heureFin));
+            this.seances = seances;
+            this.debuts = new int[seances.length];
+            this.fins = new int[seances.length];
+            this.finsMax = new int[seances.length];
+            for (int i = 0; i < seances.length; i++) {
+                debuts[i] = minutes(seances[i].heureDebut());
+                fins[i] = minutes(seances[i].heureFin());
+                finsMax[i] = i > 0 ? Math.max(finsMax[i - 1], fins[i]) : fins[i];
+            }
+        }
+
+        static Creneaux de(List<EtatSeance> seances) {
+            return new Creneaux(seances.toArray(new EtatSeance[0]));
+        }
+
+        /**
+         * Créneaux tels que debut < fin demandée et fin > debut demandé.
+         */
+        List<EtatSeance> chevauchant(int debut, int fin) {
+            // Premier créneau commençant à fin ou après : aucun des suivants ne peut chevaucher
+            int bas = 0;
+            int haut = debuts.length;
+            while (bas < haut) {
+                int milieu = (bas + haut) >>> 1;
+                if (debuts[milieu] < fin) {
+                    bas = milieu + 1;
+                } else {
+                    haut = milieu;
+                }
+            }
+            List<EtatSeance> resultat = new ArrayList<>();
+            for (int i = bas - 1; i >= 0 && finsMax[i] > debut; i--) {
+                if (fins[i] > debut) {
+                    resultat.add(seances[i]);
+                }
+            }
+            Collections.reverse(resultat);
+            return resultat;
+        }
+
+        Creneaux avec(EtatSeance seance) {
+            EtatSeance[] copie = Arrays.copyOf(seances, seances.length + 1);
+            copie[seances.length] = seance;
+            return new Creneaux(copie);
+        }
+
+        /**
+         * Sans la séance, ou null s'il ne reste aucun créneau.
+         */
+        Creneaux sans(Long seanceId) {
+            EtatSeance[] restantes = Arrays.stream(seances)
+                    .filter(s -> !s.id().equals(seanceId))
+                    .toArray(EtatSeance[]::new);
+            if (restantes.length == seances.length) {
+                return this;
+            }
+            return restantes.length > 0 ? new Creneaux(restantes) : null;
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.MatiereRepository;
 import com.sms.repository.PeriodeRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +21,7 @@ public class MatiereService {
 
     private final MatiereRepository matiereRepository;
     private final PeriodeRepository periodeRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Matières - Simplifié (seulement id, nom, code)
     public List<MatiereDTO> getAllMatieres() {
@@ -91,13 +93,16 @@ public class MatiereService {
         periode.setOrdre(dto.getOrdre());
         periode.setActif(true);
 
-        return toPeriodeDTO(periodeRepository.save(periode));
+        Periode enregistree = periodeRepository.save(periode);
+        eventPublisher.publishEvent(new PeriodeModifieeEvent(enregistree.getAnneeScolaire()));
+        return toPeriodeDTO(enregistree);
     }
 
     @Transactional
     public PeriodeDTO updatePeriode(Long id, PeriodeDTO dto) {
         Periode periode = periodeRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Période non trouvée avec l'id: " + id));
+        String ancienneAnnee = periode.getAnneeScolaire();
 
         if (dto.getNom() != null) periode.setNom(dto.getNom());
         if (dto.getDateDebut() != null) periode.setDateDebut(dto.getDateDebut());
@@ -106,7 +111,12 @@ public class MatiereService {
         if (dto.getOrdre() != null) periode.setOrdre(dto.getOrdre());
         if (dto.getActif() != null) periode.setActif(dto.getActif());
 
-        return toPeriodeDTO(periodeRepository.save(periode));
+        Periode enregistree = periodeRepository.save(periode);
+        eventPublisher.publishEvent(new PeriodeModifieeEvent(enregistree.getAnneeScolaire()));
+        if (ancienneAnnee != null && !ancienneAnnee.equals(enregistree.getAnneeScolaire())) {
+            eventPublisher.publishEvent(new PeriodeModifieeEvent(ancienneAnnee));
+        }
+        return toPeriodeDTO(enregistree);
     }
 
     private MatiereDTO toMatiereDTO(Matiere matiere) {
@@ -0,0 +1,105 @@
+package com.sms.service;
+
+import com.sms.entity.MoyenneClasseMatiere;
+import com.sms.entity.Note;
+import com.sms.repository.MoyenneClasseMatiereJdbcRepository;
+import com.sms.repository.MoyenneClasseMatiereJdbcRepository.Delta;
+import com.sms.repository.MoyenneClasseMatiereRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Maintient les moyennes de classe par classe-matière et période.
+ * Chaque écriture de note se traduit par une variation (somme, nombre, absents)
+ * appliquée à l'agrégat, ce qui rend la lecture d'une moyenne de classe en O(1).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MoyenneClasseService {
+
+    private final MoyenneClasseMatiereRepository moyenneClasseMatiereRepository;
+    private final MoyenneClasseMatiereJdbcRepository moyenneClasseMatiereJdbcRepository;
+
+    /**
+     * Contribution d'une note à l'agrégat, ou null si la note n'est rattachée
+     * à aucune classe-matière ou période.
+     */
+    public ContributionNote contribution(Note note) {
+        if (note.getClasseMatiere() == null || note.getPeriode() == null) {
+            return null;
+        }
+        return new ContributionNote(
+                note.getClasseMatiere().getClasse().getId(),
+                note.getClasseMatiere().getId(),
+                note.getPeriode().getId(),
+                note.getValeur(),
+                Boolean.TRUE.equals(note.getAbsent()));
+    }
+
+    @Transactional
+    public void enregistrer(Collection<ContributionNote> retirees, Collection<ContributionNote> ajoutees) {
+        Map<List<Long>, Delta> deltas = new LinkedHashMap<>();
+        retirees.stream().filter(Objects::nonNull).forEach(c -> cumuler(deltas, c, -1));
+        ajoutees.stream().filter(Objects::nonNull).forEach(c -> cumuler(deltas, c, 1));
+        moyenneClasseMatiereJdbcRepository.appliquerDeltas(deltas.values());
+    }
+
+    @Transactional
+    public void ajouter(Note note) {
+        enregistrer(Collections.emptyList(), Collections.singletonList(contribution(note)));
+    }
+
+    @Transactional
+    public void retirer(ContributionNote contribution) {
+        enregistrer(Collections.singletonList(contribution), Collections.emptyList());
+    }
+
+    /**
+     * Moyennes de classe (notes des absents exclues) indexées par classe-matière.
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, BigDecimal> getMoyennesParClasseMatiere(Long periodeId, Collection<Long> classeMatiereIds) {
+        Map<Long, BigDecimal> moyennes = new HashMap<>();
+        if (classeMatiereIds.isEmpty()) {
+            return moyennes;
+        }
+        for (MoyenneClasseMatiere agregat :
+                moyenneClasseMatiereRepository.findByPeriodeIdAndClasseMatiereIdIn(periodeId, classeMatiereIds)) {
+            moyennes.put(agregat.getClasseMatiereId(), agregat.getMoyenne());
+        }
+        return moyennes;
+    }
+
+    /**
+     * Recalcule tous les agrégats depuis la table notes (réparation d'une dérive éventuelle).
+     */
+    @Transactional
+    public int reconstruire() {
+        long debut = System.nanoTime();
+        int lignes = moyenneClasseMatiereJdbcRepository.reconstruire();
+        log.info("Moyennes de classe reconstruites : {} agrégats en {} ms", lignes, (System.nanoTime() - debut) / 1_000_000);
+        return lignes;
+    }
+
+    private static void cumuler(Map<List<Long>, Delta> deltas, ContributionNote c, int signe) {
+        BigDecimal somme = c.absent() ? BigDecimal.ZERO : c.valeur().multiply(BigDecimal.valueOf(signe));
+        int nombre = c.absent() ? 0 : signe;
+        int absents = c.absent() ? signe : 0;
+        deltas.merge(List.of(c.classeMatiereId(), c.periodeId()),
+                new Delta(c.classeId(), c.classeMatiereId(), c.periodeId(), somme, nombre, absents),
+                (a, b) -> new Delta(a.classeId(), a.classeMatiereId(), a.periodeId(),
+                        a.somme().add(b.somme()), a.nombre() + b.nombre(), a.absents() + b.absents()));
+    }
+
+    /**
+     * Valeurs d'une note prises en compte par l'agrégat.
+     */
+    public record ContributionNote(Long classeId, Long classeMatiereId, Long periodeId, BigDecimal valeur, boolean absent) {
+    }
+}
@@ -1,24 +1,31 @@
 package com.sms.service;
 
 import com.sms.dto.BulletinDTO;
+import com.sms.dto.ClassementDTO;
+import com.sms.dto.NoteBulletinLigneDTO;
 import com.sms.dto.NoteCreateDTO;
 import com.sms.dto.NoteDTO;
+import com.sms.dto.NoteExistanteDTO;
 import com.sms.dto.NoteMatiereDTO;
 import com.sms.entity.*;
 import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.*;
+import com.sms.service.MoyenneClasseService.ContributionNote;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class NoteService {
 
     private final NoteRepository noteRepository;
@@ -29,11 +36,18 @@ public class NoteService {
     private final BulletinRepository bulletinRepository;
     private final ClasseRepository classeRepository;
     private final ClasseMatiereRepository classeMatiereRepository;
+    private final BulletinService bulletinService;
+    private final NoteJdbcRepository noteJdbcRepository;
+    private final MoyenneClasseService moyenneClasseService;
+    private final NoteArchiveRepository noteArchiveRepository;
+    private final ArchivageService archivageService;
+
+    public List<NoteDTO> getNotesApres(Long apresId, int limite) {
+        return noteRepository.findDTOApres(apresId != null ? apresId : 0L, Limit.of(limite));
+    }
 
-    public List<NoteDTO> getAllNotes() {
-        return noteRepository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    public long countNotes() {
+        return noteRepository.count();
     }
 
     public NoteDTO getNoteById(Long id) {
@@ -42,22 +56,42 @@ public class NoteService {
         return toDTO(note);
     }
 
+    // Les lectures qui peuvent porter sur une année archivée interrogent aussi notes_archive
+
     public List<NoteDTO> getNotesByEleve(Long eleveId) {
-        return noteRepository.findByEleveId(eleveId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<NoteDTO> notes = noteRepository.findDTOByEleveId(eleveId);
+        return archivageService.aDesArchives()
+                ? archivesPuis(noteArchiveRepository.findDTOByEleveId(eleveId), notes)
+                : notes;
     }
 
     public List<NoteDTO> getNotesByEleveAndPeriode(Long eleveId, Long periodeId) {
-        return noteRepository.findByEleveIdAndPeriodeId(eleveId, periodeId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<NoteDTO> notes = noteRepository.findDTOByEleveIdAndPeriodeId(eleveId, periodeId);
+        return periodeArchivee(periodeId)
+                ? archivesPuis(noteArchiveRepository.findDTOByEleveIdAndPeriodeId(eleveId, periodeId), notes)
+                : notes;
     }
 
     public List<NoteDTO> getNotesByMatiere(Long matiereId) {
-        return noteRepository.findByMatiereId(matiereId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<NoteDTO> notes = noteRepository.findDTOByMatiereId(matiereId);
+        return archivageService.aDesArchives()
+                ? archivesPuis(noteArchiveRepository.findDTOByMatiereId(matiereId), notes)
+                : notes;
+    }
+
+    private boolean periodeArchivee(Long periodeId) {
+        return archivageService.aDesArchives() && periodeRepository.findById(periodeId)
+                .map(periode -> archivageService.estArchivee(periode.getAnneeScolaire()))
+                .orElse(false);
+    }
+
+    private static List<NoteDTO> archivesPuis(List<NoteDTO> archives, List<NoteDTO> notes) {
+        if (archives.isEmpty()) {
+            return notes;
+        }
+        List<NoteDTO> toutes = new ArrayList<>(archives);
+        toutes.addAll(notes);
+        return toutes;
     }
 
     @Transactional
@@ -65,23 +99,35 @@ public class NoteService {
         validateNote(dto);
         Note note = new Note();
         mapDtoToEntity(dto, note);
-        return toDTO(noteRepository.save(note));
+        Note saved = noteRepository.save(note);
+        moyenneClasseService.ajouter(saved);
+        return toDTO(saved);
     }
 
     @Transactional
     public NoteDTO updateNote(Long id, NoteCreateDTO dto) {
         Note note = noteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Note non trouvée avec l'id: " + id));
+        ContributionNote avant = moyenneClasseService.contribution(note);
         mapDtoToEntity(dto, note);
-        return toDTO(noteRepository.save(note));
+        Note saved = noteRepository.save(note);
+        moyenneClasseService.enregistrer(
+                Collections.singletonList(avant), Collections.singletonList(moyenneClasseService.contribution(saved)));
+        return toDTO(saved);
     }
 
     @Transactional
     public void deleteNote(Long id) {
-        if (!noteRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Note non trouvée avec l'id: " + id);
-        }
-        noteRepository.deleteById(id);
+        Note note = noteRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Note non trouvée avec l'id: " + id));
+        ContributionNote contribution = moyenneClasseService.contribution(note);
+        noteRepository.delete(note);
+        moyenneClasseService.retirer(contribution);
+    }
+
+    @Transactional
+    public int reconstruireMoyennesClasse() {
+        return moyenneClasseService.reconstruire();
     }
 
     // Bulletins
@@ -104,65 +150,18 @@ public class NoteService {
         dto.setPeriodeId(periodeId);
         dto.setPeriode(periode.getNom());
 
-        // Calculer les notes par matière
-        List<Note> notes = noteRepository.findByEleveIdAndPeriodeId(eleveId, periodeId);
-
-        // Grouper par matière (utiliser ClasseMatiere en priorité)
-        Map<Long, List<Note>> notesByMatiere = notes.stream()
-                .filter(n -> n.getClasseMatiere() != null) // Ignorer les notes sans ClasseMatiere
-                .collect(Collectors.groupingBy(n -> n.getClasseMatiere().getMatiereNiveau().getMatiere().getId()));
-
-        List<NoteMatiereDTO> notesMatieres = new ArrayList<>();
-        BigDecimal sommeNotesPonderees = BigDecimal.ZERO;
-        int sommeCoefficients = 0;
-
-        for (Map.Entry<Long, List<Note>> entry : notesByMatiere.entrySet()) {
-            Note firstNote = entry.getValue().get(0);
-            ClasseMatiere cm = firstNote.getClasseMatiere();
-            Matiere matiere = cm.getMatiereNiveau().getMatiere();
-
-            // RÉCUPÉRER LE VRAI COEFFICIENT
-            int coefficient = cm.getCoefficient();
-
-            // Calculer la moyenne en excluant les absents
-            List<Note> notesPresents = entry.getValue().stream()
-                    .filter(n -> !Boolean.TRUE.equals(n.getAbsent()))
-                    .collect(Collectors.toList());
-
-            BigDecimal moyenne = BigDecimal.ZERO;
-            if (!notesPresents.isEmpty()) {
-                BigDecimal somme = notesPresents.stream()
-                        .map(Note::getValeur)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-                moyenne = somme.divide(BigDecimal.valueOf(notesPresents.size()), 2, RoundingMode.HALF_UP);
-            }
+        // Notes par matière, lues dans l'archive si l'année de la période est archivée
+        List<NoteBulletinLigneDTO> lignes = archivageService.estArchivee(periode.getAnneeScolaire())
+                ? noteArchiveRepository.findLignesBulletinByElevesAndPeriode(List.of(eleveId), periodeId)
+                : noteRepository.findLignesBulletinByEleveAndPeriode(eleveId, periodeId);
 
-            BigDecimal moyenneClasse = noteRepository.getMoyenneClasseByPeriode(
-                    eleve.getClasse() != null ? eleve.getClasse().getId() : 0L, periodeId);
-
-            NoteMatiereDTO noteMatiere = NoteMatiereDTO.builder()
-                    .matiereId(matiere.getId())
-                    .matiere(matiere.getNom())
-                    .coefficient(coefficient) // Vrai coefficient
-                    .moyenne(moyenne)
-                    .moyenneClasse(moyenneClasse)
-                    .build();
-            notesMatieres.add(noteMatiere);
-
-            // Calcul pondéré
-            sommeNotesPonderees = sommeNotesPonderees.add(moyenne.multiply(BigDecimal.valueOf(coefficient)));
-            sommeCoefficients += coefficient;
-        }
+        // Moyennes de classe lues dans l'agrégat maintenu, en une seule requête
+        Map<Long, BigDecimal> moyennesClasse = moyenneClasseService.getMoyennesParClasseMatiere(periodeId,
+                lignes.stream().map(NoteBulletinLigneDTO::getClasseMatiereId).collect(Collectors.toSet()));
 
+        List<NoteMatiereDTO> notesMatieres = bulletinService.calculerNotesMatieres(lignes, moyennesClasse);
         dto.setNotesMatieres(notesMatieres);
-
-        // Moyenne générale pondérée
-        BigDecimal moyenneGenerale = BigDecimal.ZERO;
-        if (sommeCoefficients > 0) {
-            moyenneGenerale = sommeNotesPonderees.divide(
-                    BigDecimal.valueOf(sommeCoefficients), 2, RoundingMode.HALF_UP);
-        }
-        dto.setMoyenneGenerale(moyenneGenerale);
+        dto.setMoyenneGenerale(bulletinService.calculerMoyenneGenerale(notesMatieres));
 
         // Remplir depuis le bulletin existant si disponible
         if (bulletinOpt.isPresent()) {
@@ -199,21 +198,30 @@ public class NoteService {
         bulletin.setDateGeneration(LocalDate.now());
         bulletin.setAnneeScolaire(periode.getAnneeScolaire());
 
-        // Calculer le rang dans la classe
+        bulletinRepository.save(bulletin);
+
+        // Calculer le rang dans la classe (les autres bulletins existants sont mis à jour en lot)
         if (eleve.getClasse() != null) {
-            List<Bulletin> bulletinsClasse = bulletinRepository.findByClasseAndPeriode(
-                    eleve.getClasse().getId(), periodeId);
-            bulletin.setTotalEleves(bulletinsClasse.size() + 1);
+            Map<Long, Integer> rangs = bulletinService.classerClasse(eleve.getClasse().getId(), periodeId,
+                    BulletinService.ModeClassement.COMPETITION, false);
+            bulletin.setRang(rangs.get(eleveId));
+            bulletin.setTotalEleves(rangs.size());
         }
-
-        bulletinRepository.save(bulletin);
         return getBulletinEleve(eleveId, periodeId);
     }
 
     public List<BulletinDTO> getBulletinsClasse(Long classeId, Long periodeId) {
-        return bulletinRepository.findByClasseAndPeriode(classeId, periodeId).stream()
-                .map(b -> getBulletinEleve(b.getEleve().getId(), periodeId))
-                .collect(Collectors.toList());
+        return bulletinService.getBulletinsClasse(classeId, periodeId);
+    }
+
+    @Transactional
+    public ClassementDTO classerClasse(Long classeId, Long periodeId, BulletinService.ModeClassement mode) {
+        return bulletinService.classerClasse(classeId, periodeId, mode);
+    }
+
+    @Transactional
+    public ClassementDTO classerPeriode(Long periodeId, BulletinService.ModeClassement mode) {
+        return bulletinService.classerPeriode(periodeId, mode);
     }
 
     public Map<String, Object> getStatsAcademiques(String anneeScolaire) {
@@ -226,29 +234,141 @@ public class NoteService {
 
     @Transactional
     public List<NoteDTO> createNotesBulk(List<NoteCreateDTO> dtos, boolean upsert) {
-        List<NoteDTO> result = new ArrayList<>();
+        long debut = System.nanoTime();
+        dtos.forEach(this::validateNote);
 
-        for (NoteCreateDTO dto : dtos) {
-            validateNote(dto);
+        Map<CleNote, NoteExistanteDTO> existantes = upsert ? chargerNotesExistantes(dtos) : Collections.emptyMap();
+        ReferencesNotes references = chargerReferences(dtos, existantes.values().stream()
+                .map(NoteExistanteDTO::getExamenId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
 
+        List<Note> notes = new ArrayList<>(dtos.size());
+        List<Note> aInserer = new ArrayList<>();
+        List<Note> aMettreAJour = new ArrayList<>();
+        List<ContributionNote> contributionsRetirees = new ArrayList<>();
+        Map<CleNote, Note> notesParCle = new HashMap<>();
+
+        for (NoteCreateDTO dto : dtos) {
             Note note;
             if (upsert && dto.getClasseMatiereId() != null) {
-                // Chercher si la note existe déjà
-                note = noteRepository.findByEleveIdAndClasseMatiereIdAndPeriodeIdAndType(
-                    dto.getEleveId(),
-                    dto.getClasseMatiereId(),
-                    dto.getPeriodeId(),
-                    dto.getType()
-                ).orElse(new Note());
+                // Une même clé soumise plusieurs fois ne produit qu'une seule ligne (la dernière valeur l'emporte)
+                CleNote cle = new CleNote(dto.getEleveId(), dto.getClasseMatiereId(), dto.getPeriodeId(), dto.getType());
+                note = notesParCle.get(cle);
+                if (note == null) {
+                    note = new Note();
+                    NoteExistanteDTO existante = existantes.get(cle);
+                    if (existante != null) {
+                        note.setId(existante.getId());
+                        note.setExamen(references.examens.get(existante.getExamenId()));
+                        aMettreAJour.add(note);
+                        ClasseMatiere cm = references.classeMatieres.get(existante.getClasseMatiereId());
+                        contributionsRetirees.add(new ContributionNote(cm.getClasse().getId(), cm.getId(),
+                                existante.getPeriodeId(), existante.getValeur(), Boolean.TRUE.equals(existante.getAbsent())));
+                    } else {
+                        aInserer.add(note);
+                    }
+                    notesParCle.put(cle, note);
+                }
             } else {
                 note = new Note();
+                aInserer.add(note);
+            }
+
+            mapDtoToEntity(dto, note, references);
+            notes.add(note);
+        }
+
+        noteJdbcRepository.insertAll(aInserer);
+        noteJdbcRepository.updateAll(aMettreAJour);
+
+        List<ContributionNote> contributionsAjoutees = new ArrayList<>();
+        aInserer.forEach(n -> contributionsAjoutees.add(moyenneClasseService.contribution(n)));
+        aMettreAJour.forEach(n -> contributionsAjoutees.add(moyenneClasseService.contribution(n)));
+        moyenneClasseService.enregistrer(contributionsRetirees, contributionsAjoutees);
+
+        log.info("Import de {} notes ({} insérées, {} mises à jour) en {} ms",
+                dtos.size(), aInserer.size(), aMettreAJour.size(), (System.nanoTime() - debut) / 1_000_000);
+
+        return notes.stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    private Map<CleNote, NoteExistanteDTO> chargerNotesExistantes(List<NoteCreateDTO> dtos) {
+        List<NoteCreateDTO> avecClasseMatiere = dtos.stream()
+                .filter(dto -> dto.getClasseMatiereId() != null)
+                .collect(Collectors.toList());
+        if (avecClasseMatiere.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<CleNote, NoteExistanteDTO> existantes = new HashMap<>();
+        noteRepository.findExistantesByCles(
+                ids(avecClasseMatiere, NoteCreateDTO::getEleveId),
+                ids(avecClasseMatiere, NoteCreateDTO::getClasseMatiereId),
+                ids(avecClasseMatiere, NoteCreateDTO::getPeriodeId))
+                .forEach(n -> existantes.putIfAbsent(
+                        new CleNote(n.getEleveId(), n.getClasseMatiereId(), n.getPeriodeId(), n.getType()), n));
+        return existantes;
+    }
+
+    /**
+     * Résout en une requête IN par table toutes les entités référencées par les notes.
+     */
+    private ReferencesNotes chargerReferences(Collection<NoteCreateDTO> dtos, Set<Long> autresExamenIds) {
+        ReferencesNotes references = new ReferencesNotes();
+
+        Set<Long> eleveIds = ids(dtos, NoteCreateDTO::getEleveId);
+        if (!eleveIds.isEmpty()) {
+            eleveRepository.findAllById(eleveIds).forEach(e -> references.eleves.put(e.getId(), e));
+        }
+
+        Set<Long> classeMatiereIds = ids(dtos, NoteCreateDTO::getClasseMatiereId);
+        if (!classeMatiereIds.isEmpty()) {
+            classeMatiereRepository.findAllWithMatiereByIdIn(classeMatiereIds)
+                    .forEach(cm -> references.classeMatieres.put(cm.getId(), cm));
+        }
+
+        // Compatibilité ascendante : matiereId fourni sans classeMatiereId
+        List<NoteCreateDTO> sansClasseMatiere = dtos.stream()
+                .filter(dto -> dto.getClasseMatiereId() == null && dto.getMatiereId() != null)
+                .collect(Collectors.toList());
+        if (!sansClasseMatiere.isEmpty()) {
+            matiereRepository.findAllById(ids(sansClasseMatiere, NoteCreateDTO::getMatiereId))
+                    .forEach(m -> references.matieres.put(m.getId(), m));
+            Set<Long> classeIds = sansClasseMatiere.stream()
+                    .map(dto -> references.eleves.get(dto.getEleveId()))
+                    .filter(e -> e != null && e.getClasse() != null)
+                    .map(e -> e.getClasse().getId())
+                    .collect(Collectors.toSet());
+            if (!classeIds.isEmpty()) {
+                classeMatiereRepository.findAllWithMatiereByClasseIdIn(classeIds).forEach(cm ->
+                        references.classeMatieresParClasse
+                                .computeIfAbsent(cm.getClasse().getId(), k -> new ArrayList<>())
+                                .add(cm));
             }
+        }
+
+        Set<Long> examenIds = new HashSet<>(autresExamenIds);
+        examenIds.addAll(ids(dtos, NoteCreateDTO::getExamenId));
+        if (!examenIds.isEmpty()) {
+            examenRepository.findAllById(examenIds).forEach(e -> references.examens.put(e.getId(), e));
+        }
 
-            mapDtoToEntity(dto, note);
-            result.add(toDTO(noteRepository.save(note)));
+        Set<Long> periodeIds = ids(dtos, NoteCreateDTO::getPeriodeId);
+        if (!periodeIds.isEmpty()) {
+            periodeRepository.findAllById(periodeIds).forEach(p -> references.periodes.put(p.getId(), p));
         }
 
-        return result;
+        return references;
+    }
+
+    private static Set<Long> ids(Collection<NoteCreateDTO> dtos, Function<NoteCreateDTO, Long> extracteur) {
+        return dtos.stream()
+                .map(extracteur)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
     }
 
     private void validateNote(NoteCreateDTO dto) {
@@ -271,30 +391,42 @@ public class NoteService {
     }
 
     private void mapDtoToEntity(NoteCreateDTO dto, Note note) {
+        mapDtoToEntity(dto, note, chargerReferences(List.of(dto), Collections.emptySet()));
+    }
+
+    private void mapDtoToEntity(NoteCreateDTO dto, Note note, ReferencesNotes references) {
         // Eleve
         if (dto.getEleveId() != null) {
-            note.setEleve(eleveRepository.findById(dto.getEleveId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Élève non trouvé")));
+            Eleve eleve = references.eleves.get(dto.getEleveId());
+            if (eleve == null) {
+                throw new ResourceNotFoundException("Élève non trouvé");
+            }
+            note.setEleve(eleve);
         }
 
         // ClasseMatiere (PRIORITAIRE)
         if (dto.getClasseMatiereId() != null) {
-            ClasseMatiere cm = classeMatiereRepository.findById(dto.getClasseMatiereId())
-                    .orElseThrow(() -> new ResourceNotFoundException("ClasseMatiere non trouvée"));
+            ClasseMatiere cm = references.classeMatieres.get(dto.getClasseMatiereId());
+            if (cm == null) {
+                throw new ResourceNotFoundException("ClasseMatiere non trouvée");
+            }
             note.setClasseMatiere(cm);
             // Mettre à jour matiere pour compatibilité
             note.setMatiere(cm.getMatiereNiveau().getMatiere());
         }
         // Fallback pour compatibilité ascendante (si matiereId fourni sans classeMatiereId)
         else if (dto.getMatiereId() != null) {
-            Matiere matiere = matiereRepository.findById(dto.getMatiereId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Matière non trouvée"));
+            Matiere matiere = references.matieres.get(dto.getMatiereId());
+            if (matiere == null) {
+                throw new ResourceNotFoundException("Matière non trouvée");
+            }
             note.setMatiere(matiere);
 
             // Essayer de trouver le ClasseMatiere correspondant
             Eleve eleve = note.getEleve();
             if (eleve != null && eleve.getClasse() != null) {
-                List<ClasseMatiere> cms = classeMatiereRepository.findByClasseId(eleve.getClasse().getId());
+                List<ClasseMatiere> cms = references.classeMatieresParClasse
+                        .getOrDefault(eleve.getClasse().getId(), Collections.emptyList());
                 for (ClasseMatiere cm : cms) {
                     if (cm.getMatiereNiveau().getMatiere().getId().equals(matiere.getId())) {
                         note.setClasseMatiere(cm);
@@ -306,12 +438,12 @@ public class NoteService {
 
         // Examen
         if (dto.getExamenId() != null) {
-            note.setExamen(examenRepository.findById(dto.getExamenId()).orElse(null));
+            note.setExamen(references.examens.get(dto.getExamenId()));
         }
 
         // Periode
         if (dto.getPeriodeId() != null) {
-            note.setPeriode(periodeRepository.findById(dto.getPeriodeId()).orElse(null));
+            note.setPeriode(references.periodes.get(dto.getPeriodeId()));
         }
 
         // Valeurs
@@ -320,6 +452,7 @@ public class NoteService {
         note.setDateNote(dto.getDateNote() != null ? dto.getDateNote() : LocalDate.now());
         note.setCommentaire(dto.getCommentaire());
         note.setAnneeScolaire(dto.getAnneeScolaire() != null ? dto.getAnneeScolaire() : "2024-2025");
+        archivageService.verifierModifiable(note.getAnneeScolaire());
         note.setAbsent(dto.getAbsent() != null ? dto.getAbsent() : false);
     }
 
@@ -354,4 +487,22 @@ public class NoteService {
 
         return dto;
     }
+
+    /**
+     * Clé d'upsert d'une note : élève, classe-matière, période et type.
+     */
+    private record CleNote(Long eleveId, Long classeMatiereId, Long periodeId, String type) {
+    }
+
+    /**
+     * Entités référencées par un lot de notes, indexées par id.
+     */
+    private static class ReferencesNotes {
+        private final Map<Long, Eleve> eleves = new HashMap<>();
+        private final Map<Long, ClasseMatiere> classeMatieres = new HashMap<>();
+        private final Map<Long, List<ClasseMatiere>> classeMatieresParClasse = new HashMap<>();
+        private final Map<Long, Matiere> matieres = new HashMap<>();
+        private final Map<Long, Examen> examens = new HashMap<>();
+        private final Map<Long, Periode> periodes = new HashMap<>();
+    }
 }
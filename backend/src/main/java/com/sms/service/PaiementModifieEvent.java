@@ -0,0 +1,10 @@
+package com.sms.service;
+
+import java.util.Set;
+
+/**
+ * Publié par PaiementService à chaque écriture de paiements, avec les années
+ * scolaires touchées (avant et après modification).
+ */
+public record PaiementModifieEvent(Set<String> anneesScolaires) {
+}
@@ -2,43 +2,95 @@ package com.sms.service;
 
 import com.sms.dto.PaiementCreateDTO;
 import com.sms.dto.PaiementDTO;
+import com.sms.dto.SoldeEleveDTO;
+import com.sms.dto.TransactionPaiementDTO;
 import com.sms.dto.TypeFraisDTO;
 import com.sms.entity.Eleve;
 import com.sms.entity.Paiement;
+import com.sms.entity.TransactionPaiement;
 import com.sms.entity.TypeFrais;
 import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.EleveRepository;
 import com.sms.repository.PaiementRepository;
+import com.sms.repository.SoldeEleveRepository;
+import com.sms.repository.TransactionPaiementJdbcRepository;
+import com.sms.repository.TransactionPaiementRepository;
 import com.sms.repository.TypeFraisRepository;
+import com.sms.service.SoldeEleveService.ContributionPaiement;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PaiementService {
 
+    // Essais d'un encaissement en conflit avec un encaissement concurrent sur le même paiement
+    private static final int TENTATIVES_MAX = 5;
+
     private final PaiementRepository paiementRepository;
     private final EleveRepository eleveRepository;
     private final TypeFraisRepository typeFraisRepository;
+    private final SoldeEleveRepository soldeEleveRepository;
+    private final SoldeEleveService soldeEleveService;
+    private final PaiementStatsService paiementStatsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionPaiementRepository transactionPaiementRepository;
+    private final TransactionPaiementJdbcRepository transactionPaiementJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
 
-    public List<PaiementDTO> getAllPaiements() {
-        return paiementRepository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    /**
+     * Reprend dans le journal les montants payés enregistrés avant sa création.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiserJournal() {
+        try {
+            if (transactionPaiementJdbcRepository.doitEtreInitialise()) {
+                int reprises = transactionPaiementJdbcRepository.reprendreMontantsPayes();
+                log.info("Journal des paiements initialisé : {} écritures de reprise", reprises);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Initialisation du journal des paiements impossible : {}", e.getMessage());
+        }
+    }
+
+    public List<PaiementDTO> getPaiementsApres(Long apresId, int limite) {
+        return paiementRepository.findDTOApres(apresId != null ? apresId : 0L, Limit.of(limite));
+    }
+
+    public long countPaiements() {
+        return paiementRepository.count();
     }
 
     public List<PaiementDTO> getPaiementsByEleve(Long eleveId) {
-        return paiementRepository.findByEleveId(eleveId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return paiementRepository.findDTOByEleveId(eleveId);
+    }
+
+    public List<PaiementDTO> getPaiementsByReference(String reference) {
+        return paiementRepository.findDTOByReferencePaiement(reference);
     }
 
     public PaiementDTO getPaiementById(Long id) {
@@ -55,7 +107,7 @@ public class PaiementService {
         Paiement paiement = new Paiement();
         paiement.setEleve(eleve);
         paiement.setMontant(dto.getMontant());
-        paiement.setMontantPaye(dto.getMontantPaye() != null ? dto.getMontantPaye() : BigDecimal.ZERO);
+        paiement.setMontantPaye(BigDecimal.ZERO);
         paiement.setModePaiement(dto.getModePaiement());
         paiement.setReferencePaiement(dto.getReferencePaiement());
         paiement.setDatePaiement(dto.getDatePaiement() != null ? dto.getDatePaiement() : LocalDate.now());
@@ -69,46 +121,226 @@ public class PaiementService {
                     .orElseThrow(() -> new ResourceNotFoundException("Type de frais non trouvé"));
             paiement.setTypeFrais(typeFrais);
         }
+        verifierFraisDisponibles(paiement);
 
-        return toDTO(paiementRepository.save(paiement));
+        Paiement enregistre = paiementRepository.save(paiement);
+        if (dto.getMontantPaye() != null && dto.getMontantPaye().signum() != 0) {
+            ajouterTransaction(enregistre, TransactionPaiement.VERSEMENT, dto.getMontantPaye(),
+                    dto.getModePaiement(), dto.getReferencePaiement(), null);
+            // Le reste et le statut sont recalculés (@PreUpdate) sur le montant payé du journal
+            enregistre = paiementRepository.saveAndFlush(enregistre);
+        }
+        soldeEleveService.ajouter(enregistre);
+        publierModification(enregistre);
+        return toDTO(enregistre);
     }
 
     @Transactional
     public PaiementDTO updatePaiement(Long id, PaiementCreateDTO dto) {
         Paiement paiement = paiementRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Paiement non trouvé avec l'id: " + id));
+        verifierNonAnnule(paiement);
+        ContributionPaiement avant = soldeEleveService.contribution(paiement);
 
         if (dto.getMontant() != null) paiement.setMontant(dto.getMontant());
-        if (dto.getMontantPaye() != null) paiement.setMontantPaye(dto.getMontantPaye());
+        if (dto.getMontantPaye() != null) {
+            // Le journal n'est pas réécrit : l'écart devient une écriture d'ajustement
+            BigDecimal ecart = dto.getMontantPaye().subtract(transactionPaiementRepository.sumMontantByPaiementId(id));
+            if (ecart.signum() != 0) {
+                ajouterTransaction(paiement, TransactionPaiement.AJUSTEMENT, ecart,
+                        dto.getModePaiement(), dto.getReferencePaiement(), null);
+            }
+        }
         if (dto.getModePaiement() != null) paiement.setModePaiement(dto.getModePaiement());
         if (dto.getReferencePaiement() != null) paiement.setReferencePaiement(dto.getReferencePaiement());
         if (dto.getDatePaiement() != null) paiement.setDatePaiement(dto.getDatePaiement());
         if (dto.getMoisConcerne() != null) paiement.setMoisConcerne(dto.getMoisConcerne());
         if (dto.getCommentaire() != null) paiement.setCommentaire(dto.getCommentaire());
+        verifierMontantPaye(paiement);
+        verifierFraisDisponibles(paiement);
 
-        return toDTO(paiementRepository.save(paiement));
+        // Reste et statut sont recalculés au flush (@PreUpdate), avant la construction du DTO
+        Paiement enregistre = paiementRepository.saveAndFlush(paiement);
+        soldeEleveService.enregistrer(Collections.singletonList(avant),
+                Collections.singletonList(soldeEleveService.contribution(enregistre)));
+        publierModification(enregistre);
+        return toDTO(enregistre);
     }
 
-    @Transactional
-    public PaiementDTO enregistrerPaiement(Long id, BigDecimal montantPaye, String modePaiement, String reference) {
+    /**
+     * Encaisse un versement : une écriture est ajoutée au journal et le montant
+     * payé en est recalculé. Un encaissement concurrent sur le même paiement fait
+     * échouer la vérification de version ; l'encaissement est alors rejoué dans
+     * une nouvelle transaction. Une clé d'idempotence déjà enregistrée renvoie
+     * le paiement sans encaisser une seconde fois.
+     */
+    public PaiementDTO enregistrerPaiement(Long id, BigDecimal montantPaye, String modePaiement, String reference,
+                                           String cleIdempotence) {
+        if (montantPaye == null || montantPaye.signum() <= 0) {
+            throw new IllegalArgumentException("Le montant encaissé doit être positif");
+        }
+        return avecEssais(id, cleIdempotence, () -> encaisser(id, montantPaye, modePaiement, reference, cleIdempotence));
+    }
+
+    private <T> T avecEssais(Long id, String cleIdempotence, Supplier<T> encaissement) {
+        for (int tentative = 1; ; tentative++) {
+            try {
+                return transactionTemplate.execute(statut -> encaissement.get());
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                // Violation d'unicité : la même clé vient d'être encaissée par une autre requête
+                boolean rejouable = e instanceof OptimisticLockingFailureException || cleIdempotence != null;
+                if (!rejouable || tentative >= TENTATIVES_MAX) {
+                    throw e;
+                }
+                log.debug("Encaissement du paiement {} en conflit, essai {}", id, tentative + 1);
+            }
+        }
+    }
+
+    /**
+     * Encaisse un lot de versements dans une seule transaction. Si le lot entre
+     * en conflit avec un encaissement concurrent ou échoue, chaque versement est
+     * rejoué seul (avec ses propres essais). Un versement dont la clé
+     * d'idempotence est déjà au journal n'est pas encaissé une seconde fois et
+     * est rendu à part.
+     */
+    public ResultatVersements enregistrerPaiements(List<Versement> versements) {
+        Set<Versement> dejaEncaisses = new HashSet<>();
+        try {
+            transactionTemplate.executeWithoutResult(statut -> versements.forEach(v -> {
+                if (!verser(v)) {
+                    dejaEncaisses.add(v);
+                }
+            }));
+            return new ResultatVersements(dejaEncaisses, Collections.emptyMap());
+        } catch (RuntimeException e) {
+            dejaEncaisses.clear();
+            log.debug("Lot de {} encaissements rejoué unitairement : {}", versements.size(), e.getMessage());
+        }
+        Map<Versement, String> echecs = new LinkedHashMap<>();
+        for (Versement v : versements) {
+            try {
+                if (!avecEssais(v.paiementId(), v.cleIdempotence(), () -> verser(v))) {
+                    dejaEncaisses.add(v);
+                }
+            } catch (RuntimeException e) {
+                echecs.put(v, e.getMessage());
+            }
+        }
+        return new ResultatVersements(dejaEncaisses, echecs);
+    }
+
+    private PaiementDTO encaisser(Long id, BigDecimal montant, String modePaiement, String reference,
+                                  String cleIdempotence) {
+        if (dejaEncaisse(id, cleIdempotence)) {
+            return getPaiementById(id);
+        }
+        return toDTO(ecrireVersement(id, montant, modePaiement, reference, cleIdempotence));
+    }
+
+    /**
+     * @return false si la clé du versement est déjà au journal (rien n'est écrit)
+     */
+    private boolean verser(Versement v) {
+        if (dejaEncaisse(v.paiementId(), v.cleIdempotence())) {
+            return false;
+        }
+        ecrireVersement(v.paiementId(), v.montant(), v.modePaiement(), v.reference(), v.cleIdempotence());
+        return true;
+    }
+
+    private boolean dejaEncaisse(Long id, String cleIdempotence) {
+        if (cleIdempotence == null) {
+            return false;
+        }
+        Optional<Long> paiementId = transactionPaiementRepository.findPaiementIdByCleIdempotence(cleIdempotence);
+        if (paiementId.isPresent() && !paiementId.get().equals(id)) {
+            throw new IllegalArgumentException("La clé d'idempotence " + cleIdempotence
+                    + " a déjà été utilisée pour le paiement " + paiementId.get());
+        }
+        return paiementId.isPresent();
+    }
+
+    private Paiement ecrireVersement(Long id, BigDecimal montant, String modePaiement, String reference,
+                                     String cleIdempotence) {
         Paiement paiement = paiementRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Paiement non trouvé avec l'id: " + id));
+        verifierNonAnnule(paiement);
+        ContributionPaiement avant = soldeEleveService.contribution(paiement);
 
-        BigDecimal nouveauMontantPaye = paiement.getMontantPaye().add(montantPaye);
-        paiement.setMontantPaye(nouveauMontantPaye);
+        ajouterTransaction(paiement, TransactionPaiement.VERSEMENT, montant, modePaiement, reference, cleIdempotence);
         paiement.setModePaiement(modePaiement);
         paiement.setReferencePaiement(reference);
         paiement.setDatePaiement(LocalDate.now());
 
-        return toDTO(paiementRepository.save(paiement));
+        Paiement enregistre = paiementRepository.saveAndFlush(paiement);
+        soldeEleveService.enregistrer(Collections.singletonList(avant),
+                Collections.singletonList(soldeEleveService.contribution(enregistre)));
+        publierModification(enregistre);
+        return enregistre;
+    }
+
+    public List<TransactionPaiementDTO> getTransactions(Long paiementId) {
+        if (!paiementRepository.existsById(paiementId)) {
+            throw new ResourceNotFoundException("Paiement non trouvé avec l'id: " + paiementId);
+        }
+        return transactionPaiementRepository.findDTOByPaiementId(paiementId);
     }
 
+    /**
+     * Annule le paiement au lieu de le supprimer : le journal est conservé et
+     * une écriture d'ajustement contrepasse les encaissements, le montant dû
+     * est ramené à zéro et le mois concerné libéré pour une nouvelle émission
+     * (montant et mois initiaux gardés en commentaire).
+     */
     @Transactional
     public void deletePaiement(Long id) {
-        if (!paiementRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Paiement non trouvé avec l'id: " + id);
+        Paiement paiement = paiementRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Paiement non trouvé avec l'id: " + id));
+        if (Paiement.ANNULE.equals(paiement.getStatut())) {
+            return;
+        }
+        ContributionPaiement avant = soldeEleveService.contribution(paiement);
+
+        BigDecimal encaisse = transactionPaiementRepository.sumMontantByPaiementId(id);
+        if (encaisse.signum() != 0) {
+            ajouterTransaction(paiement, TransactionPaiement.AJUSTEMENT, encaisse.negate(),
+                    paiement.getModePaiement(), paiement.getReferencePaiement(), null);
+        }
+        String annulation = "Annulé (montant initial " + paiement.getMontant()
+                + (paiement.getMoisConcerne() != null ? ", mois " + paiement.getMoisConcerne() : "") + ")";
+        paiement.setCommentaire(paiement.getCommentaire() != null
+                ? paiement.getCommentaire() + " - " + annulation : annulation);
+        paiement.setMontant(BigDecimal.ZERO);
+        paiement.setMoisConcerne(null);
+        paiement.setStatut(Paiement.ANNULE);
+
+        Paiement enregistre = paiementRepository.saveAndFlush(paiement);
+        soldeEleveService.enregistrer(Collections.singletonList(avant),
+                Collections.singletonList(soldeEleveService.contribution(enregistre)));
+        publierModification(enregistre);
+    }
+
+    /**
+     * Un seul paiement par élève, type de frais, année et mois (clé uk_paiements_frais_mois).
+     */
+    private void verifierFraisDisponibles(Paiement paiement) {
+        if (paiement.getTypeFrais() == null || paiement.getAnneeScolaire() == null || paiement.getMoisConcerne() == null) {
+            return;
+        }
+        paiementRepository.findIdByFraisEtMois(paiement.getEleve().getId(), paiement.getTypeFrais().getId(),
+                        paiement.getAnneeScolaire(), paiement.getMoisConcerne())
+                .filter(id -> !id.equals(paiement.getId()))
+                .ifPresent(id -> {
+                    throw new IllegalArgumentException("Les frais " + paiement.getTypeFrais().getCode() + " de "
+                            + paiement.getMoisConcerne() + " sont déjà émis pour cet élève (paiement " + id + ")");
+                });
+    }
+
+    private static void verifierNonAnnule(Paiement paiement) {
+        if (Paiement.ANNULE.equals(paiement.getStatut())) {
+            throw new IllegalArgumentException("Le paiement " + paiement.getId() + " est annulé");
         }
-        paiementRepository.deleteById(id);
     }
 
     // Types de frais
@@ -119,25 +351,80 @@ public class PaiementService {
     }
 
     public Map<String, Object> getStatsPaiements(String anneeScolaire) {
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("totalPaye", paiementRepository.countPaye());
-        stats.put("totalEnAttente", paiementRepository.countEnAttente());
-        stats.put("totalPartiel", paiementRepository.countPartiel());
-        stats.put("totalEncaisse", paiementRepository.getTotalEncaisse(anneeScolaire));
-        return stats;
+        return paiementStatsService.getStats(anneeScolaire);
     }
 
+    /**
+     * Solde d'un élève lu dans soldes_eleves ; sans ligne maintenue (aucun
+     * paiement sur l'année), une seule agrégation sur les paiements.
+     */
     public Map<String, BigDecimal> getSoldeEleve(Long eleveId, String anneeScolaire) {
         Map<String, BigDecimal> solde = new HashMap<>();
-        BigDecimal totalMontant = paiementRepository.getTotalMontantByEleve(eleveId, anneeScolaire);
-        BigDecimal totalPaye = paiementRepository.getTotalPayeByEleve(eleveId, anneeScolaire);
-        BigDecimal totalReste = paiementRepository.getTotalResteByEleve(eleveId, anneeScolaire);
+        soldeEleveRepository.findByEleveIdAndAnneeScolaire(eleveId, anneeScolaire).ifPresentOrElse(s -> {
+            solde.put("totalDu", s.getTotalDu());
+            solde.put("totalPaye", s.getTotalPaye());
+            solde.put("resteAPayer", s.getResteAPayer());
+        }, () -> {
+            SoldeEleveDTO s = paiementRepository.findSoldeByEleve(eleveId, anneeScolaire).orElse(null);
+            solde.put("totalDu", s != null ? s.getTotalDu() : BigDecimal.ZERO);
+            solde.put("totalPaye", s != null ? s.getTotalPaye() : BigDecimal.ZERO);
+            solde.put("resteAPayer", s != null ? s.getResteAPayer() : BigDecimal.ZERO);
+        });
+        return solde;
+    }
 
-        solde.put("totalDu", totalMontant != null ? totalMontant : BigDecimal.ZERO);
-        solde.put("totalPaye", totalPaye != null ? totalPaye : BigDecimal.ZERO);
-        solde.put("resteAPayer", totalReste != null ? totalReste : BigDecimal.ZERO);
+    /**
+     * Soldes des élèves d'une classe ou d'une liste d'élèves, en une seule agrégation groupée.
+     */
+    public List<SoldeEleveDTO> getSoldes(Long classeId, List<Long> eleveIds, String anneeScolaire) {
+        if (classeId != null) {
+            return paiementRepository.findSoldesByClasse(classeId, anneeScolaire);
+        }
+        if (eleveIds == null || eleveIds.isEmpty()) {
+            throw new IllegalArgumentException("classeId ou eleveIds est requis");
+        }
+        return paiementRepository.findSoldesByEleveIds(eleveIds, anneeScolaire);
+    }
 
-        return solde;
+    /**
+     * Ajoute une écriture au journal et recalcule le montant payé du paiement
+     * (reste et statut sont recalculés par Paiement à l'enregistrement).
+     */
+    private void ajouterTransaction(Paiement paiement, String nature, BigDecimal montant, String modePaiement,
+                                    String reference, String cleIdempotence) {
+        TransactionPaiement transaction = new TransactionPaiement();
+        transaction.setPaiement(paiement);
+        transaction.setNature(nature);
+        transaction.setMontant(montant);
+        transaction.setModePaiement(modePaiement);
+        transaction.setReference(reference);
+        transaction.setCleIdempotence(cleIdempotence);
+        transactionPaiementRepository.save(transaction);
+        paiement.setMontantPaye(transactionPaiementRepository.sumMontantByPaiementId(paiement.getId()));
+        verifierMontantPaye(paiement);
+    }
+
+    /**
+     * Le montant payé (somme du journal) reste entre zéro et le montant dû.
+     */
+    private void verifierMontantPaye(Paiement paiement) {
+        BigDecimal paye = paiement.getMontantPaye();
+        if (paye == null || paiement.getMontant() == null) {
+            return;
+        }
+        if (paye.signum() < 0) {
+            throw new IllegalArgumentException("Le montant payé ne peut pas être négatif");
+        }
+        if (paye.compareTo(paiement.getMontant()) > 0) {
+            throw new IllegalArgumentException("Le montant payé (" + paye + ") dépasse le montant dû ("
+                    + paiement.getMontant() + ")");
+        }
+    }
+
+    private void publierModification(Paiement paiement) {
+        if (paiement.getAnneeScolaire() != null) {
+            eventPublisher.publishEvent(new PaiementModifieEvent(Set.of(paiement.getAnneeScolaire())));
+        }
     }
 
     private PaiementDTO toDTO(Paiement paiement) {
@@ -181,4 +468,18 @@ public class PaiementService {
                 .code(typeFrais.getCode())
                 .build();
     }
+
+    /**
+     * Versement à encaisser sur un paiement.
+     */
+    public record Versement(Long paiementId, BigDecimal montant, String modePaiement, String reference,
+                            String cleIdempotence) {
+    }
+
+    /**
+     * Issue d'un lot : versements dont la clé était déjà au journal, et
+     * versements refusés avec la raison de l'échec. Les autres sont encaissés.
+     */
+    public record ResultatVersements(Set<Versement> dejaEncaisses, Map<Versement, String> echecs) {
+    }
 }
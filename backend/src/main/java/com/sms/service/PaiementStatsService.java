@@ -0,0 +1,133 @@
+package com.sms.service;
+
+import com.sms.dto.StatsPaiementLigneDTO;
+import com.sms.repository.PaiementRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tableau de bord des paiements d'une année scolaire, calculé en une seule
+ * agrégation groupée (statut, type de frais, mode, mois) puis gardé en cache
+ * quelques secondes. Le cache d'une année est invalidé après chaque écriture
+ * de paiement sur cette année.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaiementStatsService {
+
+    private static final String STATUT_PAYE = "Payé";
+    private static final String STATUT_EN_ATTENTE = "En attente";
+    private static final String STATUT_PARTIEL = "Partiel";
+
+    private final PaiementRepository paiementRepository;
+
+    @Value("${stats.paiements.ttl-secondes:60}")
+    private long ttlSecondes;
+
+    private final Map<String, Entree> cache = new ConcurrentHashMap<>();
+
+    // Incrémenté à chaque invalidation : un calcul commencé avant n'est pas mis en cache
+    private final AtomicLong generation = new AtomicLong();
+
+    public Map<String, Object> getStats(String anneeScolaire) {
+        Entree entree = cache.get(anneeScolaire);
+        if (entree != null && entree.expiration() > System.nanoTime()) {
+            return entree.stats();
+        }
+        long generationDebut = generation.get();
+        Map<String, Object> stats = calculer(anneeScolaire);
+        if (generation.get() == generationDebut) {
+            cache.put(anneeScolaire, new Entree(System.nanoTime() + ttlSecondes * 1_000_000_000L, stats));
+        }
+        return stats;
+    }
+
+    /**
+     * Après validation de l'écriture (ou immédiatement hors transaction).
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void surPaiementModifie(PaiementModifieEvent event) {
+        generation.incrementAndGet();
+        event.anneesScolaires().forEach(cache::remove);
+    }
+
+    private Map<String, Object> calculer(String anneeScolaire) {
+        Cumul total = new Cumul();
+        Map<String, Cumul> parStatut = new LinkedHashMap<>();
+        Map<String, Cumul> parTypeFrais = new LinkedHashMap<>();
+        Map<String, Cumul> parModePaiement = new LinkedHashMap<>();
+        Map<String, Cumul> parMois = new TreeMap<>();
+
+        for (StatsPaiementLigneDTO ligne : paiementRepository.findStatsByAnneeScolaire(anneeScolaire)) {
+            total.ajouter(ligne);
+            cumul(parStatut, ligne.getStatut() != null ? ligne.getStatut() : "Inconnu").ajouter(ligne);
+            cumul(parTypeFrais, ligne.getTypeFraisCode() != null ? ligne.getTypeFraisCode() : "Aucun").ajouter(ligne);
+            cumul(parModePaiement, ligne.getModePaiement() != null ? ligne.getModePaiement() : "Non renseigné").ajouter(ligne);
+            cumul(parMois, ligne.getAnnee() != null && ligne.getMois() != null
+                    ? String.format("%04d-%02d", ligne.getAnnee(), ligne.getMois()) : "Sans date").ajouter(ligne);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalPaye", nombre(parStatut, STATUT_PAYE));
+        stats.put("totalEnAttente", nombre(parStatut, STATUT_EN_ATTENTE));
+        stats.put("totalPartiel", nombre(parStatut, STATUT_PARTIEL));
+        stats.put("totalEncaisse", total.montantPaye);
+        stats.put("nombrePaiements", total.nombre);
+        stats.put("totalDu", total.montant);
+        stats.put("resteAPayer", total.resteAPayer);
+        stats.put("parStatut", versMap(parStatut));
+        stats.put("parTypeFrais", versMap(parTypeFrais));
+        stats.put("parModePaiement", versMap(parModePaiement));
+        stats.put("parMois", versMap(parMois));
+        return Collections.unmodifiableMap(stats);
+    }
+
+    private static Cumul cumul(Map<String, Cumul> cumuls, String cle) {
+        return cumuls.computeIfAbsent(cle, k -> new Cumul());
+    }
+
+    private static long nombre(Map<String, Cumul> parStatut, String statut) {
+        Cumul cumul = parStatut.get(statut);
+        return cumul != null ? cumul.nombre : 0L;
+    }
+
+    private static Map<String, Map<String, Object>> versMap(Map<String, Cumul> cumuls) {
+        Map<String, Map<String, Object>> resultat = new LinkedHashMap<>();
+        cumuls.forEach((cle, cumul) -> resultat.put(cle, cumul.versMap()));
+        return resultat;
+    }
+
+    private static class Cumul {
+        private long nombre;
+        private BigDecimal montant = BigDecimal.ZERO;
+        private BigDecimal montantPaye = BigDecimal.ZERO;
+        private BigDecimal resteAPayer = BigDecimal.ZERO;
+
+        void ajouter(StatsPaiementLigneDTO ligne) {
+            nombre += ligne.getNombre() != null ? ligne.getNombre() : 0L;
+            montant = montant.add(ligne.getMontant() != null ? ligne.getMontant() : BigDecimal.ZERO);
+            montantPaye = montantPaye.add(ligne.getMontantPaye() != null ? ligne.getMontantPaye() : BigDecimal.ZERO);
+            resteAPayer = resteAPayer.add(ligne.getResteAPayer() != null ? ligne.getResteAPayer() : BigDecimal.ZERO);
+        }
+
+        Map<String, Object> versMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("nombre", nombre);
+            map.put("montant", montant);
+            map.put("montantPaye", montantPaye);
+            map.put("resteAPayer", resteAPayer);
+            return map;
+        }
+    }
+
+    private record Entree(long expiration, Map<String, Object> stats) {
+    }
+}
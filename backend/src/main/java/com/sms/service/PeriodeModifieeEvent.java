@@ -0,0 +1,8 @@
+package com.sms.service;
+
+/**
+ * Publié par MatiereService à la création ou à la modification d'une période
+ * (dates, année scolaire), pour les caches qui rattachent une date à sa période.
+ */
+public record PeriodeModifieeEvent(String anneeScolaire) {
+}
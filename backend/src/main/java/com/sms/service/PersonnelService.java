@@ -7,6 +7,7 @@ import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.PersonnelRepository;
 import com.sms.repository.ClasseRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,12 +23,16 @@ public class PersonnelService {
     private final PersonnelRepository personnelRepository;
     private final ClasseRepository classeRepository;
 
-    public List<PersonnelDTO> getAllPersonnel() {
-        return personnelRepository.findAll().stream()
+    public List<PersonnelDTO> getPersonnelApres(Long apresId, int limite) {
+        return personnelRepository.findByIdGreaterThanOrderByIdAsc(apresId != null ? apresId : 0L, Limit.of(limite)).stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
+    public long countPersonnel() {
+        return personnelRepository.count();
+    }
+
     public PersonnelDTO getPersonnelById(Long id) {
         Personnel personnel = personnelRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Personnel non trouvé avec l'id: " + id));
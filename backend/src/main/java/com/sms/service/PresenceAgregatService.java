@@ -0,0 +1,183 @@
+package com.sms.service;
+
+import com.sms.dto.TendancePresenceDTO;
+import com.sms.repository.EleveRepository;
+import com.sms.repository.PresenceAgregatJdbcRepository;
+import com.sms.repository.PresenceAgregatJdbcRepository.Delta;
+import com.sms.repository.PresenceHebdomadaireRepository;
+import com.sms.repository.PresenceJournaliereRepository;
+import com.sms.repository.SeanceRepository;
+import com.sms.service.PresenceModifieeEvent.ChangementPresence;
+import com.sms.service.PresenceModifieeEvent.EtatPresence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Maintient les agrégats de présence par classe, statut et jour / semaine.
+ * Chaque écriture de présence se traduit par des variations de ±1 appliquées
+ * dans la même transaction, ce qui rend les statistiques et courbes de présence
+ * indépendantes du volume de la table presences. Une présence compte pour la
+ * classe de sa séance, et pour la classe de l'élève à défaut de séance : un
+ * changement de classe ne déplace donc pas les présences passées. Un contrôle
+ * nocturne des derniers jours répare une dérive éventuelle (écritures hors
+ * PresenceService, appel sans séance d'un élève qui a changé de classe).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PresenceAgregatService {
+
+    private final PresenceAgregatJdbcRepository presenceAgregatJdbcRepository;
+    private final PresenceJournaliereRepository presenceJournaliereRepository;
+    private final PresenceHebdomadaireRepository presenceHebdomadaireRepository;
+    private final EleveRepository eleveRepository;
+    private final SeanceRepository seanceRepository;
+
+    @Value("${agregats.presences.jours-controle-derive:90}")
+    private int joursControleDerive;
+
+    /**
+     * Écouteur synchrone : les agrégats sont mis à jour dans la transaction de l'écriture.
+     */
+    @EventListener
+    public void surPresenceModifiee(PresenceModifieeEvent event) {
+        Set<Long> seanceIds = new HashSet<>();
+        Set<Long> eleveIds = new HashSet<>();
+        for (ChangementPresence changement : event.changements()) {
+            for (EtatPresence etat : Arrays.asList(changement.avant(), changement.apres())) {
+                if (etat == null || etat.eleveId() == null) {
+                    continue;
+                }
+                if (etat.seanceId() != null) {
+                    seanceIds.add(etat.seanceId());
+                } else {
+                    eleveIds.add(etat.eleveId());
+                }
+            }
+        }
+        if (seanceIds.isEmpty() && eleveIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> classesSeances = new HashMap<>();
+        if (!seanceIds.isEmpty()) {
+            for (Object[] ligne : seanceRepository.findClasseIdsByIdIn(seanceIds)) {
+                classesSeances.put((Long) ligne[0], ligne[1] != null ? (Long) ligne[1] : 0L);
+            }
+        }
+        Map<Long, Long> classesEleves = new HashMap<>();
+        if (!eleveIds.isEmpty()) {
+            for (Object[] ligne : eleveRepository.findClasseIdsByIdIn(eleveIds)) {
+                classesEleves.put((Long) ligne[0], ligne[1] != null ? (Long) ligne[1] : 0L);
+            }
+        }
+
+        Map<List<Object>, Delta> jours = new LinkedHashMap<>();
+        Map<List<Object>, Delta> semaines = new LinkedHashMap<>();
+        for (ChangementPresence changement : event.changements()) {
+            cumuler(jours, semaines, classesSeances, classesEleves, changement.avant(), -1);
+            cumuler(jours, semaines, classesSeances, classesEleves, changement.apres(), 1);
+        }
+        jours.values().removeIf(d -> d.nombre() == 0);
+        semaines.values().removeIf(d -> d.nombre() == 0);
+        presenceAgregatJdbcRepository.appliquerDeltas(jours.values(), semaines.values());
+    }
+
+    public Map<String, Long> getTotauxParStatut(String anneeScolaire) {
+        Map<String, Long> totaux = new HashMap<>();
+        for (Object[] ligne : presenceJournaliereRepository.sumParStatut(anneeScolaire)) {
+            totaux.put((String) ligne[0], ligne[1] != null ? ((Number) ligne[1]).longValue() : 0L);
+        }
+        return totaux;
+    }
+
+    /**
+     * Courbe de présence d'une année par jour ou par semaine, toutes classes ou une classe.
+     */
+    public List<TendancePresenceDTO> getTendance(String anneeScolaire, Long classeId, boolean parSemaine,
+                                                 LocalDate debut, LocalDate fin) {
+        List<TendancePresenceDTO> points;
+        if (parSemaine) {
+            // Une semaine entamée par debut est incluse
+            LocalDate lundi = debut != null ? debut.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : null;
+            points = presenceHebdomadaireRepository.findTendance(anneeScolaire, classeId, lundi, fin);
+        } else {
+            points = presenceJournaliereRepository.findTendance(anneeScolaire, classeId, debut, fin);
+        }
+        for (TendancePresenceDTO point : points) {
+            point.setTauxPresence(point.getTotal() > 0
+                    ? BigDecimal.valueOf(point.getTotalPresent() * 100)
+                            .divide(BigDecimal.valueOf(point.getTotal()), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO);
+        }
+        return points;
+    }
+
+    /**
+     * Compaction nocturne : recalcule les agrégats si une dérive des agrégats
+     * journaliers est constatée sur les derniers jours, sinon supprime les lignes
+     * journalières retombées à zéro. Le contrôle ne relit que les présences de la
+     * fenêtre (index sur date_presence), pas toute la table ; une dérive plus
+     * ancienne se répare par un recalcul explicite. Les semaines sont toujours
+     * recalculées depuis les jours : une dérive propre à presences_semaine ne
+     * survit donc pas à la compaction.
+     */
+    @Scheduled(cron = "${agregats.presences.compaction-cron:0 30 2 * * *}")
+    @Transactional
+    public void compacter() {
+        long debut = System.nanoTime();
+        int derive = presenceAgregatJdbcRepository.compterDerive(LocalDate.now().minusDays(joursControleDerive));
+        if (derive > 0) {
+            log.warn("Agrégats de présence : {} lignes en dérive, recalcul complet", derive);
+            reconstruire();
+            return;
+        }
+        int lignes = presenceAgregatJdbcRepository.supprimerLignesVides();
+        int semaines = presenceAgregatJdbcRepository.reconstruireSemaines();
+        log.info("Agrégats de présence compactés : {} lignes vides supprimées, {} semaines recalculées en {} ms",
+                lignes, semaines, (System.nanoTime() - debut) / 1_000_000);
+    }
+
+    /**
+     * Recalcule tous les agrégats depuis la table presences.
+     */
+    @Transactional
+    public int reconstruire() {
+        long debut = System.nanoTime();
+        int lignes = presenceAgregatJdbcRepository.reconstruire();
+        log.info("Agrégats de présence reconstruits : {} lignes journalières en {} ms",
+                lignes, (System.nanoTime() - debut) / 1_000_000);
+        return lignes;
+    }
+
+    private static void cumuler(Map<List<Object>, Delta> jours, Map<List<Object>, Delta> semaines,
+                                Map<Long, Long> classesSeances, Map<Long, Long> classesEleves,
+                                EtatPresence etat, int signe) {
+        if (etat == null || etat.eleveId() == null || etat.date() == null
+                || etat.statut() == null || etat.anneeScolaire() == null) {
+            return;
+        }
+        Long classeId = etat.seanceId() != null
+                ? classesSeances.getOrDefault(etat.seanceId(), 0L)
+                : classesEleves.getOrDefault(etat.eleveId(), 0L);
+        LocalDate lundi = etat.date().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        ajouter(jours, new Delta(classeId, etat.date(), etat.statut(), etat.anneeScolaire(), signe));
+        ajouter(semaines, new Delta(classeId, lundi, etat.statut(), etat.anneeScolaire(), signe));
+    }
+
+    private static void ajouter(Map<List<Object>, Delta> deltas, Delta delta) {
+        deltas.merge(List.of(delta.classeId(), delta.date(), delta.statut(), delta.anneeScolaire()), delta,
+                (a, b) -> new Delta(a.classeId(), a.date(), a.statut(), a.anneeScolaire(), a.nombre() + b.nombre()));
+    }
+}
@@ -0,0 +1,20 @@
+package com.sms.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Publié par PresenceService à chaque écriture de présences : pour chaque ligne
+ * touchée, l'état avant (null pour une création) et après (null pour une suppression).
+ * La séance (null pour un appel sans séance) situe la présence dans la classe
+ * qui l'a faite, même si l'élève change de classe ensuite.
+ */
+public record PresenceModifieeEvent(List<ChangementPresence> changements) {
+
+    public record EtatPresence(Long eleveId, Long seanceId, String anneeScolaire, LocalDate date, String statut,
+                               boolean justifie, Integer minutesRetard) {
+    }
+
+    public record ChangementPresence(EtatPresence avant, EtatPresence apres) {
+    }
+}
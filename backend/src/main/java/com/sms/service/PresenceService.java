@@ -2,37 +2,52 @@ package com.sms.service;
 
 import com.sms.dto.PresenceCreateDTO;
 import com.sms.dto.PresenceDTO;
+import com.sms.dto.StatsPresenceDTO;
 import com.sms.entity.Eleve;
 import com.sms.entity.Presence;
 import com.sms.entity.Seance;
 import com.sms.exception.ResourceNotFoundException;
 import com.sms.repository.EleveRepository;
+import com.sms.repository.PresenceArchiveRepository;
+import com.sms.repository.PresenceJdbcRepository;
+import com.sms.repository.PresenceJdbcRepository.LigneAppel;
 import com.sms.repository.PresenceRepository;
 import com.sms.repository.SeanceRepository;
+import com.sms.service.PresenceModifieeEvent.ChangementPresence;
+import com.sms.service.PresenceModifieeEvent.EtatPresence;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PresenceService {
 
     private final PresenceRepository presenceRepository;
     private final EleveRepository eleveRepository;
     private final SeanceRepository seanceRepository;
+    private final PresenceJdbcRepository presenceJdbcRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PresenceAgregatService presenceAgregatService;
+    private final PresenceArchiveRepository presenceArchiveRepository;
+    private final ArchivageService archivageService;
 
-    public List<PresenceDTO> getAllPresences() {
-        return presenceRepository.findAll().stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+    public List<PresenceDTO> getPresencesApres(Long apresId, int limite) {
+        return presenceRepository.findDTOApres(apresId != null ? apresId : 0L, Limit.of(limite));
+    }
+
+    public long countPresences() {
+        return presenceRepository.count();
     }
 
     public PresenceDTO getPresenceById(Long id) {
@@ -41,119 +56,272 @@ public class PresenceService {
         return toDTO(presence);
     }
 
+    // Les lectures qui peuvent porter sur une année archivée interrogent aussi presences_archive
+
     public List<PresenceDTO> getPresencesByEleve(Long eleveId) {
-        return presenceRepository.findByEleveId(eleveId).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<PresenceDTO> presences = presenceRepository.findDTOByEleveId(eleveId);
+        return archivageService.aDesArchives()
+                ? archivesPuis(presenceArchiveRepository.findDTOByEleveId(eleveId), presences)
+                : presences;
     }
 
     public List<PresenceDTO> getPresencesByEleveAndDateRange(Long eleveId, LocalDate debut, LocalDate fin) {
-        return presenceRepository.findByEleveIdAndDatePresenceBetween(eleveId, debut, fin).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<PresenceDTO> presences = presenceRepository.findDTOByEleveIdAndDatePresenceBetween(eleveId, debut, fin);
+        return archivageService.chevaucheArchive(debut, fin)
+                ? archivesPuis(presenceArchiveRepository.findDTOByEleveIdAndDatePresenceBetween(eleveId, debut, fin), presences)
+                : presences;
     }
 
     public List<PresenceDTO> getPresencesByClasseAndDate(Long classeId, LocalDate date) {
-        return presenceRepository.findByClasseAndDate(classeId, date).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<PresenceDTO> presences = presenceRepository.findDTOByClasseAndDate(classeId, date);
+        return archivageService.chevaucheArchive(date, date)
+                ? archivesPuis(presenceArchiveRepository.findDTOByClasseAndDate(classeId, date), presences)
+                : presences;
     }
 
     public List<PresenceDTO> getPresencesByDate(LocalDate date) {
-        return presenceRepository.findByDatePresence(date).stream()
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        List<PresenceDTO> presences = presenceRepository.findDTOByDatePresence(date);
+        return archivageService.chevaucheArchive(date, date)
+                ? archivesPuis(presenceArchiveRepository.findDTOByDatePresence(date), presences)
+                : presences;
+    }
+
+    private static List<PresenceDTO> archivesPuis(List<PresenceDTO> archives, List<PresenceDTO> presences) {
+        if (archives.isEmpty()) {
+            return presences;
+        }
+        List<PresenceDTO> toutes = new ArrayList<>(archives);
+        toutes.addAll(presences);
+        return toutes;
     }
 
     @Transactional
     public PresenceDTO createPresence(PresenceCreateDTO dto) {
         Presence presence = new Presence();
         mapDtoToEntity(dto, presence);
-        return toDTO(presenceRepository.save(presence));
+        Presence enregistree = presenceRepository.save(presence);
+        publier(null, etat(enregistree));
+        return toDTO(enregistree);
     }
 
+    /**
+     * Appel d'une classe : l'effectif et la séance sont chargés une fois, les
+     * présences déjà saisies pour (élève, séance, date) sont mises à jour et les
+     * autres insérées, le tout en lots JDBC. Renvoyer la même feuille ne crée
+     * donc pas de doublons. Les élèves sont verrouillés avant toute lecture :
+     * deux appels concurrents s'enchaînent et le second lit les lignes du
+     * premier, si bien que l'état « avant » publié correspond à ce que l'écriture
+     * remplace. La clé unique (élève, séance, date), séance 0 pour un appel sans
+     * séance, reste le dernier rempart contre les doublons.
+     */
     @Transactional
     public List<PresenceDTO> enregistrerPresencesClasse(Long classeId, LocalDate date, Long seanceId, List<PresenceCreateDTO> presences) {
-        return presences.stream()
-                .map(dto -> {
-                    dto.setDate(date);
-                    dto.setSeanceId(seanceId);
-                    return createPresence(dto);
-                })
-                .collect(Collectors.toList());
+        long debut = System.nanoTime();
+        // Verrou posé avant la première lecture, dans l'ordre des ids pour éviter les interblocages
+        presenceJdbcRepository.verrouillerEleves(presences.stream()
+                .map(PresenceCreateDTO::getEleveId).filter(Objects::nonNull).distinct().toList());
+        Seance seance = seanceId != null ? seanceRepository.findById(seanceId).orElse(null) : null;
+
+        // Une seule ligne par élève : la dernière saisie de la feuille l'emporte
+        Map<Long, PresenceCreateDTO> parEleve = new LinkedHashMap<>();
+        for (PresenceCreateDTO dto : presences) {
+            if (dto.getEleveId() == null) {
+                throw new IllegalArgumentException("L'élève est obligatoire");
+            }
+            dto.setDate(date);
+            dto.setSeanceId(seance != null ? seance.getId() : null);
+            parEleve.put(dto.getEleveId(), dto);
+        }
+        if (parEleve.isEmpty()) {
+            return new ArrayList<>();
+        }
+        verifierEleves(classeId, parEleve.keySet());
+
+        Map<Long, Long> idsExistants = new HashMap<>();
+        Map<Long, EtatPresence> etatsAvant = new HashMap<>();
+        for (LigneAppel ligne : presenceJdbcRepository.lireAppelPourMiseAJour(parEleve.keySet(), date, seanceId(seance))) {
+            idsExistants.put(ligne.eleveId(), ligne.id());
+            etatsAvant.put(ligne.eleveId(), new EtatPresence(ligne.eleveId(), seanceId(seance), ligne.anneeScolaire(),
+                    date, ligne.statut(), ligne.justifie(), ligne.minutesRetard()));
+        }
+
+        List<Presence> aInserer = new ArrayList<>();
+        List<Presence> aMettreAJour = new ArrayList<>();
+        List<ChangementPresence> changements = new ArrayList<>();
+        for (PresenceCreateDTO dto : parEleve.values()) {
+            Presence presence = new Presence();
+            presence.setId(idsExistants.get(dto.getEleveId()));
+            mapDtoToEntity(dto, presence, eleveRepository.getReferenceById(dto.getEleveId()), seance);
+            (presence.getId() != null ? aMettreAJour : aInserer).add(presence);
+            changements.add(new ChangementPresence(etatsAvant.get(dto.getEleveId()),
+                    new EtatPresence(dto.getEleveId(), seanceId(seance), presence.getAnneeScolaire(), date,
+                            presence.getStatut(), Boolean.TRUE.equals(presence.getJustifie()),
+                            presence.getMinutesRetard())));
+        }
+        presenceJdbcRepository.upsertAll(aInserer);
+        presenceJdbcRepository.updateAll(aMettreAJour);
+        eventPublisher.publishEvent(new PresenceModifieeEvent(changements));
+
+        List<Long> ids = new ArrayList<>();
+        aInserer.forEach(p -> ids.add(p.getId()));
+        aMettreAJour.forEach(p -> ids.add(p.getId()));
+        log.info("Appel classe {} du {} : {} insérées, {} mises à jour en {} ms",
+                classeId, date, aInserer.size(), aMettreAJour.size(), (System.nanoTime() - debut) / 1_000_000);
+        return presenceRepository.findDTOByIdIn(ids);
+    }
+
+    /**
+     * Les élèves hors de l'effectif de la classe doivent au moins exister.
+     */
+    private void verifierEleves(Long classeId, Set<Long> eleveIds) {
+        Set<Long> horsEffectif = new HashSet<>(eleveIds);
+        eleveRepository.findIdsByClasseId(classeId).forEach(horsEffectif::remove);
+        if (!horsEffectif.isEmpty() && eleveRepository.findAllById(horsEffectif).size() != horsEffectif.size()) {
+            throw new ResourceNotFoundException("Élève non trouvé");
+        }
     }
 
     @Transactional
     public PresenceDTO updatePresence(Long id, PresenceCreateDTO dto) {
         Presence presence = presenceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Présence non trouvée avec l'id: " + id));
+        EtatPresence avant = etat(presence);
         mapDtoToEntity(dto, presence);
-        return toDTO(presenceRepository.save(presence));
+        Presence enregistree = presenceRepository.save(presence);
+        publier(avant, etat(enregistree));
+        return toDTO(enregistree);
     }
 
     @Transactional
     public PresenceDTO justifierAbsence(Long id, String motif) {
         Presence presence = presenceRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Présence non trouvée avec l'id: " + id));
+        EtatPresence avant = etat(presence);
         presence.setJustifie(true);
         presence.setMotif(motif);
-        return toDTO(presenceRepository.save(presence));
+        Presence enregistree = presenceRepository.save(presence);
+        publier(avant, etat(enregistree));
+        return toDTO(enregistree);
     }
 
     @Transactional
     public void deletePresence(Long id) {
-        if (!presenceRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Présence non trouvée avec l'id: " + id);
-        }
-        presenceRepository.deleteById(id);
+        Presence presence = presenceRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Présence non trouvée avec l'id: " + id));
+        EtatPresence avant = etat(presence);
+        presenceRepository.delete(presence);
+        publier(avant, null);
+    }
+
+    /**
+     * Signale une écriture unitaire aux index maintenus à partir des présences.
+     */
+    private void publier(EtatPresence avant, EtatPresence apres) {
+        eventPublisher.publishEvent(new PresenceModifieeEvent(List.of(new ChangementPresence(avant, apres))));
+    }
+
+    private static EtatPresence etat(Presence presence) {
+        return new EtatPresence(presence.getEleve() != null ? presence.getEleve().getId() : null,
+                seanceId(presence.getSeance()), presence.getAnneeScolaire(), presence.getDatePresence(), presence.getStatut(),
+                Boolean.TRUE.equals(presence.getJustifie()), presence.getMinutesRetard());
+    }
+
+    private static Long seanceId(Seance seance) {
+        return seance != null ? seance.getId() : null;
     }
 
     public Map<String, Object> getStatsPresenceEleve(Long eleveId, String anneeScolaire) {
-        Map<String, Object> stats = new HashMap<>();
-        Long totalPresent = presenceRepository.countByEleveAndStatut(eleveId, "present", anneeScolaire);
-        Long totalAbsent = presenceRepository.countByEleveAndStatut(eleveId, "absent", anneeScolaire);
-        Long totalRetard = presenceRepository.countByEleveAndStatut(eleveId, "retard", anneeScolaire);
-        Long absencesNonJustifiees = presenceRepository.countAbsencesNonJustifiees(eleveId, anneeScolaire);
-
-        Long total = totalPresent + totalAbsent + totalRetard;
-        BigDecimal tauxPresence = BigDecimal.ZERO;
-        if (total > 0) {
-            tauxPresence = BigDecimal.valueOf(totalPresent)
-                    .divide(BigDecimal.valueOf(total), 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100))
-                    .setScale(2, RoundingMode.HALF_UP);
+        StatsPresenceDTO compteurs = presenceRepository.findStatsByEleve(eleveId, anneeScolaire)
+                .orElseGet(() -> new StatsPresenceDTO(eleveId, null, null, null, 0L, 0L, 0L, 0L));
+        if (archivageService.estArchivee(anneeScolaire)) {
+            presenceArchiveRepository.findStatsByEleve(eleveId, anneeScolaire)
+                    .ifPresent(archives -> cumuler(compteurs, archives));
         }
 
-        stats.put("totalPresent", totalPresent);
-        stats.put("totalAbsent", totalAbsent);
-        stats.put("totalRetard", totalRetard);
-        stats.put("absencesNonJustifiees", absencesNonJustifiees);
-        stats.put("tauxPresence", tauxPresence);
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalPresent", compteurs.getTotalPresent());
+        stats.put("totalAbsent", compteurs.getTotalAbsent());
+        stats.put("totalRetard", compteurs.getTotalRetard());
+        stats.put("absencesNonJustifiees", compteurs.getAbsencesNonJustifiees());
+        stats.put("tauxPresence", tauxPresence(compteurs));
         return stats;
     }
 
-    public Map<String, Object> getStatsPresencesGlobales(String anneeScolaire) {
-        Map<String, Object> stats = new HashMap<>();
-        Long totalPresences = presenceRepository.countTotalPresences(anneeScolaire);
-        Long totalPresent = presenceRepository.countTotalByStatut("present", anneeScolaire);
-        Long totalAbsent = presenceRepository.countTotalByStatut("absent", anneeScolaire);
-        Long totalRetard = presenceRepository.countTotalByStatut("retard", anneeScolaire);
-
-        BigDecimal tauxPresence = BigDecimal.ZERO;
-        if (totalPresences > 0) {
-            tauxPresence = BigDecimal.valueOf(totalPresent)
-                    .divide(BigDecimal.valueOf(totalPresences), 4, RoundingMode.HALF_UP)
-                    .multiply(BigDecimal.valueOf(100))
-                    .setScale(2, RoundingMode.HALF_UP);
+    /**
+     * Statistiques de présence de tous les élèves d'une classe en une seule requête.
+     */
+    public List<StatsPresenceDTO> getStatsPresenceClasse(Long classeId, String anneeScolaire) {
+        List<StatsPresenceDTO> stats = presenceRepository.findStatsByClasse(classeId, anneeScolaire);
+        if (archivageService.estArchivee(anneeScolaire)) {
+            Map<Long, StatsPresenceDTO> parEleve = new HashMap<>();
+            stats.forEach(compteurs -> parEleve.put(compteurs.getEleveId(), compteurs));
+            for (StatsPresenceDTO archives : presenceArchiveRepository.findStatsByClasse(classeId, anneeScolaire)) {
+                StatsPresenceDTO compteurs = parEleve.get(archives.getEleveId());
+                if (compteurs != null) {
+                    cumuler(compteurs, archives);
+                }
+            }
         }
+        stats.forEach(compteurs -> compteurs.setTauxPresence(tauxPresence(compteurs)));
+        return stats;
+    }
+
+    private static void cumuler(StatsPresenceDTO compteurs, StatsPresenceDTO archives) {
+        compteurs.setTotalPresent(compteurs.getTotalPresent() + archives.getTotalPresent());
+        compteurs.setTotalAbsent(compteurs.getTotalAbsent() + archives.getTotalAbsent());
+        compteurs.setTotalRetard(compteurs.getTotalRetard() + archives.getTotalRetard());
+        compteurs.setAbsencesNonJustifiees(compteurs.getAbsencesNonJustifiees() + archives.getAbsencesNonJustifiees());
+    }
 
+    /**
+     * Statistiques globales d'une année, lues dans les agrégats journaliers.
+     */
+    public Map<String, Object> getStatsPresencesGlobales(String anneeScolaire) {
+        Map<String, Long> totaux = presenceAgregatService.getTotauxParStatut(anneeScolaire);
+        long totalPresences = totaux.values().stream().mapToLong(Long::longValue).sum();
+        long totalPresent = totaux.getOrDefault("present", 0L);
+        long totalAbsent = totaux.getOrDefault("absent", 0L);
+        long totalRetard = totaux.getOrDefault("retard", 0L);
+
+        Map<String, Object> stats = new HashMap<>();
         stats.put("totalAbsences", totalAbsent);
         stats.put("totalRetards", totalRetard);
-        stats.put("tauxPresence", tauxPresence);
+        stats.put("tauxPresence", pourcentage(totalPresent, totalPresences));
         return stats;
     }
 
+    /**
+     * Taux de présence d'un élève : présents sur (présents + absents + retards).
+     */
+    private static BigDecimal tauxPresence(StatsPresenceDTO compteurs) {
+        return pourcentage(compteurs.getTotalPresent(),
+                compteurs.getTotalPresent() + compteurs.getTotalAbsent() + compteurs.getTotalRetard());
+    }
+
+    private static BigDecimal pourcentage(long valeur, long total) {
+        if (total <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(valeur)
+                .divide(BigDecimal.valueOf(total), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100))
+                .setScale(2, RoundingMode.HALF_UP);
+    }
+
     private void mapDtoToEntity(PresenceCreateDTO dto, Presence presence) {
+        Eleve eleve = null;
+        if (dto.getEleveId() != null) {
+            eleve = eleveRepository.findById(dto.getEleveId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Élève non trouvé"));
+        }
+        Seance seance = null;
+        if (dto.getSeanceId() != null) {
+            seance = seanceRepository.findById(dto.getSeanceId()).orElse(null);
+        }
+        mapDtoToEntity(dto, presence, eleve, seance);
+    }
+
+    private void mapDtoToEntity(PresenceCreateDTO dto, Presence presence, Eleve eleve, Seance seance) {
         presence.setDatePresence(dto.getDate());
         presence.setStatut(dto.getStatut());
         presence.setHeureArrivee(dto.getHeureArrivee());
@@ -161,14 +329,14 @@ public class PresenceService {
         presence.setJustifie(dto.getJustifie() != null ? dto.getJustifie() : false);
         presence.setMotif(dto.getMotif());
         presence.setAnneeScolaire(dto.getAnneeScolaire() != null ? dto.getAnneeScolaire() : "2024-2025");
+        archivageService.verifierModifiable(presence.getAnneeScolaire());
         presence.setCommentaire(dto.getCommentaire());
 
-        if (dto.getEleveId() != null) {
-            presence.setEleve(eleveRepository.findById(dto.getEleveId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Élève non trouvé")));
+        if (eleve != null) {
+            presence.setEleve(eleve);
         }
         if (dto.getSeanceId() != null) {
-            presence.setSeance(seanceRepository.findById(dto.getSeanceId()).orElse(null));
+            presence.setSeance(seance);
         }
     }
 
@@ -0,0 +1,397 @@
+package com.sms.service;
+
+import com.sms.dto.LigneReleveDTO;
+import com.sms.repository.RapprochementJdbcRepository;
+import com.sms.repository.TransactionPaiementRepository;
+import com.sms.service.PaiementService.ResultatVersements;
+import com.sms.service.PaiementService.Versement;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Rapprochement d'un relevé bancaire CSV avec les paiements ouverts.
+ *
+ * Les paiements ouverts sont indexés en mémoire par référence et par
+ * (matricule, reste à payer) ; le relevé est lu ligne à ligne et les lignes
+ * rapprochées sont encaissées par lots via PaiementService. Seules les
+ * premières lignes non rapprochées sont conservées pour la réponse ; au-delà
+ * des paiements ouverts, la mémoire ne retient qu'une entrée par contenu de
+ * ligne distinct (ou par identifiant de transaction).
+ *
+ * Chaque encaissement porte une clé d'idempotence : l'identifiant de
+ * transaction de la banque si le relevé en a une colonne, sinon une empreinte
+ * de la date, de la référence, du matricule et du montant, complétée d'un
+ * compteur d'occurrences pour les lignes identiques du relevé. La clé ne
+ * dépend pas de la position de la ligne : un relevé réimporté, ou recoupant un
+ * relevé précédent, n'encaisse rien deux fois, et ses lignes déjà encaissées
+ * sont comptées à part. Un identifiant de transaction répété dans le relevé
+ * n'est ni encaissé ni compté comme déjà encaissé : la ligne est rendue non
+ * rapprochée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RapprochementService {
+
+    private static final int TAILLE_LOT = 200;
+    private static final int LIGNES_NON_RAPPROCHEES_MAX = 1000;
+    private static final String MODE_PAR_DEFAUT = "Virement";
+
+    private final RapprochementJdbcRepository rapprochementJdbcRepository;
+    private final TransactionPaiementRepository transactionPaiementRepository;
+    private final PaiementService paiementService;
+
+    public Map<String, Object> rapprocher(InputStream releve, String modePaiement) throws IOException {
+        long debut = System.nanoTime();
+        String mode = modePaiement != null && !modePaiement.isBlank() ? modePaiement : MODE_PAR_DEFAUT;
+        IndexPaiements index = indexerPaiementsOuverts();
+        Bilan bilan = new Bilan();
+
+        BufferedReader lecteur = new BufferedReader(new InputStreamReader(releve, StandardCharsets.UTF_8));
+        String entete = lecteur.readLine();
+        if (entete == null) {
+            throw new IllegalArgumentException("Le relevé est vide");
+        }
+        char separateur = entete.indexOf(';') >= 0 ? ';' : ',';
+        Colonnes colonnes = Colonnes.depuisEntete(decouper(entete, separateur));
+
+        List<LigneLue> lot = new ArrayList<>(TAILLE_LOT);
+        Occurrences occurrences = new Occurrences();
+        Set<String> transactionsVues = new HashSet<>();
+        long numero = 1;
+        String brut;
+        while ((brut = lecteur.readLine()) != null) {
+            numero++;
+            if (brut.isBlank()) {
+                continue;
+            }
+            bilan.lignes++;
+            List<String> champs = decouper(brut, separateur);
+            LigneReleveDTO ligne = LigneReleveDTO.builder()
+                    .numeroLigne(numero)
+                    .date(colonnes.valeur(champs, colonnes.date))
+                    .reference(colonnes.valeur(champs, colonnes.reference))
+                    .matricule(colonnes.valeur(champs, colonnes.matricule))
+                    .build();
+            Long centimes = lireCentimes(colonnes.valeur(champs, colonnes.montant), separateur);
+            if (centimes == null || centimes <= 0) {
+                bilan.nonRapprochee(ligne, "Montant invalide");
+                continue;
+            }
+            ligne.setMontant(BigDecimal.valueOf(centimes, 2));
+
+            String transaction = colonnes.valeur(champs, colonnes.transaction);
+            String cle;
+            if (transaction == null) {
+                cle = occurrences.cle(ligne.getDate(), ligne.getReference(), ligne.getMatricule(), centimes);
+            } else {
+                cle = "releve:tx:" + empreinte(normaliser(transaction));
+                if (!transactionsVues.add(cle)) {
+                    bilan.nonRapprochee(ligne, "Identifiant de transaction répété dans le relevé");
+                    continue;
+                }
+            }
+            lot.add(new LigneLue(ligne, centimes, cle));
+            if (lot.size() == TAILLE_LOT) {
+                traiter(lot, index, mode, bilan);
+            }
+        }
+        traiter(lot, index, mode, bilan);
+
+        long duree = (System.nanoTime() - debut) / 1_000_000;
+        log.info("Rapprochement bancaire : {} lignes, {} rapprochées, {} déjà encaissées, {} non rapprochées, en {} ms",
+                bilan.lignes, bilan.rapprochees, bilan.dejaEncaissees, bilan.nonRapprochees, duree);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("lignes", bilan.lignes);
+        response.put("rapprochees", bilan.rapprochees);
+        response.put("montantRapproche", BigDecimal.valueOf(bilan.centimesRapproches, 2));
+        response.put("dejaEncaissees", bilan.dejaEncaissees);
+        response.put("montantDejaEncaisse", BigDecimal.valueOf(bilan.centimesDejaEncaisses, 2));
+        response.put("nonRapprochees", bilan.nonRapprochees);
+        response.put("lignesNonRapprochees", bilan.lignesNonRapprochees);
+        response.put("tronque", bilan.nonRapprochees > bilan.lignesNonRapprochees.size());
+        response.put("dureeMs", duree);
+        return response;
+    }
+
+    /**
+     * Un lot de lignes : les clés déjà présentes au journal sont lues en une
+     * requête et leurs lignes comptées comme déjà encaissées, les autres sont
+     * rapprochées puis encaissées ensemble. Une clé encaissée entre-temps par un
+     * autre import est elle aussi comptée comme déjà encaissée.
+     */
+    private void traiter(List<LigneLue> lot, IndexPaiements index, String mode, Bilan bilan) {
+        if (lot.isEmpty()) {
+            return;
+        }
+        Set<String> existantes = new HashSet<>(transactionPaiementRepository.findClesIdempotenceExistantes(
+                lot.stream().map(LigneLue::cle).toList()));
+
+        List<Versement> versements = new ArrayList<>(lot.size());
+        Map<Versement, LigneLue> lignesDesVersements = new HashMap<>();
+        for (LigneLue lue : lot) {
+            if (existantes.contains(lue.cle())) {
+                bilan.dejaEncaissees++;
+                bilan.centimesDejaEncaisses += lue.centimes();
+                continue;
+            }
+            LigneReleveDTO ligne = lue.ligne();
+            PaiementOuvert paiement = index.trouver(ligne.getReference(), ligne.getMatricule(), lue.centimes());
+            if (paiement == null) {
+                bilan.nonRapprochee(ligne, index.motifEchec(ligne.getReference(), ligne.getMatricule(), lue.centimes()));
+                continue;
+            }
+            index.imputer(paiement, lue.centimes());
+            Versement versement = new Versement(paiement.id, ligne.getMontant(), mode, ligne.getReference(), lue.cle());
+            versements.add(versement);
+            lignesDesVersements.put(versement, lue);
+        }
+
+        ResultatVersements resultat = versements.isEmpty()
+                ? new ResultatVersements(Collections.emptySet(), Collections.emptyMap())
+                : paiementService.enregistrerPaiements(versements);
+        for (Versement versement : versements) {
+            String echec = resultat.echecs().get(versement);
+            if (echec != null) {
+                bilan.nonRapprochee(lignesDesVersements.get(versement).ligne(), "Encaissement refusé : " + echec);
+            } else if (resultat.dejaEncaisses().contains(versement)) {
+                bilan.dejaEncaissees++;
+                bilan.centimesDejaEncaisses += lignesDesVersements.get(versement).centimes();
+            } else {
+                bilan.rapprochees++;
+                bilan.centimesRapproches += lignesDesVersements.get(versement).centimes();
+            }
+        }
+        lot.clear();
+    }
+
+    private IndexPaiements indexerPaiementsOuverts() {
+        IndexPaiements index = new IndexPaiements();
+        rapprochementJdbcRepository.parcourirPaiementsOuverts(rs -> index.ajouter(
+                new PaiementOuvert(rs.getLong(1), normaliser(rs.getString(2)), normaliser(rs.getString(3)), rs.getLong(4))));
+        return index;
+    }
+
+    /**
+     * Montant en centimes ; la virgule est décimale dans un relevé séparé par des points-virgules.
+     */
+    private static Long lireCentimes(String valeur, char separateur) {
+        if (valeur == null) {
+            return null;
+        }
+        String nombre = valeur.replace(" ", "").replace("\u00A0", "");
+        if (separateur == ';') {
+            nombre = nombre.replace(".", "").replace(',', '.');
+        }
+        try {
+            return new BigDecimal(nombre).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (NumberFormatException | ArithmeticException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Clés des lignes sans identifiant de transaction. Les lignes identiques
+     * (même date, référence, matricule et montant) sont numérotées dans l'ordre
+     * du relevé, sur tout le fichier : deux versements réels identiques ont
+     * deux clés même si le relevé n'est pas trié par date. La mémoire est
+     * bornée par le nombre de contenus distincts.
+     */
+    private static final class Occurrences {
+        private final Map<String, Integer> parContenu = new HashMap<>();
+
+        String cle(String date, String reference, String matricule, long centimes) {
+            String contenu = date + "|" + normaliser(reference) + "|" + normaliser(matricule) + "|" + centimes;
+            int occurrence = parContenu.merge(contenu, 1, Integer::sum);
+            return "releve:" + empreinte(contenu + "|" + occurrence);
+        }
+    }
+
+    /** Empreinte de longueur fixe : la clé tient dans cle_idempotence quelle que soit la valeur. */
+    private static String empreinte(String valeur) {
+        try {
+            byte[] empreinte = MessageDigest.getInstance("SHA-256").digest(valeur.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(empreinte, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Découpe une ligne CSV (champs éventuellement entre guillemets, "" pour un guillemet).
+     */
+    private static List<String> decouper(String ligne, char separateur) {
+        List<String> champs = new ArrayList<>();
+        StringBuilder champ = new StringBuilder();
+        boolean entreGuillemets = false;
+        for (int i = 0; i < ligne.length(); i++) {
+            char c = ligne.charAt(i);
+            if (entreGuillemets) {
+                if (c == '"' && i + 1 < ligne.length() && ligne.charAt(i + 1) == '"') {
+                    champ.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreGuillemets = false;
+                } else {
+                    champ.append(c);
+                }
+            } else if (c == '"') {
+                entreGuillemets = true;
+            } else if (c == separateur) {
+                champs.add(champ.toString().trim());
+                champ.setLength(0);
+            } else {
+                champ.append(c);
+            }
+        }
+        champs.add(champ.toString().trim());
+        return champs;
+    }
+
+    private static String normaliser(String valeur) {
+        return valeur == null || valeur.isBlank() ? null : valeur.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Positions des colonnes utiles, reconnues par leur nom dans l'en-tête (-1 si absente).
+     */
+    private record Colonnes(int date, int reference, int matricule, int montant, int transaction) {
+
+        static Colonnes depuisEntete(List<String> entete) {
+            int date = -1, reference = -1, matricule = -1, montant = -1, transaction = -1;
+            for (int i = 0; i < entete.size(); i++) {
+                String nom = Normalizer.normalize(entete.get(i), Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+                if (nom.startsWith("date") && date < 0) {
+                    date = i;
+                } else if (nom.startsWith("ref") && reference < 0) {
+                    reference = i;
+                } else if (nom.startsWith("matricule") && matricule < 0) {
+                    matricule = i;
+                } else if ((nom.startsWith("montant") || nom.equals("credit")) && montant < 0) {
+                    montant = i;
+                } else if ((nom.startsWith("id") || nom.contains("transaction")) && transaction < 0) {
+                    transaction = i;
+                }
+            }
+            if (montant < 0 || (reference < 0 && matricule < 0)) {
+                throw new IllegalArgumentException("L'en-tête du relevé doit contenir une colonne montant "
+                        + "et une colonne reference ou matricule");
+            }
+            return new Colonnes(date, reference, matricule, montant, transaction);
+        }
+
+        String valeur(List<String> champs, int colonne) {
+            return colonne >= 0 && colonne < champs.size() && !champs.get(colonne).isEmpty() ? champs.get(colonne) : null;
+        }
+    }
+
+    private static final class PaiementOuvert {
+        private final long id;
+        private final String reference;
+        private final String matricule;
+        private long resteCentimes;
+
+        PaiementOuvert(long id, String reference, String matricule, long resteCentimes) {
+            this.id = id;
+            this.reference = reference;
+            this.matricule = matricule;
+            this.resteCentimes = resteCentimes;
+        }
+    }
+
+    /**
+     * Index des paiements ouverts : par référence, et par matricule puis reste exact.
+     */
+    private static final class IndexPaiements {
+        private final Map<String, PaiementOuvert> parReference = new HashMap<>();
+        private final Map<String, Map<Long, Deque<PaiementOuvert>>> parMatricule = new HashMap<>();
+
+        void ajouter(PaiementOuvert paiement) {
+            if (paiement.reference != null) {
+                parReference.putIfAbsent(paiement.reference, paiement);
+            }
+            if (paiement.matricule != null) {
+                parMatricule.computeIfAbsent(paiement.matricule, m -> new HashMap<>())
+                        .computeIfAbsent(paiement.resteCentimes, r -> new ArrayDeque<>())
+                        .addLast(paiement);
+            }
+        }
+
+        PaiementOuvert trouver(String reference, String matricule, long centimes) {
+            PaiementOuvert paiement = reference != null ? parReference.get(normaliser(reference)) : null;
+            if (paiement != null && paiement.resteCentimes >= centimes) {
+                return paiement;
+            }
+            Map<Long, Deque<PaiementOuvert>> parReste = matricule != null ? parMatricule.get(normaliser(matricule)) : null;
+            Deque<PaiementOuvert> candidats = parReste != null ? parReste.get(centimes) : null;
+            return candidats != null ? candidats.peekFirst() : null;
+        }
+
+        String motifEchec(String reference, String matricule, long centimes) {
+            PaiementOuvert paiement = reference != null ? parReference.get(normaliser(reference)) : null;
+            if (paiement != null) {
+                return "Montant supérieur au reste à payer (" + BigDecimal.valueOf(paiement.resteCentimes, 2) + ")";
+            }
+            if (matricule != null && parMatricule.containsKey(normaliser(matricule))) {
+                return "Aucun paiement ouvert de ce montant pour le matricule";
+            }
+            return "Aucun paiement ouvert pour cette référence ou ce matricule";
+        }
+
+        /**
+         * Déduit le montant encaissé du reste, pour les lignes suivantes du relevé.
+         */
+        void imputer(PaiementOuvert paiement, long centimes) {
+            if (paiement.matricule != null) {
+                Map<Long, Deque<PaiementOuvert>> parReste = parMatricule.get(paiement.matricule);
+                Deque<PaiementOuvert> candidats = parReste.get(paiement.resteCentimes);
+                candidats.remove(paiement);
+                if (candidats.isEmpty()) {
+                    parReste.remove(paiement.resteCentimes);
+                }
+            }
+            paiement.resteCentimes -= centimes;
+            if (paiement.resteCentimes <= 0) {
+                if (paiement.reference != null) {
+                    parReference.remove(paiement.reference, paiement);
+                }
+            } else if (paiement.matricule != null) {
+                parMatricule.get(paiement.matricule)
+                        .computeIfAbsent(paiement.resteCentimes, r -> new ArrayDeque<>())
+                        .addLast(paiement);
+            }
+        }
+    }
+
+    private record LigneLue(LigneReleveDTO ligne, long centimes, String cle) {
+    }
+
+    private static final class Bilan {
+        private long lignes;
+        private long rapprochees;
+        private long dejaEncaissees;
+        private long nonRapprochees;
+        private long centimesRapproches;
+        private long centimesDejaEncaisses;
+        private final List<LigneReleveDTO> lignesNonRapprochees = new ArrayList<>();
+
+        void nonRapprochee(LigneReleveDTO ligne, String motif) {
+            nonRapprochees++;
+            if (lignesNonRapprochees.size() < LIGNES_NON_RAPPROCHEES_MAX) {
+                ligne.setMotif(motif);
+                lignesNonRapprochees.add(ligne);
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.sms.service;
+
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Publié par EmploiDuTempsService à chaque écriture de séances : pour chaque
+ * séance touchée, l'état actif avant (null si elle n'était pas active) et après
+ * (null si elle ne l'est plus).
+ */
+public record SeanceModifieeEvent(List<ChangementSeance> changements) {
+
+    public record EtatSeance(Long id, Long classeId, Long professeurId, Long salleId, String salleNom,
+                             String anneeScolaire, Integer jourSemaine, LocalTime heureDebut, LocalTime heureFin) {
+
+        /**
+         * Depuis une ligne de SeanceRepository.findEtatsActifs (mêmes colonnes, même ordre).
+         */
+        public static EtatSeance depuisLigne(Object[] ligne) {
+            return new EtatSeance((Long) ligne[0], (Long) ligne[1], (Long) ligne[2], (Long) ligne[3],
+                    (String) ligne[4], (String) ligne[5], (Integer) ligne[6], (LocalTime) ligne[7], (LocalTime) ligne[8]);
+        }
+    }
+
+    public record ChangementSeance(EtatSeance avant, EtatSeance apres) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.sms.service;
+
+import com.sms.entity.Paiement;
+import com.sms.repository.SoldeEleveJdbcRepository;
+import com.sms.repository.SoldeEleveJdbcRepository.Delta;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Maintient les soldes de paiement par élève et année scolaire.
+ * Chaque écriture de paiement se traduit par une variation (dû, payé, reste)
+ * appliquée au solde, ce qui rend la lecture du solde d'un élève en O(1).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SoldeEleveService {
+
+    private final SoldeEleveJdbcRepository soldeEleveJdbcRepository;
+
+    /**
+     * Initialise la table si elle vient d'être créée sur une base contenant déjà des paiements.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialiser() {
+        try {
+            if (soldeEleveJdbcRepository.doitEtreInitialisee()) {
+                reconstruire();
+            }
+        } catch (DataAccessException e) {
+            log.warn("Initialisation des soldes élèves impossible : {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Contribution d'un paiement au solde de son élève, ou null s'il n'est
+     * rattaché à aucune année scolaire. Le reste est recalculé comme le fait
+     * Paiement à l'enregistrement (nul pour un paiement soldé).
+     */
+    public ContributionPaiement contribution(Paiement paiement) {
+        if (paiement.getEleve() == null || paiement.getAnneeScolaire() == null || paiement.getMontant() == null) {
+            return null;
+        }
+        BigDecimal paye = paiement.getMontantPaye() != null ? paiement.getMontantPaye() : BigDecimal.ZERO;
+        BigDecimal reste = paiement.getMontant().subtract(paye).max(BigDecimal.ZERO);
+        return new ContributionPaiement(paiement.getEleve().getId(), paiement.getAnneeScolaire(),
+                paiement.getMontant(), paye, reste);
+    }
+
+    @Transactional
+    public void enregistrer(Collection<ContributionPaiement> retirees, Collection<ContributionPaiement> ajoutees) {
+        Map<List<Object>, Delta> deltas = new LinkedHashMap<>();
+        retirees.stream().filter(Objects::nonNull).forEach(c -> cumuler(deltas, c, -1));
+        ajoutees.stream().filter(Objects::nonNull).forEach(c -> cumuler(deltas, c, 1));
+        soldeEleveJdbcRepository.appliquerDeltas(deltas.values());
+    }
+
+    @Transactional
+    public void ajouter(Paiement paiement) {
+        enregistrer(Collections.emptyList(), Collections.singletonList(contribution(paiement)));
+    }
+
+    @Transactional
+    public void retirer(ContributionPaiement contribution) {
+        enregistrer(Collections.singletonList(contribution), Collections.emptyList());
+    }
+
+    /**
+     * Recalcule tous les soldes depuis la table paiements (réparation d'une dérive éventuelle).
+     */
+    @Transactional
+    public int reconstruire() {
+        long debut = System.nanoTime();
+        int lignes = soldeEleveJdbcRepository.reconstruire();
+        log.info("Soldes élèves reconstruits : {} soldes en {} ms", lignes, (System.nanoTime() - debut) / 1_000_000);
+        return lignes;
+    }
+
+    private static void cumuler(Map<List<Object>, Delta> deltas, ContributionPaiement c, int signe) {
+        BigDecimal s = BigDecimal.valueOf(signe);
+        deltas.merge(List.of(c.eleveId(), c.anneeScolaire()),
+                new Delta(c.eleveId(), c.anneeScolaire(), c.montant().multiply(s), c.montantPaye().multiply(s),
+                        c.resteAPayer().multiply(s)),
+                (a, b) -> new Delta(a.eleveId(), a.anneeScolaire(), a.totalDu().add(b.totalDu()),
+                        a.totalPaye().add(b.totalPaye()), a.resteAPayer().add(b.resteAPayer())));
+    }
+
+    /**
+     * Valeurs d'un paiement prises en compte par le solde.
+     */
+    public record ContributionPaiement(Long eleveId, String anneeScolaire, BigDecimal montant,
+                                       BigDecimal montantPaye, BigDecimal resteAPayer) {
+    }
+}
@@ -0,0 +1,30 @@
+-- Migration V11: Agrégat des notes par classe-matière et période
+-- Maintenu de façon incrémentale par NoteService (création, modification,
+-- suppression et import en masse) pour lire la moyenne de classe d'une
+-- matière sans parcourir la table notes.
+
+CREATE TABLE IF NOT EXISTS moyennes_classe_matiere (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    classe_id BIGINT NOT NULL,
+    classe_matiere_id BIGINT NOT NULL,
+    periode_id BIGINT NOT NULL,
+    somme_notes DECIMAL(12, 2) NOT NULL DEFAULT 0, -- somme des notes hors absents
+    nombre_notes INT NOT NULL DEFAULT 0,           -- nombre de notes hors absents
+    nombre_absents INT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_moyenne_classe_matiere_periode UNIQUE (classe_matiere_id, periode_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_moyennes_classe_periode ON moyennes_classe_matiere(classe_id, periode_id);
+
+-- Initialisation depuis les notes existantes
+DELETE FROM moyennes_classe_matiere;
+
+INSERT INTO moyennes_classe_matiere (classe_id, classe_matiere_id, periode_id, somme_notes, nombre_notes, nombre_absents)
+SELECT cm.classe_id, n.classe_matiere_id, n.periode_id,
+       COALESCE(SUM(CASE WHEN n.absent THEN 0 ELSE n.valeur END), 0),
+       SUM(CASE WHEN n.absent THEN 0 ELSE 1 END),
+       SUM(CASE WHEN n.absent THEN 1 ELSE 0 END)
+FROM notes n
+JOIN classe_matieres cm ON cm.id = n.classe_matiere_id
+WHERE n.periode_id IS NOT NULL
+GROUP BY cm.classe_id, n.classe_matiere_id, n.periode_id;
@@ -0,0 +1,28 @@
+-- Migration V12: Index composites pour les prédicats des requêtes des repositories
+-- Chaque index couvre une requête chaude (plans vérifiés par PlansRequetesTest).
+
+-- notes : bulletin d'un élève, clé d'upsert de l'import en masse, agrégats par classe-matière
+CREATE INDEX IF NOT EXISTS idx_notes_eleve_periode ON notes(eleve_id, periode_id);
+CREATE INDEX IF NOT EXISTS idx_notes_cle_upsert ON notes(eleve_id, classe_matiere_id, periode_id, type);
+CREATE INDEX IF NOT EXISTS idx_notes_classe_matiere_periode ON notes(classe_matiere_id, periode_id);
+
+-- presences : compteurs par élève et statut, historique d'un élève, appel du jour, statistiques annuelles
+CREATE INDEX IF NOT EXISTS idx_presences_eleve_annee_statut ON presences(eleve_id, annee_scolaire, statut);
+CREATE INDEX IF NOT EXISTS idx_presences_eleve_date ON presences(eleve_id, date_presence);
+CREATE INDEX IF NOT EXISTS idx_presences_date ON presences(date_presence);
+CREATE INDEX IF NOT EXISTS idx_presences_annee_statut ON presences(annee_scolaire, statut);
+
+-- paiements : situation d'un élève sur l'année, statistiques annuelles
+CREATE INDEX IF NOT EXISTS idx_paiements_eleve_annee ON paiements(eleve_id, annee_scolaire);
+CREATE INDEX IF NOT EXISTS idx_paiements_annee_statut ON paiements(annee_scolaire, statut);
+
+-- seances : emplois du temps et contrôles de conflits (classe, professeur, salle)
+CREATE INDEX IF NOT EXISTS idx_seances_classe_actif_jour ON seances(classe_id, actif, jour_semaine);
+CREATE INDEX IF NOT EXISTS idx_seances_professeur_actif_jour ON seances(professeur_id, actif, jour_semaine);
+CREATE INDEX IF NOT EXISTS idx_seances_salle_actif_jour ON seances(salle_id, actif, jour_semaine);
+
+-- resultats_examens : classement d'un examen
+CREATE INDEX IF NOT EXISTS idx_resultats_examen_note ON resultats_examens(examen_id, note_obtenue);
+
+-- bulletins : bulletin d'un élève pour une période
+CREATE INDEX IF NOT EXISTS idx_bulletins_eleve_periode ON bulletins(eleve_id, periode_id);
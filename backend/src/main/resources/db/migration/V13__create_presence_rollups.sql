@@ -0,0 +1,44 @@
+-- Migration V13: Agrégats de présence par classe, statut et jour / semaine
+-- Maintenus de façon incrémentale par PresenceService (via PresenceAgregatService)
+-- et recalculés chaque nuit, pour lire statistiques et courbes de présence sans
+-- parcourir la table presences. classe_id vaut 0 pour un élève sans classe.
+
+CREATE TABLE IF NOT EXISTS presences_jour (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    classe_id BIGINT NOT NULL,
+    date_presence DATE NOT NULL,
+    statut VARCHAR(255) NOT NULL,
+    annee_scolaire VARCHAR(255) NOT NULL,
+    nombre INT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_presences_jour UNIQUE (classe_id, date_presence, statut, annee_scolaire)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_presences_jour_annee_date_presence ON presences_jour(annee_scolaire, date_presence);
+
+CREATE TABLE IF NOT EXISTS presences_semaine (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    classe_id BIGINT NOT NULL,
+    semaine DATE NOT NULL, -- lundi de la semaine
+    statut VARCHAR(255) NOT NULL,
+    annee_scolaire VARCHAR(255) NOT NULL,
+    nombre INT NOT NULL DEFAULT 0,
+    CONSTRAINT uk_presences_semaine UNIQUE (classe_id, semaine, statut, annee_scolaire)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_presences_semaine_annee_semaine ON presences_semaine(annee_scolaire, semaine);
+
+-- Initialisation depuis les présences existantes
+DELETE FROM presences_jour;
+DELETE FROM presences_semaine;
+
+INSERT INTO presences_jour (classe_id, date_presence, statut, annee_scolaire, nombre)
+SELECT COALESCE(e.classe_id, 0), p.date_presence, p.statut, p.annee_scolaire, COUNT(*)
+FROM presences p
+JOIN eleves e ON e.id = p.eleve_id
+WHERE p.date_presence IS NOT NULL AND p.statut IS NOT NULL AND p.annee_scolaire IS NOT NULL
+GROUP BY COALESCE(e.classe_id, 0), p.date_presence, p.statut, p.annee_scolaire;
+
+INSERT INTO presences_semaine (classe_id, semaine, statut, annee_scolaire, nombre)
+SELECT classe_id, DATE_SUB(date_presence, INTERVAL WEEKDAY(date_presence) DAY), statut, annee_scolaire, SUM(nombre)
+FROM presences_jour
+GROUP BY classe_id, DATE_SUB(date_presence, INTERVAL WEEKDAY(date_presence) DAY), statut, annee_scolaire;
@@ -0,0 +1,47 @@
+-- Migration V14: Archivage des années scolaires passées
+-- ArchivageService déplace par lots les présences et notes d'une année vers
+-- ces tables (mêmes colonnes, mêmes ids, sans clés étrangères) et l'inscrit
+-- dans annees_archivees ; les lectures portant sur une année archivée
+-- interrogent aussi les archives.
+
+CREATE TABLE IF NOT EXISTS annees_archivees (
+    annee_scolaire VARCHAR(20) PRIMARY KEY,
+    date_archivage DATETIME(6) NOT NULL,
+    presences_archivees BIGINT NOT NULL DEFAULT 0,
+    notes_archivees BIGINT NOT NULL DEFAULT 0
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE IF NOT EXISTS presences_archive (
+    id BIGINT PRIMARY KEY,
+    eleve_id BIGINT NOT NULL,
+    seance_id BIGINT,
+    date_presence DATE NOT NULL,
+    statut VARCHAR(30),
+    heure_arrivee TIME,
+    minutes_retard INT,
+    justifie BIT(1),
+    motif VARCHAR(255),
+    annee_scolaire VARCHAR(255),
+    commentaire VARCHAR(255)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_presences_archive_eleve_annee ON presences_archive(eleve_id, annee_scolaire);
+CREATE INDEX idx_presences_archive_date ON presences_archive(date_presence);
+
+CREATE TABLE IF NOT EXISTS notes_archive (
+    id BIGINT PRIMARY KEY,
+    eleve_id BIGINT NOT NULL,
+    matiere_id BIGINT,
+    classe_matiere_id BIGINT,
+    examen_id BIGINT,
+    periode_id BIGINT,
+    valeur DECIMAL(5, 2) NOT NULL,
+    type VARCHAR(50),
+    date_note DATE,
+    commentaire VARCHAR(255),
+    annee_scolaire VARCHAR(255),
+    absent BIT(1) NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_notes_archive_eleve_periode ON notes_archive(eleve_id, periode_id);
+CREATE INDEX idx_notes_archive_matiere ON notes_archive(matiere_id);
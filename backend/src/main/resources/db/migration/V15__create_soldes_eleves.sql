@@ -0,0 +1,23 @@
+-- Migration V15: Soldes de paiement maintenus par élève et année scolaire
+-- Mis à jour de façon incrémentale par PaiementService (via SoldeEleveService),
+-- pour lire le solde d'un élève sans agréger la table paiements.
+
+CREATE TABLE IF NOT EXISTS soldes_eleves (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    eleve_id BIGINT NOT NULL,
+    annee_scolaire VARCHAR(20) NOT NULL,
+    total_du DECIMAL(12,2) NOT NULL DEFAULT 0,
+    total_paye DECIMAL(12,2) NOT NULL DEFAULT 0,
+    reste_a_payer DECIMAL(12,2) NOT NULL DEFAULT 0,
+    CONSTRAINT uk_solde_eleve_annee UNIQUE (eleve_id, annee_scolaire)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Initialisation depuis les paiements existants
+DELETE FROM soldes_eleves;
+
+INSERT INTO soldes_eleves (eleve_id, annee_scolaire, total_du, total_paye, reste_a_payer)
+SELECT p.eleve_id, p.annee_scolaire, COALESCE(SUM(p.montant), 0), COALESCE(SUM(p.montant_paye), 0),
+       COALESCE(SUM(p.reste_a_payer), 0)
+FROM paiements p
+WHERE p.annee_scolaire IS NOT NULL
+GROUP BY p.eleve_id, p.annee_scolaire;
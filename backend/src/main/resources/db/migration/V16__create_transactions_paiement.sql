@@ -0,0 +1,28 @@
+-- Migration V16: Journal des encaissements (transactions_paiement)
+-- Le montant payé d'un paiement devient la somme de ses écritures ; la colonne
+-- version sert au verrouillage optimiste des encaissements concurrents.
+
+CREATE TABLE IF NOT EXISTS transactions_paiement (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    paiement_id BIGINT NOT NULL,
+    nature VARCHAR(20) NOT NULL,
+    montant DECIMAL(10,2) NOT NULL,
+    mode_paiement VARCHAR(50),
+    reference VARCHAR(100),
+    date_transaction DATETIME(6) NOT NULL,
+    cle_idempotence VARCHAR(100),
+    CONSTRAINT uk_transaction_cle_idempotence UNIQUE (cle_idempotence),
+    CONSTRAINT fk_transactions_paiement_paiement FOREIGN KEY (paiement_id) REFERENCES paiements(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_transactions_paiement_paiement ON transactions_paiement(paiement_id);
+
+ALTER TABLE paiements ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+-- Reprise des montants déjà payés : une écriture par paiement
+INSERT INTO transactions_paiement (paiement_id, nature, montant, mode_paiement, reference, date_transaction)
+SELECT p.id, 'Reprise', p.montant_paye, p.mode_paiement, p.reference_paiement,
+       COALESCE(CAST(p.date_paiement AS DATETIME), p.created_at, CURRENT_TIMESTAMP)
+FROM paiements p
+WHERE p.montant_paye > 0
+  AND NOT EXISTS (SELECT 1 FROM transactions_paiement t WHERE t.paiement_id = p.id);
@@ -0,0 +1,4 @@
+-- Migration V17: Index sur la référence des paiements
+-- Recherche par référence et rapprochement des relevés bancaires.
+
+CREATE INDEX idx_paiements_reference ON paiements(reference_paiement);
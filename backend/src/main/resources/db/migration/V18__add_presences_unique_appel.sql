@@ -0,0 +1,13 @@
+-- Migration V18: Une seule présence par (élève, séance, date)
+-- Les appels concurrents d'une même séance ne peuvent plus créer de doublons :
+-- PresenceJdbcRepository écrit en INSERT ... ON DUPLICATE KEY UPDATE sur cette clé.
+-- Les doublons existants sont d'abord supprimés (la saisie la plus récente est conservée).
+
+DELETE p1 FROM presences p1
+JOIN presences p2 ON p2.eleve_id = p1.eleve_id
+    AND p2.seance_id = p1.seance_id
+    AND p2.date_presence = p1.date_presence
+    AND p2.id > p1.id;
+
+ALTER TABLE presences
+    ADD CONSTRAINT uk_presences_eleve_seance_date UNIQUE (eleve_id, seance_id, date_presence);
@@ -0,0 +1,12 @@
+-- Migration V19: Un seul paiement par élève, type de frais, année et mois
+-- L'émission en masse et la création unitaire ne peuvent plus émettre deux fois
+-- les mêmes frais. Les paiements sans type de frais ou sans mois ne sont pas
+-- concernés (NULL).
+-- La contrainte échoue si des doublons existent : les lister avec
+--   SELECT eleve_id, type_frais_id, annee_scolaire, mois_concerne, COUNT(*) FROM paiements
+--   WHERE type_frais_id IS NOT NULL AND mois_concerne IS NOT NULL
+--   GROUP BY eleve_id, type_frais_id, annee_scolaire, mois_concerne HAVING COUNT(*) > 1;
+-- puis annuler les paiements en trop (DELETE /api/paiements/{id}), ce qui libère leur mois.
+
+ALTER TABLE paiements
+    ADD CONSTRAINT uk_paiements_frais_mois UNIQUE (eleve_id, type_frais_id, annee_scolaire, mois_concerne);
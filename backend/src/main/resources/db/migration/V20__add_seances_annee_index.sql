@@ -0,0 +1,4 @@
+-- Migration V20: Index des séances actives d'une année scolaire
+-- Séances conservées lors de la génération d'un emploi du temps et contrôles de conflits par année.
+
+CREATE INDEX idx_seances_annee_actif ON seances(annee_scolaire, actif);
@@ -0,0 +1,18 @@
+-- Migration V21: Clé unique des présences étendue aux appels sans séance
+-- seance_id NULL ne se compare pas dans uk_presences_eleve_seance_date : deux appels
+-- sans séance du même élève le même jour créaient deux lignes. La clé porte désormais
+-- sur seance_cle = COALESCE(seance_id, 0). Les doublons existants sont d'abord
+-- supprimés (la saisie la plus récente est conservée).
+
+DELETE p1 FROM presences p1
+JOIN presences p2 ON p2.eleve_id = p1.eleve_id
+    AND p2.seance_id IS NULL AND p1.seance_id IS NULL
+    AND p2.date_presence = p1.date_presence
+    AND p2.id > p1.id;
+
+ALTER TABLE presences
+    ADD COLUMN seance_cle BIGINT GENERATED ALWAYS AS (COALESCE(seance_id, 0)) AFTER seance_id;
+
+ALTER TABLE presences
+    DROP INDEX uk_presences_eleve_seance_date,
+    ADD CONSTRAINT uk_presences_eleve_seance_date UNIQUE (eleve_id, seance_cle, date_presence);
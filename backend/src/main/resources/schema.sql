@@ -165,6 +165,7 @@ CREATE TABLE IF NOT EXISTS paiements (
     annee_scolaire VARCHAR(20),
     commentaire TEXT,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_paiements_frais_mois UNIQUE (eleve_id, type_frais_id, annee_scolaire, mois_concerne),
     FOREIGN KEY (eleve_id) REFERENCES eleves(id) ON DELETE CASCADE,
     FOREIGN KEY (type_frais_id) REFERENCES types_frais(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -284,6 +285,7 @@ CREATE TABLE IF NOT EXISTS presences (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     eleve_id BIGINT NOT NULL,
     seance_id BIGINT,
+    seance_cle BIGINT GENERATED ALWAYS AS (COALESCE(seance_id, 0)), -- 0 pour un appel sans séance
     date_presence DATE NOT NULL,
     statut VARCHAR(30), -- present, absent, retard, excuse
     heure_arrivee TIME,
@@ -292,6 +294,7 @@ CREATE TABLE IF NOT EXISTS presences (
     motif VARCHAR(255),
     annee_scolaire VARCHAR(20),
     commentaire TEXT,
+    CONSTRAINT uk_presences_eleve_seance_date UNIQUE (eleve_id, seance_cle, date_presence),
     FOREIGN KEY (eleve_id) REFERENCES eleves(id) ON DELETE CASCADE,
     FOREIGN KEY (seance_id) REFERENCES seances(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -309,6 +312,8 @@ CREATE INDEX IF NOT EXISTS idx_eleves_statut ON eleves(statut);
 CREATE INDEX IF NOT EXISTS idx_paiements_eleve ON paiements(eleve_id);
 CREATE INDEX IF NOT EXISTS idx_paiements_statut ON paiements(statut);
 CREATE INDEX IF NOT EXISTS idx_paiements_date ON paiements(date_paiement);
+CREATE INDEX IF NOT EXISTS idx_paiements_eleve_annee ON paiements(eleve_id, annee_scolaire);
+CREATE INDEX IF NOT EXISTS idx_paiements_annee_statut ON paiements(annee_scolaire, statut);
 
 CREATE INDEX IF NOT EXISTS idx_personnel_matricule ON personnel(matricule);
 CREATE INDEX IF NOT EXISTS idx_personnel_type ON personnel(type);
@@ -317,6 +322,10 @@ CREATE INDEX IF NOT EXISTS idx_personnel_statut ON personnel(statut);
 CREATE INDEX IF NOT EXISTS idx_seances_classe ON seances(classe_id);
 CREATE INDEX IF NOT EXISTS idx_seances_professeur ON seances(professeur_id);
 CREATE INDEX IF NOT EXISTS idx_seances_jour ON seances(jour_semaine);
+CREATE INDEX IF NOT EXISTS idx_seances_classe_actif_jour ON seances(classe_id, actif, jour_semaine);
+CREATE INDEX IF NOT EXISTS idx_seances_professeur_actif_jour ON seances(professeur_id, actif, jour_semaine);
+CREATE INDEX IF NOT EXISTS idx_seances_salle_actif_jour ON seances(salle_id, actif, jour_semaine);
+CREATE INDEX IF NOT EXISTS idx_seances_annee_actif ON seances(annee_scolaire, actif);
 
 CREATE INDEX IF NOT EXISTS idx_examens_classe ON examens(classe_id);
 CREATE INDEX IF NOT EXISTS idx_examens_date ON examens(date_examen);
@@ -325,13 +334,22 @@ CREATE INDEX IF NOT EXISTS idx_examens_statut ON examens(statut);
 CREATE INDEX IF NOT EXISTS idx_notes_eleve ON notes(eleve_id);
 CREATE INDEX IF NOT EXISTS idx_notes_matiere ON notes(matiere_id);
 CREATE INDEX IF NOT EXISTS idx_notes_periode ON notes(periode_id);
+CREATE INDEX IF NOT EXISTS idx_notes_eleve_periode ON notes(eleve_id, periode_id);
+CREATE INDEX IF NOT EXISTS idx_notes_cle_upsert ON notes(eleve_id, classe_matiere_id, periode_id, type);
+CREATE INDEX IF NOT EXISTS idx_notes_classe_matiere_periode ON notes(classe_matiere_id, periode_id);
 
 CREATE INDEX IF NOT EXISTS idx_presences_eleve ON presences(eleve_id);
 CREATE INDEX IF NOT EXISTS idx_presences_date ON presences(date_presence);
 CREATE INDEX IF NOT EXISTS idx_presences_statut ON presences(statut);
+CREATE INDEX IF NOT EXISTS idx_presences_eleve_annee_statut ON presences(eleve_id, annee_scolaire, statut);
+CREATE INDEX IF NOT EXISTS idx_presences_eleve_date ON presences(eleve_id, date_presence);
+CREATE INDEX IF NOT EXISTS idx_presences_annee_statut ON presences(annee_scolaire, statut);
 
 CREATE INDEX IF NOT EXISTS idx_bulletins_eleve ON bulletins(eleve_id);
 CREATE INDEX IF NOT EXISTS idx_bulletins_periode ON bulletins(periode_id);
+CREATE INDEX IF NOT EXISTS idx_bulletins_eleve_periode ON bulletins(eleve_id, periode_id);
+
+CREATE INDEX IF NOT EXISTS idx_resultats_examen_note ON resultats_examens(examen_id, note_obtenue);
 
 -- ============================================
 -- DONNÉES INITIALES - Types de frais
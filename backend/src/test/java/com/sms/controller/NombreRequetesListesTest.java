@@ -0,0 +1,225 @@
+package com.sms.controller;
+
+import com.sms.entity.Presence;
+import com.sms.entity.ResultatExamen;
+import com.sms.entity.Seance;
+import com.sms.repository.NoteRepository;
+import com.sms.repository.PresenceRepository;
+import com.sms.repository.ResultatExamenRepository;
+import com.sms.repository.SeanceRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Nombre de requêtes SQL des lectures de listes : il doit rester borné quel
+ * que soit le nombre de lignes (associations LAZY lues par projection ou
+ * graphe d'entités, sans N+1).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class NombreRequetesListesTest {
+
+    private static final int ELEVES = 12;
+    private static final int MATIERES = 3;
+
+    /** Requête principale, plus au plus un comptage ou une vérification annexe. */
+    private static final long REQUETES_MAX = 2;
+
+    /** Bulletins avec élèves et période, lignes de notes, moyennes de classe. */
+    private static final long REQUETES_BULLETINS = 3;
+
+    /** Élèves ayant un bulletin sur la seconde période. */
+    private static final int ELEVES_SECONDE_PERIODE = 2;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private NoteRepository noteRepository;
+    @Autowired
+    private PresenceRepository presenceRepository;
+    @Autowired
+    private SeanceRepository seanceRepository;
+    @Autowired
+    private ResultatExamenRepository resultatExamenRepository;
+
+    private Statistics statistiques;
+
+    @BeforeAll
+    void creerDonnees() {
+        Long niveauId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM niveaux", Long.class);
+        List<Long> matiereIds = jdbcTemplate.queryForList("SELECT id FROM matieres ORDER BY id LIMIT " + MATIERES, Long.class);
+        List<Long> salleIds = jdbcTemplate.queryForList("SELECT id FROM salles ORDER BY id LIMIT " + MATIERES, Long.class);
+
+        jdbcTemplate.update("INSERT INTO classes (id, nom, niveau_id, capacite, effectif, statut, annee_scolaire) " +
+                "VALUES (1000, 'Test A', ?, 40, ?, 'Active', '2024-2025')", niveauId, ELEVES);
+        jdbcTemplate.update("INSERT INTO periodes (id, nom, annee_scolaire, ordre, actif) VALUES (1000, 'T1', '2024-2025', 1, TRUE)");
+        jdbcTemplate.update("INSERT INTO periodes (id, nom, annee_scolaire, ordre, actif) VALUES (1001, 'T2', '2024-2025', 2, FALSE)");
+        jdbcTemplate.update("INSERT INTO examens (id, nom, matiere_id, classe_id, periode_id, statut, annee_scolaire) " +
+                "VALUES (1000, 'Composition', ?, 1000, 1000, 'termine', '2024-2025')", matiereIds.get(0));
+        for (int m = 0; m < MATIERES; m++) {
+            jdbcTemplate.update("INSERT INTO matiere_niveaux (id, coefficient, matiere_id, niveau_id) VALUES (?, 2, ?, ?)",
+                    1000 + m, matiereIds.get(m), niveauId);
+            jdbcTemplate.update("INSERT INTO classe_matieres (id, coefficient, classe_id, matiere_niveau_id) VALUES (?, 2, 1000, ?)",
+                    1000 + m, 1000 + m);
+            jdbcTemplate.update("INSERT INTO personnel (id, nom, prenom, type, statut) VALUES (?, ?, 'Prof', 'enseignant', 'actif')",
+                    1000 + m, "Professeur " + m);
+            jdbcTemplate.update("INSERT INTO seances (id, classe_id, matiere_id, professeur_id, salle_id, jour_semaine, " +
+                    "heure_debut, heure_fin, annee_scolaire, actif) VALUES (?, 1000, ?, ?, ?, 1, ?, ?, '2024-2025', TRUE)",
+                    1000 + m, matiereIds.get(m), 1000 + m, salleIds.get(m),
+                    Time.valueOf((8 + m) + ":00:00"), Time.valueOf((9 + m) + ":00:00"));
+        }
+        for (int e = 0; e < ELEVES; e++) {
+            long eleveId = 1000 + e;
+            jdbcTemplate.update("INSERT INTO eleves (id, matricule, nom, prenom, classe_id, statut) VALUES (?, ?, ?, 'Test', 1000, 'Actif')",
+                    eleveId, "T-" + eleveId, "Eleve " + e);
+            jdbcTemplate.update("INSERT INTO resultats_examens (eleve_id, examen_id, note_obtenue, absent) VALUES (?, 1000, ?, FALSE)",
+                    eleveId, 10 + e % 8);
+            for (int m = 0; m < MATIERES; m++) {
+                jdbcTemplate.update("INSERT INTO notes (eleve_id, matiere_id, classe_matiere_id, examen_id, periode_id, valeur, " +
+                        "type, date_note, annee_scolaire, absent) VALUES (?, ?, ?, 1000, 1000, ?, 'Devoir', DATE '2024-10-15', '2024-2025', FALSE)",
+                        eleveId, matiereIds.get(m), 1000 + m, 8 + (e + m) % 10);
+                jdbcTemplate.update("INSERT INTO presences (eleve_id, seance_id, date_presence, statut, justifie, annee_scolaire) " +
+                        "VALUES (?, ?, DATE '2024-10-14', 'present', FALSE, '2024-2025')", eleveId, 1000 + m);
+            }
+            jdbcTemplate.update("INSERT INTO bulletins (eleve_id, periode_id, rang, total_eleves, annee_scolaire) " +
+                    "VALUES (?, 1000, ?, ?, '2024-2025')", eleveId, e + 1, ELEVES);
+            if (e < ELEVES_SECONDE_PERIODE) {
+                jdbcTemplate.update("INSERT INTO bulletins (eleve_id, periode_id, rang, total_eleves, annee_scolaire) " +
+                        "VALUES (?, 1001, ?, ?, '2024-2025')", eleveId, e + 1, ELEVES_SECONDE_PERIODE);
+                jdbcTemplate.update("INSERT INTO notes (eleve_id, matiere_id, classe_matiere_id, periode_id, valeur, " +
+                        "type, date_note, annee_scolaire, absent) VALUES (?, ?, 1000, 1001, 12, 'Devoir', DATE '2025-01-15', '2024-2025', FALSE)",
+                        eleveId, matiereIds.get(0));
+            }
+        }
+        statistiques = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @BeforeEach
+    void remettreAZero() {
+        statistiques.clear();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/notes?limit=1000",
+            "/api/notes?limit=20",
+            "/api/notes/eleve/1000",
+            "/api/notes/eleve/1000/periode/1000",
+            "/api/presences?limit=1000",
+            "/api/presences/eleve/1000",
+            "/api/presences/classe/1000/date/2024-10-14",
+            "/api/presences/date/2024-10-14",
+            "/api/examens/1000/resultats",
+            "/api/emploi-du-temps/seances",
+            "/api/emploi-du-temps/classe/1000",
+            "/api/emploi-du-temps/professeur/1000",
+            "/api/emploi-du-temps/jour/1"
+    })
+    void listeEnNombreBorneDeRequetes(String url) throws Exception {
+        mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(greaterThan(0)));
+
+        assertThat(statistiques.getPrepareStatementCount())
+                .as("requêtes SQL pour GET %s", url)
+                .isBetween(1L, REQUETES_MAX);
+    }
+
+    @Test
+    void bulletinsDeClasseEnNombreConstantDeRequetes() throws Exception {
+        mockMvc.perform(get("/api/notes/bulletins/classe/1000/periode/1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ELEVES));
+        long requetesClasseEntiere = statistiques.getPrepareStatementCount();
+
+        statistiques.clear();
+        mockMvc.perform(get("/api/notes/bulletins/classe/1000/periode/1001"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(ELEVES_SECONDE_PERIODE));
+        long requetesDeuxEleves = statistiques.getPrepareStatementCount();
+
+        assertThat(requetesClasseEntiere)
+                .as("requêtes pour %d bulletins et pour %d", ELEVES, ELEVES_SECONDE_PERIODE)
+                .isEqualTo(requetesDeuxEleves)
+                .isBetween(1L, REQUETES_BULLETINS);
+    }
+
+    @Test
+    void grapheNoteChargeLesAssociationsEnUneRequete() {
+        long lignes = transactionTemplate.execute(statut -> noteRepository.findByPeriodeId(1000L).stream()
+                .map(n -> n.getEleve().getNom() + n.getMatiere().getNom() + n.getExamen().getNom()
+                        + n.getPeriode().getNom() + n.getClasseMatiere().getMatiereNiveau().getMatiere().getNom())
+                .count());
+
+        assertThat(lignes).isEqualTo(ELEVES * MATIERES);
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void graphePresenceChargeLesAssociationsEnUneRequete() {
+        List<Presence> presences = transactionTemplate.execute(statut -> {
+            List<Presence> liste = presenceRepository.findByClasseAndDate(1000L, LocalDate.of(2024, 10, 14));
+            liste.forEach(p -> p.getEleve().getClasse().getNom().length());
+            liste.forEach(p -> p.getSeance().getMatiere().getNom().length());
+            return liste;
+        });
+
+        assertThat(presences).hasSize(ELEVES * MATIERES);
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void grapheSeanceChargeLesAssociationsEnUneRequete() {
+        List<Seance> seances = transactionTemplate.execute(statut -> {
+            List<Seance> liste = seanceRepository.findEmploiDuTempsByClasse(1000L);
+            liste.forEach(s -> (s.getClasse().getNom() + s.getMatiere().getNom()
+                    + s.getProfesseur().getNom() + s.getSalle().getNom()).length());
+            return liste;
+        });
+
+        assertThat(seances).hasSize(MATIERES);
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void grapheResultatExamenChargeLesAssociationsEnUneRequete() {
+        List<ResultatExamen> resultats = transactionTemplate.execute(statut -> {
+            List<ResultatExamen> liste = resultatExamenRepository.findByExamenIdOrderByNoteDesc(1000L);
+            liste.forEach(r -> (r.getExamen().getNom() + r.getEleve().getNom()).length());
+            return liste;
+        });
+
+        assertThat(resultats).hasSize(ELEVES);
+        assertThat(statistiques.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,189 @@
+package com.sms.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Plans d'exécution des requêtes des repositories Spring Data : chaque méthode
+ * déclarée dans com.sms.repository est appelée avec des valeurs d'exemple, le
+ * SQL réellement généré par Hibernate est capturé puis passé à EXPLAIN. Un
+ * parcours complet d'une grande table fait échouer le test.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.sms.repository.PlansRequetesTest$CaptureRequetes")
+class PlansRequetesTest {
+
+    /** Tables dont le volume croît avec le nombre d'élèves et d'années. */
+    private static final Set<String> GRANDES_TABLES = Set.of(
+            "notes", "notes_archive", "presences", "presences_archive", "paiements",
+            "transactions_paiement", "resultats_examens", "bulletins", "seances");
+
+    /**
+     * Lectures complètes par construction : findAll hérité et recherches par un
+     * seul statut ou jour, sans appelant sur un chemin chaud.
+     * findEtatsActifs charge toutes les séances actives pour les contrôles de conflits.
+     */
+    private static final Set<String> PARCOURS_ATTENDUS = Set.of(
+            "findAll",
+            "PaiementRepository.findByStatut", "PresenceRepository.findByStatut",
+            "SeanceRepository.findByJourSemaine", "SeanceRepository.findByActifTrue",
+            "SeanceRepository.findEtatsActifs");
+
+    /** Parcours complet d'une table dans le plan H2 : « public.notes.tableScan ». */
+    private static final Pattern PARCOURS_COMPLET = Pattern.compile("/\\* public\\.(\\w+)\\.tableScan");
+
+    @Autowired
+    private ApplicationContext contexte;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void aucuneRequeteNeParcourtUneGrandeTable() {
+        Map<String, List<String>> requetes = capturerRequetes();
+        assertThat(requetes).isNotEmpty();
+
+        List<String> parcoursComplets = new ArrayList<>();
+        requetes.forEach((methode, sqls) -> {
+            for (String sql : sqls) {
+                String plan = expliquer(sql);
+                Matcher matcher = PARCOURS_COMPLET.matcher(plan);
+                while (matcher.find()) {
+                    if (GRANDES_TABLES.contains(matcher.group(1))) {
+                        parcoursComplets.add(methode + " -> " + matcher.group(1) + "\n" + sql);
+                    }
+                }
+            }
+        });
+
+        assertThat(parcoursComplets)
+                .as("requêtes en parcours complet d'une grande table")
+                .isEmpty();
+    }
+
+    /**
+     * Appelle chaque méthode déclarée par les repositories Spring Data de ce
+     * package, dans une transaction annulée, et regroupe le SQL émis par méthode.
+     */
+    private Map<String, List<String>> capturerRequetes() {
+        Map<String, List<String>> requetes = new TreeMap<>();
+        for (Object bean : contexte.getBeansOfType(Repository.class).values()) {
+            for (Class<?> type : bean.getClass().getInterfaces()) {
+                if (!Repository.class.isAssignableFrom(type) || !type.getPackageName().equals(getClass().getPackageName())) {
+                    continue;
+                }
+                for (Method methode : type.getDeclaredMethods()) {
+                    if (methode.isDefault() || Modifier.isStatic(methode.getModifiers())
+                            || PARCOURS_ATTENDUS.contains(methode.getName())
+                            || PARCOURS_ATTENDUS.contains(type.getSimpleName() + "." + methode.getName())) {
+                        continue;
+                    }
+                    CaptureRequetes.SQL.clear();
+                    transactionTemplate.executeWithoutResult(statut -> {
+                        statut.setRollbackOnly();
+                        try {
+                            methode.invoke(bean, exemples(methode));
+                        } catch (ReflectiveOperationException e) {
+                            // Résultat non unique ou vide : seul le SQL émis compte ici
+                        }
+                    });
+                    List<String> sqls = CaptureRequetes.SQL.stream()
+                            .filter(sql -> sql.regionMatches(true, 0, "select", 0, 6))
+                            .toList();
+                    if (!sqls.isEmpty()) {
+                        requetes.put(type.getSimpleName() + "." + methode.getName(), sqls);
+                    }
+                }
+            }
+        }
+        return requetes;
+    }
+
+    private static Object[] exemples(Method methode) {
+        Type[] types = methode.getGenericParameterTypes();
+        Object[] valeurs = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            valeurs[i] = exemple(types[i]);
+        }
+        return valeurs;
+    }
+
+    private static Object exemple(Type type) {
+        if (type instanceof ParameterizedType parametre
+                && Collection.class.isAssignableFrom((Class<?>) parametre.getRawType())) {
+            return List.of(exemple(parametre.getActualTypeArguments()[0]), exemple(parametre.getActualTypeArguments()[0]));
+        }
+        if (type == Long.class || type == long.class) {
+            return 1L;
+        }
+        if (type == Integer.class || type == int.class) {
+            return 1;
+        }
+        if (type == Boolean.class || type == boolean.class) {
+            return Boolean.TRUE;
+        }
+        if (type == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (type == LocalDate.class) {
+            return LocalDate.of(2024, 10, 14);
+        }
+        if (type == Limit.class) {
+            return Limit.of(100);
+        }
+        if (type == String.class) {
+            return "2024-2025";
+        }
+        throw new IllegalArgumentException("Type de paramètre sans valeur d'exemple: " + type);
+    }
+
+    /** Plan H2 de la requête, paramètres non liés (le plan ne dépend pas des valeurs). */
+    private String expliquer(String sql) {
+        return jdbcTemplate.query(connexion -> {
+            var requete = connexion.prepareStatement("EXPLAIN " + sql);
+            int parametres = requete.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parametres; i++) {
+                requete.setObject(i, null);
+            }
+            return requete;
+        }, rs -> rs.next() ? rs.getString(1) : "");
+    }
+
+    /** Inspecteur Hibernate : enregistre chaque requête SQL préparée. */
+    public static class CaptureRequetes implements StatementInspector {
+
+        static final List<String> SQL = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            SQL.add(sql);
+            return sql;
+        }
+    }
+}
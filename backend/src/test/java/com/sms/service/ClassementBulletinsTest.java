@@ -0,0 +1,150 @@
+package com.sms.service;
+
+import com.sms.dto.ClassementDTO;
+import com.sms.service.BulletinService.ModeClassement;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Classement des bulletins (BulletinService.classerClasse / classerPeriode) :
+ * rangs à égalité selon le mode, élèves inactifs hors classement, et durée
+ * du classement d'une période sur un établissement de plus de 2 000 élèves.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ClassementBulletinsTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassementBulletinsTest.class);
+
+    private static final long CLASSE = 3000;
+    private static final long PERIODE = 3000;
+    private static final long PERIODE_ETABLISSEMENT = 3100;
+    private static final long PREMIERE_CLASSE_ETABLISSEMENT = 3100;
+    private static final int CLASSES = 40;
+    private static final int ELEVES_PAR_CLASSE = 55;
+    private static final int MATIERES = 4;
+    private static final long BUDGET_MS = 10_000;
+
+    @Autowired
+    private BulletinService bulletinService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void creerDonnees() {
+        Long niveauId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM niveaux", Long.class);
+        List<Long> matiereIds = jdbcTemplate.queryForList("SELECT id FROM matieres ORDER BY id LIMIT " + MATIERES, Long.class);
+        for (int m = 0; m < MATIERES; m++) {
+            jdbcTemplate.update("INSERT INTO matiere_niveaux (id, coefficient, matiere_id, niveau_id) VALUES (?, 1, ?, ?)",
+                    3000 + m, matiereIds.get(m), niveauId);
+        }
+        jdbcTemplate.update("INSERT INTO periodes (id, nom, annee_scolaire, ordre, actif) VALUES (?, 'T1 classement', '2024-2025', 1, TRUE)",
+                PERIODE);
+        jdbcTemplate.update("INSERT INTO periodes (id, nom, annee_scolaire, ordre, actif) VALUES (?, 'T2 classement', '2024-2025', 2, FALSE)",
+                PERIODE_ETABLISSEMENT);
+
+        // Classe à égalités : 15, 12, 12, 10, et un élève inactif à 18
+        creerClasse(CLASSE, niveauId);
+        jdbcTemplate.update("INSERT INTO classe_matieres (id, coefficient, classe_id, matiere_niveau_id) VALUES (?, 1, ?, 3000)",
+                CLASSE, CLASSE);
+        int[] moyennes = {15, 12, 12, 10, 18};
+        for (int e = 0; e < moyennes.length; e++) {
+            long eleveId = CLASSE + e;
+            jdbcTemplate.update("INSERT INTO eleves (id, matricule, nom, prenom, classe_id, statut) VALUES (?, ?, ?, 'Rang', ?, ?)",
+                    eleveId, "R-" + eleveId, "Eleve " + e, CLASSE, e == 4 ? "Inactif" : "Actif");
+            jdbcTemplate.update("INSERT INTO notes (eleve_id, matiere_id, classe_matiere_id, periode_id, valeur, type, " +
+                    "date_note, annee_scolaire, absent) VALUES (?, ?, ?, ?, ?, 'Devoir', DATE '2024-10-15', '2024-2025', FALSE)",
+                    eleveId, matiereIds.get(0), CLASSE, PERIODE, moyennes[e]);
+        }
+
+        // Établissement fictif : 40 classes de 55 élèves, 4 matières
+        List<Object[]> eleves = new ArrayList<>();
+        List<Object[]> notes = new ArrayList<>();
+        for (int c = 0; c < CLASSES; c++) {
+            long classeId = PREMIERE_CLASSE_ETABLISSEMENT + c;
+            creerClasse(classeId, niveauId);
+            for (int m = 0; m < MATIERES; m++) {
+                jdbcTemplate.update("INSERT INTO classe_matieres (id, coefficient, classe_id, matiere_niveau_id) VALUES (?, 1, ?, ?)",
+                        classeId * 10 + m, classeId, 3000 + m);
+            }
+            for (int e = 0; e < ELEVES_PAR_CLASSE; e++) {
+                long eleveId = 10_000 + c * ELEVES_PAR_CLASSE + e;
+                eleves.add(new Object[]{eleveId, "E-" + eleveId, "Eleve " + e, classeId});
+                for (int m = 0; m < MATIERES; m++) {
+                    notes.add(new Object[]{eleveId, matiereIds.get(m), classeId * 10 + m, PERIODE_ETABLISSEMENT,
+                            (e * 7 + m * 3 + c) % 21});
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO eleves (id, matricule, nom, prenom, classe_id, statut) " +
+                "VALUES (?, ?, ?, 'Etab', ?, 'Actif')", eleves);
+        jdbcTemplate.batchUpdate("INSERT INTO notes (eleve_id, matiere_id, classe_matiere_id, periode_id, valeur, type, " +
+                "date_note, annee_scolaire, absent) VALUES (?, ?, ?, ?, ?, 'Devoir', DATE '2025-01-15', '2024-2025', FALSE)", notes);
+    }
+
+    @Test
+    void egalitesSelonLeModeEtInactifsExclus() {
+        Map<Long, Integer> competition = bulletinService.classerClasse(CLASSE, PERIODE, ModeClassement.COMPETITION, true);
+        assertThat(competition).containsOnly(
+                entry(CLASSE, 1), entry(CLASSE + 1, 2), entry(CLASSE + 2, 2), entry(CLASSE + 3, 4));
+        assertThat(rangsEnregistres()).containsExactly(1, 2, 2, 4);
+
+        Map<Long, Integer> dense = bulletinService.classerClasse(CLASSE, PERIODE, ModeClassement.DENSE, true);
+        assertThat(dense).containsOnly(
+                entry(CLASSE, 1), entry(CLASSE + 1, 2), entry(CLASSE + 2, 2), entry(CLASSE + 3, 3));
+        assertThat(rangsEnregistres()).containsExactly(1, 2, 2, 3);
+
+        assertThat(jdbcTemplate.queryForList("SELECT DISTINCT total_eleves FROM bulletins WHERE periode_id = ?",
+                Integer.class, PERIODE)).as("effectif classé, inactif exclu").containsExactly(4);
+    }
+
+    @Test
+    void classementDUnePeriodeSurPlusDeDeuxMilleEleves() {
+        int eleves = CLASSES * ELEVES_PAR_CLASSE;
+
+        ClassementDTO creation = bulletinService.classerPeriode(PERIODE_ETABLISSEMENT, ModeClassement.COMPETITION);
+        ClassementDTO miseAJour = bulletinService.classerPeriode(PERIODE_ETABLISSEMENT, ModeClassement.COMPETITION);
+        log.info("Classement d'une période sur {} classes : {} élèves, création en {} ms, mise à jour en {} ms",
+                creation.getClasses(), creation.getEleves(), creation.getDureeMs(), miseAJour.getDureeMs());
+
+        assertThat(creation.getEleves()).isGreaterThanOrEqualTo(eleves);
+        assertThat(creation.getBulletinsCrees()).isEqualTo(creation.getEleves());
+        assertThat(miseAJour.getBulletinsMisAJour()).isEqualTo(creation.getEleves());
+        assertThat(miseAJour.getBulletinsCrees()).isZero();
+        assertThat(creation.getDureeMs()).as("durée du classement (ms)").isLessThan(BUDGET_MS);
+        // Chaque classe de l'établissement est classée séparément, de 1 à au plus son effectif
+        List<Map<String, Object>> bornes = jdbcTemplate.queryForList(
+                "SELECT MIN(b.rang) AS premier, MAX(b.rang) AS dernier, MAX(b.total_eleves) AS total " +
+                "FROM bulletins b JOIN eleves e ON e.id = b.eleve_id " +
+                "WHERE b.periode_id = ? AND e.classe_id BETWEEN ? AND ? GROUP BY e.classe_id",
+                PERIODE_ETABLISSEMENT, PREMIERE_CLASSE_ETABLISSEMENT, PREMIERE_CLASSE_ETABLISSEMENT + CLASSES - 1);
+        assertThat(bornes).hasSize(CLASSES).allSatisfy(b -> {
+            assertThat(((Number) b.get("premier")).intValue()).isEqualTo(1);
+            assertThat(((Number) b.get("dernier")).intValue()).isLessThanOrEqualTo(ELEVES_PAR_CLASSE);
+            assertThat(((Number) b.get("total")).intValue()).isEqualTo(ELEVES_PAR_CLASSE);
+        });
+    }
+
+    private void creerClasse(long classeId, Long niveauId) {
+        jdbcTemplate.update("INSERT INTO classes (id, nom, niveau_id, capacite, effectif, statut, annee_scolaire) " +
+                "VALUES (?, ?, ?, 60, ?, 'Active', '2024-2025')", classeId, "Classe " + classeId, niveauId, ELEVES_PAR_CLASSE);
+    }
+
+    private List<Integer> rangsEnregistres() {
+        return jdbcTemplate.queryForList("SELECT b.rang FROM bulletins b JOIN eleves e ON e.id = b.eleve_id " +
+                "WHERE b.periode_id = ? AND e.classe_id = ? ORDER BY b.eleve_id", Integer.class, PERIODE, CLASSE);
+    }
+}
@@ -0,0 +1,91 @@
+package com.sms.service;
+
+import com.sms.service.GenerateurEmploiDuTemps.Lecon;
+import com.sms.service.GenerateurEmploiDuTemps.Probleme;
+import com.sms.service.GenerateurEmploiDuTemps.Resultat;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Mesure du générateur d'emploi du temps sur un établissement fictif construit
+ * en mémoire : 60 classes, 6 jours de 8 créneaux, 30 h par classe sur 10
+ * matières, professeurs à 20 h au plus, sciences en laboratoire. Rien n'est lu
+ * ni écrit en base.
+ */
+class GenerateurEmploiDuTempsBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(GenerateurEmploiDuTempsBenchmarkTest.class);
+
+    private static final int CLASSES = 60;
+    private static final int JOURS = 6;
+    private static final int CRENEAUX_PAR_JOUR = 8;
+    private static final int BUDGET_SECONDES = 30;
+    private static final int[] HEURES = {6, 5, 4, 3, 3, 3, 2, 2, 1, 1};
+    private static final boolean[] LABORATOIRE = {false, false, true, true, false, false, false, false, false, false};
+    private static final int HEURES_MAX_PROFESSEUR = 20;
+
+    @Test
+    void placeToutesLesHeuresDeLEcoleSynthetique() {
+        Probleme probleme = ecoleSynthetique(CLASSES);
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        long debut = System.nanoTime();
+        Resultat resultat = new GenerateurEmploiDuTemps(probleme)
+                .resoudre(TimeUnit.SECONDS.toNanos(BUDGET_SECONDES), threads, 42L);
+        long dureeMs = (System.nanoTime() - debut) / 1_000_000;
+
+        int total = probleme.lecons().length;
+        log.info("Génération sur école fictive de {} classes : {} heures placées sur {}, pénalité {} "
+                        + "(trous {}, doublons {}), {} recherches, {} itérations, {} fils, {} ms",
+                CLASSES, total - resultat.nonPlacees(), total, resultat.penalite(), resultat.trous(),
+                resultat.doublons(), resultat.recherches(), resultat.iterations(), threads, dureeMs);
+
+        assertThat(resultat.nonPlacees()).as("heures non placées").isZero();
+        assertThat(Arrays.stream(resultat.creneaux())).as("créneaux attribués")
+                .allMatch(t -> t >= 0 && t < probleme.nbCreneaux());
+    }
+
+    private static Probleme ecoleSynthetique(int nbClasses) {
+        int sallesBanales = nbClasses;
+        int heuresLaboratoire = 0;
+        for (int m = 0; m < HEURES.length; m++) {
+            heuresLaboratoire += LABORATOIRE[m] ? HEURES[m] : 0;
+        }
+        // Laboratoires occupés à 80 % environ
+        int laboratoires = (int) Math.ceil(nbClasses * heuresLaboratoire / 40.0);
+        int[] banales = new int[sallesBanales];
+        int[] labos = new int[laboratoires];
+        for (int s = 0; s < sallesBanales; s++) {
+            banales[s] = s;
+        }
+        for (int s = 0; s < laboratoires; s++) {
+            labos[s] = sallesBanales + s;
+        }
+
+        List<Lecon> lecons = new ArrayList<>();
+        int professeurs = 0;
+        int besoin = 0;
+        for (int m = 0; m < HEURES.length; m++) {
+            int classesParProfesseur = HEURES_MAX_PROFESSEUR / HEURES[m];
+            for (int c = 0; c < nbClasses; c++, besoin++) {
+                int professeur = professeurs + c / classesParProfesseur;
+                for (int h = 0; h < HEURES[m]; h++) {
+                    lecons.add(new Lecon(besoin, c, professeur, LABORATOIRE[m] ? labos : banales));
+                }
+            }
+            professeurs += (nbClasses + classesParProfesseur - 1) / classesParProfesseur;
+        }
+
+        int salles = sallesBanales + laboratoires;
+        return new Probleme(JOURS, CRENEAUX_PAR_JOUR, nbClasses, professeurs, salles, besoin,
+                lecons.toArray(new Lecon[0]), new long[nbClasses], new long[professeurs], new long[salles]);
+    }
+}
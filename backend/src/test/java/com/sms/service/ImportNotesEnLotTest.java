@@ -0,0 +1,139 @@
+package com.sms.service;
+
+import com.sms.dto.NoteCreateDTO;
+import com.sms.dto.NoteDTO;
+import com.sms.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Import de notes en lot (NoteService.createNotesBulk, écrit par
+ * NoteJdbcRepository) : issue de chaque ligne (insertion, mise à jour ou
+ * rejet du lot) et débit comparé à la saisie note par note.
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ImportNotesEnLotTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportNotesEnLotTest.class);
+
+    private static final long CLASSE = 2000;
+    private static final long CLASSE_MATIERE = 2000;
+    private static final long PERIODE = 2000;
+    private static final long PREMIER_ELEVE = 2000;
+    private static final int ELEVES = 300;
+
+    @Autowired
+    private NoteService noteService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void creerDonnees() {
+        Long niveauId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM niveaux", Long.class);
+        Long matiereId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM matieres", Long.class);
+
+        jdbcTemplate.update("INSERT INTO classes (id, nom, niveau_id, capacite, effectif, statut, annee_scolaire) " +
+                "VALUES (?, 'Import', ?, 400, ?, 'Active', '2024-2025')", CLASSE, niveauId, ELEVES);
+        jdbcTemplate.update("INSERT INTO periodes (id, nom, annee_scolaire, ordre, actif) VALUES (?, 'T1 import', '2024-2025', 1, TRUE)",
+                PERIODE);
+        jdbcTemplate.update("INSERT INTO matiere_niveaux (id, coefficient, matiere_id, niveau_id) VALUES (2000, 2, ?, ?)",
+                matiereId, niveauId);
+        jdbcTemplate.update("INSERT INTO classe_matieres (id, coefficient, classe_id, matiere_niveau_id) VALUES (?, 2, ?, 2000)",
+                CLASSE_MATIERE, CLASSE);
+        for (int e = 0; e < ELEVES; e++) {
+            long eleveId = PREMIER_ELEVE + e;
+            jdbcTemplate.update("INSERT INTO eleves (id, matricule, nom, prenom, classe_id, statut) VALUES (?, ?, ?, 'Import', ?, 'Actif')",
+                    eleveId, "I-" + eleveId, "Eleve " + e, CLASSE);
+        }
+    }
+
+    @Test
+    void chaqueLigneEstInsereeOuMiseAJourSurSaCle() {
+        List<NoteDTO> premieres = noteService.createNotesBulk(List.of(
+                note(PREMIER_ELEVE, "12", "Interrogation"),
+                note(PREMIER_ELEVE + 1, "8", "Interrogation")), true);
+
+        List<NoteDTO> secondes = noteService.createNotesBulk(List.of(
+                note(PREMIER_ELEVE, "15", "Interrogation"),
+                note(PREMIER_ELEVE + 2, "9", "Interrogation"),
+                note(PREMIER_ELEVE + 2, "11", "Interrogation")), true);
+
+        assertThat(secondes.get(0).getId()).as("clé existante : mise à jour").isEqualTo(premieres.get(0).getId());
+        assertThat(secondes.get(1).getId()).as("nouvelle clé : insertion")
+                .isNotNull()
+                .isNotIn(premieres.get(0).getId(), premieres.get(1).getId());
+        assertThat(secondes.get(2).getId()).as("clé répétée dans le lot : une seule ligne")
+                .isEqualTo(secondes.get(1).getId());
+
+        assertThat(valeurs("Interrogation")).containsExactly(
+                new BigDecimal("15.00"), new BigDecimal("8.00"), new BigDecimal("11.00"));
+    }
+
+    @Test
+    void uneLigneInvalideRejetteToutLeLot() {
+        assertThatThrownBy(() -> noteService.createNotesBulk(List.of(
+                note(PREMIER_ELEVE, "10", "Rejet"),
+                note(PREMIER_ELEVE + 1, "25", "Rejet")), true))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> noteService.createNotesBulk(List.of(
+                note(PREMIER_ELEVE, "10", "Rejet"),
+                note(999_999L, "10", "Rejet")), true))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        assertThat(valeurs("Rejet")).isEmpty();
+    }
+
+    @Test
+    void leLotEcritPlusViteQueLaSaisieNoteParNote() {
+        List<NoteCreateDTO> lot = new ArrayList<>(ELEVES);
+        for (int e = 0; e < ELEVES; e++) {
+            lot.add(note(PREMIER_ELEVE + e, String.valueOf(e % 21), "Lot"));
+        }
+        long debut = System.nanoTime();
+        noteService.createNotesBulk(lot, true);
+        long lotMs = (System.nanoTime() - debut) / 1_000_000;
+
+        debut = System.nanoTime();
+        for (int e = 0; e < ELEVES; e++) {
+            noteService.createNote(note(PREMIER_ELEVE + e, String.valueOf(e % 21), "Boucle"));
+        }
+        long boucleMs = (System.nanoTime() - debut) / 1_000_000;
+
+        log.info("Import de {} notes : lot en {} ms, note par note en {} ms", ELEVES, lotMs, boucleMs);
+        assertThat(valeurs("Lot")).hasSize(ELEVES);
+        assertThat(valeurs("Boucle")).hasSize(ELEVES);
+        assertThat(lotMs).as("durée du lot (ms)").isLessThan(boucleMs);
+    }
+
+    private static NoteCreateDTO note(long eleveId, String valeur, String type) {
+        NoteCreateDTO dto = new NoteCreateDTO();
+        dto.setEleveId(eleveId);
+        dto.setClasseMatiereId(CLASSE_MATIERE);
+        dto.setPeriodeId(PERIODE);
+        dto.setValeur(new BigDecimal(valeur));
+        dto.setType(type);
+        dto.setDateNote(LocalDate.of(2024, 10, 15));
+        dto.setAnneeScolaire("2024-2025");
+        return dto;
+    }
+
+    private List<BigDecimal> valeurs(String type) {
+        return jdbcTemplate.queryForList("SELECT valeur FROM notes WHERE classe_matiere_id = ? AND type = ? ORDER BY eleve_id",
+                BigDecimal.class, CLASSE_MATIERE, type);
+    }
+}
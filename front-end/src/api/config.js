@@ -16,3 +16,23 @@ export const delay = (ms = API_CONFIG.MOCK_DELAY) =>
 
 // Helper pour construire les URLs
 export const buildUrl = (endpoint) => `${API_CONFIG.BASE_URL}${endpoint}`
+
+// Helper pour lire une liste paginée en entier : le backend renvoie des pages
+// (?after=&limit=) et l'en-tête X-Next-Cursor tant qu'il reste des lignes
+export const fetchAllPages = async (endpoint, params = {}, messageErreur = 'Erreur lors du chargement') => {
+  const lignes = []
+  let curseur = null
+  do {
+    const query = new URLSearchParams(params)
+    query.set('limit', '1000')
+    if (curseur) query.set('after', curseur)
+    const response = await fetch(`${buildUrl(endpoint)}?${query}`)
+    if (!response.ok) {
+      const error = await response.text()
+      throw new Error(error || messageErreur)
+    }
+    lignes.push(...await response.json())
+    curseur = response.headers.get('X-Next-Cursor')
+  } while (curseur)
+  return lignes
+}
@@ -438,7 +438,7 @@ export default function GestionExamens() {
         const [classesData, typeExamensData, allExamensData] = await Promise.all([
           classeService.getAllClasses(),
           fetch('http://localhost:8080/api/type-examens').then(r => r.json()).catch(() => []),
-          fetch('http://localhost:8080/api/examens').then(r => r.json()).catch(() => [])
+          examenService.getAllExamens().catch(() => [])
         ])
         setClasses(classesData)
         setTypeExamens(typeExamensData)
@@ -461,7 +461,7 @@ export default function GestionExamens() {
       const loadAllExamens = async () => {
         try {
           setLoading(true)
-          const allExamensData = await fetch('http://localhost:8080/api/examens').then(r => r.json()).catch(() => [])
+          const allExamensData = await examenService.getAllExamens().catch(() => [])
           // Filtrer par trimestre si nécessaire
           const examensFiltres = allExamensData.filter(ex => !selectedTrimestre || ex.periodeId === selectedTrimestre)
           setExamens(examensFiltres.map(mapExamenFromApi))
@@ -1,5 +1,5 @@
 // Service Examens - Gère l'accès aux données (mock ou API)
-import { API_CONFIG, delay, buildUrl } from '../api/config'
+import { API_CONFIG, delay, buildUrl, fetchAllPages } from '../api/config'
 import { examensMock, resultatsExamensMock, examensStatsMock } from '../data/examens.mock'
 
 // ============ FONCTIONS MOCK ============
@@ -99,10 +99,7 @@ const mockGetStats = async () => {
 
 // ============ FONCTIONS API ============
 const apiGetAllExamens = async (filters = {}) => {
-  const params = new URLSearchParams(filters)
-  const response = await fetch(`${buildUrl('/examens')}?${params}`)
-  if (!response.ok) throw new Error('Erreur lors du chargement')
-  return response.json()
+  return fetchAllPages('/examens', filters)
 }
 
 const apiGetExamenById = async (id) => {
@@ -1,5 +1,5 @@
 // Service Matières et Notes - Gère l'accès aux données (mock ou API)
-import { API_CONFIG, delay, buildUrl } from '../api/config'
+import { API_CONFIG, delay, buildUrl, fetchAllPages } from '../api/config'
 import { matieresMock, notesMock, periodesMock, bulletinsMock, academicStatsMock } from '../data/matieres.mock'
 
 // ============ FONCTIONS MOCK ============
@@ -110,11 +110,13 @@ const apiGetAllPeriodes = async () => {
 }
 
 const apiGetNotes = async (filters = {}) => {
-  let url = '/notes'
+  let url
   if (filters.eleveId && filters.periodeId) {
     url = `/notes/eleve/${filters.eleveId}/periode/${filters.periodeId}`
   } else if (filters.eleveId) {
     url = `/notes/eleve/${filters.eleveId}`
+  } else {
+    return fetchAllPages('/notes')
   }
   const response = await fetch(buildUrl(url))
   if (!response.ok) throw new Error('Erreur lors du chargement')
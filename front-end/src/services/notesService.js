@@ -1,5 +1,5 @@
 // Service Notes - Gère l'accès aux données (mock ou API)
-import { API_CONFIG, delay, buildUrl } from '../api/config'
+import { API_CONFIG, delay, buildUrl, fetchAllPages } from '../api/config'
 
 // ============ FONCTIONS MOCK ============
 const mockNotes = []
@@ -87,21 +87,12 @@ const mockGetStats = async () => {
 // ============ FONCTIONS API ============
 const apiGetAllNotes = async (filters = {}) => {
   try {
-    let url = buildUrl('/notes')
-    const params = new URLSearchParams()
+    const params = {}
+    if (filters.eleveId) params.eleveId = filters.eleveId
+    if (filters.matiereId) params.matiereId = filters.matiereId
+    if (filters.periodeId) params.periodeId = filters.periodeId
 
-    if (filters.eleveId) params.append('eleveId', filters.eleveId)
-    if (filters.matiereId) params.append('matiereId', filters.matiereId)
-    if (filters.periodeId) params.append('periodeId', filters.periodeId)
-
-    if (params.toString()) url += `?${params.toString()}`
-
-    const response = await fetch(url)
-    if (!response.ok) {
-      const error = await response.text()
-      throw new Error(error || 'Erreur lors du chargement des notes')
-    }
-    return response.json()
+    return await fetchAllPages('/notes', params, 'Erreur lors du chargement des notes')
   } catch (error) {
     console.error('Erreur API getAllNotes:', error)
     throw error
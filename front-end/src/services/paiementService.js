@@ -1,11 +1,9 @@
 // Service Paiements - Gère l'accès aux données via l'API backend
-import { API_CONFIG, delay, buildUrl } from '../api/config'
+import { API_CONFIG, delay, buildUrl, fetchAllPages } from '../api/config'
 
 // ============ FONCTIONS API ============
 const apiGetAll = async (filters = {}) => {
-  const response = await fetch(buildUrl('/paiements'))
-  if (!response.ok) throw new Error('Erreur lors du chargement des paiements')
-  return response.json()
+  return fetchAllPages('/paiements', {}, 'Erreur lors du chargement des paiements')
 }
 
 const apiGetById = async (id) => {
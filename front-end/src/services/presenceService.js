@@ -1,5 +1,5 @@
 // Service Présences - Gère l'accès aux données (mock ou API)
-import { API_CONFIG, delay, buildUrl } from '../api/config'
+import { API_CONFIG, delay, buildUrl, fetchAllPages } from '../api/config'
 import { presencesMock, alertesAbsenceMock, presenceStatsMock } from '../data/presences.mock'
 
 // ============ FONCTIONS MOCK ============
@@ -78,13 +78,15 @@ const mockGetStats = async () => {
 
 // ============ FONCTIONS API ============
 const apiGetPresences = async (filters = {}) => {
-  let url = '/presences'
+  let url
   if (filters.eleveId && filters.debut && filters.fin) {
     url = `/presences/eleve/${filters.eleveId}/periode?debut=${filters.debut}&fin=${filters.fin}`
   } else if (filters.eleveId) {
     url = `/presences/eleve/${filters.eleveId}`
   } else if (filters.classeId && filters.date) {
     url = `/presences/classe/${filters.classeId}/date/${filters.date}`
+  } else {
+    return fetchAllPages('/presences')
   }
   const response = await fetch(buildUrl(url))
   if (!response.ok) throw new Error('Erreur lors du chargement')